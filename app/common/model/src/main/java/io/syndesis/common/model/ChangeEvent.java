@@ -15,10 +15,14 @@
  */
 package io.syndesis.common.model;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.Optional;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import io.syndesis.common.util.EventPayload;
+import io.syndesis.common.util.json.JsonUtils;
 import org.immutables.value.Value;
 
 /**
@@ -39,6 +43,28 @@ public interface ChangeEvent extends ToJson, Serializable {
         return new ChangeEvent.Builder().action(action).kind(kind).id(id).build();
     }
 
+    /**
+     * Event bus payload carrying this event, rendered to JSON only when
+     * needed.
+     */
+    @JsonIgnore
+    default EventPayload toPayload() {
+        return EventPayload.of(this, this::toJson);
+    }
+
+    /**
+     * The change event carried by the given payload, parsed from JSON only if
+     * the payload was not published with a typed {@link ChangeEvent}.
+     */
+    static Optional<ChangeEvent> fromPayload(EventPayload payload) throws IOException {
+        final Optional<ChangeEvent> typed = payload.as(ChangeEvent.class);
+        if (typed.isPresent()) {
+            return typed;
+        }
+
+        return Optional.ofNullable(JsonUtils.reader().forType(ChangeEvent.class).readValue(payload.json()));
+    }
+
     class Builder extends ImmutableChangeEvent.Builder {
         // make ImmutableChangeEvent.Builder which is package private
         // accessible
@@ -20,6 +20,7 @@ import io.syndesis.common.model.Kind;
 import io.syndesis.common.model.WithId;
 import io.syndesis.common.model.validation.UniquenessRequired;
 import io.syndesis.common.model.validation.integration.NoDuplicateIntegration;
+import io.syndesis.common.util.IndexedProperty;
 
 import org.immutables.value.Value;
 
@@ -30,6 +31,7 @@ import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 @NoDuplicateIntegration(groups = UniquenessRequired.class)
 @SuppressWarnings("immutables")
 @Audited
+@IndexedProperty("name")
 public interface Integration extends WithId<Integration>, IntegrationBase {
 
     @Override
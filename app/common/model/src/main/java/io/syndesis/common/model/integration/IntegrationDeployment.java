@@ -21,6 +21,7 @@ import java.util.Optional;
 
 import io.syndesis.common.model.Kind;
 import io.syndesis.common.model.WithId;
+import io.syndesis.common.util.CompositeIndexedProperty;
 import io.syndesis.common.util.IndexedProperty;
 
 import org.immutables.value.Value;
@@ -32,6 +33,10 @@ import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
     @IndexedProperty("currentState"),
     @IndexedProperty("targetState")
 })
+@CompositeIndexedProperty.Multiple({
+    @CompositeIndexedProperty({"integrationId", "targetState"}),
+    @CompositeIndexedProperty({"currentState", "targetState"})
+})
 @Value.Immutable
 @JsonDeserialize(builder = IntegrationDeployment.Builder.class)
 @SuppressWarnings("immutables")
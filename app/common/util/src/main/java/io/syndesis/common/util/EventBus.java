@@ -15,6 +15,8 @@
  */
 package io.syndesis.common.util;
 
+import java.util.function.BiConsumer;
+
 /**
  * Interface for managing client subscriptions and publishing events to them.
  */
@@ -51,6 +53,36 @@ public interface EventBus {
          * @param data the data associated the the event type
          */
         void onEvent(String event, String data);
+
+        /**
+         * Receives the event with its payload, implement this to consume
+         * typed payloads without parsing JSON. By default the JSON is
+         * rendered and passed to {@link #onEvent(String, String)}. This
+         * method must never block.
+         * @param event the type of event being delivered
+         * @param payload the payload associated the the event type
+         */
+        default void onEvent(String event, EventPayload payload) {
+            onEvent(event, payload.json());
+        }
+
+        /**
+         * Creates a subscription that always receives {@link EventPayload}s,
+         * events sent as JSON text are wrapped.
+         */
+        static Subscription of(BiConsumer<String, EventPayload> handler) {
+            return new Subscription() {
+                @Override
+                public void onEvent(String event, String data) {
+                    handler.accept(event, EventPayload.ofJson(data));
+                }
+
+                @Override
+                public void onEvent(String event, EventPayload payload) {
+                    handler.accept(event, payload);
+                }
+            };
+        }
     }
 
     /**
@@ -74,9 +106,24 @@ public interface EventBus {
      */
     void broadcast(String event, String data);
 
+    /**
+     * Send an event with a typed payload to all subscribers in a bus. The
+     * payload is rendered to JSON only for subscribers that need it.
+     */
+    default void broadcast(String event, EventPayload payload) {
+        broadcast(event, payload.json());
+    }
+
     /**
      * Send an event to a specific subscriber on the bus.  The event MAY get delivered to the subscriptions
      * after this call returns.
      */
     void send(String subscriberId, String event, String data);
+
+    /**
+     * Send an event with a typed payload to a specific subscriber on the bus.
+     */
+    default void send(String subscriberId, String event, EventPayload payload) {
+        send(subscriberId, event, payload.json());
+    }
 }
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.common.util;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Payload of an {@link EventBus} event. Carries the typed value the event was
+ * created from, if any, and renders its JSON representation only when a
+ * subscriber asks for it, typically at the network edge. The rendered JSON is
+ * cached so that it is produced at most once regardless of the number of
+ * subscribers.
+ */
+public final class EventPayload {
+
+    private volatile String json;
+
+    private final Supplier<String> renderer;
+
+    private final Object value;
+
+    private EventPayload(final Object value, final Supplier<String> renderer, final String json) {
+        this.value = value;
+        this.renderer = renderer;
+        this.json = json;
+    }
+
+    /**
+     * Typed value of this payload if it is of the given type, empty if the
+     * payload was created from JSON or holds a value of a different type.
+     */
+    public <T> Optional<T> as(final Class<T> type) {
+        if (type.isInstance(value)) {
+            return Optional.of(type.cast(value));
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * JSON representation of this payload, {@code null} for payloads created
+     * from {@code null} JSON.
+     */
+    public String json() {
+        String rendered = json;
+        if (rendered == null && renderer != null) {
+            rendered = renderer.get();
+            json = rendered;
+        }
+
+        return rendered;
+    }
+
+    public static EventPayload of(final Object value, final Supplier<String> renderer) {
+        return new EventPayload(Objects.requireNonNull(value, "value"), Objects.requireNonNull(renderer, "renderer"), null);
+    }
+
+    public static EventPayload ofJson(final String json) {
+        return new EventPayload(null, null, json);
+    }
+
+    /**
+     * Payloads are equal if they carry equal typed values, or, lacking typed
+     * values, equal JSON.
+     */
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+
+        if (!(obj instanceof EventPayload)) {
+            return false;
+        }
+
+        final EventPayload other = (EventPayload) obj;
+        if (value != null || other.value != null) {
+            return Objects.equals(value, other.value);
+        }
+
+        return Objects.equals(json, other.json);
+    }
+
+    @Override
+    public int hashCode() {
+        return value != null ? value.hashCode() : Objects.hashCode(json);
+    }
+
+    @Override
+    public String toString() {
+        return value != null ? String.valueOf(value) : json;
+    }
+}
@@ -25,15 +25,15 @@ public class TransactedEventBus implements EventBus {
     private final Queue<Event> events = new ConcurrentLinkedQueue<>();
 
     static class Event {
-        final String data;
+        final EventPayload payload;
 
         final String event;
 
         final String subscriberId;
 
-        Event(final String event, final String data, final String subscriberId) {
+        Event(final String event, final EventPayload payload, final String subscriberId) {
             this.event = event;
-            this.data = data;
+            this.payload = payload;
             this.subscriberId = subscriberId;
         }
 
@@ -45,7 +45,12 @@ public class TransactedEventBus implements EventBus {
 
     @Override
     public void broadcast(final String event, final String data) {
-        events.add(new Event(event, data, null));
+        broadcast(event, EventPayload.ofJson(data));
+    }
+
+    @Override
+    public void broadcast(final String event, final EventPayload payload) {
+        events.add(new Event(event, payload, null));
     }
 
     public void commit() {
@@ -57,9 +62,9 @@ public class TransactedEventBus implements EventBus {
         Event event = events.poll();
         while (event != null) {
             if (event.subscriberId == null) {
-                delegate.broadcast(event.event, event.data);
+                delegate.broadcast(event.event, event.payload);
             } else {
-                delegate.send(event.subscriberId, event.event, event.data);
+                delegate.send(event.subscriberId, event.event, event.payload);
             }
 
             event = events.poll();
@@ -68,8 +73,12 @@ public class TransactedEventBus implements EventBus {
 
     @Override
     public void send(final String subscriberId, final String event, final String data) {
-        events.add(new Event(event, data, subscriberId));
+        send(subscriberId, event, EventPayload.ofJson(data));
+    }
 
+    @Override
+    public void send(final String subscriberId, final String event, final EventPayload payload) {
+        events.add(new Event(event, payload, subscriberId));
     }
 
     @Override
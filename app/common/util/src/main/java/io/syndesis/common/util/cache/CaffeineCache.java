@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.common.util.cache;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * {@link Cache} view over a Caffeine cache. Reads and writes go straight to
+ * the underlying concurrent map, there is no monitor shared between callers.
+ */
+final class CaffeineCache<K, V> implements Cache<K, V> {
+
+    private final com.github.benmanes.caffeine.cache.Cache<K, V> cache;
+
+    private final boolean soft;
+
+    CaffeineCache(final com.github.benmanes.caffeine.cache.Cache<K, V> cache, final boolean soft) {
+        this.cache = cache;
+        this.soft = soft;
+    }
+
+    @Override
+    public V get(final K key) {
+        return cache.getIfPresent(key);
+    }
+
+    @Override
+    public Set<K> keySet() {
+        return cache.asMap().keySet();
+    }
+
+    @Override
+    public Collection<V> values() {
+        return cache.asMap().values();
+    }
+
+    @Override
+    public void put(final K key, final V value) {
+        cache.put(key, value);
+    }
+
+    @Override
+    public V remove(final K key) {
+        return cache.asMap().remove(key);
+    }
+
+    @Override
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    @Override
+    public int size() {
+        // pending evictions are applied so that the size does not overshoot
+        // the configured maximum
+        cache.cleanUp();
+        return (int) Math.min(Integer.MAX_VALUE, cache.estimatedSize());
+    }
+
+    boolean isSoft() {
+        return soft;
+    }
+
+    com.github.benmanes.caffeine.cache.Cache<K, V> unwrap() {
+        return cache;
+    }
+
+    @Override
+    public String toString() {
+        return "CaffeineCache{" +
+            "soft=" + soft +
+            ", stats=" + cache.stats() +
+            '}';
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.common.util.cache;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Concurrent alternative to {@link LRUCacheManager} backed by Caffeine. Caches
+ * use W-TinyLFU admission and are bounded either by the number of entries or,
+ * when {@code maxBytes} is given, by a cheap estimate of the in-memory size
+ * of the values. Entries can optionally expire after a fixed time since the last
+ * write. Hit, miss and eviction statistics are recorded for each cache and can
+ * be bound to a metrics registry via {@link #onCacheCreated(BiConsumer)}.
+ */
+public class CaffeineCacheManager implements CacheManager {
+    private static final Logger LOG = LoggerFactory.getLogger(CacheManager.class);
+
+    // weight used for values whose size is not estimated
+    private static final int DEFAULT_WEIGHT = 1024;
+
+    // weight of a single element of a collection or map value
+    private static final int ELEMENT_WEIGHT = 64;
+
+    private final ConcurrentMap<String, CaffeineCache<?, ?>> caches = new ConcurrentHashMap<>();
+
+    private final Executor executor;
+
+    private final long maxBytes;
+
+    private final int maxElements;
+
+    private volatile BiConsumer<String, com.github.benmanes.caffeine.cache.Cache<?, ?>> listener = (name, cache) -> {
+        // no-op by default
+    };
+
+    private final Duration ttl;
+
+    public CaffeineCacheManager(final int maxElements) {
+        this(maxElements, 0, null);
+    }
+
+    /**
+     * @param maxElements maximum number of entries per cache, used when
+     *            {@code maxBytes} is not positive
+     * @param maxBytes maximum estimated size in bytes of all values in a
+     *            cache, values lower than 1 disable size based weighing
+     * @param ttl time after last write after which entries expire, or
+     *            {@code null} for no expiry
+     */
+    public CaffeineCacheManager(final int maxElements, final long maxBytes, final Duration ttl) {
+        this(maxElements, maxBytes, ttl, ForkJoinPool.commonPool());
+    }
+
+    CaffeineCacheManager(final int maxElements, final long maxBytes, final Duration ttl, final Executor executor) {
+        this.maxElements = maxElements;
+        this.maxBytes = maxBytes;
+        this.ttl = ttl;
+        this.executor = executor;
+    }
+
+    @Override
+    public void evictAll() {
+        caches.values().forEach(CaffeineCache::clear);
+        caches.clear();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <K, V> Cache<K, V> getCache(final String name, final boolean soft) {
+        final CaffeineCache<K, V> cache = (CaffeineCache<K, V>) caches.computeIfAbsent(name, n -> newCache(n, soft));
+        if (cache.isSoft() != soft) {
+            LOG.warn("Cache {} is being used in mixed 'soft' and 'hard' mode", name);
+        }
+        return cache;
+    }
+
+    /**
+     * Registers a callback invoked with the name and the underlying Caffeine
+     * cache whenever a new cache is created, used to bind cache statistics to
+     * metrics.
+     */
+    public CaffeineCacheManager onCacheCreated(final BiConsumer<String, com.github.benmanes.caffeine.cache.Cache<?, ?>> listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    private <K, V> CaffeineCache<K, V> newCache(final String name, final boolean soft) {
+        final Caffeine<Object, Object> builder = Caffeine.newBuilder()
+            .executor(executor)
+            .recordStats();
+
+        if (maxBytes > 0) {
+            builder.maximumWeight(maxBytes).weigher(CaffeineCacheManager::weigh);
+        } else {
+            builder.maximumSize(maxElements);
+        }
+
+        if (ttl != null && !ttl.isZero() && !ttl.isNegative()) {
+            builder.expireAfterWrite(ttl);
+        }
+
+        if (soft) {
+            builder.softValues();
+        }
+
+        final com.github.benmanes.caffeine.cache.Cache<K, V> cache = builder.build();
+        listener.accept(name, cache);
+
+        return new CaffeineCache<>(cache, soft);
+    }
+
+    /**
+     * Estimates the size of the value without traversing or serializing it,
+     * the weigher is invoked on every write so it needs to be cheap.
+     */
+    static int weigh(final Object key, final Object value) {
+        final long weight;
+        if (value instanceof CharSequence) {
+            weight = 2L * ((CharSequence) value).length();
+        } else if (value instanceof byte[]) {
+            weight = ((byte[]) value).length;
+        } else if (value instanceof Collection) {
+            weight = (long) ELEMENT_WEIGHT * ((Collection<?>) value).size();
+        } else if (value instanceof Map) {
+            weight = (long) ELEMENT_WEIGHT * ((Map<?, ?>) value).size();
+        } else {
+            weight = DEFAULT_WEIGHT;
+        }
+
+        return (int) Math.min(Math.max(weight, 1), Integer.MAX_VALUE);
+    }
+}
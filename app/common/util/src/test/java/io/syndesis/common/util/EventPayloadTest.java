@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.common.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EventPayloadTest {
+
+    @Test
+    public void shouldRenderJsonOnceAndOnlyWhenRequested() {
+        final AtomicInteger renders = new AtomicInteger();
+        final EventPayload payload = EventPayload.of("value", () -> {
+            renders.incrementAndGet();
+            return "\"value\"";
+        });
+
+        assertThat(payload.as(String.class)).contains("value");
+        assertThat(renders).hasValue(0);
+
+        assertThat(payload.json()).isEqualTo("\"value\"");
+        assertThat(payload.json()).isEqualTo("\"value\"");
+        assertThat(renders).hasValue(1);
+    }
+
+    @Test
+    public void shouldNotProvideTypedValueForJsonPayloads() {
+        final EventPayload payload = EventPayload.ofJson("{}");
+
+        assertThat(payload.as(Object.class)).isEmpty();
+        assertThat(payload.json()).isEqualTo("{}");
+    }
+
+    @Test
+    public void shouldAllowJsonPayloadsWithoutData() {
+        final EventPayload payload = EventPayload.ofJson(null);
+
+        assertThat(payload.as(Object.class)).isEmpty();
+        assertThat(payload.json()).isNull();
+        assertThat(payload).isEqualTo(EventPayload.ofJson(null));
+    }
+
+    @Test
+    public void shouldCompareByValueOrJson() {
+        assertThat(EventPayload.of("a", () -> "1")).isEqualTo(EventPayload.of("a", () -> "2"));
+        assertThat(EventPayload.of("a", () -> "1")).isNotEqualTo(EventPayload.of("b", () -> "1"));
+        assertThat(EventPayload.ofJson("{}")).isEqualTo(EventPayload.ofJson("{}"));
+        assertThat(EventPayload.ofJson("\"a\"")).isNotEqualTo(EventPayload.of("a", () -> "\"a\""));
+    }
+
+    @Test
+    public void shouldDeliverTypedPayloadToTypedSubscriptions() {
+        final EventPayload payload = EventPayload.of("value", () -> {
+            throw new AssertionError("should not render");
+        });
+
+        final EventPayload[] received = new EventPayload[1];
+        EventBus.Subscription.of((event, p) -> received[0] = p).onEvent("event", payload);
+
+        assertThat(received[0]).isSameAs(payload);
+    }
+}
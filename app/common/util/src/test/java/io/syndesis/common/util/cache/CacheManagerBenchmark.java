@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.common.util.cache;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares {@link LRUCacheManager} and {@link CaffeineCacheManager} caches
+ * under concurrent read/write mixes. Not run as part of the build, run with:
+ *
+ * <pre>
+ * mvn -Djmh -pl common/util test-compile exec:java -Dexec.classpathScope=test \
+ *   -Dexec.mainClass=io.syndesis.common.util.cache.CacheManagerBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class CacheManagerBenchmark {
+
+    private static final int MAX_ENTRIES = 1000;
+
+    // twice as many keys as the cache holds so that evictions happen
+    private static final int KEY_SPACE = 2 * MAX_ENTRIES;
+
+    @Param({"lru", "caffeine"})
+    public String implementation;
+
+    @Param({"soft", "hard"})
+    public String mode;
+
+    // percentage of operations that are reads
+    @Param({"100", "90", "50"})
+    public int readPercentage;
+
+    private Cache<String, String> cache;
+
+    private String[] keys;
+
+    @Setup
+    public void setup() {
+        final CacheManager manager;
+        if ("caffeine".equals(implementation)) {
+            manager = new CaffeineCacheManager(MAX_ENTRIES);
+        } else {
+            manager = new LRUCacheManager(MAX_ENTRIES);
+        }
+
+        cache = manager.getCache("benchmark", "soft".equals(mode));
+
+        keys = new String[KEY_SPACE];
+        for (int i = 0; i < KEY_SPACE; i++) {
+            keys[i] = "key-" + i;
+        }
+
+        for (int i = 0; i < MAX_ENTRIES; i++) {
+            cache.put(keys[i], keys[i]);
+        }
+    }
+
+    @Benchmark
+    public void mixed(final Blackhole blackhole) {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final String key = keys[random.nextInt(KEY_SPACE)];
+
+        if (random.nextInt(100) < readPercentage) {
+            blackhole.consume(cache.get(key));
+        } else {
+            cache.put(key, key);
+        }
+    }
+
+    @Benchmark
+    public int size() {
+        return cache.size();
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(CacheManagerBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.common.util.cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CaffeineCacheManagerTest {
+
+    @ParameterizedTest(name = "CaffeineCacheManagerTest(soft={0})")
+    @ValueSource(booleans = {true, false})
+    public void testEviction(final boolean soft) {
+        CacheManager manager = new CaffeineCacheManager(2, 0, null, Runnable::run);
+        Cache<String, Object> cache = manager.getCache("cache", soft);
+
+        for (int i = 0; i < 10; i++) {
+            cache.put(String.valueOf(i), String.valueOf(i));
+        }
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.keySet()).hasSize(2);
+    }
+
+    @ParameterizedTest(name = "CaffeineCacheManagerTest(soft={0})")
+    @ValueSource(booleans = {true, false})
+    public void testIdentity(final boolean soft) {
+        CacheManager manager = new CaffeineCacheManager(2);
+        Cache<String, String> cache1 = manager.getCache("cache", soft);
+        Cache<String, String> cache2 = manager.getCache("cache", soft);
+        // same cache, but warning printed
+        Cache<String, String> cache3 = manager.getCache("cache", !soft);
+
+        assertThat(cache1).isSameAs(cache2);
+        assertThat(cache1).isSameAs(cache3);
+    }
+
+    @Test
+    public void testOperations() {
+        CacheManager manager = new CaffeineCacheManager(10);
+        Cache<String, String> cache = manager.getCache("cache", false);
+
+        cache.put("a", "1");
+        cache.put("b", "2");
+
+        assertThat(cache.get("a")).isEqualTo("1");
+        assertThat(cache.values()).containsOnly("1", "2");
+        assertThat(cache.remove("a")).isEqualTo("1");
+        assertThat(cache.get("a")).isNull();
+
+        cache.clear();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    public void testWeighsByEstimatedSize() {
+        CacheManager manager = new CaffeineCacheManager(Integer.MAX_VALUE, 200, null, Runnable::run);
+        Cache<String, String> cache = manager.getCache("cache", false);
+
+        final String value = new String(new char[40]).replace('\0', 'x');
+        for (int i = 0; i < 10; i++) {
+            cache.put(String.valueOf(i), value);
+        }
+
+        // each value is estimated at 80 bytes, so at most two fit
+        assertThat(cache.size()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    public void testExpiresEntries() throws InterruptedException {
+        CacheManager manager = new CaffeineCacheManager(10, 0, Duration.ofMillis(1), Runnable::run);
+        Cache<String, String> cache = manager.getCache("cache", false);
+
+        cache.put("a", "1");
+        Thread.sleep(10);
+
+        assertThat(cache.get("a")).isNull();
+    }
+
+    @Test
+    public void testNotifiesAboutCreatedCaches() {
+        final List<String> created = new ArrayList<>();
+        CaffeineCacheManager manager = new CaffeineCacheManager(10)
+            .onCacheCreated((name, cache) -> created.add(name));
+
+        Cache<String, String> cache = manager.getCache("one", false);
+        manager.getCache("one", false);
+        manager.getCache("two", true);
+
+        cache.put("a", "1");
+        cache.get("a");
+        cache.get("b");
+
+        assertThat(created).containsExactly("one", "two");
+        final CacheStats stats = ((CaffeineCache<String, String>) cache).unwrap().stats();
+        assertThat(stats.hitCount()).isEqualTo(1);
+        assertThat(stats.missCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testEvictAll() {
+        CacheManager manager = new CaffeineCacheManager(10);
+        Cache<String, String> cache = manager.getCache("cache", false);
+        cache.put("a", "1");
+
+        manager.evictAll();
+
+        assertThat(cache.size()).isZero();
+        assertThat(manager.getCache("cache", false)).isNotSameAs(cache);
+    }
+}
@@ -15,14 +15,18 @@
  */
 package io.syndesis.connector.ftp;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Map;
 
 import org.apache.camel.Exchange;
 import org.apache.camel.Message;
+import org.apache.camel.converter.stream.CachedOutputStream;
+import org.apache.camel.util.IOHelper;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 
 import io.syndesis.common.util.ErrorCategory;
 import io.syndesis.common.util.SyndesisConnectorException;
@@ -32,21 +36,39 @@ import io.syndesis.integration.component.proxy.ComponentProxyCustomizer;
 
 public class FtpConnectorCustomizer implements ComponentProxyCustomizer {
 
+    // readers and writers are thread safe and costly to create per message
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final ObjectReader PAYLOAD_READER = MAPPER.readerFor(FtpPayload.class);
+
+    private static final ObjectWriter PAYLOAD_WRITER = MAPPER.writerFor(FtpPayload.class);
+
     @Override
     public void customize(ComponentProxyComponent component, Map<String, Object> options) {
-
-        component.setBeforeProducer(FtpConnectorCustomizer::doBeforeProducer);
+        boolean[] streaming = {false};
+        consumeOption(options, "streaming", value -> streaming[0] = Boolean.parseBoolean(String.valueOf(value)));
 
         component.setBeforeConsumer(FtpConnectorCustomizer::doBeforeConsumer);
-        component.setAfterConsumer(FtpConnectorCustomizer::doAfterConsumer);
+
+        if (streaming[0]) {
+            // hand over the content as it is read from the server instead of
+            // loading the whole file into memory first
+            options.put("streamDownload", "true");
+
+            component.setBeforeProducer(FtpConnectorCustomizer::doBeforeStreamingProducer);
+            component.setAfterConsumer(FtpConnectorCustomizer::doAfterStreamingConsumer);
+        } else {
+            component.setBeforeProducer(FtpConnectorCustomizer::doBeforeProducer);
+            component.setAfterConsumer(FtpConnectorCustomizer::doAfterConsumer);
+        }
     }
 
     // Before Uploading or Updating a named file (pattern: to)
-    private static void doBeforeProducer(Exchange exchange) throws JsonMappingException, JsonProcessingException {
+    private static void doBeforeProducer(Exchange exchange) throws IOException {
         final Message in = exchange.getIn();
         final String body = in.getBody(String.class);
         if (body != null && JsonUtils.isJson(body)) {
-            final FtpPayload payLoad = new ObjectMapper().readValue(body, FtpPayload.class);
+            final FtpPayload payLoad = PAYLOAD_READER.readValue(body);
             if (payLoad.getFileName()==null || payLoad.getFileName().equals("error")) {
                 throw new SyndesisConnectorException(ErrorCategory.DATA_ACCESS_ERROR, "FileName '"
                        + payLoad.getFileName()  + "' could not be parsed correctly");
@@ -57,12 +79,22 @@ public class FtpConnectorCustomizer implements ComponentProxyCustomizer {
         }
     }
 
+    // Before Uploading or Updating a named file in streaming mode, the body
+    // holds the content and is uploaded as it is
+    private static void doBeforeStreamingProducer(Exchange exchange) {
+        final String fileName = exchange.getIn().getHeader(Exchange.FILE_NAME, String.class);
+        if (fileName == null || fileName.isEmpty()) {
+            throw new SyndesisConnectorException(ErrorCategory.DATA_ACCESS_ERROR, "FileName"
+                    + " is not set in the " + Exchange.FILE_NAME + " header");
+        }
+    }
+
     // Before Downloading a named file (pattern: pollEnrich)
-    private static void doBeforeConsumer(Exchange exchange) throws JsonMappingException, JsonProcessingException {
+    private static void doBeforeConsumer(Exchange exchange) throws IOException {
         final Message in = exchange.getIn();
         final String body = in.getBody(String.class);
         if (body != null && JsonUtils.isJson(body)) {
-            FtpPayload payLoad = new ObjectMapper().readValue(in.getBody(String.class), FtpPayload.class);
+            FtpPayload payLoad = PAYLOAD_READER.readValue(body);
             if (payLoad.getFileName()==null || payLoad.getFileName().equals("error")) {
                 throw new SyndesisConnectorException(ErrorCategory.DATA_ACCESS_ERROR, "FileName"
                         + " could not be parsed correctly");
@@ -73,7 +105,7 @@ public class FtpConnectorCustomizer implements ComponentProxyCustomizer {
     }
 
     // After Downloading a named file (pattern: pollEnrich)
-    private static void doAfterConsumer(Exchange exchange) throws JsonMappingException, JsonProcessingException {
+    private static void doAfterConsumer(Exchange exchange) throws IOException {
         if (exchange.getException()!=null) {
             throw SyndesisConnectorException.wrap(
                     ErrorCategory.CONNECTOR_ERROR, exchange.getException());
@@ -84,7 +116,7 @@ public class FtpConnectorCustomizer implements ComponentProxyCustomizer {
         if (body!=null) {
             final FtpPayload payLoad = new FtpPayload(body);
             payLoad.setFileName(fileName);
-            final String jsonPayload = new ObjectMapper().writeValueAsString(payLoad);
+            final String jsonPayload = PAYLOAD_WRITER.writeValueAsString(payLoad);
             in.setBody(jsonPayload);
         } else {
             final String detailedMsg = "File '" + fileName + "' was not found on the FTP server";
@@ -92,4 +124,28 @@ public class FtpConnectorCustomizer implements ComponentProxyCustomizer {
         }
     }
 
+    // After Downloading a named file in streaming mode (pattern: pollEnrich),
+    // the content is spooled to a stream cache, which overflows to disk, so
+    // that it stays readable after the download completed and the file name
+    // stays in the header
+    private static void doAfterStreamingConsumer(Exchange exchange) throws IOException {
+        if (exchange.getException()!=null) {
+            throw SyndesisConnectorException.wrap(
+                    ErrorCategory.CONNECTOR_ERROR, exchange.getException());
+        }
+        final Message in = exchange.getIn();
+        final String fileName = in.getHeader(Exchange.FILE_NAME, String.class);
+        final InputStream content = in.getBody(InputStream.class);
+        if (content == null) {
+            final String detailedMsg = "File '" + fileName + "' was not found on the FTP server";
+            throw new SyndesisConnectorException(ErrorCategory.ENTITY_NOT_FOUND_ERROR, detailedMsg);
+        }
+
+        final CachedOutputStream cache = new CachedOutputStream(exchange);
+        try (InputStream is = content) {
+            IOHelper.copy(is, cache);
+        }
+        in.setBody(cache.newStreamCache());
+    }
+
 }
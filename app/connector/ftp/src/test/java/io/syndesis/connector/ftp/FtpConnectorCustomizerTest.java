@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.connector.ftp;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.StreamCache;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.impl.DefaultExchange;
+import org.junit.jupiter.api.Test;
+
+import io.syndesis.common.util.SyndesisConnectorException;
+import io.syndesis.integration.component.proxy.ComponentProxyComponent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class FtpConnectorCustomizerTest {
+
+    private final DefaultCamelContext context = new DefaultCamelContext();
+
+    @Test
+    public void shouldWrapDownloadedFileIntoJsonPayload() throws Exception {
+        ComponentProxyComponent component = customize(new HashMap<>());
+
+        Exchange exchange = exchange("content", "file.txt");
+        component.getAfterConsumer().process(exchange);
+
+        assertThat(exchange.getIn().getBody(String.class)).isEqualTo("{\"fileName\":\"file.txt\",\"fileContent\":\"content\"}");
+    }
+
+    @Test
+    public void shouldStreamDownloadedFile() throws Exception {
+        Map<String, Object> options = new HashMap<>();
+        options.put("streaming", "true");
+        ComponentProxyComponent component = customize(options);
+
+        assertThat(options).doesNotContainKey("streaming").containsEntry("streamDownload", "true");
+
+        Exchange exchange = exchange(new ByteArrayInputStream("content".getBytes(StandardCharsets.UTF_8)), "file.txt");
+        component.getAfterConsumer().process(exchange);
+
+        assertThat(exchange.getIn().getBody()).isInstanceOf(StreamCache.class);
+        assertThat(exchange.getIn().getBody(String.class)).isEqualTo("content");
+        assertThat(exchange.getIn().getHeader(Exchange.FILE_NAME)).isEqualTo("file.txt");
+    }
+
+    @Test
+    public void shouldUploadStreamedBodyAsIs() throws Exception {
+        Map<String, Object> options = new HashMap<>();
+        options.put("streaming", "true");
+        ComponentProxyComponent component = customize(options);
+
+        Exchange exchange = exchange("{\"fileName\":\"other.txt\",\"fileContent\":\"json\"}", "file.txt");
+        component.getBeforeProducer().process(exchange);
+
+        assertThat(exchange.getIn().getBody(String.class)).isEqualTo("{\"fileName\":\"other.txt\",\"fileContent\":\"json\"}");
+        assertThat(exchange.getIn().getHeader(Exchange.FILE_NAME)).isEqualTo("file.txt");
+
+        Exchange unnamed = exchange("content", null);
+        assertThatExceptionOfType(SyndesisConnectorException.class)
+            .isThrownBy(() -> component.getBeforeProducer().process(unnamed));
+    }
+
+    private ComponentProxyComponent customize(Map<String, Object> options) {
+        ComponentProxyComponent component = new ComponentProxyComponent("ftp-1", "ftp");
+        component.setCamelContext(context);
+        new FtpConnectorCustomizer().customize(component, options);
+        return component;
+    }
+
+    private Exchange exchange(Object body, String fileName) {
+        Exchange exchange = new DefaultExchange(context);
+        exchange.getIn().setBody(body);
+        exchange.getIn().setHeader(Exchange.FILE_NAME, fileName);
+        return exchange;
+    }
+}
@@ -24,14 +24,13 @@ import io.syndesis.integration.component.proxy.ComponentProxyCustomizer;
 import org.apache.camel.Exchange;
 import org.apache.camel.Message;
 import org.apache.camel.component.kudu.KuduDbOperations;
-import org.apache.kudu.Type;
+import org.apache.camel.component.kudu.KuduRows;
 import org.apache.kudu.client.KuduException;
 import org.apache.kudu.client.KuduScanner;
 import org.apache.kudu.client.RowResult;
 import org.apache.kudu.client.RowResultIterator;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -50,51 +49,35 @@ public class KuduScanCustomizer implements ComponentProxyCustomizer {
 
     private static void processBody(Exchange exchange) throws KuduException, JsonProcessingException {
         final Message in = exchange.getIn();
-        final KuduScanner scanner = in.getBody(KuduScanner.class);
+        final Object body = in.getBody();
 
         final List<String> answer = new ArrayList<>();
-        while(scanner.hasMoreRows()) {
-            RowResultIterator results = scanner.nextRows();
-
-            while (results.hasNext()) {
-                Map<String, Object> row = new HashMap<>();
-                RowResult result = results.next();
-
-                for (int i = 0; i < result.getSchema().getColumnCount(); i++) {
-                    String key = result.getSchema().getColumnByIndex(i).getName();
-                    Type type = result.getColumnType(i);
+        if (body instanceof List) {
+            // a batch of rows from an incremental scan
+            for (Object row : (List<?>) body) {
+                @SuppressWarnings("unchecked")
+                Map<String, Object> values = (Map<String, Object>) row;
+                answer.add(KuduSupport.toJSONBean(values));
+            }
+        } else {
+            final KuduScanner scanner = in.getBody(KuduScanner.class);
+            while(scanner.hasMoreRows()) {
+                RowResultIterator results = scanner.nextRows();
 
-                    switch (type.getName()) {
-                        case "string":
-                            row.put(key, result.getString(i));
-                            break;
-                        case "bool":
-                            row.put(key, result.getBoolean(i));
-                            break;
-                        case "int8":
-                        case "int16":
-                        case "int32":
-                            row.put(key, result.getInt(i));
-                            break;
-                        case "int64":
-                            row.put(key, result.getLong(i));
-                            break;
-                        case "double":
-                            row.put(key, result.getDouble(i));
-                            break;
-                        case "float":
-                            row.put(key, result.getFloat(i));
-                            break;
-                        default:
-                            throw new SyndesisServerException("The column schema type " + type.getName()
-                                    + " for column " + key
-                                    + " is not supported at the moment");
-                    }
+                while (results.hasNext()) {
+                    answer.add(KuduSupport.toJSONBean(toRow(results.next())));
                 }
-                answer.add(KuduSupport.toJSONBean(row));
             }
         }
 
         in.setBody(answer);
     }
+
+    private static Map<String, Object> toRow(RowResult result) {
+        try {
+            return KuduRows.toMap(result);
+        } catch (IllegalArgumentException e) {
+            throw new SyndesisServerException(e.getMessage(), e);
+        }
+    }
 }
@@ -19,23 +19,48 @@ package org.apache.camel.component.kudu;
 import org.apache.camel.Exchange;
 import org.apache.camel.Processor;
 import org.apache.camel.impl.ScheduledPollConsumer;
+import org.apache.camel.util.ObjectHelper;
 import org.apache.kudu.ColumnSchema;
 import org.apache.kudu.client.KuduClient;
 import org.apache.kudu.client.KuduException;
 import org.apache.kudu.client.KuduScanner;
 import org.apache.kudu.client.KuduTable;
+import org.apache.kudu.client.RowResultIterator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 /**
  * The Kudu consumer.
+ * <p>
+ * By default each poll sends a single exchange with a {@link KuduScanner} over
+ * the whole table as the body. When a watermark column is configured the
+ * consumer polls incrementally instead: only the rows with the watermark
+ * column greater than the largest value seen so far are read, the comparison
+ * is pushed down to the tablet servers, and one exchange is sent per scanner
+ * batch with a {@code List<Map<String, Object>>} of the rows as the body. The
+ * watermark is advanced only after all the batches of a poll have been
+ * processed, so a failed poll is retried from the previous watermark.
  */
 public class KuduConsumer extends ScheduledPollConsumer {
+    private static final Logger LOG = LoggerFactory.getLogger(KuduConsumer.class);
+
     private final KuduEndpoint endpoint;
     private final KuduClient connection;
 
+    private KuduTable table;
+    private Comparable<?> watermark;
+
     public KuduConsumer(KuduEndpoint endpoint, Processor processor) {
         super(endpoint, processor);
         this.endpoint = endpoint;
@@ -44,10 +69,19 @@ public class KuduConsumer extends ScheduledPollConsumer {
 
     @Override
     protected int poll() throws Exception {
+        if (table == null) {
+            table = connection.openTable(endpoint.getTableName());
+            watermark = loadWatermark();
+        }
+
+        if (ObjectHelper.isNotEmpty(endpoint.getWatermarkColumn())) {
+            return pollIncrementally();
+        }
+
         Exchange exchange = endpoint.createExchange();
 
         // create a message body
-        KuduScanner scanner = doScan(endpoint.getTableName());
+        KuduScanner scanner = doScan();
 
         exchange.getIn().setBody(scanner);
 
@@ -63,18 +97,153 @@ public class KuduConsumer extends ScheduledPollConsumer {
         }
     }
 
-    private KuduScanner doScan(String tableName) throws KuduException {
-        KuduTable table = connection.openTable(tableName);
+    private int pollIncrementally() throws Exception {
+        final ColumnSchema column = table.getSchema().getColumn(endpoint.getWatermarkColumn());
+
+        final KuduScanner.KuduScannerBuilder builder = newScannerBuilder();
+        if (watermark != null) {
+            builder.addPredicate(KuduRows.greaterThan(column, watermark));
+        }
+
+        final KuduScanner scanner = builder.build();
+        Comparable<?> max = watermark;
+        int polled = 0;
+        try {
+            while (scanner.hasMoreRows()) {
+                RowResultIterator results = scanner.nextRows();
+                if (results.getNumRows() == 0) {
+                    continue;
+                }
+
+                List<Map<String, Object>> rows = new ArrayList<>(results.getNumRows());
+                while (results.hasNext()) {
+                    Map<String, Object> row = KuduRows.toMap(results.next());
+                    max = max(max, KuduRows.comparableValue(column, row.get(column.getName())));
+                    rows.add(row);
+                }
+
+                Exchange exchange = endpoint.createExchange();
+                exchange.getIn().setBody(rows);
+
+                getProcessor().process(exchange);
+                polled++;
+
+                if (exchange.getException() != null) {
+                    // keep the watermark so the rows of this poll are read again
+                    getExceptionHandler().handleException("Error processing exchange", exchange, exchange.getException());
+                    return polled;
+                }
+            }
+        } finally {
+            scanner.close();
+        }
+
+        if (max != watermark) {
+            watermark = max;
+            storeWatermark(max);
+        }
+
+        return polled;
+    }
+
+    private KuduScanner doScan() throws KuduException {
+        return newScannerBuilder().build();
+    }
+
+    private KuduScanner.KuduScannerBuilder newScannerBuilder() {
+        final KuduScanner.KuduScannerBuilder builder = connection.newScannerBuilder(table)
+                .setProjectedColumnNames(projectedColumns());
+
+        if (endpoint.getBatchSizeBytes() > 0) {
+            builder.batchSizeBytes(endpoint.getBatchSizeBytes());
+        }
+
+        return builder;
+    }
+
+    private List<String> projectedColumns() {
+        List<String> projectColumns = new ArrayList<>();
+
+        if (ObjectHelper.isNotEmpty(endpoint.getColumns())) {
+            for (String name : endpoint.getColumns().split(",", -1)) {
+                String trimmed = name.trim();
+                if (!trimmed.isEmpty()) {
+                    projectColumns.add(trimmed);
+                }
+            }
+
+            String watermarkColumn = endpoint.getWatermarkColumn();
+            if (ObjectHelper.isNotEmpty(watermarkColumn) && !projectColumns.contains(watermarkColumn)) {
+                // needed to track the watermark even if not requested
+                projectColumns.add(watermarkColumn);
+            }
+
+            return projectColumns;
+        }
 
-        List<String> projectColumns = new ArrayList<>(1);
         Iterator<ColumnSchema> columns = table.getSchema().getColumns().iterator();
 
         while (columns.hasNext()) {
             projectColumns.add(columns.next().getName());
         }
 
-        return connection.newScannerBuilder(table)
-                .setProjectedColumnNames(projectColumns)
-                .build();
+        return projectColumns;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Comparable<?> max(Comparable<?> current, Comparable<?> candidate) {
+        if (candidate == null) {
+            return current;
+        }
+
+        if (current == null || ((Comparable) candidate).compareTo(current) > 0) {
+            return candidate;
+        }
+
+        return current;
+    }
+
+    private Comparable<?> loadWatermark() throws IOException {
+        final Path file = watermarkFile();
+        if (file == null || !Files.exists(file)) {
+            return null;
+        }
+
+        final String value = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        if (value.isEmpty()) {
+            return null;
+        }
+
+        final ColumnSchema column = table.getSchema().getColumn(endpoint.getWatermarkColumn());
+        LOG.debug("Resuming scan of {} from {} > {}", endpoint.getTableName(), column.getName(), value);
+
+        return KuduRows.parseValue(column, value);
+    }
+
+    private void storeWatermark(Comparable<?> value) throws IOException {
+        final Path file = watermarkFile();
+        if (file == null) {
+            return;
+        }
+
+        final Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+
+        // write aside and rename so a crash never leaves a partial watermark behind
+        final Path tmp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(tmp, String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private Path watermarkFile() {
+        if (ObjectHelper.isEmpty(endpoint.getWatermarkColumn()) || ObjectHelper.isEmpty(endpoint.getWatermarkFile())) {
+            return null;
+        }
+
+        return Paths.get(endpoint.getWatermarkFile());
     }
 }
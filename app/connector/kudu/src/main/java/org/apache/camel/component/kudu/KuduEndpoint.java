@@ -61,6 +61,18 @@ public class KuduEndpoint extends DefaultEndpoint {
     @UriParam
     private String tableName;
 
+    @UriParam(label = "consumer")
+    private String columns;
+
+    @UriParam(label = "consumer")
+    private String watermarkColumn;
+
+    @UriParam(label = "consumer")
+    private String watermarkFile;
+
+    @UriParam(label = "consumer")
+    private int batchSizeBytes;
+
     public KuduEndpoint(String uri, KuduComponent component) {
         super(uri, component);
     }
@@ -164,4 +176,53 @@ public class KuduEndpoint extends DefaultEndpoint {
     public void setType(String type) {
         this.type = type;
     }
+
+    public String getColumns() {
+        return columns;
+    }
+
+    /**
+     * Comma separated list of the columns the consumer reads, all columns are
+     * read if not set
+     */
+    public void setColumns(String columns) {
+        this.columns = columns;
+    }
+
+    public String getWatermarkColumn() {
+        return watermarkColumn;
+    }
+
+    /**
+     * Column with monotonically increasing values, when set the consumer only
+     * reads the rows added since the last poll and sends one exchange per
+     * scanner batch
+     */
+    public void setWatermarkColumn(String watermarkColumn) {
+        this.watermarkColumn = watermarkColumn;
+    }
+
+    public String getWatermarkFile() {
+        return watermarkFile;
+    }
+
+    /**
+     * File where the last consumed watermark value is kept so that the
+     * consumer resumes from it after a restart
+     */
+    public void setWatermarkFile(String watermarkFile) {
+        this.watermarkFile = watermarkFile;
+    }
+
+    public int getBatchSizeBytes() {
+        return batchSizeBytes;
+    }
+
+    /**
+     * Maximum number of bytes the tablet server returns in one scanner batch,
+     * the Kudu default is used if not set
+     */
+    public void setBatchSizeBytes(int batchSizeBytes) {
+        this.batchSizeBytes = batchSizeBytes;
+    }
 }
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.component.kudu;
+
+import org.apache.kudu.ColumnSchema;
+import org.apache.kudu.Schema;
+import org.apache.kudu.Type;
+import org.apache.kudu.client.KuduPredicate;
+import org.apache.kudu.client.RowResult;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Conversions between Kudu rows, the values read from them and scanner
+ * predicates.
+ */
+public final class KuduRows {
+
+    private KuduRows() {
+        // utility class
+    }
+
+    /**
+     * Copies the projected columns of the current row into a map keyed by
+     * column name, the row result is reused by the scanner so the values need
+     * to be copied before moving to the next row.
+     */
+    public static Map<String, Object> toMap(RowResult result) {
+        final Schema schema = result.getSchema();
+        final Map<String, Object> row = new HashMap<>(schema.getColumnCount());
+
+        for (int i = 0; i < schema.getColumnCount(); i++) {
+            String key = schema.getColumnByIndex(i).getName();
+
+            if (result.isNull(i)) {
+                row.put(key, null);
+                continue;
+            }
+
+            Type type = result.getColumnType(i);
+            switch (type) {
+                case STRING:
+                    row.put(key, result.getString(i));
+                    break;
+                case BOOL:
+                    row.put(key, result.getBoolean(i));
+                    break;
+                case INT8:
+                case INT16:
+                case INT32:
+                    row.put(key, result.getInt(i));
+                    break;
+                case INT64:
+                    row.put(key, result.getLong(i));
+                    break;
+                case DOUBLE:
+                    row.put(key, result.getDouble(i));
+                    break;
+                case FLOAT:
+                    row.put(key, result.getFloat(i));
+                    break;
+                default:
+                    throw new IllegalArgumentException("The column schema type " + type.getName()
+                            + " for column " + key
+                            + " is not supported at the moment");
+            }
+        }
+
+        return row;
+    }
+
+    /**
+     * Parses the textual form of a value of the given column, as written by
+     * {@link String#valueOf(Object)}.
+     */
+    static Comparable<?> parseValue(ColumnSchema column, String value) {
+        switch (column.getType()) {
+            case STRING:
+                return value;
+            case INT8:
+            case INT16:
+            case INT32:
+            case INT64:
+                return Long.valueOf(value);
+            case DOUBLE:
+                return Double.valueOf(value);
+            case FLOAT:
+                return Float.valueOf(value);
+            default:
+                throw unsupportedWatermark(column);
+        }
+    }
+
+    /**
+     * Normalizes a value read with {@link #toMap(RowResult)} so that values
+     * of the same column are comparable with each other and with the values
+     * returned by {@link #parseValue(ColumnSchema, String)}.
+     */
+    static Comparable<?> comparableValue(ColumnSchema column, Object value) {
+        switch (column.getType()) {
+            case STRING:
+                return (String) value;
+            case INT8:
+            case INT16:
+            case INT32:
+            case INT64:
+                return ((Number) value).longValue();
+            case DOUBLE:
+                return ((Number) value).doubleValue();
+            case FLOAT:
+                return ((Number) value).floatValue();
+            default:
+                throw unsupportedWatermark(column);
+        }
+    }
+
+    /**
+     * Creates a predicate pushed down to the tablet servers that matches the
+     * rows with the value of the given column greater than the given value.
+     */
+    static KuduPredicate greaterThan(ColumnSchema column, Object value) {
+        switch (column.getType()) {
+            case STRING:
+                return KuduPredicate.newComparisonPredicate(column, KuduPredicate.ComparisonOp.GREATER, (String) value);
+            case INT8:
+            case INT16:
+            case INT32:
+            case INT64:
+                return KuduPredicate.newComparisonPredicate(column, KuduPredicate.ComparisonOp.GREATER, ((Number) value).longValue());
+            case DOUBLE:
+                return KuduPredicate.newComparisonPredicate(column, KuduPredicate.ComparisonOp.GREATER, ((Number) value).doubleValue());
+            case FLOAT:
+                return KuduPredicate.newComparisonPredicate(column, KuduPredicate.ComparisonOp.GREATER, ((Number) value).floatValue());
+            default:
+                throw unsupportedWatermark(column);
+        }
+    }
+
+    private static IllegalArgumentException unsupportedWatermark(ColumnSchema column) {
+        return new IllegalArgumentException("The column schema type " + column.getType().getName()
+                + " for column " + column.getName()
+                + " is not supported as a watermark");
+    }
+}
@@ -17,6 +17,8 @@
 package io.syndesis.connector.kudu;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -34,6 +36,9 @@ import org.apache.kudu.client.KuduTable;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 public class KuduScanCustomizerTest extends AbstractKuduCustomizerTestSupport {
     private static final String HOST = "quickstart.cloudera";
@@ -79,4 +84,21 @@ public class KuduScanCustomizerTest extends AbstractKuduCustomizerTestSupport {
         inbound.getIn().setBody(scanner);
         getComponent().getBeforeConsumer().process(inbound);
     }
+
+    @Test
+    public void testBeforeConsumerWithBatchOfRows() throws Exception {
+        final Map<String, Object> options = new HashMap<>();
+
+        customizer.customize(getComponent(), options);
+
+        final List<Map<String, Object>> rows = Arrays.asList(
+            Collections.singletonMap("id", 1),
+            Collections.singletonMap("id", 2));
+
+        final Exchange inbound = new DefaultExchange(createCamelContext());
+        inbound.getIn().setBody(rows);
+        getComponent().getBeforeConsumer().process(inbound);
+
+        assertEquals(Arrays.asList("{\"id\":1}", "{\"id\":2}"), inbound.getIn().getBody());
+    }
 }
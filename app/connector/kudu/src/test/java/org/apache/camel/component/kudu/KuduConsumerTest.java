@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.camel.component.kudu;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.camel.CamelContext;
+import org.apache.camel.Processor;
+import org.apache.kudu.ColumnSchema;
+import org.apache.kudu.Schema;
+import org.apache.kudu.Type;
+import org.apache.kudu.client.KuduClient;
+import org.apache.kudu.client.KuduPredicate;
+import org.apache.kudu.client.KuduScanner;
+import org.apache.kudu.client.KuduTable;
+import org.apache.kudu.client.RowResult;
+import org.apache.kudu.client.RowResultIterator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class KuduConsumerTest extends AbstractKuduTest {
+
+    private static final String TABLE = "impala::default.syndesis_todo";
+
+    private static final ColumnSchema ID = new ColumnSchema.ColumnSchemaBuilder("id", Type.INT32).key(true).build();
+
+    private static final ColumnSchema NAME = new ColumnSchema.ColumnSchemaBuilder("name", Type.STRING).build();
+
+    private static final Schema SCHEMA = new Schema(Arrays.asList(ID, NAME));
+
+    private final List<List<?>> bodies = new ArrayList<>();
+
+    private KuduEndpoint endpoint;
+
+    private KuduScanner.KuduScannerBuilder builder;
+
+    @TempDir
+    Path tmp;
+
+    @BeforeEach
+    public void setupEndpoint() throws Exception {
+        final CamelContext context = createCamelContext();
+        final KuduClient client = applicationContext.getBean(KuduClient.class);
+
+        final KuduTable table = mock(KuduTable.class);
+        when(table.getSchema()).thenReturn(SCHEMA);
+        when(client.openTable(TABLE)).thenReturn(table);
+
+        builder = mock(KuduScanner.KuduScannerBuilder.class, RETURNS_SELF);
+        when(client.newScannerBuilder(table)).thenReturn(builder);
+
+        final KuduComponent component = new KuduComponent();
+        component.setCamelContext(context);
+
+        endpoint = new KuduEndpoint("kudu:scan", component);
+        endpoint.setKuduClient(client);
+        endpoint.setTableName(TABLE);
+        endpoint.setWatermarkColumn("id");
+    }
+
+    @Test
+    public void shouldSendOneExchangePerBatchAndAdvanceTheWatermark() throws Exception {
+        final KuduConsumer consumer = new KuduConsumer(endpoint, collect());
+
+        scan(rows(1, 2), rows(3));
+        assertEquals(2, consumer.poll());
+        assertEquals(Arrays.asList(Arrays.asList(row(1), row(2)), Collections.singletonList(row(3))), bodies);
+        verify(builder, never()).addPredicate(any(KuduPredicate.class));
+
+        scan(rows(4));
+        assertEquals(1, consumer.poll());
+        verify(builder).addPredicate(KuduRows.greaterThan(ID, 3L));
+
+        // empty polls keep the watermark
+        scan();
+        assertEquals(0, consumer.poll());
+        scan();
+        consumer.poll();
+        verify(builder, times(2)).addPredicate(KuduRows.greaterThan(ID, 4L));
+    }
+
+    @Test
+    public void shouldStopOnFailureAndKeepTheWatermark() throws Exception {
+        final boolean[] failing = {false};
+        final KuduConsumer consumer = new KuduConsumer(endpoint, exchange -> {
+            bodies.add(exchange.getIn().getBody(List.class));
+            if (failing[0]) {
+                exchange.setException(new IllegalStateException("failed"));
+            }
+        });
+
+        scan(rows(1));
+        consumer.poll();
+
+        failing[0] = true;
+        final KuduScanner scanner = scan(rows(2), rows(3));
+        assertEquals(1, consumer.poll());
+        // the second batch is not read once the first one failed
+        verify(scanner).nextRows();
+        verify(scanner).close();
+
+        failing[0] = false;
+        scan(rows(2), rows(3));
+        assertEquals(2, consumer.poll());
+        // the failed rows are read again
+        verify(builder, times(2)).addPredicate(KuduRows.greaterThan(ID, 1L));
+        assertEquals(Collections.singletonList(row(2)), bodies.get(bodies.size() - 2));
+    }
+
+    @Test
+    public void shouldPersistTheWatermarkAtomically() throws Exception {
+        final Path file = tmp.resolve("watermark");
+        endpoint.setWatermarkFile(file.toString());
+
+        KuduConsumer consumer = new KuduConsumer(endpoint, collect());
+        scan(rows(1, 2), rows(3));
+        consumer.poll();
+
+        assertEquals("3", new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        // the watermark is written aside and moved in place
+        assertEquals(Collections.singletonList(file), listFiles());
+
+        // a failed poll leaves the stored watermark as is
+        consumer = new KuduConsumer(endpoint, exchange -> exchange.setException(new IllegalStateException("failed")));
+        reset(builder);
+        scan(rows(4));
+        consumer.poll();
+        assertEquals("3", new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        verify(builder).addPredicate(KuduRows.greaterThan(ID, 3L));
+
+        // a new consumer resumes from the stored watermark
+        consumer = new KuduConsumer(endpoint, collect());
+        reset(builder);
+        scan(rows(4));
+        consumer.poll();
+        verify(builder).addPredicate(KuduRows.greaterThan(ID, 3L));
+        assertEquals("4", new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        assertEquals(Collections.singletonList(file), listFiles());
+    }
+
+    private Processor collect() {
+        return exchange -> bodies.add(exchange.getIn().getBody(List.class));
+    }
+
+    private List<Path> listFiles() throws IOException {
+        try (Stream<Path> files = Files.list(tmp)) {
+            return files.collect(Collectors.toList());
+        }
+    }
+
+    private KuduScanner scan(RowResultIterator... batches) throws Exception {
+        final KuduScanner scanner = mock(KuduScanner.class);
+
+        final Iterator<RowResultIterator> remaining = Arrays.asList(batches).iterator();
+        when(scanner.hasMoreRows()).thenAnswer(invocation -> remaining.hasNext());
+        when(scanner.nextRows()).thenAnswer(invocation -> remaining.next());
+
+        when(builder.build()).thenReturn(scanner);
+
+        return scanner;
+    }
+
+    private static RowResultIterator rows(int... ids) {
+        final Iterator<Integer> remaining = Arrays.stream(ids).boxed().iterator();
+
+        final RowResultIterator results = mock(RowResultIterator.class);
+        when(results.getNumRows()).thenReturn(ids.length);
+        when(results.hasNext()).thenAnswer(invocation -> remaining.hasNext());
+        when(results.next()).thenAnswer(invocation -> {
+            final int id = remaining.next();
+
+            final RowResult result = mock(RowResult.class);
+            when(result.getSchema()).thenReturn(SCHEMA);
+            when(result.getColumnType(0)).thenReturn(Type.INT32);
+            when(result.getColumnType(1)).thenReturn(Type.STRING);
+            when(result.getInt(0)).thenReturn(id);
+            when(result.getString(1)).thenReturn("name " + id);
+
+            return result;
+        });
+
+        return results;
+    }
+
+    private static Map<String, Object> row(int id) {
+        final Map<String, Object> row = new HashMap<>();
+        row.put("id", id);
+        row.put("name", "name " + id);
+        return row;
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.camel.component.kudu;
+
+import org.apache.kudu.ColumnSchema;
+import org.apache.kudu.Type;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class KuduRowsTest {
+
+    @Test
+    public void shouldParseWatermarksAsComparableValues() {
+        ColumnSchema id = new ColumnSchema.ColumnSchemaBuilder("id", Type.INT32).build();
+        assertEquals(42L, KuduRows.parseValue(id, "42"));
+        assertEquals(KuduRows.parseValue(id, "42"), KuduRows.comparableValue(id, 42));
+
+        ColumnSchema ts = new ColumnSchema.ColumnSchemaBuilder("ts", Type.INT64).build();
+        assertEquals(KuduRows.parseValue(ts, String.valueOf(Long.MAX_VALUE)), KuduRows.comparableValue(ts, Long.MAX_VALUE));
+
+        ColumnSchema name = new ColumnSchema.ColumnSchemaBuilder("name", Type.STRING).build();
+        assertEquals("b", KuduRows.comparableValue(name, KuduRows.parseValue(name, "b")));
+
+        ColumnSchema score = new ColumnSchema.ColumnSchemaBuilder("score", Type.DOUBLE).build();
+        assertEquals(KuduRows.parseValue(score, String.valueOf(0.1d)), KuduRows.comparableValue(score, 0.1d));
+    }
+
+    @Test
+    public void shouldRejectUnsupportedWatermarkColumns() {
+        ColumnSchema flag = new ColumnSchema.ColumnSchemaBuilder("flag", Type.BOOL).build();
+        assertThrows(IllegalArgumentException.class, () -> KuduRows.parseValue(flag, "true"));
+        assertThrows(IllegalArgumentException.class, () -> KuduRows.greaterThan(flag, Boolean.TRUE));
+    }
+}
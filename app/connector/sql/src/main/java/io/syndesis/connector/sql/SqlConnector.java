@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.connector.sql;
+
+import java.util.Map;
+
+import io.syndesis.integration.component.proxy.ComponentProxyComponent;
+import io.syndesis.integration.component.proxy.ComponentProxyEndpoint;
+import io.syndesis.integration.component.proxy.ComponentProxyProducer;
+import org.apache.camel.Endpoint;
+import org.apache.camel.Processor;
+import org.apache.camel.Producer;
+import org.apache.camel.processor.Pipeline;
+import org.apache.camel.util.ObjectHelper;
+
+/**
+ * SQL connector component, sends the exchanges to a {@link SqlMicroBatcher}
+ * instead of the Camel SQL producer when one is configured.
+ */
+public class SqlConnector extends ComponentProxyComponent {
+
+    private SqlMicroBatcher microBatcher;
+
+    public SqlConnector(String componentId, String componentScheme) {
+        super(componentId, componentScheme);
+    }
+
+    public void setMicroBatcher(SqlMicroBatcher microBatcher) {
+        this.microBatcher = microBatcher;
+    }
+
+    @Override
+    protected Endpoint createEndpoint(String uri, String remaining, Map<String, Object> parameters) {
+        final ComponentProxyEndpoint endpoint = (ComponentProxyEndpoint) super.createEndpoint(uri, remaining, parameters);
+        if (microBatcher == null) {
+            return endpoint;
+        }
+
+        final MicroBatchingEndpoint answer = new MicroBatchingEndpoint(uri, this, endpoint.getEndpoint(), microBatcher);
+        answer.setBeforeProducer(endpoint.getBeforeProducer());
+        answer.setAfterProducer(endpoint.getAfterProducer());
+        answer.setBeforeConsumer(endpoint.getBeforeConsumer());
+        answer.setAfterConsumer(endpoint.getAfterConsumer());
+
+        return answer;
+    }
+
+    static final class MicroBatchingEndpoint extends ComponentProxyEndpoint {
+
+        private final SqlMicroBatcher microBatcher;
+
+        MicroBatchingEndpoint(String endpointUri, ComponentProxyComponent component, Endpoint endpoint, SqlMicroBatcher microBatcher) {
+            super(endpointUri, component, endpoint);
+            this.microBatcher = microBatcher;
+        }
+
+        @Override
+        @SuppressWarnings("PMD.SignatureDeclareThrowsException")
+        public Producer createProducer() throws Exception {
+            ObjectHelper.trySetCamelContext(microBatcher, getCamelContext());
+
+            // the micro batcher takes the place of the SQL producer
+            final Processor pipeline = Pipeline.newInstance(getCamelContext(), getBeforeProducer(), microBatcher, getAfterProducer());
+
+            return new ComponentProxyProducer(this, pipeline);
+        }
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.connector.sql;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.sql.DataSource;
+
+import io.syndesis.connector.sql.common.CamelSqlConstants;
+import org.apache.camel.AsyncCallback;
+import org.apache.camel.AsyncProcessor;
+import org.apache.camel.CamelContext;
+import org.apache.camel.CamelContextAware;
+import org.apache.camel.Exchange;
+import org.apache.camel.support.ServiceSupport;
+import org.apache.camel.util.AsyncProcessorHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+/**
+ * Collects the SQL parameters of the exchanges sent to a SQL connector step
+ * and executes them as a single JDBC batch. An exchange that arrives while no
+ * batch is executing is executed right away, so a sequential producer never
+ * waits. Exchanges that arrive while a batch is executing are collected and
+ * executed once that batch completes, the batch reaches the maximum size or
+ * the first collected exchange has waited for the maximum time, whichever
+ * comes first. Each exchange is completed with its own update count in the
+ * {@value CamelSqlConstants#SQL_UPDATE_COUNT} header, or with the exception
+ * if the batch fails.
+ * <p>
+ * Exchanges are completed asynchronously so routes that hand over exchanges
+ * without waiting on them, like those with concurrent consumers, fill the
+ * batches the fastest.
+ */
+public final class SqlMicroBatcher extends ServiceSupport implements AsyncProcessor, CamelContextAware {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SqlMicroBatcher.class);
+
+    // Camel SQL parameters, positional ones and named ones including
+    // expressions like :#${body} or :#$simple{header.id}
+    private static final Pattern PARAMETER = Pattern.compile(":?#(\\$\\{[^}]*}|\\$simple\\{[^}]*}|[\\w.$]*)");
+
+    private static final Pattern SIMPLE_NAME = Pattern.compile("[A-Za-z_]\\w*");
+
+    private final DataSource dataSource;
+
+    private final String sql;
+
+    private final int maxSize;
+
+    private final long maxWaitMillis;
+
+    private final Object lock = new Object();
+
+    private List<Pending> pending = new ArrayList<>();
+
+    private ScheduledFuture<?> scheduledFlush;
+
+    private int executing;
+
+    private CamelContext camelContext;
+
+    private ScheduledExecutorService scheduler;
+
+    private NamedParameterJdbcTemplate template;
+
+    /**
+     * @param sql statement with Camel SQL {@code :#name} style parameters, see
+     *            {@link #supports(String)}
+     */
+    public SqlMicroBatcher(final DataSource dataSource, final String sql, final int maxSize, final long maxWaitMillis) {
+        final String named = toNamedParameters(sql);
+        if (named == null) {
+            throw new IllegalArgumentException("Statement cannot be executed in micro batches: " + sql);
+        }
+
+        this.dataSource = dataSource;
+        this.sql = named;
+        this.maxSize = maxSize;
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    /**
+     * Checks whether the parameters of the statement can be bound from the
+     * message body alone. Only simple {@code :#name} parameters can, positional
+     * parameters and expressions like {@code :#${header.id}} need the Camel
+     * SQL producer to be evaluated.
+     */
+    public static boolean supports(final String sql) {
+        return toNamedParameters(sql) != null;
+    }
+
+    @Override
+    public CamelContext getCamelContext() {
+        return camelContext;
+    }
+
+    @Override
+    public void setCamelContext(final CamelContext camelContext) {
+        this.camelContext = camelContext;
+    }
+
+    @Override
+    @SuppressWarnings("PMD.SignatureDeclareThrowsException")
+    public void process(final Exchange exchange) throws Exception {
+        AsyncProcessorHelper.process(this, exchange);
+    }
+
+    @Override
+    public boolean process(final Exchange exchange, final AsyncCallback callback) {
+        final Map<?, ?> parameters = exchange.getIn().getBody() instanceof Map ? exchange.getIn().getBody(Map.class) : Collections.emptyMap();
+
+        final List<Pending> batch;
+        synchronized (lock) {
+            pending.add(new Pending(exchange, callback, parameters));
+
+            if (executing == 0 || pending.size() >= maxSize) {
+                batch = drain();
+                executing++;
+            } else {
+                batch = null;
+                if (scheduledFlush == null) {
+                    scheduledFlush = scheduler.schedule(this::flush, maxWaitMillis, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+
+        if (batch != null) {
+            executeAll(batch);
+        }
+
+        return false;
+    }
+
+    @Override
+    @SuppressWarnings("PMD.SignatureDeclareThrowsException")
+    protected void doStart() throws Exception {
+        template = new NamedParameterJdbcTemplate(dataSource);
+        scheduler = camelContext.getExecutorServiceManager().newSingleThreadScheduledExecutor(this, "SqlMicroBatcher");
+    }
+
+    @Override
+    @SuppressWarnings("PMD.SignatureDeclareThrowsException")
+    protected void doStop() throws Exception {
+        // don't leave exchanges waiting
+        flush();
+
+        camelContext.getExecutorServiceManager().shutdownNow(scheduler);
+    }
+
+    private void flush() {
+        final List<Pending> batch;
+        synchronized (lock) {
+            batch = drain();
+            if (batch.isEmpty()) {
+                return;
+            }
+            executing++;
+        }
+
+        executeAll(batch);
+    }
+
+    /**
+     * Executes the given batch and then, if no other batch is executing, the
+     * exchanges collected in the meantime.
+     */
+    private void executeAll(final List<Pending> batch) {
+        List<Pending> next = batch;
+        while (!next.isEmpty()) {
+            execute(next);
+
+            synchronized (lock) {
+                if (executing == 1 && !pending.isEmpty()) {
+                    next = drain();
+                } else {
+                    executing--;
+                    next = Collections.emptyList();
+                }
+            }
+        }
+    }
+
+    private List<Pending> drain() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+
+        final List<Pending> batch = pending;
+        pending = new ArrayList<>(maxSize);
+
+        return batch;
+    }
+
+    private void execute(final List<Pending> batch) {
+        try {
+            final SqlParameterSource[] parameters = new SqlParameterSource[batch.size()];
+            for (int i = 0; i < parameters.length; i++) {
+                parameters[i] = batch.get(i).parameters;
+            }
+
+            final int[] updateCounts = template.batchUpdate(sql, parameters);
+            LOGGER.debug("Executed batch of {} statements", updateCounts.length);
+
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).exchange.getIn().setHeader(CamelSqlConstants.SQL_UPDATE_COUNT, updateCounts[i]);
+            }
+        } catch (final RuntimeException e) {
+            for (final Pending each : batch) {
+                each.exchange.setException(e);
+            }
+        } finally {
+            for (final Pending each : batch) {
+                each.callback.done(false);
+            }
+        }
+    }
+
+    /**
+     * Rewrites the Camel SQL {@code :#name} parameters to Spring
+     * {@code :name} parameters, returns {@code null} if the statement contains
+     * any other kind of parameter.
+     */
+    static String toNamedParameters(final String sql) {
+        if (sql.indexOf('?') >= 0) {
+            return null;
+        }
+
+        final Matcher matcher = PARAMETER.matcher(sql);
+        final StringBuffer named = new StringBuffer(sql.length());
+        while (matcher.find()) {
+            final String name = matcher.group(1);
+            if (matcher.group().charAt(0) != ':' || !SIMPLE_NAME.matcher(name).matches()) {
+                return null;
+            }
+
+            matcher.appendReplacement(named, ":" + name);
+        }
+        matcher.appendTail(named);
+
+        return named.toString();
+    }
+
+    private static final class Pending {
+        private final Exchange exchange;
+
+        private final AsyncCallback callback;
+
+        private final SqlParameterSource parameters;
+
+        @SuppressWarnings("unchecked")
+        Pending(final Exchange exchange, final AsyncCallback callback, final Map<?, ?> parameters) {
+            this.exchange = exchange;
+            this.callback = callback;
+            this.parameters = new MapSqlParameterSource((Map<String, ?>) parameters);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.connector.sql.common;
+
+import java.lang.ref.WeakReference;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.sql.DataSource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.apache.commons.dbcp.BasicDataSource;
+
+/**
+ * The outcome of parsing a SQL statement and introspecting the database
+ * schema it refers to: the statement type, the JDBC types of its input
+ * parameters and the generated key column, if any. Compiled statements are
+ * cached per data source and statement, so routes that invoke the same query
+ * against the same database share a single compilation and no connection is
+ * opened to customize them. The cache is bounded and does not keep data
+ * sources reachable.
+ */
+public final class CompiledSqlStatement {
+
+    private static final int MAX_CACHED_STATEMENTS = 1024;
+
+    private static final Cache<Key, CompiledSqlStatement> CACHE = Caffeine.newBuilder()
+        .maximumSize(MAX_CACHED_STATEMENTS)
+        .build();
+
+    private final String sql;
+
+    private final String schema;
+
+    private final StatementType statementType;
+
+    private final Map<String, Integer> jdbcTypeMap;
+
+    private final String autoIncrementColumnName;
+
+    private CompiledSqlStatement(final SqlStatementMetaData statementInfo) {
+        sql = statementInfo.getSqlStatement();
+        schema = statementInfo.getSchema();
+        statementType = statementInfo.getStatementType();
+
+        final Map<String, Integer> types = new HashMap<>();
+        for (final SqlParam sqlParam : statementInfo.getInParams()) {
+            types.put(sqlParam.getName(), sqlParam.getJdbcType().getVendorTypeNumber());
+        }
+        jdbcTypeMap = Collections.unmodifiableMap(types);
+
+        autoIncrementColumnName = statementInfo.getAutoIncrementColumnName();
+    }
+
+    /**
+     * Returns the compiled form of the given statement, parsing it and
+     * introspecting the database only the first time the statement is seen
+     * for the data source.
+     */
+    public static CompiledSqlStatement compile(final DataSource dataSource, final String user, final String schema, final String sql) throws SQLException {
+        final Key key = new Key(dataSourceKey(dataSource, user), schema, sql);
+
+        final CompiledSqlStatement cached = CACHE.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        try (Connection connection = dataSource.getConnection()) {
+            final DbMetaDataHelper dbHelper = new DbMetaDataHelper(connection);
+            final String defaultSchema = dbHelper.getDefaultSchema(user);
+            final String schemaPattern = schema == null ? defaultSchema : schema;
+
+            final SqlStatementMetaData statementInfo = new SqlStatementParser(connection, schemaPattern, sql).parse();
+
+            final CompiledSqlStatement compiled = new CompiledSqlStatement(statementInfo);
+            final CompiledSqlStatement existing = CACHE.asMap().putIfAbsent(key, compiled);
+
+            return existing == null ? compiled : existing;
+        }
+    }
+
+    /**
+     * Drops all compiled statements, needed only if the database schema
+     * changes while routes are running.
+     */
+    public static void clearCache() {
+        CACHE.invalidateAll();
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public StatementType getStatementType() {
+        return statementType;
+    }
+
+    public Map<String, Integer> getJdbcTypeMap() {
+        return jdbcTypeMap;
+    }
+
+    public String getAutoIncrementColumnName() {
+        return autoIncrementColumnName;
+    }
+
+    public boolean isRetrieveGeneratedKeys() {
+        return autoIncrementColumnName != null;
+    }
+
+    /**
+     * Checks whether the statement can be executed in batch update mode if
+     * requested, see {@link SqlStatementMetaData#isVerifiedBatchUpdateMode()}.
+     */
+    public boolean isVerifiedBatchUpdateMode(final boolean batch) {
+        final SqlStatementMetaData statementInfo = new SqlStatementMetaData(sql, schema);
+        statementInfo.setStatementType(statementType);
+        statementInfo.setBatch(batch);
+
+        return statementInfo.isVerifiedBatchUpdateMode();
+    }
+
+    private static Object dataSourceKey(final DataSource dataSource, final String user) {
+        if (dataSource instanceof BasicDataSource) {
+            // each connection step creates its own data source, so use what
+            // it connects to rather than its identity
+            final BasicDataSource basic = (BasicDataSource) dataSource;
+            return basic.getUrl() + '|' + basic.getUsername();
+        }
+
+        return new IdentityKey(dataSource, user);
+    }
+
+    /**
+     * Identifies a data source by identity without keeping it reachable, once
+     * the data source is collected the key no longer matches anything and the
+     * entry is eventually evicted by the cache size bound.
+     */
+    private static final class IdentityKey {
+        private final WeakReference<DataSource> dataSource;
+
+        private final int hash;
+
+        private final String user;
+
+        IdentityKey(final DataSource dataSource, final String user) {
+            this.dataSource = new WeakReference<>(dataSource);
+            this.user = user;
+            hash = 31 * System.identityHashCode(dataSource) + Objects.hashCode(user);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+
+            if (!(obj instanceof IdentityKey)) {
+                return false;
+            }
+
+            final IdentityKey other = (IdentityKey) obj;
+            final DataSource referent = dataSource.get();
+            return referent != null && referent == other.dataSource.get() && Objects.equals(user, other.user);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Key {
+        private final Object dataSource;
+
+        private final String schema;
+
+        private final String sql;
+
+        Key(final Object dataSource, final String schema, final String sql) {
+            this.dataSource = dataSource;
+            this.schema = schema;
+            this.sql = sql;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+
+            final Key other = (Key) obj;
+            return dataSource.equals(other.dataSource) && Objects.equals(schema, other.schema) && sql.equals(other.sql);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(dataSource, schema, sql);
+        }
+    }
+}
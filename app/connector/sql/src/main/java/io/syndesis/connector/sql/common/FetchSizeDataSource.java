@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.connector.sql.common;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * DataSource that sets the fetch size on every statement created from its
+ * connections. The Camel SQL component does not expose the fetch size of the
+ * statements it creates, and without it most drivers read the whole result
+ * set into memory before the first row is returned.
+ * <p>
+ * The PostgreSQL driver uses the fetch size only when auto commit is turned
+ * off, so auto commit is turned off on the connections handed out and turned
+ * back on when they're closed. The MySQL driver streams rows only with a fetch
+ * size of {@link Integer#MIN_VALUE}, unless cursor fetch is enabled on the
+ * connection URL, so that fetch size is used for it instead.
+ */
+public final class FetchSizeDataSource extends DelegatingDataSource {
+
+    private final int fetchSize;
+
+    public FetchSizeDataSource(final DataSource dataSource, final int fetchSize) {
+        super(dataSource);
+        this.fetchSize = fetchSize;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return withFetchSize(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(final String username, final String password) throws SQLException {
+        return withFetchSize(super.getConnection(username, password));
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    static int statementFetchSize(final DatabaseMetaData metaData, final int fetchSize) throws SQLException {
+        final String driverName = metaData.getDriverName();
+        final String url = metaData.getURL();
+        if (driverName != null && driverName.startsWith("MySQL Connector") && (url == null || !url.contains("useCursorFetch=true"))) {
+            return Integer.MIN_VALUE;
+        }
+
+        return fetchSize;
+    }
+
+    private Connection withFetchSize(final Connection connection) throws SQLException {
+        final int statementFetchSize = statementFetchSize(connection.getMetaData(), fetchSize);
+
+        final boolean autoCommit = connection.getAutoCommit();
+        if (autoCommit) {
+            connection.setAutoCommit(false);
+        }
+
+        return (Connection) Proxy.newProxyInstance(FetchSizeDataSource.class.getClassLoader(), new Class<?>[] {Connection.class},
+            (proxy, method, args) -> {
+                if (autoCommit && "close".equals(method.getName()) && !connection.isClosed()) {
+                    try {
+                        // commits the streamed query
+                        connection.setAutoCommit(true);
+                    } finally {
+                        connection.close();
+                    }
+
+                    return null;
+                }
+
+                final Object result;
+                try {
+                    result = method.invoke(connection, args);
+                } catch (final InvocationTargetException e) {
+                    throw e.getTargetException();
+                }
+
+                if (result instanceof Statement) {
+                    ((Statement) result).setFetchSize(statementFetchSize);
+                }
+
+                return result;
+            });
+    }
+}
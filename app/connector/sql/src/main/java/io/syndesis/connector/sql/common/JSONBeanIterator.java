@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.connector.sql.common;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Lazily converts the rows of a streamed result set to JSON beans. Each row
+ * is converted only when requested, so neither the whole result set nor all
+ * of the JSON beans are held in memory at once. When a chunk size is given
+ * the iterator returns lists of at most that many JSON beans instead of single
+ * JSON beans, so that a split step can process the result set in chunks.
+ * <p>
+ * Closing the iterator closes the underlying result set iterator, which also
+ * happens once the last row has been read.
+ */
+public final class JSONBeanIterator implements Iterator<Object>, Closeable {
+
+    private final Iterator<?> rows;
+
+    private final int chunkSize;
+
+    public JSONBeanIterator(final Iterator<?> rows, final int chunkSize) {
+        this.rows = rows;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return rows.hasNext();
+    }
+
+    @Override
+    public Object next() {
+        if (!rows.hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        if (chunkSize <= 0) {
+            return nextBean();
+        }
+
+        final List<String> chunk = new ArrayList<>(chunkSize);
+        while (chunk.size() < chunkSize && rows.hasNext()) {
+            chunk.add(nextBean());
+        }
+
+        return chunk;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (rows instanceof Closeable) {
+            ((Closeable) rows).close();
+        }
+    }
+
+    private String nextBean() {
+        @SuppressWarnings("unchecked")
+        final Map<String, Object> row = (Map<String, Object>) rows.next();
+
+        return JSONBeanUtil.toJSONBean(row);
+    }
+}
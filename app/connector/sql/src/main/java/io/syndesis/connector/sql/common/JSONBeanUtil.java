@@ -24,7 +24,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.camel.Message;
@@ -72,22 +74,69 @@ public final class JSONBeanUtil {
         return ret;
     }
 
+    /**
+     * Binds the fields of a simple JSON bean to SQL parameters typed according
+     * to the given JDBC type map, fields not in the map are bound as
+     * {@link Types#VARCHAR}. The JSON is read token by token straight into the
+     * parameter map, without an intermediate tree or map of strings.
+     */
     public static Map<String, SqlParameterValue> parseSqlParametersFromJSONBean(final String json, final Map<String, Integer> jdbcTypeMap) {
         if (!isValidJSONBean(json)) {
             return Collections.emptyMap(); // json is empty so no need to parse
         }
 
-        final Map<String, String> parsed;
-        try {
-            parsed = MAPPER.readerFor(STRING_STRING_MAP).readValue(json);
+        try (JsonParser parser = MAPPER.getFactory().createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Unable to parse given JSON, expecting an object");
+            }
+
+            return bindSqlParameters(parser, jdbcTypeMap);
+        } catch (final IOException e) {
+            throw new IllegalArgumentException("Unable to parse given JSON", e);
+        }
+    }
+
+    /**
+     * Binds each JSON bean of a JSON array to SQL parameters, as
+     * {@link #parseSqlParametersFromJSONBean(String, Map)} does for a single
+     * JSON bean, reading the array in one pass.
+     */
+    public static List<Map<String, SqlParameterValue>> parseSqlParametersFromJSONArray(final String json, final Map<String, Integer> jdbcTypeMap) {
+        final List<Map<String, SqlParameterValue>> ret = new ArrayList<>();
+
+        try (JsonParser parser = MAPPER.getFactory().createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Unable to parse given JSON, expecting an array");
+            }
+
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+                if (token == JsonToken.START_OBJECT) {
+                    ret.add(bindSqlParameters(parser, jdbcTypeMap));
+                } else {
+                    // not a JSON bean so there are no parameters to bind
+                    parser.skipChildren();
+                    ret.add(Collections.emptyMap());
+                }
+            }
         } catch (final IOException e) {
             throw new IllegalArgumentException("Unable to parse given JSON", e);
         }
 
+        return ret;
+    }
+
+    private static Map<String, SqlParameterValue> bindSqlParameters(final JsonParser parser, final Map<String, Integer> jdbcTypeMap) throws IOException {
         final Map<String,SqlParameterValue> ret = new HashMap<>();
-        for (Map.Entry<String, String> entry : parsed.entrySet()) {
-            String key = entry.getKey();
-            String value = entry.getValue();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String key = parser.getCurrentName();
+            final JsonToken token = parser.nextToken();
+            if (token == null || !token.isScalarValue()) {
+                throw new IllegalArgumentException("Unable to parse given JSON, expecting a simple value for: " + key);
+            }
+
+            final String value = parser.getValueAsString();
 
             Integer jdbcType = null;
             if (jdbcTypeMap != null) {
@@ -98,9 +147,9 @@ public final class JSONBeanUtil {
                 jdbcType = Types.VARCHAR;
             }
 
-            SqlParameterValue sqlParam = new SqlParameterValue(jdbcType, value);
-            ret.put(key, sqlParam);
+            ret.put(key, new SqlParameterValue(jdbcType, value));
         }
+
         return Collections.unmodifiableMap(ret);
     }
 
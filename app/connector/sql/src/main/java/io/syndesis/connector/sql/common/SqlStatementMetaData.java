@@ -121,6 +121,10 @@ public class SqlStatementMetaData {
         return sqlStatement;
     }
 
+    public String getSchema() {
+        return schema;
+    }
+
     public List<SqlParam> getInParams() {
         return inParams;
     }
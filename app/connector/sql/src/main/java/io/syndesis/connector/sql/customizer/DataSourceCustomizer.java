@@ -28,6 +28,9 @@ import org.slf4j.LoggerFactory;
 public class DataSourceCustomizer implements ComponentProxyCustomizer, CamelContextAware {
     private static final Logger LOGGER = LoggerFactory.getLogger(DataSourceCustomizer.class);
 
+    // statements prepared per pooled connection and kept for reuse
+    private static final int MAX_OPEN_PREPARED_STATEMENTS = 50;
+
     private CamelContext camelContext;
 
     @Override
@@ -50,6 +53,11 @@ public class DataSourceCustomizer implements ComponentProxyCustomizer, CamelCont
                 consumeOption(camelContext, options, "password", String.class, ds::setPassword);
                 consumeOption(camelContext, options, "url", String.class, ds::setUrl);
 
+                // the same statement is executed over and over, so keep it
+                // prepared instead of preparing it for each exchange
+                ds.setPoolPreparedStatements(true);
+                ds.setMaxOpenPreparedStatements(MAX_OPEN_PREPARED_STATEMENTS);
+
                 options.put("dataSource", ds);
             } else {
                 LOGGER.debug("Not enough information provided to set-up the DataSource");
@@ -15,12 +15,10 @@
  */
 package io.syndesis.connector.sql.customizer;
 
-import java.io.IOException;
-import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -36,13 +34,14 @@ import org.springframework.jdbc.core.SqlParameterValue;
 import io.syndesis.common.util.ErrorCategory;
 import io.syndesis.common.util.SyndesisConnectorException;
 import io.syndesis.common.util.json.JsonUtils;
-import io.syndesis.connector.sql.common.DbMetaDataHelper;
+import io.syndesis.connector.sql.SqlConnector;
+import io.syndesis.connector.sql.SqlMicroBatcher;
 
 import io.syndesis.connector.sql.common.CamelSqlConstants;
+import io.syndesis.connector.sql.common.CompiledSqlStatement;
+import io.syndesis.connector.sql.common.FetchSizeDataSource;
+import io.syndesis.connector.sql.common.JSONBeanIterator;
 import io.syndesis.connector.sql.common.JSONBeanUtil;
-import io.syndesis.connector.sql.common.SqlParam;
-import io.syndesis.connector.sql.common.SqlStatementMetaData;
-import io.syndesis.connector.sql.common.SqlStatementParser;
 import io.syndesis.connector.sql.common.StatementType;
 import io.syndesis.connector.support.util.ConnectorOptions;
 import io.syndesis.integration.component.proxy.ComponentProxyComponent;
@@ -52,50 +51,54 @@ public final class SqlConnectorCustomizer implements ComponentProxyCustomizer {
 
     private Map<String, Integer> jdbcTypeMap;
     private static final Logger LOGGER = LoggerFactory.getLogger(SqlConnectorCustomizer.class);
+    private static final long DEFAULT_MICRO_BATCH_TIMEOUT = 100L;
     private String autoIncrementColumnName;
     private boolean isRetrieveGeneratedKeys;
     private StatementType statementType;
 
     private boolean isBatch;
     private boolean isRaiseErrorOnNotFound;
+    private boolean isStreaming;
+    private int chunkSize;
 
     @Override
     public void customize(ComponentProxyComponent component, Map<String, Object> options) {
         component.setBeforeProducer(this::doBeforeProducer);
         component.setAfterProducer(this::doAfterProducer);
-        initJdbcMap(options);
+        initJdbcMap(component, options);
     }
 
     @SuppressWarnings("unchecked")
     private void doBeforeProducer(Exchange exchange) {
         final Message in = exchange.getIn();
 
-        List<String> jsonBeans = null;
+        List<Map<String, SqlParameterValue>> sqlParametersValues = null;
         if (in.getBody() instanceof List) {
-            jsonBeans = in.getBody(List.class);
-        } else if (in.getBody(String.class) != null) {
+            final List<String> jsonBeans = in.getBody(List.class);
+            if (ObjectHelper.isNotEmpty(jsonBeans) && !jdbcTypeMap.isEmpty()) {
+                sqlParametersValues = new ArrayList<>(jsonBeans.size());
+                for (String jsonBean : isBatch ? jsonBeans : jsonBeans.subList(0, 1)) {
+                    sqlParametersValues.add(JSONBeanUtil.parseSqlParametersFromJSONBean(jsonBean, jdbcTypeMap));
+                }
+            }
+        } else if (in.getBody(String.class) != null && !jdbcTypeMap.isEmpty()) {
             String body = in.getBody(String.class);
             if (JsonUtils.isJsonArray(body)) {
                 try {
-                    jsonBeans = JsonUtils.arrayToJsonBeans(JsonUtils.reader().readTree(body));
-                } catch (IOException e) {
+                    sqlParametersValues = JSONBeanUtil.parseSqlParametersFromJSONArray(body, jdbcTypeMap);
+                } catch (IllegalArgumentException e) {
                     throw SyndesisConnectorException.wrap(ErrorCategory.DATA_ACCESS_ERROR, e);
                 }
             } else if (JsonUtils.isJson(body)) {
-                jsonBeans = Collections.singletonList(body);
+                sqlParametersValues = Collections.singletonList(JSONBeanUtil.parseSqlParametersFromJSONBean(body, jdbcTypeMap));
             }
         }
 
-        if (ObjectHelper.isNotEmpty(jsonBeans) && !jdbcTypeMap.isEmpty()) {
+        if (ObjectHelper.isNotEmpty(sqlParametersValues)) {
             if (isBatch) {
-                final List<Map<String, SqlParameterValue>> sqlParametersValues = new ArrayList<>();
-                for (String jsonBean : jsonBeans) {
-                    sqlParametersValues.add(JSONBeanUtil.parseSqlParametersFromJSONBean(jsonBean, jdbcTypeMap));
-                }
                 exchange.getIn().setBody(sqlParametersValues);
             } else {
-                final Map<String, SqlParameterValue> sqlParametersValues = JSONBeanUtil.parseSqlParametersFromJSONBean(jsonBeans.get(0), jdbcTypeMap);
-                exchange.getIn().setBody(sqlParametersValues);
+                exchange.getIn().setBody(sqlParametersValues.get(0));
             }
         }
         if (isRetrieveGeneratedKeys) {
@@ -110,6 +113,15 @@ public final class SqlConnectorCustomizer implements ComponentProxyCustomizer {
                     ErrorCategory.CONNECTOR_ERROR, exchange.getException());
         }
         final Message in = exchange.getIn();
+        if (in.getBody() instanceof Iterator) {
+            // streamed SELECT, rows are converted as they're read
+            final Iterator<?> rows = in.getBody(Iterator.class);
+            if (isRaiseErrorOnNotFound && !rows.hasNext()) {
+                throw new SyndesisConnectorException(ErrorCategory.ENTITY_NOT_FOUND_ERROR, "SQL SELECT did not SELECT any records");
+            }
+            in.setBody(new JSONBeanIterator(rows, chunkSize));
+            return;
+        }
         //converting SQL Map or List results to JSON Beans
         List<String> list = null;
         if (isRetrieveGeneratedKeys) {
@@ -126,6 +138,12 @@ public final class SqlConnectorCustomizer implements ComponentProxyCustomizer {
         }
     }
 
+    private static boolean isMicroBatchable(CompiledSqlStatement statement) {
+        // generated keys can't be retrieved from a JDBC batch portably
+        return statement.getStatementType() != StatementType.SELECT && !statement.isRetrieveGeneratedKeys()
+            && SqlMicroBatcher.supports(statement.getSql());
+    }
+
     private boolean isRecordsFound(Message in) {
 
         switch (statementType) {
@@ -150,38 +168,58 @@ public final class SqlConnectorCustomizer implements ComponentProxyCustomizer {
         return false;
     }
 
-    private void initJdbcMap(Map<String, Object> options) {
+    private void initJdbcMap(ComponentProxyComponent component, Map<String, Object> options) {
         if (jdbcTypeMap == null) {
 
             isBatch = ConnectorOptions
                     .extractOptionAndMap(options, "batch", Boolean::valueOf, false);
             isRaiseErrorOnNotFound = ConnectorOptions
                     .extractOptionAndMap(options, "raiseErrorOnNotFound", Boolean::valueOf, false);
+            isStreaming = ConnectorOptions
+                    .extractOptionAndMap(options, "streaming", Boolean::valueOf, false);
+            chunkSize = ConnectorOptions
+                    .extractOptionAndMap(options, "chunkSize", Integer::valueOf, 0);
+            final int fetchSize = ConnectorOptions
+                    .extractOptionAndMap(options, "fetchSize", Integer::valueOf, 0);
+            final int microBatchSize = ConnectorOptions
+                    .extractOptionAndMap(options, "microBatchSize", Integer::valueOf, 0);
+            final long microBatchTimeout = ConnectorOptions
+                    .extractOptionAndMap(options, "microBatchTimeout", Long::valueOf, DEFAULT_MICRO_BATCH_TIMEOUT);
 
             final String sql =  ConnectorOptions.extractOption(options, "query");
             final DataSource dataSource = ConnectorOptions.extractOptionAsType(
                 options, "dataSource", DataSource.class);
 
-            final Map<String, Integer> tmpMap = new HashMap<>();
-            try (Connection connection = dataSource.getConnection()) {
-                DbMetaDataHelper dbHelper = new DbMetaDataHelper(connection);
-                final String defaultSchema = dbHelper.getDefaultSchema(ConnectorOptions.extractOption(options, "user", ""));
-                final String schemaPattern = ConnectorOptions.extractOption(options, "schema", defaultSchema);
+            Map<String, Integer> tmpMap = Collections.emptyMap();
+            try {
+                final CompiledSqlStatement statement = CompiledSqlStatement.compile(dataSource,
+                    ConnectorOptions.extractOption(options, "user", ""), ConnectorOptions.extractOption(options, "schema"), sql);
 
-                SqlStatementMetaData statementInfo = new SqlStatementParser(connection, schemaPattern, sql).parse();
-                for (SqlParam sqlParam: statementInfo.getInParams()) {
-                    tmpMap.put(sqlParam.getName(), sqlParam.getJdbcType().getVendorTypeNumber());
-                }
-                if (statementInfo.getAutoIncrementColumnName() != null) {
+                tmpMap = statement.getJdbcTypeMap();
+                if (statement.isRetrieveGeneratedKeys()) {
                     isRetrieveGeneratedKeys = true;
-                    autoIncrementColumnName = statementInfo.getAutoIncrementColumnName();
+                    autoIncrementColumnName = statement.getAutoIncrementColumnName();
                 }
 
-                statementInfo.setBatch(isBatch);
-                isBatch = statementInfo.isVerifiedBatchUpdateMode();
-                statementType = statementInfo.getStatementType();
+                isBatch = statement.isVerifiedBatchUpdateMode(isBatch);
+                statementType = statement.getStatementType();
                 options.put("batch", isBatch);
 
+                if (microBatchSize > 1 && isMicroBatchable(statement) && component instanceof SqlConnector) {
+                    // single exchanges are collected into batches instead
+                    isBatch = false;
+                    options.put("batch", false);
+                    ((SqlConnector) component).setMicroBatcher(
+                        new SqlMicroBatcher(dataSource, statement.getSql(), microBatchSize, microBatchTimeout));
+                }
+
+                if (isStreaming && statementType == StatementType.SELECT) {
+                    options.put("outputType", "StreamList");
+                    if (fetchSize > 0) {
+                        options.put("dataSource", new FetchSizeDataSource(dataSource, fetchSize));
+                    }
+                }
+
             } catch (SQLException e){
                 LOGGER.error(e.getMessage(),e);
             }
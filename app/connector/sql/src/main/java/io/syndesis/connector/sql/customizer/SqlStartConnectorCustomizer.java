@@ -15,21 +15,22 @@
  */
 package io.syndesis.connector.sql.customizer;
 
-import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
 import javax.sql.DataSource;
 
-import io.syndesis.connector.sql.common.DbMetaDataHelper;
 import io.syndesis.common.util.ErrorCategory;
 import io.syndesis.common.util.SyndesisConnectorException;
 
+import io.syndesis.connector.sql.common.CompiledSqlStatement;
+import io.syndesis.connector.sql.common.FetchSizeDataSource;
+import io.syndesis.connector.sql.common.JSONBeanIterator;
 import io.syndesis.connector.sql.common.JSONBeanUtil;
-import io.syndesis.connector.sql.common.SqlStatementMetaData;
-import io.syndesis.connector.sql.common.SqlStatementParser;
+import io.syndesis.connector.sql.common.StatementType;
 import io.syndesis.connector.support.util.ConnectorOptions;
 import io.syndesis.integration.component.proxy.ComponentProxyComponent;
 import io.syndesis.integration.component.proxy.ComponentProxyCustomizer;
@@ -46,6 +47,7 @@ public final class SqlStartConnectorCustomizer implements ComponentProxyCustomiz
     private static final Logger LOGGER = LoggerFactory.getLogger(SqlStartConnectorCustomizer.class);
     private String autoIncrementColumnName;
     private boolean isRetrieveGeneratedKeys;
+    private int chunkSize;
 
     @Override
     public void customize(ComponentProxyComponent component, Map<String, Object> options) {
@@ -71,6 +73,11 @@ public final class SqlStartConnectorCustomizer implements ComponentProxyCustomiz
             throw SyndesisConnectorException.wrap(ErrorCategory.CONNECTOR_ERROR, e);
         }
         final Message in = exchange.getIn();
+        if (in.getBody() instanceof Iterator) {
+            // streamed SELECT, rows are converted as they're read
+            in.setBody(new JSONBeanIterator(in.getBody(Iterator.class), chunkSize));
+            return;
+        }
         List<String> list = null;
         if (isRetrieveGeneratedKeys) {
             list = JSONBeanUtil.toJSONBeansFromHeader(in, autoIncrementColumnName);
@@ -86,15 +93,22 @@ public final class SqlStartConnectorCustomizer implements ComponentProxyCustomiz
         if (!isInit) {
             final String sql =  ConnectorOptions.extractOption(options, "query");
             final DataSource dataSource = ConnectorOptions.extractOptionAsType(options, "dataSource", DataSource.class);
-            try (Connection connection = dataSource.getConnection()) {
-                DbMetaDataHelper dbHelper = new DbMetaDataHelper(connection);
-                final String defaultSchema = dbHelper.getDefaultSchema(ConnectorOptions.extractOption(options, "user", ""));
-                final String schemaPattern = ConnectorOptions.extractOption(options, "schema", defaultSchema);
-
-                SqlStatementMetaData statementInfo = new SqlStatementParser(connection, schemaPattern, sql).parse();
-                if (statementInfo.getAutoIncrementColumnName() != null) {
+            final boolean isStreaming = ConnectorOptions.extractOptionAndMap(options, "streaming", Boolean::valueOf, false);
+            final int fetchSize = ConnectorOptions.extractOptionAndMap(options, "fetchSize", Integer::valueOf, 0);
+            chunkSize = ConnectorOptions.extractOptionAndMap(options, "chunkSize", Integer::valueOf, 0);
+            try {
+                final CompiledSqlStatement statement = CompiledSqlStatement.compile(dataSource,
+                    ConnectorOptions.extractOption(options, "user", ""), ConnectorOptions.extractOption(options, "schema"), sql);
+                if (statement.isRetrieveGeneratedKeys()) {
                     isRetrieveGeneratedKeys = true;
-                    autoIncrementColumnName = statementInfo.getAutoIncrementColumnName();
+                    autoIncrementColumnName = statement.getAutoIncrementColumnName();
+                }
+
+                if (isStreaming && statement.getStatementType() == StatementType.SELECT) {
+                    options.put("outputType", "StreamList");
+                    if (fetchSize > 0) {
+                        options.put("dataSource", new FetchSizeDataSource(dataSource, fetchSize));
+                    }
                 }
             } catch (SQLException e){
                 LOGGER.error(e.getMessage(),e);
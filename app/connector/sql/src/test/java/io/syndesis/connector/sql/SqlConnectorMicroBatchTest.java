@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.connector.sql;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import io.syndesis.common.model.integration.Step;
+import io.syndesis.connector.sql.common.CamelSqlConstants;
+import io.syndesis.connector.sql.common.JSONBeanUtil;
+import io.syndesis.connector.sql.common.SqlTest;
+import io.syndesis.connector.sql.common.SqlTest.ConnectionInfo;
+import io.syndesis.connector.sql.common.SqlTest.Setup;
+import io.syndesis.connector.sql.common.SqlTest.Teardown;
+import io.syndesis.connector.sql.util.SqlConnectorTestSupport;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.Message;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SqlTest.class)
+@Setup("CREATE TABLE MICRO_BATCH (street VARCHAR(255), number INTEGER)")
+@Teardown("DROP TABLE MICRO_BATCH")
+public class SqlConnectorMicroBatchTest extends SqlConnectorTestSupport {
+
+    public SqlConnectorMicroBatchTest(final ConnectionInfo info) {
+        super(info);
+    }
+
+    @Override
+    protected List<Step> createSteps() {
+        return Arrays.asList(
+            newSimpleEndpointStep(
+                "direct",
+                builder -> builder.putConfiguredProperty("name", "start")),
+            newSqlEndpointStep(
+                "sql-connector",
+                builder -> builder
+                    .putConfiguredProperty("microBatchSize", "2")
+                    .putConfiguredProperty("microBatchTimeout", "10000")
+                    .putConfiguredProperty("query", "INSERT INTO MICRO_BATCH (street, number) VALUES (:#street, :#number)")),
+            newSimpleEndpointStep(
+                "log",
+                builder -> builder.putConfiguredProperty("loggerName", "test")));
+    }
+
+    @Test
+    public void shouldInsertConcurrentMessagesInBatches() throws Exception {
+        final List<Future<Exchange>> sent = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            final Map<String, Object> row = new HashMap<>();
+            row.put("street", "Street " + i);
+            row.put("number", i);
+
+            final String body = JSONBeanUtil.toJSONBean(row);
+            sent.add(template().asyncSend("direct:start", e -> e.getIn().setBody(body)));
+        }
+
+        for (final Future<Exchange> future : sent) {
+            final Exchange exchange = future.get();
+
+            assertThat(exchange.getException()).isNull();
+            final Message message = exchange.hasOut() ? exchange.getOut() : exchange.getIn();
+            assertThat(message.getHeader(CamelSqlConstants.SQL_UPDATE_COUNT)).isEqualTo(1);
+        }
+
+        assertThat(countRows()).isEqualTo(5);
+    }
+
+    @Test
+    public void shouldNotDelaySequentialMessages() throws Exception {
+        final long start = System.nanoTime();
+        for (int i = 0; i < 3; i++) {
+            final Map<String, Object> row = new HashMap<>();
+            row.put("street", "Street " + i);
+            row.put("number", i);
+
+            final String body = JSONBeanUtil.toJSONBean(row);
+            final Exchange exchange = template().send("direct:start", e -> e.getIn().setBody(body));
+
+            assertThat(exchange.getException()).isNull();
+            final Message message = exchange.hasOut() ? exchange.getOut() : exchange.getIn();
+            assertThat(message.getHeader(CamelSqlConstants.SQL_UPDATE_COUNT)).isEqualTo(1);
+        }
+
+        // none of the messages waited for the 10 second batch timeout
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(10_000L);
+        assertThat(countRows()).isEqualTo(3);
+    }
+
+    private int countRows() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(info.url, info.username, info.password);
+            Statement statement = connection.createStatement();
+            ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM MICRO_BATCH")) {
+            assertThat(resultSet.next()).isTrue();
+            return resultSet.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.connector.sql;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import io.syndesis.common.model.integration.Step;
+import io.syndesis.connector.sql.common.SqlTest;
+import io.syndesis.connector.sql.common.SqlTest.ConnectionInfo;
+import io.syndesis.connector.sql.common.SqlTest.Setup;
+import io.syndesis.connector.sql.common.SqlTest.Teardown;
+import io.syndesis.connector.sql.util.SqlConnectorTestSupport;
+
+import org.apache.camel.component.mock.MockEndpoint;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SqlTest.class)
+@Setup({"CREATE TABLE STREAMED (id INTEGER)",
+    "INSERT INTO STREAMED VALUES (1)",
+    "INSERT INTO STREAMED VALUES (2)",
+    "INSERT INTO STREAMED VALUES (3)"})
+@Teardown("DROP TABLE STREAMED")
+public class SqlConnectorStreamingTest extends SqlConnectorTestSupport {
+
+    public SqlConnectorStreamingTest(final ConnectionInfo info) {
+        super(info);
+    }
+
+    @Override
+    protected List<Step> createSteps() {
+        return Arrays.asList(
+            newSimpleEndpointStep(
+                "direct",
+                builder -> builder.putConfiguredProperty("name", "start")),
+            newSqlEndpointStep(
+                "sql-connector",
+                builder -> builder
+                    .putConfiguredProperty("streaming", "true")
+                    .putConfiguredProperty("fetchSize", "2")
+                    .putConfiguredProperty("chunkSize", "2")
+                    .putConfiguredProperty("query", "SELECT id FROM STREAMED ORDER BY id")),
+            newSimpleEndpointStep(
+                "mock",
+                builder -> builder.putConfiguredProperty("name", "result")));
+    }
+
+    @BeforeEach
+    public void readStreamedRows() {
+        // the rows can be read only until the exchange completes
+        context().getEndpoint("mock:result", MockEndpoint.class).whenAnyExchangeReceived(exchange -> {
+            final List<Object> chunks = new ArrayList<>();
+            exchange.getIn().getBody(Iterator.class).forEachRemaining(chunks::add);
+            exchange.getIn().setBody(chunks);
+        });
+    }
+
+    @Test
+    public void shouldStreamSelectedRowsInChunks() {
+        final List<?> chunks = template().requestBody("direct:start", null, List.class);
+
+        assertThat(chunks).containsExactly(
+            Arrays.asList("{\"ID\":1}", "{\"ID\":2}"),
+            Collections.singletonList("{\"ID\":3}"));
+    }
+
+    @Test
+    public void shouldReadTheTableAgainAfterStreaming() {
+        // the pooled connection is handed back with auto commit turned on
+        for (int i = 0; i < 3; i++) {
+            assertThat(template().requestBody("direct:start", null, List.class)).hasSize(2);
+        }
+    }
+}
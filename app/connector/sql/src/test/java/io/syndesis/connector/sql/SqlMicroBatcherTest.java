@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.connector.sql;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SqlMicroBatcherTest {
+
+    @Test
+    public void shouldRewriteSimpleNamedParameters() {
+        assertThat(SqlMicroBatcher.toNamedParameters("INSERT INTO ADDRESS (street, number) VALUES (:#street, :#number)"))
+            .isEqualTo("INSERT INTO ADDRESS (street, number) VALUES (:street, :number)");
+        assertThat(SqlMicroBatcher.toNamedParameters("UPDATE ADDRESS SET street = :#street WHERE number::text = :#number"))
+            .isEqualTo("UPDATE ADDRESS SET street = :street WHERE number::text = :number");
+    }
+
+    @Test
+    public void shouldNotSupportExpressionParameters() {
+        assertThat(SqlMicroBatcher.supports("INSERT INTO ADDRESS (street) VALUES (:#${body[street]})")).isFalse();
+        assertThat(SqlMicroBatcher.supports("INSERT INTO ADDRESS (street) VALUES (:#$simple{header.street})")).isFalse();
+        assertThat(SqlMicroBatcher.supports("INSERT INTO ADDRESS (street, number) VALUES (:#street, :#${header.number})")).isFalse();
+
+        assertThatThrownBy(() -> new SqlMicroBatcher(null, "INSERT INTO ADDRESS (street) VALUES (:#${body[street]})", 2, 10))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void shouldNotSupportPositionalParameters() {
+        assertThat(SqlMicroBatcher.supports("INSERT INTO ADDRESS (street) VALUES (#)")).isFalse();
+        assertThat(SqlMicroBatcher.supports("INSERT INTO ADDRESS (street) VALUES (?)")).isFalse();
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.connector.sql.common;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class FetchSizeDataSourceTest {
+
+    private final DataSource dataSource = mock(DataSource.class);
+
+    private final Connection connection = mock(Connection.class);
+
+    private final DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+
+    private final PreparedStatement statement = mock(PreparedStatement.class);
+
+    public FetchSizeDataSourceTest() throws SQLException {
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.getMetaData()).thenReturn(metaData);
+        when(connection.getAutoCommit()).thenReturn(true);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+    }
+
+    @Test
+    public void shouldStreamWithAutoCommitTurnedOff() throws SQLException {
+        when(metaData.getDriverName()).thenReturn("PostgreSQL JDBC Driver");
+
+        try (Connection streaming = new FetchSizeDataSource(dataSource, 100).getConnection()) {
+            streaming.prepareStatement("SELECT 1");
+        }
+
+        verify(statement).setFetchSize(100);
+
+        final InOrder order = inOrder(connection);
+        order.verify(connection).setAutoCommit(false);
+        order.verify(connection).prepareStatement("SELECT 1");
+        order.verify(connection).setAutoCommit(true);
+        order.verify(connection).close();
+    }
+
+    @Test
+    public void shouldStreamFromMySqlWithMinimumFetchSize() throws SQLException {
+        when(metaData.getDriverName()).thenReturn("MySQL Connector/J");
+        when(metaData.getURL()).thenReturn("jdbc:mysql://localhost:3306/test");
+
+        try (Connection streaming = new FetchSizeDataSource(dataSource, 100).getConnection()) {
+            streaming.prepareStatement("SELECT 1");
+        }
+
+        verify(statement).setFetchSize(Integer.MIN_VALUE);
+    }
+
+    @Test
+    public void shouldUseFetchSizeWithMySqlCursorFetch() throws SQLException {
+        when(metaData.getDriverName()).thenReturn("MySQL Connector/J");
+        when(metaData.getURL()).thenReturn("jdbc:mysql://localhost:3306/test?useCursorFetch=true");
+
+        try (Connection streaming = new FetchSizeDataSource(dataSource, 100).getConnection()) {
+            streaming.prepareStatement("SELECT 1");
+        }
+
+        verify(statement).setFetchSize(100);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.connector.sql.common;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JSONBeanIteratorTest {
+
+    private static final List<Map<String, Object>> ROWS = Arrays.asList(
+        Collections.singletonMap("ID", 1),
+        Collections.singletonMap("ID", 2),
+        Collections.singletonMap("ID", 3));
+
+    @Test
+    public void shouldConvertRowsOneByOne() {
+        final JSONBeanIterator beans = new JSONBeanIterator(ROWS.iterator(), 0);
+
+        assertThat(beans).toIterable().containsExactly("{\"ID\":1}", "{\"ID\":2}", "{\"ID\":3}");
+    }
+
+    @Test
+    public void shouldConvertRowsInChunks() {
+        final JSONBeanIterator beans = new JSONBeanIterator(ROWS.iterator(), 2);
+
+        assertThat(beans).toIterable().containsExactly(
+            Arrays.asList("{\"ID\":1}", "{\"ID\":2}"),
+            Collections.singletonList("{\"ID\":3}"));
+    }
+
+    @Test
+    public void shouldCloseUnderlyingRows() throws Exception {
+        final AtomicBoolean closed = new AtomicBoolean();
+
+        final class Rows implements Iterator<Object>, Closeable {
+            @Override
+            public boolean hasNext() {
+                return false;
+            }
+
+            @Override
+            public Object next() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void close() {
+                closed.set(true);
+            }
+        }
+
+        try (JSONBeanIterator beans = new JSONBeanIterator(new Rows(), 0)) {
+            assertThat(beans.hasNext()).isFalse();
+        }
+
+        assertThat(closed).isTrue();
+    }
+}
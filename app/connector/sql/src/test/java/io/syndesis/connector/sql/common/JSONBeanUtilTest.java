@@ -17,6 +17,7 @@ package io.syndesis.connector.sql.common;
 
 import java.sql.Types;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
@@ -124,4 +125,22 @@ public class JSONBeanUtilTest {
             throw new AssertionError("Should not throw exception when json parameter is empty", ex);
         }
     }
+
+    @Test
+    public void parseSqlParametersFromJSONArray() {
+        final Map<String, Integer> jdbcTypeMap = new HashMap<>();
+        jdbcTypeMap.put("number", Types.INTEGER);
+
+        final List<Map<String, SqlParameterValue>> parameters = JSONBeanUtil.parseSqlParametersFromJSONArray(
+            "[{\"number\": 1, \"street\": \"East Davie Street\"}, {\"number\": \"2\", \"street\": null}, \"x\"]", jdbcTypeMap);
+
+        assertThat(parameters).hasSize(3);
+        assertEquals(Types.INTEGER, parameters.get(0).get("number").getSqlType());
+        assertEquals("1", parameters.get(0).get("number").getValue());
+        assertEquals(Types.VARCHAR, parameters.get(0).get("street").getSqlType());
+        assertEquals("East Davie Street", parameters.get(0).get("street").getValue());
+        assertEquals("2", parameters.get(1).get("number").getValue());
+        assertThat(parameters.get(1).get("street").getValue()).isNull();
+        assertThat(parameters.get(2)).isEmpty();
+    }
 }
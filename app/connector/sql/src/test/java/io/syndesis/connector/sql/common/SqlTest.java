@@ -102,6 +102,8 @@ public final class SqlTest implements ParameterResolver, BeforeAllCallback, Afte
         final Stream<String> statements = testInstanceStatements(context, Teardown.class);
 
         executeStatements(context, statements);
+
+        CompiledSqlStatement.clearCache();
     }
 
     @Override
@@ -109,6 +111,9 @@ public final class SqlTest implements ParameterResolver, BeforeAllCallback, Afte
         final Stream<String> statements = methodStatements(context, Teardown.class);
 
         executeStatements(context, statements);
+
+        // the schema changes between tests, so compiled statements go stale
+        CompiledSqlStatement.clearCache();
     }
 
     @Override
@@ -127,6 +127,15 @@ public class ProjectGenerator implements IntegrationProjectGenerator {
 
         addPropertiesFrom(properties, integration, resourceManager);
 
+        // extension steps may access the out message of any step, otherwise
+        // only the out messages data mappers use need to be captured
+        final boolean hasExtensionSteps = integration.getFlows().stream()
+            .flatMap(flow -> flow.getSteps().stream())
+            .anyMatch(step -> StepKind.extension == step.getStepKind());
+        if (!hasExtensionSteps) {
+            properties.put("syndesis.integration.runtime.capture-all-out-messages", "false");
+        }
+
         return properties;
     }
 
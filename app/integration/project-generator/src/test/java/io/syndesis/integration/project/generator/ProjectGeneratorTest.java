@@ -316,7 +316,8 @@ public class ProjectGeneratorTest {
             entry("integration", "property"),
             entry("flow-0.http4-0.token", "my-token-2"),
             entry("flow-0.http4-0.username", "my-username-2"),
-            entry("flow-0.http4-0.password", "my-password-2")
+            entry("flow-0.http4-0.password", "my-password-2"),
+            entry("syndesis.integration.runtime.capture-all-out-messages", "false")
         );
     }
 
@@ -23,7 +23,6 @@ import java.util.ServiceLoader;
 import javax.xml.bind.JAXBException;
 
 import org.apache.camel.CamelContext;
-import org.apache.camel.builder.RouteBuilder;
 import org.apache.camel.model.ModelHelper;
 import org.apache.camel.model.RoutesDefinition;
 import org.apache.camel.spring.boot.CamelContextConfiguration;
@@ -86,7 +85,8 @@ public class IntegrationRuntimeAutoConfiguration {
 
                 // IntegrationRouteBuilder automatically add known handlers to
                 // the list of provided ones, know handlers have priority
-                final RouteBuilder routeBuilder = new IntegrationRouteBuilder(location, handlers, activityTrackingPolicyFactories);
+                final IntegrationRouteBuilder routeBuilder = new IntegrationRouteBuilder(location, handlers, activityTrackingPolicyFactories);
+                routeBuilder.setCaptureAllOutMessages(configuration.isCaptureAllOutMessages());
 
                 try {
                     // Register routes to the camel context
@@ -29,6 +29,11 @@ public class IntegrationRuntimeConfiguration {
      */
     private String configurationLocation = "classpath:syndesis/integration/integration.json";
 
+    /**
+     * Capture the out message of every step, or only of the steps used as data mapper sources.
+     */
+    private boolean captureAllOutMessages = true;
+
     public boolean isEnabled() {
         return enabled;
     }
@@ -44,4 +49,12 @@ public class IntegrationRuntimeConfiguration {
     public void setConfigurationLocation(String configurationLocation) {
         this.configurationLocation = configurationLocation;
     }
+
+    public boolean isCaptureAllOutMessages() {
+        return captureAllOutMessages;
+    }
+
+    public void setCaptureAllOutMessages(boolean captureAllOutMessages) {
+        this.captureAllOutMessages = captureAllOutMessages;
+    }
 }
@@ -44,7 +44,9 @@ import io.syndesis.common.util.KeyGenerator;
 import io.syndesis.common.util.Resources;
 import io.syndesis.common.util.json.JsonUtils;
 import io.syndesis.integration.runtime.capture.OutMessageCaptureProcessor;
+import io.syndesis.integration.runtime.handlers.DataMapperStepHandler;
 import io.syndesis.integration.runtime.logging.IntegrationLoggingConstants;
+import io.syndesis.integration.runtime.util.JsonPayloadInterceptStrategy;
 import org.apache.camel.CamelContext;
 import org.apache.camel.Processor;
 import org.apache.camel.builder.DefaultErrorHandlerBuilder;
@@ -76,7 +78,8 @@ public class IntegrationRouteBuilder extends RouteBuilder {
     private final List<IntegrationStepHandler> stepHandlerList;
     private final Set<String> resources;
     private final List<ActivityTrackingPolicyFactory> activityTrackingPolicyFactories;
-
+    private final Set<String> capturedStepIds = new HashSet<>();
+    private boolean captureAllOutMessages = true;
 
     public IntegrationRouteBuilder(String configurationUri) {
         this(configurationUri, Resources.loadServices(IntegrationStepHandler.class));
@@ -134,11 +137,34 @@ public class IntegrationRouteBuilder extends RouteBuilder {
         return ResourceHelper.resolveResourceAsInputStream(getContext().getClassResolver(), configurationUri);
     }
 
+    /**
+     * Whether the out message of every step is captured, or only the out messages of the steps data mapper steps use
+     * as source documents. Custom steps may access any captured message, so all of them are captured by default.
+     */
+    public void setCaptureAllOutMessages(boolean captureAllOutMessages) {
+        this.captureAllOutMessages = captureAllOutMessages;
+    }
+
     @Override
     public void configure() throws Exception {
         final Integration integration = loadIntegration();
         final List<Flow> flows = integration.getFlows();
 
+        // parsed JSON bodies are passed between steps and serialized only when handed to endpoints
+        if (getContext().getInterceptStrategies().stream().noneMatch(JsonPayloadInterceptStrategy.INSTANCE::equals)) {
+            getContext().addInterceptStrategy(JsonPayloadInterceptStrategy.INSTANCE);
+        }
+
+        // mappers in any flow may refer to steps of other flows, e.g. a conditional flow to the steps of its parent flow
+        capturedStepIds.clear();
+        for (Flow flow : flows) {
+            for (Step step : flow.getSteps()) {
+                if (StepKind.mapper == step.getStepKind()) {
+                    capturedStepIds.addAll(DataMapperStepHandler.getSourceStepIds(step));
+                }
+            }
+        }
+
         for (int f = 0; f < flows.size(); f++) {
             configureFlow(flows.get(f), String.valueOf(f));
         }
@@ -277,6 +303,11 @@ public class IntegrationRouteBuilder extends RouteBuilder {
             definition = parent.setHeader(IntegrationLoggingConstants.STEP_ID, constant(stepId));
         }
 
+        if (!captureAllOutMessages && !capturedStepIds.contains(stepId)) {
+            // no mapper uses the out message of this step
+            return parent;
+        }
+
         definition = parent.process(OutMessageCaptureProcessor.INSTANCE)
                         .id(String.format("capture-out:%s", stepId));
         return definition;
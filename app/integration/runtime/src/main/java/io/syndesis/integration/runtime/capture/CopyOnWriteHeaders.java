@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.integration.runtime.capture;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+import org.apache.camel.Message;
+import org.apache.camel.util.CaseInsensitiveMap;
+
+/**
+ * Headers that read through to headers shared with a captured message until
+ * they are written, the shared headers are copied on the first write. Neither
+ * the captured message nor the message the route continues with ever writes
+ * to the shared headers, so capturing a message does not need to copy its
+ * headers unless the following steps change them.
+ * <p>
+ * Extends {@link CaseInsensitiveMap} so that Camel uses the map as given
+ * instead of copying it when it is set as the headers of a message. While
+ * the headers are shared the views are read only, and the navigation methods
+ * of the sorted map, which Camel does not use on headers, see no entries.
+ */
+final class CopyOnWriteHeaders extends CaseInsensitiveMap {
+
+    private static final long serialVersionUID = 1L;
+
+    private transient Map<String, Object> shared;
+
+    private CopyOnWriteHeaders(final Map<String, Object> shared) {
+        this.shared = shared;
+    }
+
+    /**
+     * Lets the given message and the snapshot of it share the headers of the
+     * message.
+     */
+    static void share(final Message message, final Message snapshot) {
+        Map<String, Object> headers = message.getHeaders();
+        if (headers instanceof CopyOnWriteHeaders && ((CopyOnWriteHeaders) headers).shared != null) {
+            // not written since the last capture
+            headers = ((CopyOnWriteHeaders) headers).shared;
+        }
+
+        message.setHeaders(new CopyOnWriteHeaders(headers));
+        snapshot.setHeaders(new CopyOnWriteHeaders(headers));
+    }
+
+    private void copy() {
+        if (shared != null) {
+            final Map<String, Object> headers = shared;
+            shared = null;
+            super.putAll(headers);
+        }
+    }
+
+    @Override
+    public Object get(final Object key) {
+        return shared != null ? shared.get(key) : super.get(key);
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return shared != null ? shared.containsKey(key) : super.containsKey(key);
+    }
+
+    @Override
+    public boolean containsValue(final Object value) {
+        return shared != null ? shared.containsValue(value) : super.containsValue(value);
+    }
+
+    @Override
+    public int size() {
+        return shared != null ? shared.size() : super.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return shared != null ? shared.isEmpty() : super.isEmpty();
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return shared != null ? Collections.unmodifiableSet(shared.keySet()) : super.keySet();
+    }
+
+    @Override
+    public Collection<Object> values() {
+        return shared != null ? Collections.unmodifiableCollection(shared.values()) : super.values();
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        return shared != null ? Collections.unmodifiableMap(shared).entrySet() : super.entrySet();
+    }
+
+    @Override
+    public void forEach(final BiConsumer<? super String, ? super Object> action) {
+        if (shared != null) {
+            shared.forEach(action);
+        } else {
+            super.forEach(action);
+        }
+    }
+
+    @Override
+    public Object put(final String key, final Object value) {
+        copy();
+        return super.put(key, value);
+    }
+
+    @Override
+    public void putAll(final Map<? extends String, ?> map) {
+        copy();
+        super.putAll(map);
+    }
+
+    @Override
+    public Object remove(final Object key) {
+        copy();
+        return super.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        shared = null;
+        super.clear();
+    }
+
+    @Override
+    public Object replace(final String key, final Object value) {
+        copy();
+        return super.replace(key, value);
+    }
+
+    @Override
+    public boolean replace(final String key, final Object oldValue, final Object newValue) {
+        copy();
+        return super.replace(key, oldValue, newValue);
+    }
+
+    @Override
+    public void replaceAll(final BiFunction<? super String, ? super Object, ?> function) {
+        copy();
+        super.replaceAll(function);
+    }
+
+    @Override
+    public Object clone() {
+        copy();
+        return super.clone();
+    }
+
+    private Object writeReplace() {
+        return new CaseInsensitiveMap(this);
+    }
+}
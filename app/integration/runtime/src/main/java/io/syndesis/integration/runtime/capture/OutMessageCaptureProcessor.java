@@ -16,19 +16,23 @@
 package io.syndesis.integration.runtime.capture;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import io.syndesis.integration.runtime.logging.IntegrationLoggingConstants;
+import io.syndesis.integration.runtime.util.JsonPayloadAware;
 import org.apache.camel.Exchange;
 import org.apache.camel.Message;
 import org.apache.camel.Processor;
-import org.apache.camel.impl.MessageSupport;
+import org.apache.camel.impl.DefaultMessage;
 
 /**
  * Used to capture the out messages of processors with configured ids.  The messages are placed into
  * a map stored in the camel exchange property using the processor id as the map key.
+ * See {@link io.syndesis.integration.runtime.IntegrationRouteBuilder#setCaptureAllOutMessages(boolean)}
+ * for limiting captures to the steps data mappers use.
  */
-public class OutMessageCaptureProcessor implements Processor {
+public class OutMessageCaptureProcessor implements Processor, JsonPayloadAware {
     public static final Processor INSTANCE = new OutMessageCaptureProcessor();
     public static final String CAPTURED_OUT_MESSAGES_MAP = "Syndesis.CAPTURED_OUT_MESSAGES_MAP";
 
@@ -38,14 +42,33 @@ public class OutMessageCaptureProcessor implements Processor {
         final String id = message.getHeader(IntegrationLoggingConstants.STEP_ID, String.class);
 
         if (id != null) {
-            Message copy = message.copy();
             Map<String, Message> outMessagesMap = getCapturedMessageMap(exchange);
-            if (copy instanceof MessageSupport && copy.getExchange() == null) {
-                ((MessageSupport) copy).setExchange(message.getExchange());
-            }
+            outMessagesMap.put(id, snapshot(message));
+        }
+    }
+
+    /**
+     * Creates a snapshot of the given message, holding the current body and the current headers. The snapshot and the
+     * message share the headers until either writes to them, see {@link CopyOnWriteHeaders}, as the following steps
+     * may modify the headers of the message in place. Unlike {@link Message#copy()} this does not create a copy of the
+     * message's own type, which may carry more state like the underlying HTTP request, nor does it assign a message id
+     * to the given message.
+     */
+    static Message snapshot(Message message) {
+        final Exchange exchange = message.getExchange();
+        final DefaultMessage snapshot = new DefaultMessage(exchange.getContext());
+        snapshot.setExchange(exchange);
+        snapshot.setBody(message.getBody());
 
-            outMessagesMap.put(id, copy);
+        if (message.hasHeaders()) {
+            CopyOnWriteHeaders.share(message, snapshot);
         }
+
+        if (message.hasAttachments()) {
+            snapshot.setAttachmentObjects(new LinkedHashMap<>(message.getAttachmentObjects()));
+        }
+
+        return snapshot;
     }
 
     public static Map<String, Message> getCapturedMessageMap(Exchange exchange) {
@@ -33,13 +33,18 @@ abstract class AbstractFilterStepHandler implements IntegrationStepHandler {
     public Optional<ProcessorDefinition<?>> handle(Step step, ProcessorDefinition<?> route, IntegrationRouteBuilder builder, String flowIndex, String stepIndex) {
         ObjectHelper.notNull(route, "route");
 
-        final String expression = ObjectHelper.notNull(getFilterExpression(step), "expression");
         final CamelContext context = builder.getContext();
-        final Predicate predicate = new JsonSimplePredicate(expression, context);
+        final Predicate predicate = createPredicate(step, context);
         final FilterDefinition filter = route.filter(predicate);
 
         return Optional.of(filter);
     }
 
+    protected Predicate createPredicate(Step step, CamelContext context) {
+        final String expression = ObjectHelper.notNull(getFilterExpression(step), "expression");
+
+        return new JsonSimplePredicate(expression, context);
+    }
+
     protected abstract String getFilterExpression(Step step);
 }
@@ -16,12 +16,9 @@
 
 package io.syndesis.integration.runtime.handlers;
 
-import javax.script.Bindings;
-import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
-import javax.script.SimpleBindings;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -37,9 +34,16 @@ import io.syndesis.common.model.integration.StepKind;
 import io.syndesis.common.util.json.JsonUtils;
 import io.syndesis.integration.runtime.IntegrationRouteBuilder;
 import io.syndesis.integration.runtime.IntegrationStepHandler;
+import io.syndesis.integration.runtime.jmx.AggregationMetricsMBean;
+import io.syndesis.integration.runtime.util.CompiledScriptPool;
+import io.syndesis.integration.runtime.util.JsonPayload;
+import io.syndesis.integration.runtime.util.JsonPayloadInterceptStrategy;
+import org.apache.camel.CamelContext;
+import org.apache.camel.CamelContextAware;
 import org.apache.camel.Exchange;
 import org.apache.camel.Message;
 import org.apache.camel.Processor;
+import org.apache.camel.Service;
 import org.apache.camel.model.ProcessorDefinition;
 import org.apache.camel.processor.aggregate.AggregationStrategy;
 import org.apache.camel.processor.aggregate.GroupedBodyAggregationStrategy;
@@ -74,7 +78,9 @@ public class AggregateStepHandler implements IntegrationStepHandler {
                 // Account for filter match indicator and only aggregate those values that actually matched the filter.
                 // When filter match indicator is not present aggregate all.
                 if (exchange.getProperty(Exchange.FILTER_MATCHED, true, Boolean.class)) {
-                    return super.getValue(exchange);
+                    // aggregated parts are serialized like the bodies handed to connectors
+                    final Object value = super.getValue(exchange);
+                    return value instanceof JsonPayload ? ((JsonPayload) value).toBody() : value;
                 }
 
                 return null;
@@ -82,9 +88,11 @@ public class AggregateStepHandler implements IntegrationStepHandler {
         }),
         latest(UseLatestAggregationStrategy::new),
         original(() -> new UseOriginalAggregationStrategy(null, true)),
-        script(AggregateStepHandler.ScriptAggregationStrategy::new, (strategy, stepProperties) -> {
+        script(AggregateStepHandler.ScriptAggregationStrategy::new, (strategy, step) -> {
+            final Map<String, String> stepProperties = step.getConfiguredProperties();
             Optional.ofNullable(stepProperties.get("aggregationScriptLanguage")).ifPresent(strategy::setLanguage);
             Optional.ofNullable(stepProperties.get("aggregationScript")).ifPresent(strategy::setScript);
+            step.getId().ifPresent(strategy::setStepId);
             return strategy;
         });
 
@@ -97,12 +105,12 @@ public class AggregateStepHandler implements IntegrationStepHandler {
         }
 
         @Immutable
-        interface StrategyConfigurer<T extends AggregationStrategy> extends BiFunction<T, Map<String, String>, T> {
+        interface StrategyConfigurer<T extends AggregationStrategy> extends BiFunction<T, Step, T> {
             // specialization of the BiFunction interface
         }
 
         AggregationOption(StrategySupplier<AggregationStrategy> strategySupplier) {
-            this(strategySupplier, (strategy, stepProperties) -> strategy);
+            this(strategySupplier, (strategy, step) -> strategy);
         }
 
         <T extends AggregationStrategy> AggregationOption(StrategySupplier<T> strategySupplier, StrategyConfigurer<T> configurer) {
@@ -110,15 +118,24 @@ public class AggregateStepHandler implements IntegrationStepHandler {
             this.configurer = (StrategyConfigurer<AggregationStrategy>) configurer;
         }
 
-        public AggregationStrategy getStrategy(Map<String, String> stepProperties) {
-            return configurer.apply(strategySupplier.get(), stepProperties);
+        public AggregationStrategy getStrategy(Step step) {
+            return configurer.apply(strategySupplier.get(), step);
         }
     }
 
-    private static class ScriptAggregationStrategy implements AggregationStrategy {
+    /**
+     * Aggregates using a script evaluated with the previous and the new
+     * exchange bound as {@code oldExchange} and {@code newExchange}. The
+     * script is compiled once per pooled script engine, and when the step
+     * has an id the time spent aggregating is exposed via JMX.
+     */
+    private static class ScriptAggregationStrategy implements AggregationStrategy, CamelContextAware, Service {
         private String language;
         private String script;
-        private ScriptEngine engine;
+        private String stepId;
+        private volatile CompiledScriptPool scripts;
+        private AggregationMetricsMBean metrics;
+        private CamelContext camelContext;
 
         ScriptAggregationStrategy() {
             this("nashorn", "oldExchange;");
@@ -127,20 +144,41 @@ public class AggregateStepHandler implements IntegrationStepHandler {
         ScriptAggregationStrategy(String language, String script) {
             this.language = language;
             this.script = script;
-            this.engine = new ScriptEngineManager().getEngineByName(this.language);
         }
 
         @Override
         public Exchange aggregate(Exchange oldExchange, Exchange newExchange) {
-            Bindings bindings = new SimpleBindings();
-            bindings.put("oldExchange", oldExchange);
-            bindings.put("newExchange", newExchange);
+            // scripts get the bodies serialized like the bodies handed to connectors
+            if (oldExchange != null) {
+                JsonPayloadInterceptStrategy.serializeBody(oldExchange);
+            }
+            JsonPayloadInterceptStrategy.serializeBody(newExchange);
+
+            Map<String, Object> variables = new HashMap<>();
+            variables.put("oldExchange", oldExchange);
+            variables.put("newExchange", newExchange);
 
+            final long start = System.nanoTime();
+            boolean failed = true;
             try {
-                return (Exchange) engine.eval(script, bindings);
+                Exchange result = (Exchange) getScripts().eval(variables);
+                failed = false;
+                return result;
             } catch (ScriptException e) {
                 throw new IllegalStateException("Script aggregation strategy failed", e);
+            } finally {
+                if (metrics != null) {
+                    metrics.record(System.nanoTime() - start, failed);
+                }
+            }
+        }
+
+        private CompiledScriptPool getScripts() {
+            if (scripts == null) {
+                scripts = CompiledScriptPool.forScript(language, script);
             }
+
+            return scripts;
         }
 
         /**
@@ -148,6 +186,7 @@ public class AggregateStepHandler implements IntegrationStepHandler {
          */
         public void setScript(String script) {
             this.script = script;
+            this.scripts = null;
         }
 
         /**
@@ -155,7 +194,41 @@ public class AggregateStepHandler implements IntegrationStepHandler {
          */
         public void setLanguage(String language) {
             this.language = language;
-            this.engine = new ScriptEngineManager().getEngineByName(this.language);
+            this.scripts = null;
+        }
+
+        /**
+         * Specifies the id of the step the metrics are reported for.
+         */
+        public void setStepId(String stepId) {
+            this.stepId = stepId;
+        }
+
+        @Override
+        public void start() throws Exception {
+            if (stepId != null && camelContext != null && metrics == null) {
+                metrics = new AggregationMetricsMBean(stepId);
+                metrics.setCamelContext(camelContext);
+                metrics.start();
+            }
+        }
+
+        @Override
+        public void stop() throws Exception {
+            if (metrics != null) {
+                metrics.stop();
+                metrics = null;
+            }
+        }
+
+        @Override
+        public void setCamelContext(CamelContext camelContext) {
+            this.camelContext = camelContext;
+        }
+
+        @Override
+        public CamelContext getCamelContext() {
+            return camelContext;
         }
     }
 
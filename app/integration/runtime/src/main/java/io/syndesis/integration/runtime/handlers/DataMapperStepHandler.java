@@ -22,16 +22,17 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
-import com.fasterxml.jackson.core.JsonParseException;
-import com.fasterxml.jackson.databind.JsonNode;
 import io.syndesis.common.model.integration.Step;
 import io.syndesis.common.model.integration.StepKind;
 import io.syndesis.common.util.json.JsonUtils;
 import io.syndesis.integration.runtime.IntegrationRouteBuilder;
 import io.syndesis.integration.runtime.IntegrationStepHandler;
 import io.syndesis.integration.runtime.capture.OutMessageCaptureProcessor;
+import io.syndesis.integration.runtime.util.JsonPayload;
+import io.syndesis.integration.runtime.util.JsonPayloadAware;
 import org.apache.camel.Exchange;
 import org.apache.camel.Message;
 import org.apache.camel.Processor;
@@ -69,8 +70,8 @@ public class DataMapperStepHandler implements IntegrationStepHandler {
     }
 
     /**
-     * In case atlas mapping definition contains Json typed source documents we need to make sure to convert those from list to Json array Strings before passing those
-     * source documents to the mapper.
+     * In case atlas mapping definition contains Json typed source documents we need to make sure to convert those from list or
+     * parsed {@link JsonPayload} to Json Strings before passing those source documents to the mapper.
      */
     private static void addJsonTypeSourceProcessor(ProcessorDefinition<?> route, List<Map<String, Object>> dataSources) {
         List<Map<String, Object>> sourceDocuments = dataSources.stream()
@@ -89,8 +90,9 @@ public class DataMapperStepHandler implements IntegrationStepHandler {
     }
 
     /**
-     * In case mapping definition has Json typed target document we need to make sure to convert the output. This is because mapper provides Json target collection as Json array String representation.
-     * We prefer to use list objects where each element is a Json Object String.
+     * In case mapping definition has Json typed target document the mapper output is passed on as {@link JsonPayload}, so
+     * following steps do not parse it again. Json target collections are handed to connectors as list objects where each
+     * element is a Json Object String, when the source collection was provided as such a list.
      */
     private static void addJsonTypeTargetProcessor(ProcessorDefinition<?> route, List<Map<String, Object>> dataSources) {
         boolean isJsonTypeTarget = dataSources.stream()
@@ -101,6 +103,18 @@ public class DataMapperStepHandler implements IntegrationStepHandler {
         }
     }
 
+    /**
+     * Ids of the steps the given mapper step uses as source documents, those are the steps whose out messages have to be
+     * captured for the mapper. See {@link OutMessageCaptureProcessor}
+     */
+    public static Set<String> getSourceStepIds(Step step) {
+        return getAtlasmapDataSources(step.getConfiguredProperties()).stream()
+                .filter(s -> "SOURCE".equals(s.get("dataSourceType")))
+                .filter(s -> ObjectHelper.isNotEmpty(s.get("id")))
+                .map(s -> s.get("id").toString())
+                .collect(Collectors.toSet());
+    }
+
     /**
      * Reads atlas mapping definition from configured step properties and extracts all data source elements.
      */
@@ -120,10 +134,10 @@ public class DataMapperStepHandler implements IntegrationStepHandler {
     }
 
     /**
-     * Processor converts all Json collection typed entries in captured out messages to a
-     * Json array String representation. See {@link OutMessageCaptureProcessor}
+     * Processor converts all Json collection typed entries and parsed Json entries in captured out messages to a
+     * Json String representation, as AtlasMap reads Json source documents as text. See {@link OutMessageCaptureProcessor}
      */
-    static class JsonTypeSourceProcessor implements Processor {
+    static class JsonTypeSourceProcessor implements Processor, JsonPayloadAware {
         final int overallSourceDocCount;
         final List<String> jsonTypeSourceIds;
 
@@ -152,10 +166,24 @@ public class DataMapperStepHandler implements IntegrationStepHandler {
         }
 
         /**
-         * Convert list typed message body to Json array String representation.
+         * Convert list typed or parsed message body to Json String representation.
          */
         private static void convertMessageJsonTypeBody(Exchange exchange, Message message) {
-            if (message != null && message.getBody() instanceof List) {
+            if (message == null) {
+                return;
+            }
+
+            final Object body = message.getBody();
+            if (body instanceof JsonPayload) {
+                // serialized once, the text a payload was parsed from is reused as is
+                final JsonPayload payload = (JsonPayload) body;
+                message.setBody(payload.toString());
+
+                if (payload.isJsonBeans() && payload.isArray()) {
+                    // mark auto conversion so we can reconvert after data mapper is done
+                    exchange.setProperty(DATA_MAPPER_AUTO_CONVERSION, true);
+                }
+            } else if (body instanceof List) {
                 List<?> jsonBeans = message.getBody(List.class);
                 message.setBody(JsonUtils.jsonBeansToArray(jsonBeans));
 
@@ -166,23 +194,21 @@ public class DataMapperStepHandler implements IntegrationStepHandler {
     }
 
     /**
-     * Processor converts Atlasmap target Json array String representation to list of Json bean strings.
+     * Processor wraps Atlasmap target Json String representation into a {@link JsonPayload}, parsed only if a following
+     * step looks into it. Json arrays are serialized to list of Json bean strings when handed to connectors if the
+     * source documents were auto converted from such lists.
      */
-    static class JsonTypeTargetProcessor implements Processor {
+    static class JsonTypeTargetProcessor implements Processor, JsonPayloadAware {
         @Override
         public void process(Exchange exchange) throws Exception {
-            if (exchange.removeProperty(DATA_MAPPER_AUTO_CONVERSION) != null) {
-                final Message message = exchange.hasOut() ? exchange.getOut() : exchange.getIn();
-
-                if (message != null && message.getBody(String.class) != null) {
-                    try {
-                        JsonNode json = JsonUtils.reader().readTree(message.getBody(String.class));
-                        if (json.isArray()) {
-                            message.setBody(JsonUtils.arrayToJsonBeans(json));
-                        }
-                    } catch (JsonParseException e) {
-                        LOG.warn("Unable to convert json array type String to required format", e);
-                    }
+            final boolean autoConversion = exchange.removeProperty(DATA_MAPPER_AUTO_CONVERSION) != null;
+            final Message message = exchange.hasOut() ? exchange.getOut() : exchange.getIn();
+
+            if (message != null && message.getBody() instanceof String) {
+                final String json = message.getBody(String.class);
+                if (JsonUtils.isJson(json)) {
+                    final JsonPayload payload = JsonPayload.ofText(json);
+                    message.setBody(autoConversion ? payload.asJsonBeans() : payload);
                 }
             }
         }
@@ -27,6 +27,9 @@ import io.syndesis.common.model.filter.FilterRule;
 import io.syndesis.common.model.integration.Step;
 import io.syndesis.common.model.integration.StepKind;
 import io.syndesis.common.util.json.JsonUtils;
+import io.syndesis.integration.runtime.util.FilterRulePredicate;
+import org.apache.camel.CamelContext;
+import org.apache.camel.Predicate;
 
 public class RuleFilterStepHandler extends AbstractFilterStepHandler {
     private static final TypeReference<List<FilterRule>> FILTER_RULE_LIST_TYPE_TOKEN = new TypeReference<List<FilterRule>>() {
@@ -38,6 +41,17 @@ public class RuleFilterStepHandler extends AbstractFilterStepHandler {
         return StepKind.ruleFilter == step.getStepKind();
     }
 
+    @Override
+    protected Predicate createPredicate(Step step, CamelContext context) {
+        final Predicate fallback = super.createPredicate(step, context);
+
+        final Map<String, String> props = step.getConfiguredProperties();
+        final List<FilterRule> rules = extractRules(props.get("rules"));
+
+        return FilterRulePredicate.compile(rules, getPredicate(props.get("predicate")), context, fallback)
+            .orElse(fallback);
+    }
+
     @Override
     protected String getFilterExpression(Step step) {
         final Map<String, String> props = step.getConfiguredProperties();
@@ -15,7 +15,6 @@
  */
 package io.syndesis.integration.runtime.handlers;
 
-import java.io.IOException;
 import java.io.InputStream;
 import java.util.Arrays;
 import java.util.Optional;
@@ -23,10 +22,9 @@ import java.util.Optional;
 import com.fasterxml.jackson.databind.JsonNode;
 import io.syndesis.common.model.integration.Step;
 import io.syndesis.common.model.integration.StepKind;
-import io.syndesis.common.util.SyndesisServerException;
-import io.syndesis.common.util.json.JsonUtils;
 import io.syndesis.integration.runtime.IntegrationRouteBuilder;
 import io.syndesis.integration.runtime.IntegrationStepHandler;
+import io.syndesis.integration.runtime.util.JsonPayload;
 import org.apache.camel.Exchange;
 import org.apache.camel.Expression;
 import org.apache.camel.TypeConverter;
@@ -105,7 +103,7 @@ public class SplitStepHandler implements IntegrationStepHandler {
                 .map(AggregateStepHandler.AggregationOption::valueOf)
                 .orElse(AggregateStepHandler.AggregationOption.body);
 
-        route = route.split(splitExpression).aggregationStrategy(aggregation.getStrategy(step.getConfiguredProperties()));
+        route = route.split(splitExpression).aggregationStrategy(aggregation.getStrategy(step));
 
         return Optional.of(route);
     }
@@ -115,8 +113,9 @@ public class SplitStepHandler implements IntegrationStepHandler {
      * SQL. Also handles Json array String representation and splits its array elements accordingly.
      * Expression receives a delegate expression that usually evaluates the part of the body or header that should be split. By
      * default this is a simple body expression.
-     * When delegate expression evaluates to something else that a Json array or list of Json beans nothing is performed on top of
-     * the delegate expression.
+     * Json array elements are handed to the following steps as parsed {@link JsonPayload}, those are serialized to Json Strings
+     * when handed to connectors. When delegate expression evaluates to something else that a Json array or list of Json beans
+     * nothing is performed on top of the delegate expression.
      */
     private static class SplitExpression extends ExpressionAdapter {
         private final Expression delegate;
@@ -127,20 +126,18 @@ public class SplitStepHandler implements IntegrationStepHandler {
 
         @Override
         public Object evaluate(Exchange exchange) {
-            try {
-                Object value = convert(delegate.evaluate(exchange, Object.class), exchange);
-
-                if (value instanceof String && JsonUtils.isJson(value.toString())) {
-                    JsonNode json = JsonUtils.reader().readTree(value.toString());
-                    if (json.isArray()) {
-                        return JsonUtils.arrayToJsonBeans(json);
-                    }
+            Object value = convert(delegate.evaluate(exchange, Object.class), exchange);
+
+            if (value instanceof String || value instanceof JsonPayload) {
+                Optional<JsonPayload> json = JsonPayload.of(exchange, value);
+                if (json.isPresent()) {
+                    return json.get().isArray() ? json.get().elements() : json.get();
                 }
 
                 return value;
-            } catch (IOException e) {
-                throw SyndesisServerException.launderThrowable(e);
             }
+
+            return value;
         }
     }
 
@@ -159,21 +156,18 @@ public class SplitStepHandler implements IntegrationStepHandler {
 
         @Override
         public Object evaluate(Exchange exchange) {
-            try {
-                Object value = convert(delegate.evaluate(exchange, Object.class), exchange);
-
-                if (value instanceof String && JsonUtils.isJson(value.toString())) {
-                    JsonNode json = JsonUtils.reader().readTree(value.toString());
-                    JsonNode body = json.get("body");
-                    if (body != null) {
-                        return JsonUtils.writer().writeValueAsString(body);
-                    }
+            Object value = convert(delegate.evaluate(exchange, Object.class), exchange);
+
+            if (value instanceof String || value instanceof JsonPayload) {
+                Optional<JsonPayload> json = JsonPayload.of(exchange, value);
+                JsonNode body = json.map(payload -> payload.getJson().get("body")).orElse(null);
+                if (body != null) {
+                    // handed over parsed so that the split expression does not parse it again
+                    return JsonPayload.of(body);
                 }
-
-                return value;
-            } catch (IOException e) {
-                throw SyndesisServerException.launderThrowable(e);
             }
+
+            return value;
         }
     }
 
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.integration.runtime.jmx;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.ObjectName;
+
+import org.apache.camel.CamelContext;
+import org.apache.camel.CamelContextAware;
+import org.apache.camel.Service;
+import org.apache.camel.api.management.ManagedAttribute;
+import org.apache.camel.api.management.ManagedResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Exposes the time spent aggregating exchanges in a split/aggregate step as
+ * Prometheus metrics.
+ */
+@ManagedResource(description = "Managed Syndesis aggregation step")
+public class AggregationMetricsMBean implements Service, CamelContextAware {
+
+    public static final Logger LOG = LoggerFactory.getLogger(AggregationMetricsMBean.class);
+
+    private final String stepId;
+
+    private final LongAdder aggregations = new LongAdder();
+
+    private final LongAdder failures = new LongAdder();
+
+    private final LongAdder totalNanos = new LongAdder();
+
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    private CamelContext camelContext;
+
+    public AggregationMetricsMBean(String stepId) {
+        this.stepId = stepId;
+    }
+
+    public void record(long nanos, boolean failed) {
+        aggregations.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+
+        if (failed) {
+            failures.increment();
+        }
+    }
+
+    @ManagedAttribute
+    public String getStepId() {
+        return stepId;
+    }
+
+    @ManagedAttribute
+    public long getAggregations() {
+        return aggregations.sum();
+    }
+
+    @ManagedAttribute
+    public long getFailedAggregations() {
+        return failures.sum();
+    }
+
+    @ManagedAttribute
+    public long getTotalAggregationTime() {
+        return TimeUnit.NANOSECONDS.toMillis(totalNanos.sum());
+    }
+
+    @ManagedAttribute
+    public double getMeanAggregationTime() {
+        final long count = aggregations.sum();
+        if (count == 0) {
+            return 0;
+        }
+
+        return totalNanos.sum() / (double) count / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @ManagedAttribute
+    public double getMaxAggregationTime() {
+        return maxNanos.get() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public void start() throws Exception {
+        // register mbean
+        final String contextName = camelContext.getName();
+        final String name = String.format("io.syndesis.camel:context=%s,type=aggregation,name=%s", contextName, ObjectName.quote(stepId));
+        final ObjectName instance = ObjectName.getInstance(name);
+
+        camelContext.getManagementStrategy().manageNamedObject(this, instance);
+        LOG.info("Registered mbean {}", instance);
+    }
+
+    @Override
+    public void stop() throws Exception {
+        // unregister mbean
+        camelContext.getManagementStrategy().unmanageObject(this);
+    }
+
+    @Override
+    public void setCamelContext(CamelContext camelContext) {
+        this.camelContext = camelContext;
+    }
+
+    @Override
+    public CamelContext getCamelContext() {
+        return this.camelContext;
+    }
+}
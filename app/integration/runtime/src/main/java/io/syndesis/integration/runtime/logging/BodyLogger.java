@@ -20,6 +20,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.stream.Stream;
 
+import io.syndesis.integration.runtime.util.JsonPayload;
 import org.apache.camel.CamelContext;
 import org.apache.camel.Exchange;
 import org.apache.camel.impl.DefaultCamelContext;
@@ -38,11 +39,18 @@ public interface BodyLogger {
      * in readable format even if objects overwrite {@link Object#toString()}. This is required when grouped body aggregation
      * exchanges are logged because these exchanges do overwrite {@link Object#toString()}
      * in {@link org.apache.camel.processor.aggregate.AbstractListAggregationStrategy}
-     * Other body types are delegated to simple language "${body}" expression for logging the body as String.
+     * Parsed {@link JsonPayload} bodies are logged serialized, other body types are delegated to simple language "${body}"
+     * expression for logging the body as String.
      */
     class Default implements BodyLogger {
         @Override
         public String log(Exchange exchange) {
+            final Object payload = exchange.getIn().getBody();
+            if (payload instanceof JsonPayload) {
+                // logged in the form it is handed to connectors
+                return String.valueOf(((JsonPayload) payload).toBody());
+            }
+
             if (ObjectHelper.isNotEmpty(exchange.getIn().getBody())) {
                 if (exchange.getIn().getBody(List.class) != null) {
                     List<?> body = exchange.getIn().getBody(List.class);
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.integration.runtime.util;
+
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of script engines that have compiled the same script. Script engines
+ * such as Nashorn are not safe to use from multiple threads, so each
+ * evaluation borrows an engine from the pool, creating one only when all
+ * pooled engines are in use, for instance by a parallel splitter. Pools are
+ * shared by all users of the same language and script.
+ */
+public final class CompiledScriptPool {
+
+    // creating the manager looks up all script engine factories on the
+    // classpath, so a single one is shared
+    private static final ScriptEngineManager MANAGER = new ScriptEngineManager();
+
+    private static final ConcurrentMap<List<String>, CompiledScriptPool> POOLS = new ConcurrentHashMap<>();
+
+    private static final int MAX_IDLE = 2 * Runtime.getRuntime().availableProcessors();
+
+    private final String language;
+
+    private final String script;
+
+    private final Queue<PooledScript> idle = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    private CompiledScriptPool(final String language, final String script) {
+        this.language = language;
+        this.script = script;
+    }
+
+    public static CompiledScriptPool forScript(final String language, final String script) {
+        return POOLS.computeIfAbsent(Arrays.asList(language, script), key -> new CompiledScriptPool(language, script));
+    }
+
+    /**
+     * Evaluates the script with the given variables bound, using an engine
+     * not in use by any other thread.
+     */
+    public Object eval(final Map<String, Object> variables) throws ScriptException {
+        PooledScript pooled = idle.poll();
+        if (pooled == null) {
+            pooled = new PooledScript(createEngine(), script);
+        } else {
+            idleCount.decrementAndGet();
+        }
+
+        try {
+            return pooled.eval(variables);
+        } finally {
+            release(pooled);
+        }
+    }
+
+    private void release(final PooledScript pooled) {
+        if (idleCount.incrementAndGet() > MAX_IDLE) {
+            // more engines were needed at some point than are kept around
+            idleCount.decrementAndGet();
+            return;
+        }
+
+        idle.offer(pooled);
+    }
+
+    private ScriptEngine createEngine() {
+        final ScriptEngine engine;
+        synchronized (MANAGER) {
+            engine = MANAGER.getEngineByName(language);
+        }
+
+        if (engine == null) {
+            throw new IllegalStateException("No script engine found for language: " + language);
+        }
+
+        return engine;
+    }
+
+    private static final class PooledScript {
+        private final ScriptEngine engine;
+
+        private final String script;
+
+        private final CompiledScript compiled;
+
+        PooledScript(final ScriptEngine engine, final String script) throws ScriptException {
+            this.engine = engine;
+            this.script = script;
+
+            if (engine instanceof Compilable) {
+                compiled = ((Compilable) engine).compile(script);
+            } else {
+                compiled = null;
+            }
+        }
+
+        Object eval(final Map<String, Object> variables) throws ScriptException {
+            // each evaluation gets its own scope, so that neither the given
+            // variables nor the globals the script defines are kept on the
+            // idle engine or seen by the next evaluation
+            final Bindings bindings = engine.createBindings();
+            bindings.putAll(variables);
+
+            if (compiled == null) {
+                return engine.eval(script, bindings);
+            }
+
+            return compiled.eval(bindings);
+        }
+    }
+}
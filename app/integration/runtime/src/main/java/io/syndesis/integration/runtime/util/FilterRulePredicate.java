@@ -0,0 +1,395 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.integration.runtime.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiPredicate;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.syndesis.common.model.filter.FilterPredicate;
+import io.syndesis.common.model.filter.FilterRule;
+import org.apache.camel.CamelContext;
+import org.apache.camel.Exchange;
+import org.apache.camel.Predicate;
+import org.apache.camel.TypeConverter;
+import org.apache.camel.util.ObjectHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Predicate compiled from the rules of a rule filter step. The JSON body is
+ * read with a streaming parser that materializes only the fields the rules
+ * refer to, and stops as soon as all of them have been read, then the rules
+ * are applied with the same type coercion the simple language uses.
+ * <p>
+ * Bodies already parsed by a previous step are read from their
+ * {@link JsonPayload} instead. Messages that don't carry a JSON object as a
+ * {@code String}, {@code byte[]} or {@link JsonPayload} body, and messages
+ * missing any of the fields the rules refer to, are handed to the fallback
+ * predicate, which evaluates the rules as a simple language expression.
+ */
+public final class FilterRulePredicate implements Predicate {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FilterRulePredicate.class);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final JsonFactory FACTORY = MAPPER.getFactory();
+
+    private final FieldNode root;
+
+    private final int fieldCount;
+
+    private final List<Rule> rules;
+
+    private final FilterPredicate combination;
+
+    private final Predicate fallback;
+
+    private FilterRulePredicate(final FieldNode root, final int fieldCount, final List<Rule> rules, final FilterPredicate combination,
+        final Predicate fallback) {
+        this.root = root;
+        this.fieldCount = fieldCount;
+        this.rules = rules;
+        this.combination = combination;
+        this.fallback = fallback;
+    }
+
+    /**
+     * Compiles the given rules, returns empty if any of the rules uses a path
+     * or a value that can only be evaluated by the simple language, like
+     * array indexes or nested simple expressions.
+     */
+    public static Optional<Predicate> compile(final List<FilterRule> filterRules, final FilterPredicate combination, final CamelContext context,
+        final Predicate fallback) {
+        final TypeConverter converter = context.getTypeConverter();
+        final FieldNode root = new FieldNode();
+        final List<Rule> rules = new ArrayList<>(filterRules.size());
+
+        int fieldCount = 0;
+        for (final FilterRule filterRule : filterRules) {
+            final String path = filterRule.getPath();
+            final String value = filterRule.getValue();
+            if (!isCompilablePath(path) || value == null || value.contains("${") || value.indexOf('\'') >= 0) {
+                return Optional.empty();
+            }
+
+            final BiPredicate<Object, String> operator = operator(filterRule.getOp(), value, converter);
+            if (operator == null) {
+                return Optional.empty();
+            }
+
+            FieldNode node = root;
+            for (final String segment : path.split("\\.", -1)) {
+                node = node.children.computeIfAbsent(segment, s -> new FieldNode());
+            }
+
+            if (node.index < 0) {
+                node.index = fieldCount++;
+            }
+
+            rules.add(new Rule(node.index, operator, value));
+        }
+
+        return Optional.of(new FilterRulePredicate(root, fieldCount, rules, combination, fallback));
+    }
+
+    @Override
+    public boolean matches(final Exchange exchange) {
+        final Object body = exchange.getIn().getBody();
+
+        final Optional<JsonPayload> parsed = JsonPayload.parsed(exchange, body);
+
+        final Object[] values;
+        try {
+            if (parsed.isPresent()) {
+                values = read(parsed.get().getJson().traverse(MAPPER));
+            } else if (body instanceof String) {
+                values = read(FACTORY.createParser((String) body));
+            } else if (body instanceof byte[]) {
+                values = read(FACTORY.createParser((byte[]) body));
+            } else {
+                values = null;
+            }
+        } catch (final JsonProcessingException e) {
+            LOG.trace("Unable to parse incoming message body as JSON ", e);
+            return fallback.matches(exchange);
+        } catch (final IOException e) {
+            LOG.debug("Unable to read incoming message body as JSON", e);
+            return fallback.matches(exchange);
+        }
+
+        if (values == null) {
+            return fallback.matches(exchange);
+        }
+
+        for (final Object value : values) {
+            if (value == null) {
+                // leave the semantics of missing and null values to the
+                // simple language
+                return fallback.matches(exchange);
+            }
+        }
+
+        if (combination == FilterPredicate.AND) {
+            for (final Rule rule : rules) {
+                if (!rule.matches(values)) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        for (final Rule rule : rules) {
+            if (rule.matches(values)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private Object[] read(final JsonParser parser) throws IOException {
+        try (JsonParser json = parser) {
+            if (json.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+
+            final Object[] values = new Object[fieldCount];
+            readObject(json, root, values, new int[] {fieldCount});
+
+            return values;
+        }
+    }
+
+    /**
+     * Reads the fields of the object the parser is positioned at, skipping
+     * the fields no rule refers to. Returns once all the fields the rules
+     * refer to have been read, leaving the rest of the document unread.
+     */
+    private static void readObject(final JsonParser parser, final FieldNode node, final Object[] values, final int[] remaining) throws IOException {
+        while (remaining[0] > 0 && parser.nextToken() == JsonToken.FIELD_NAME) {
+            final FieldNode field = node.children.get(parser.getCurrentName());
+            final JsonToken token = parser.nextToken();
+
+            if (field == null) {
+                parser.skipChildren();
+            } else if (field.index >= 0) {
+                final Object value = readValue(parser, token);
+                assign(field, value, values, remaining);
+            } else if (token == JsonToken.START_OBJECT) {
+                readObject(parser, field, values, remaining);
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private static Object readValue(final JsonParser parser, final JsonToken token) throws IOException {
+        switch (token) {
+        case VALUE_STRING:
+            return parser.getText();
+        case VALUE_NUMBER_INT:
+            return parser.getNumberValue();
+        case VALUE_NUMBER_FLOAT:
+            return parser.getDoubleValue();
+        case VALUE_TRUE:
+            return Boolean.TRUE;
+        case VALUE_FALSE:
+            return Boolean.FALSE;
+        case VALUE_NULL:
+            return null;
+        default:
+            // the same Map/List structure the simple predicate would see
+            return MAPPER.readValue(parser, Object.class);
+        }
+    }
+
+    private static void assign(final FieldNode field, final Object value, final Object[] values, final int[] remaining) {
+        if (values[field.index] == null && value != null) {
+            values[field.index] = value;
+            remaining[0]--;
+        }
+
+        if (value instanceof Map) {
+            // rules refer to both this field and the fields within it
+            final Map<?, ?> map = (Map<?, ?>) value;
+            for (final Map.Entry<String, FieldNode> child : field.children.entrySet()) {
+                assignFrom(map.get(child.getKey()), child.getValue(), values, remaining);
+            }
+        }
+    }
+
+    private static void assignFrom(final Object value, final FieldNode field, final Object[] values, final int[] remaining) {
+        if (field.index >= 0) {
+            assign(field, value, values, remaining);
+        } else if (value instanceof Map) {
+            final Map<?, ?> map = (Map<?, ?>) value;
+            for (final Map.Entry<String, FieldNode> child : field.children.entrySet()) {
+                assignFrom(map.get(child.getKey()), child.getValue(), values, remaining);
+            }
+        }
+    }
+
+    private static boolean isCompilablePath(final String path) {
+        if (path == null || path.isEmpty()) {
+            return false;
+        }
+
+        for (final String segment : path.split("\\.", -1)) {
+            if (segment.isEmpty() || isIndex(segment)) {
+                return false;
+            }
+
+            for (final char ch : segment.toCharArray()) {
+                if (ch == '[' || ch == ']' || ch == '(' || ch == ')' || ch == '{' || ch == '}' || Character.isWhitespace(ch)) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean isIndex(final String segment) {
+        for (final char ch : segment.toCharArray()) {
+            if (!Character.isDigit(ch)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @SuppressWarnings("PMD.CyclomaticComplexity")
+    private static BiPredicate<Object, String> operator(final String op, final String value, final TypeConverter converter) {
+        switch (op) {
+        case "==":
+            return (left, right) -> ObjectHelper.typeCoerceEquals(converter, left, right);
+        case "!=":
+            return (left, right) -> ObjectHelper.typeCoerceNotEquals(converter, left, right);
+        case ">":
+            return (left, right) -> ObjectHelper.typeCoerceCompare(converter, left, right) > 0;
+        case ">=":
+            return (left, right) -> ObjectHelper.typeCoerceCompare(converter, left, right) >= 0;
+        case "<":
+            return (left, right) -> ObjectHelper.typeCoerceCompare(converter, left, right) < 0;
+        case "<=":
+            return (left, right) -> ObjectHelper.typeCoerceCompare(converter, left, right) <= 0;
+        case "contains":
+            return ObjectHelper::contains;
+        case "not contains":
+            return (left, right) -> !ObjectHelper.contains(left, right);
+        case "~~":
+            return FilterRulePredicate::containsIgnoreCase;
+        case "=~":
+            return (left, right) -> right.equalsIgnoreCase(converter.convertTo(String.class, left));
+        case "regex": {
+            final Pattern pattern = compilePattern(value);
+            return pattern == null ? null : (left, right) -> matches(pattern, converter.convertTo(String.class, left));
+        }
+        case "not regex": {
+            final Pattern pattern = compilePattern(value);
+            return pattern == null ? null : (left, right) -> !matches(pattern, converter.convertTo(String.class, left));
+        }
+        case "in":
+            return (left, right) -> in(converter, left, right);
+        case "not in":
+            return (left, right) -> !in(converter, left, right);
+        default:
+            return null;
+        }
+    }
+
+    private static Pattern compilePattern(final String regex) {
+        try {
+            return Pattern.compile(regex);
+        } catch (final PatternSyntaxException e) {
+            LOG.debug("Unable to compile regular expression `{}`, leaving it to the simple language", regex, e);
+            return null;
+        }
+    }
+
+    private static boolean matches(final Pattern pattern, final String text) {
+        return text != null && pattern.matcher(text).matches();
+    }
+
+    private static boolean in(final TypeConverter converter, final Object left, final String right) {
+        final Iterator<?> candidates = ObjectHelper.createIterator(right);
+        while (candidates.hasNext()) {
+            if (ObjectHelper.typeCoerceEquals(converter, left, candidates.next())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean containsIgnoreCase(final Object left, final String right) {
+        final String lowerRight = right.toLowerCase(Locale.ENGLISH);
+        if (left instanceof String) {
+            return ((String) left).toLowerCase(Locale.ENGLISH).contains(lowerRight);
+        }
+
+        final Iterator<?> items = ObjectHelper.createIterator(left);
+        while (items.hasNext()) {
+            final Object item = items.next();
+            if (item != null && item.toString().equalsIgnoreCase(right)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static final class FieldNode {
+        private final Map<String, FieldNode> children = new HashMap<>();
+
+        private int index = -1;
+    }
+
+    private static final class Rule {
+        private final int index;
+
+        private final BiPredicate<Object, String> operator;
+
+        private final String value;
+
+        Rule(final int index, final BiPredicate<Object, String> operator, final String value) {
+            this.index = index;
+            this.operator = operator;
+            this.value = value;
+        }
+
+        boolean matches(final Object[] values) {
+            return operator.test(values[index], value);
+        }
+    }
+}
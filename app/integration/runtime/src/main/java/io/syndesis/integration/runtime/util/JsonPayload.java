@@ -0,0 +1,310 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.integration.runtime.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import io.syndesis.common.util.SyndesisServerException;
+import io.syndesis.common.util.json.JsonUtils;
+import org.apache.camel.Exchange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Parsed form of a JSON object or array payload. Steps that need to look into
+ * a JSON payload obtain it via {@link #of(Exchange, Object)}, which parses a
+ * given value only once per exchange, so that a payload passed unchanged
+ * through filter, split and mapper steps is not parsed again by each of them.
+ * <p>
+ * Split and data mapper steps set a {@code JsonPayload} as the message body,
+ * so the steps that follow them work on the parsed form. It is serialized,
+ * lazily and only once, when it reaches a connector or any other endpoint,
+ * see {@link JsonPayloadInterceptStrategy}, back to the form the body had
+ * before: JSON text, or a list of JSON beans for arrays that connectors such
+ * as SQL provided as such a list. Type converters in
+ * {@link JsonPayloadConverters} serialize it when a step asks for the body as
+ * {@code String}, {@code byte[]} or {@code InputStream}.
+ */
+public final class JsonPayload {
+
+    /** Exchange property holding the most recently parsed value and its parsed form */
+    public static final String PARSED_PAYLOAD = "Syndesis.PARSED_JSON_PAYLOAD";
+
+    private static final Logger LOG = LoggerFactory.getLogger(JsonPayload.class);
+
+    private final boolean jsonBeans;
+
+    private volatile JsonNode json;
+
+    private volatile String text;
+
+    private JsonPayload(final JsonNode json, final String text, final boolean jsonBeans) {
+        this.json = json;
+        this.text = text;
+        this.jsonBeans = jsonBeans;
+    }
+
+    public static JsonPayload of(final JsonNode json) {
+        return new JsonPayload(json, null, false);
+    }
+
+    /**
+     * Wraps the given JSON object or array text without parsing it, it is
+     * parsed on the first call to {@link #getJson()}. Use for text produced by
+     * a JSON writer, like the data mapper output, that following steps may
+     * not need to look into.
+     */
+    public static JsonPayload ofText(final String text) {
+        if (!JsonUtils.isJson(text)) {
+            throw new IllegalArgumentException("Not a JSON object or array: " + text);
+        }
+
+        return new JsonPayload(null, text, false);
+    }
+
+    /**
+     * Returns the parsed form of the given value if it is a JSON object or
+     * array, given as a {@code JsonPayload}, {@code String}, {@code byte[]} or
+     * list of JSON beans. Parsed {@code String} and {@code byte[]} values are
+     * remembered on the exchange, and are not parsed again as long as the
+     * same value instance is given.
+     */
+    public static Optional<JsonPayload> of(final Exchange exchange, final Object value) {
+        if (value instanceof JsonPayload) {
+            return Optional.of((JsonPayload) value);
+        }
+
+        if (!(value instanceof String || value instanceof byte[])) {
+            return Optional.ofNullable(parse(value));
+        }
+
+        final Parsed parsed = exchange.getProperty(PARSED_PAYLOAD, Parsed.class);
+        if (parsed != null && parsed.source == value) {
+            return Optional.ofNullable(parsed.payload);
+        }
+
+        final JsonPayload payload = parse(value);
+        // remember values that are not JSON as well
+        exchange.setProperty(PARSED_PAYLOAD, new Parsed(value, payload));
+
+        return Optional.ofNullable(payload);
+    }
+
+    /**
+     * Returns the parsed form of the given value, if it has already been
+     * parsed for this exchange, without parsing it.
+     */
+    public static Optional<JsonPayload> parsed(final Exchange exchange, final Object value) {
+        if (value instanceof JsonPayload) {
+            return Optional.of((JsonPayload) value);
+        }
+
+        final Parsed parsed = exchange.getProperty(PARSED_PAYLOAD, Parsed.class);
+        if (parsed != null && parsed.source == value) {
+            return Optional.ofNullable(parsed.payload);
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * Parses the given value, returns {@code null} if it is not a JSON object
+     * or array.
+     */
+    static JsonPayload parse(final Object value) {
+        try {
+            if (value instanceof String) {
+                final String string = (String) value;
+                if (!JsonUtils.isJson(string)) {
+                    return null;
+                }
+
+                return new JsonPayload(JsonUtils.reader().readTree(string), string, false);
+            }
+
+            if (value instanceof byte[]) {
+                final JsonNode json = JsonUtils.reader().readTree((byte[]) value);
+                return json != null && json.isContainerNode() ? new JsonPayload(json, null, false) : null;
+            }
+
+            if (value instanceof List) {
+                return fromJsonBeans((List<?>) value);
+            }
+        } catch (final JsonProcessingException e) {
+            LOG.trace("Value is not a JSON document", e);
+        } catch (final IOException e) {
+            LOG.debug("Unable to read value as JSON", e);
+        }
+
+        return null;
+    }
+
+    private static JsonPayload fromJsonBeans(final List<?> jsonBeans) throws IOException {
+        final ArrayNode array = JsonNodeFactory.instance.arrayNode(jsonBeans.size());
+        for (final Object jsonBean : jsonBeans) {
+            if (!(jsonBean instanceof String) || !JsonUtils.isJson((String) jsonBean)) {
+                return null;
+            }
+
+            array.add(JsonUtils.reader().readTree((String) jsonBean));
+        }
+
+        return new JsonPayload(array, null, true);
+    }
+
+    /**
+     * The same payload, serialized as a list of JSON beans if it is an array.
+     */
+    public JsonPayload asJsonBeans() {
+        if (jsonBeans) {
+            return this;
+        }
+
+        return new JsonPayload(json, text, true);
+    }
+
+    /**
+     * Whether this payload is serialized as a list of JSON beans if it is an
+     * array, see {@link #toBody()}.
+     */
+    public boolean isJsonBeans() {
+        return jsonBeans;
+    }
+
+    public JsonNode getJson() {
+        JsonNode parsed = json;
+        if (parsed == null) {
+            try {
+                parsed = JsonUtils.reader().readTree(text);
+            } catch (final IOException e) {
+                throw new SyndesisServerException("Unable to parse JSON payload", e);
+            }
+            json = parsed;
+        }
+
+        return parsed;
+    }
+
+    public boolean isArray() {
+        final JsonNode parsed = json;
+        if (parsed == null) {
+            return JsonUtils.isJsonArray(text);
+        }
+
+        return parsed.isArray();
+    }
+
+    public boolean isObject() {
+        final JsonNode parsed = json;
+        if (parsed == null) {
+            return JsonUtils.isJsonObject(text);
+        }
+
+        return parsed.isObject();
+    }
+
+    /**
+     * Elements of a JSON array payload, each as a payload of its own.
+     */
+    public List<JsonPayload> elements() {
+        final JsonNode array = getJson();
+
+        final List<JsonPayload> elements = new ArrayList<>(array.size());
+        final Iterator<JsonNode> nodes = array.elements();
+        while (nodes.hasNext()) {
+            elements.add(of(nodes.next()));
+        }
+
+        return elements;
+    }
+
+    /**
+     * Serialized form of this payload as handed to connectors, a list of JSON
+     * bean strings for arrays given as such a list or marked with
+     * {@link #asJsonBeans()}, the JSON text otherwise.
+     */
+    public Object toBody() {
+        if (jsonBeans && isArray()) {
+            return toJsonBeans();
+        }
+
+        return toString();
+    }
+
+    /**
+     * Elements of a JSON array payload as a list of JSON bean strings, or a
+     * list containing just this payload serialized if it is not an array.
+     */
+    public List<String> toJsonBeans() {
+        if (!isArray()) {
+            final List<String> beans = new ArrayList<>(1);
+            beans.add(toString());
+            return beans;
+        }
+
+        final JsonNode array = getJson();
+        final List<String> beans = new ArrayList<>(array.size());
+        final Iterator<JsonNode> elements = array.elements();
+        while (elements.hasNext()) {
+            beans.add(write(elements.next()));
+        }
+
+        return beans;
+    }
+
+    public byte[] toBytes() {
+        return toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        String serialized = text;
+        if (serialized == null) {
+            serialized = write(json);
+            text = serialized;
+        }
+
+        return serialized;
+    }
+
+    private static String write(final JsonNode json) {
+        try {
+            return JsonUtils.writer().writeValueAsString(json);
+        } catch (final JsonProcessingException e) {
+            throw new SyndesisServerException(e);
+        }
+    }
+
+    private static final class Parsed {
+        private final Object source;
+
+        private final JsonPayload payload;
+
+        Parsed(final Object source, final JsonPayload payload) {
+            this.source = source;
+            this.payload = payload;
+        }
+    }
+}
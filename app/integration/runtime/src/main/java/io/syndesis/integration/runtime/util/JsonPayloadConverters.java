@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.integration.runtime.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.syndesis.common.util.json.JsonUtils;
+import org.apache.camel.Converter;
+
+/**
+ * Camel type converters for {@link JsonPayload} message bodies, registered
+ * via {@code META-INF/services/org/apache/camel/TypeConverter}.
+ */
+@Converter
+public final class JsonPayloadConverters {
+
+    private JsonPayloadConverters() {
+        // converter methods are static
+    }
+
+    @Converter
+    public static String toString(final JsonPayload payload) {
+        return payload.toString();
+    }
+
+    @Converter
+    public static byte[] toBytes(final JsonPayload payload) {
+        return payload.toBytes();
+    }
+
+    @Converter
+    public static InputStream toInputStream(final JsonPayload payload) {
+        return new ByteArrayInputStream(payload.toBytes());
+    }
+
+    @Converter
+    public static JsonNode toJsonNode(final JsonPayload payload) {
+        return payload.getJson();
+    }
+
+    /**
+     * Converts to the list of JSON beans representation connectors such as
+     * SQL use for collections.
+     */
+    @Converter
+    public static List<String> toList(final JsonPayload payload) {
+        return payload.toJsonBeans();
+    }
+
+    @Converter
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> toMap(final JsonPayload payload) {
+        if (!payload.isObject()) {
+            return null;
+        }
+
+        return JsonUtils.convertValue(payload.getJson(), Map.class);
+    }
+
+    @Converter
+    public static JsonPayload fromString(final String value) {
+        return JsonPayload.parse(value);
+    }
+
+    @Converter
+    public static JsonPayload fromBytes(final byte[] value) {
+        return JsonPayload.parse(value);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.integration.runtime.util;
+
+import org.apache.camel.AsyncCallback;
+import org.apache.camel.CamelContext;
+import org.apache.camel.DelegateProcessor;
+import org.apache.camel.Exchange;
+import org.apache.camel.Message;
+import org.apache.camel.Processor;
+import org.apache.camel.model.BeanDefinition;
+import org.apache.camel.model.EnrichDefinition;
+import org.apache.camel.model.PollEnrichDefinition;
+import org.apache.camel.model.ProcessDefinition;
+import org.apache.camel.model.ProcessorDefinition;
+import org.apache.camel.model.SendDefinition;
+import org.apache.camel.model.ToDynamicDefinition;
+import org.apache.camel.processor.DelegateAsyncProcessor;
+import org.apache.camel.spi.InterceptStrategy;
+
+/**
+ * Serializes {@link JsonPayload} message bodies, see
+ * {@link JsonPayload#toBody()}, right before they are handed to an endpoint,
+ * a bean or a processor that is not {@link JsonPayloadAware}. This keeps the
+ * parsed form between the steps that work on it, like split, filter and data
+ * mapper steps, while connectors, extensions and templates receive the body
+ * in the form they always did.
+ */
+public final class JsonPayloadInterceptStrategy implements InterceptStrategy {
+
+    public static final InterceptStrategy INSTANCE = new JsonPayloadInterceptStrategy();
+
+    private JsonPayloadInterceptStrategy() {
+        // use INSTANCE
+    }
+
+    @Override
+    public Processor wrapProcessorInInterceptors(final CamelContext context, final ProcessorDefinition<?> definition, final Processor target,
+        final Processor nextTarget) {
+        if (isBoundary(definition, target)) {
+            return new SerializeBodyProcessor(target);
+        }
+
+        return target;
+    }
+
+    /**
+     * Serializes the current message body if it is a {@link JsonPayload}.
+     */
+    public static void serializeBody(final Exchange exchange) {
+        final Message message = exchange.hasOut() ? exchange.getOut() : exchange.getIn();
+        final Object body = message.getBody();
+        if (body instanceof JsonPayload) {
+            message.setBody(((JsonPayload) body).toBody());
+        }
+    }
+
+    static boolean isBoundary(final ProcessorDefinition<?> definition, final Processor target) {
+        if (definition instanceof ProcessDefinition) {
+            return !isAware(target);
+        }
+
+        return definition instanceof SendDefinition
+            || definition instanceof ToDynamicDefinition
+            || definition instanceof EnrichDefinition
+            || definition instanceof PollEnrichDefinition
+            || definition instanceof BeanDefinition;
+    }
+
+    private static boolean isAware(final Processor processor) {
+        Processor current = processor;
+        // Camel wraps processors that are not services
+        while (!(current instanceof JsonPayloadAware) && current instanceof DelegateProcessor) {
+            current = ((DelegateProcessor) current).getProcessor();
+        }
+
+        return current instanceof JsonPayloadAware;
+    }
+
+    private static final class SerializeBodyProcessor extends DelegateAsyncProcessor {
+        SerializeBodyProcessor(final Processor processor) {
+            super(processor);
+        }
+
+        @Override
+        public boolean process(final Exchange exchange, final AsyncCallback callback) {
+            serializeBody(exchange);
+
+            return super.process(exchange, callback);
+        }
+    }
+}
@@ -80,6 +80,13 @@ public final class JsonSimplePredicate implements Predicate {
 
     @Override
     public boolean matches(final Exchange exchange) {
+        // JSON bodies parsed by a previous step, or parseable without
+        // going through an input stream, are matched directly
+        final Optional<JsonPayload> parsed = JsonPayload.of(exchange, exchange.getIn().getBody());
+        if (parsed.isPresent()) {
+            return matchesJson(ExchangeHelper.createCopy(exchange, true), parsed.get().getJson());
+        }
+
         // Clone the exchange and set the JSON message converted to a Map /
         // List as in message.
         // The intention is that only this predicate acts on the converted
@@ -110,28 +117,8 @@ public final class JsonSimplePredicate implements Predicate {
             // string
             final JsonNode json = mapper.readTree(resetAfterCloseInputStream);
 
-            if (json != null) {
-                if (json.isArray()) {
-                    payload.setBody(mapper.convertValue(json, List.class));
-                    try {
-                        return ognlPredicate.matches(exchangeForProcessing);
-                    } catch (RuntimeBeanExpressionException e) {
-                        if (Optional.ofNullable(e.getCause())
-                                    .map(Object::getClass)
-                                    .map(IndexOutOfBoundsException.class::equals)
-                                    .orElse(false)) {
-                            LOG.debug("Try to match array item out of bounds");
-                            // we do not need to dump on the logs so log it at trace level.
-                            LOG.trace("Try to match array item out of bounds ", e);
-                            return false;
-                        }
-
-                        throw e;
-                    }
-                } else if (json.isObject()) {
-                    payload.setBody(mapper.convertValue(json, Map.class));
-                    return ognlPredicate.matches(exchangeForProcessing);
-                }
+            if (json != null && json.isContainerNode()) {
+                return matchesJson(exchangeForProcessing, json);
             }
         } catch (final JsonParseException e) {
             LOG.debug("Incoming message is not a json, try to match using simple language");
@@ -148,6 +135,36 @@ public final class JsonSimplePredicate implements Predicate {
         return predicate.matches(exchange);
     }
 
+    /**
+     * Matches the given JSON array or object, set as a Map / List in message
+     * of the given copy of the exchange.
+     */
+    private boolean matchesJson(final Exchange exchangeForProcessing, final JsonNode json) {
+        final Message payload = exchangeForProcessing.getIn();
+
+        if (json.isArray()) {
+            payload.setBody(mapper.convertValue(json, List.class));
+            try {
+                return ognlPredicate.matches(exchangeForProcessing);
+            } catch (RuntimeBeanExpressionException e) {
+                if (Optional.ofNullable(e.getCause())
+                            .map(Object::getClass)
+                            .map(IndexOutOfBoundsException.class::equals)
+                            .orElse(false)) {
+                    LOG.debug("Try to match array item out of bounds");
+                    // we do not need to dump on the logs so log it at trace level.
+                    LOG.trace("Try to match array item out of bounds ", e);
+                    return false;
+                }
+
+                throw e;
+            }
+        }
+
+        payload.setBody(mapper.convertValue(json, Map.class));
+        return ognlPredicate.matches(exchangeForProcessing);
+    }
+
     static String convertSimpleToOGNLForMaps(final String simple) {
         final Matcher matcher = SIMPLE_EXPRESSION.matcher(simple);
 
@@ -15,9 +15,14 @@
  */
 package io.syndesis.integration.runtime;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import io.syndesis.common.model.action.ConnectorAction;
+import io.syndesis.common.model.action.ConnectorDescriptor;
+import io.syndesis.common.model.integration.Step;
+import io.syndesis.common.model.integration.StepKind;
 import io.syndesis.common.util.Resources;
 import io.syndesis.integration.runtime.logging.ActivityTracker;
 import io.syndesis.integration.runtime.logging.FlowActivityTrackingPolicy;
@@ -30,6 +35,7 @@ import org.apache.camel.model.ChoiceDefinition;
 import org.apache.camel.model.LogDefinition;
 import org.apache.camel.model.PipelineDefinition;
 import org.apache.camel.model.ProcessDefinition;
+import org.apache.camel.model.ProcessorDefinition;
 import org.apache.camel.model.RouteDefinition;
 import org.apache.camel.model.RoutesDefinition;
 import org.apache.camel.model.SetHeaderDefinition;
@@ -39,6 +45,7 @@ import org.junit.jupiter.api.Test;
 
 import static io.syndesis.integration.runtime.IntegrationTestSupport.dumpRoutes;
 import static io.syndesis.integration.runtime.IntegrationTestSupport.getOutput;
+import static io.syndesis.integration.runtime.IntegrationTestSupport.newIntegrationRouteBuilder;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -161,4 +168,56 @@ public class IntegrationRouteBuilderTest {
         assertThat(getOutput(conditionalRoute, 4, 1)).hasFieldOrPropertyWithValue("uri", "bean:io.syndesis.connector.flow.NoOpBean?method=process");
         assertThat(getOutput(conditionalRoute, 4, 2)).isInstanceOf(ProcessDefinition.class);
     }
+
+    @Test
+    public void testCaptureOnlyMapperSourceOutMessages() throws Exception {
+        IntegrationRouteBuilder routeBuilder = newIntegrationRouteBuilder(
+            new Step.Builder()
+                .id("s1")
+                .stepKind(StepKind.endpoint)
+                .action(new ConnectorAction.Builder()
+                    .descriptor(new ConnectorDescriptor.Builder()
+                        .componentScheme("direct")
+                        .putConfiguredProperty("name", "expression")
+                        .build())
+                    .build())
+                .build(),
+            new Step.Builder()
+                .id("s3")
+                .stepKind(StepKind.mapper)
+                .putConfiguredProperty("atlasmapping", "{\"AtlasMapping\":{\"dataSource\":["
+                    + "{\"id\":\"s1\",\"dataSourceType\":\"SOURCE\"},"
+                    + "{\"id\":\"s3\",\"dataSourceType\":\"TARGET\"}]}}")
+                .build(),
+            new Step.Builder()
+                .id("s4")
+                .stepKind(StepKind.endpoint)
+                .action(new ConnectorAction.Builder()
+                    .descriptor(new ConnectorDescriptor.Builder()
+                        .componentScheme("mock")
+                        .putConfiguredProperty("name", "expression")
+                        .build())
+                    .build())
+                .build());
+
+        routeBuilder.setCaptureAllOutMessages(false);
+        routeBuilder.configure();
+
+        List<String> captureIds = new ArrayList<>();
+        for (RouteDefinition route : routeBuilder.getRouteCollection().getRoutes()) {
+            collectCaptureIds(route, captureIds);
+        }
+
+        assertThat(captureIds).containsExactly("capture-out:s1");
+    }
+
+    private static void collectCaptureIds(ProcessorDefinition<?> definition, List<String> captureIds) {
+        for (ProcessorDefinition<?> output : definition.getOutputs()) {
+            if (output instanceof ProcessDefinition && output.getId() != null && output.getId().startsWith("capture-out:")) {
+                captureIds.add(output.getId());
+            }
+
+            collectCaptureIds(output, captureIds);
+        }
+    }
 }
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.integration.runtime.capture;
+
+import java.util.concurrent.TimeUnit;
+
+import io.syndesis.integration.runtime.logging.IntegrationLoggingConstants;
+import org.apache.camel.Exchange;
+import org.apache.camel.Message;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.impl.DefaultExchange;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures capturing the out messages of a flow of ten steps, each of which
+ * sets a header, when capturing every step with {@link Message#copy()} as
+ * before, and with snapshots of either every step or only the steps a data
+ * mapper uses. Snapshots copy the headers only once they are written. Runs
+ * with the GC profiler so that allocations per operation are reported. Not
+ * run as part of the build, run with:
+ *
+ * <pre>
+ * mvn -Djmh -pl integration/runtime test-compile exec:java -Dexec.classpathScope=test \
+ *   -Dexec.mainClass=io.syndesis.integration.runtime.capture.OutMessageCaptureBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OutMessageCaptureBenchmark {
+
+    private static final int STEPS = 10;
+
+    // a single step out of ten is used by a data mapper
+    private static final int MAPPER_SOURCES = 1;
+
+    @Param({"5", "20"})
+    public int headers;
+
+    private Exchange exchange;
+
+    private Message message;
+
+    @Setup
+    public void setup() {
+        exchange = new DefaultExchange(new DefaultCamelContext());
+        message = exchange.getIn();
+        message.setBody("{\"name\":\"James\",\"age\":42}");
+        for (int i = 0; i < headers; i++) {
+            message.setHeader("header-" + i, "value-" + i);
+        }
+        message.setHeader(IntegrationLoggingConstants.STEP_ID, "step");
+    }
+
+    @Benchmark
+    public Object copyAllSteps() {
+        Object last = null;
+        for (int i = 0; i < STEPS; i++) {
+            message.setHeader(IntegrationLoggingConstants.STEP_ID, "step-" + i);
+            last = OutMessageCaptureProcessor.getCapturedMessageMap(exchange).put("step-" + i, message.copy());
+        }
+
+        return last;
+    }
+
+    @Benchmark
+    public Object snapshotAllSteps() {
+        Object last = null;
+        for (int i = 0; i < STEPS; i++) {
+            message.setHeader(IntegrationLoggingConstants.STEP_ID, "step-" + i);
+            last = OutMessageCaptureProcessor.getCapturedMessageMap(exchange).put("step-" + i, OutMessageCaptureProcessor.snapshot(message));
+        }
+
+        return last;
+    }
+
+    @Benchmark
+    public Object snapshotMapperSources() {
+        Object last = null;
+        for (int i = 0; i < STEPS; i++) {
+            message.setHeader(IntegrationLoggingConstants.STEP_ID, "step-" + i);
+            if (i < MAPPER_SOURCES) {
+                last = OutMessageCaptureProcessor.getCapturedMessageMap(exchange).put("step-" + i, OutMessageCaptureProcessor.snapshot(message));
+            }
+        }
+
+        return last;
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(OutMessageCaptureBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build()).run();
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.integration.runtime.capture;
+
+import io.syndesis.integration.runtime.logging.IntegrationLoggingConstants;
+import org.apache.camel.Exchange;
+import org.apache.camel.Message;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.impl.DefaultExchange;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OutMessageCaptureProcessorTest {
+
+    @Test
+    public void shouldKeepHeadersOfCapturedMessages() throws Exception {
+        final Exchange exchange = new DefaultExchange(new DefaultCamelContext());
+        final Message message = exchange.getIn();
+        message.setBody("body");
+        message.setHeader("name", "first");
+        message.setHeader(IntegrationLoggingConstants.STEP_ID, "step-1");
+
+        OutMessageCaptureProcessor.INSTANCE.process(exchange);
+        message.setHeader("name", "second");
+        message.setHeader(IntegrationLoggingConstants.STEP_ID, "step-2");
+        OutMessageCaptureProcessor.INSTANCE.process(exchange);
+        message.removeHeader("name");
+
+        final Message first = OutMessageCaptureProcessor.getCapturedMessageMap(exchange).get("step-1");
+        final Message second = OutMessageCaptureProcessor.getCapturedMessageMap(exchange).get("step-2");
+        assertThat(first.getHeader("name")).isEqualTo("first");
+        assertThat(first.getHeader("NAME")).isEqualTo("first");
+        assertThat(second.getHeader("name")).isEqualTo("second");
+        assertThat(message.getHeaders()).containsOnlyKeys(IntegrationLoggingConstants.STEP_ID);
+
+        // writes to a captured message are not seen by the others
+        first.setHeader("name", "changed");
+        assertThat(second.getHeader("name")).isEqualTo("second");
+        assertThat(message.getHeader("name")).isNull();
+    }
+
+    @Test
+    public void shouldShareHeadersOfMessagesCapturedWithoutChanges() throws Exception {
+        final Exchange exchange = new DefaultExchange(new DefaultCamelContext());
+        final Message message = exchange.getIn();
+        message.setHeader("name", "value");
+
+        final Message first = OutMessageCaptureProcessor.snapshot(message);
+        final Message second = OutMessageCaptureProcessor.snapshot(message);
+
+        assertThat(first.getHeaders()).isInstanceOf(CopyOnWriteHeaders.class).containsEntry("name", "value");
+        assertThat(second.getHeaders()).isInstanceOf(CopyOnWriteHeaders.class).containsEntry("name", "value");
+
+        message.setHeader("name", "changed");
+        assertThat(first.getHeader("name")).isEqualTo("value");
+        assertThat(second.getHeader("name")).isEqualTo("value");
+    }
+}
@@ -17,6 +17,8 @@ package io.syndesis.integration.runtime.handlers;
 
 import java.util.Arrays;
 import java.util.List;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import io.syndesis.common.model.DataShape;
 import io.syndesis.common.model.DataShapeKinds;
@@ -34,12 +36,16 @@ import io.syndesis.integration.runtime.logging.BodyLogger;
 import io.syndesis.integration.runtime.logging.IntegrationLoggingListener;
 import io.syndesis.integration.runtime.util.JsonSupport;
 
+import org.apache.camel.CamelContextAware;
 import org.apache.camel.Exchange;
 import org.apache.camel.ProducerTemplate;
+import org.apache.camel.Service;
 import org.apache.camel.builder.RouteBuilder;
 import org.apache.camel.component.mock.MockEndpoint;
 import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.impl.DefaultExchange;
 import org.apache.camel.impl.SimpleRegistry;
+import org.apache.camel.processor.aggregate.AggregationStrategy;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -49,6 +55,8 @@ import org.slf4j.LoggerFactory;
 import static io.syndesis.integration.runtime.IntegrationTestSupport.dumpRoutes;
 import static io.syndesis.integration.runtime.IntegrationTestSupport.newIntegrationRouteBuilder;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -197,6 +205,40 @@ public class AggregateStepHandlerTest {
         }
     }
 
+    @Test
+    public void testScriptAggregationStrategyMetrics() throws Exception {
+        final DefaultCamelContext context = new DefaultCamelContext();
+        context.start();
+
+        try {
+            final AggregationStrategy strategy = AggregateStepHandler.AggregationOption.script.getStrategy(new Step.Builder()
+                .id(SPLIT_STEP)
+                .stepKind(StepKind.split)
+                .putConfiguredProperty("aggregationScriptLanguage", "nashorn")
+                .putConfiguredProperty("aggregationScript", "if (!oldExchange) { throw 'no previous exchange'; }\nnewExchange;")
+                .build());
+            ((CamelContextAware) strategy).setCamelContext(context);
+            ((Service) strategy).start();
+
+            final Exchange first = new DefaultExchange(context);
+            final Exchange second = new DefaultExchange(context);
+            assertThatThrownBy(() -> strategy.aggregate(null, first)).isInstanceOf(IllegalStateException.class);
+            assertThat(strategy.aggregate(first, second)).isSameAs(second);
+
+            final MBeanServer server = context.getManagementStrategy().getManagementAgent().getMBeanServer();
+            final ObjectName name = ObjectName.getInstance(String.format("io.syndesis.camel:context=%s,type=aggregation,name=%s",
+                context.getName(), ObjectName.quote(SPLIT_STEP)));
+            assertThat(server.getAttribute(name, "StepId")).isEqualTo(SPLIT_STEP);
+            assertThat(server.getAttribute(name, "Aggregations")).isEqualTo(2L);
+            assertThat(server.getAttribute(name, "FailedAggregations")).isEqualTo(1L);
+
+            ((Service) strategy).stop();
+            assertThat(server.isRegistered(name)).isFalse();
+        } finally {
+            context.stop();
+        }
+    }
+
     private void verifyActivityStepTracking(String stepId, int times) {
         verify(activityTracker, times(times)).track(eq("exchange"), anyString(), eq("step"), eq(stepId), eq("id"), anyString(), eq("duration"), anyLong(), eq("failure"), isNull());
     }
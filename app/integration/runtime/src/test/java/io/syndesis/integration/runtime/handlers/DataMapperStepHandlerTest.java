@@ -26,6 +26,7 @@ import io.syndesis.common.model.action.ConnectorDescriptor;
 import io.syndesis.common.model.integration.Step;
 import io.syndesis.common.model.integration.StepKind;
 import io.syndesis.integration.runtime.capture.OutMessageCaptureProcessor;
+import io.syndesis.integration.runtime.util.JsonPayload;
 
 import org.apache.camel.CamelContext;
 import org.apache.camel.Exchange;
@@ -399,4 +400,31 @@ public class DataMapperStepHandlerTest {
 
         assertThat(exchange.getIn().getBody(Long.class)).isEqualTo(Long.valueOf(100L));
     }
+
+    @Test
+    public void testJsonTypeTargetProcessingPassesParsedPayload() throws Exception {
+        Exchange exchange = new DefaultExchange(camelContext);
+        exchange.getIn().setBody("{\"name\": \"Leonard\", \"age\": 30}");
+
+        new DataMapperStepHandler.JsonTypeTargetProcessor().process(exchange);
+
+        assertThat(exchange.getIn().getBody()).isInstanceOf(JsonPayload.class);
+        assertThat(((JsonPayload) exchange.getIn().getBody()).getJson().get("name").asText()).isEqualTo("Leonard");
+    }
+
+    @Test
+    public void testJsonTypeSourceProcessingOfParsedPayload() throws Exception {
+        Exchange exchange = new DefaultExchange(camelContext);
+        exchange.getIn().setBody(JsonPayload.of(exchange, Arrays.asList("{\"name\": \"Bert\"}", "{\"name\": \"Stuart\"}")).get());
+
+        new DataMapperStepHandler.JsonTypeSourceProcessor(Collections.singletonList("m1"), 1).process(exchange);
+
+        assertThat(exchange.getIn().getBody()).isEqualTo("[{\"name\":\"Bert\"},{\"name\":\"Stuart\"}]");
+
+        // mapped back to a list of json beans when handed to a connector
+        exchange.getIn().setBody("[{\"name\":\"Bert\"}]");
+        new DataMapperStepHandler.JsonTypeTargetProcessor().process(exchange);
+
+        assertThat(((JsonPayload) exchange.getIn().getBody()).toBody()).isEqualTo(Collections.singletonList("{\"name\":\"Bert\"}"));
+    }
 }
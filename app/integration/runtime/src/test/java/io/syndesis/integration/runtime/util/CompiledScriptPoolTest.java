@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.integration.runtime.util;
+
+import javax.script.ScriptException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class CompiledScriptPoolTest {
+
+    @Test
+    public void shouldSharePoolsForTheSameScript() {
+        assertThat(CompiledScriptPool.forScript("nashorn", "a + b;")).isSameAs(CompiledScriptPool.forScript("nashorn", "a + b;"));
+        assertThat(CompiledScriptPool.forScript("nashorn", "a + b;")).isNotSameAs(CompiledScriptPool.forScript("nashorn", "a - b;"));
+    }
+
+    @Test
+    public void shouldEvaluateWithGivenVariables() throws ScriptException {
+        final CompiledScriptPool pool = CompiledScriptPool.forScript("nashorn", "'Hello ' + name;");
+
+        assertThat(pool.eval(Collections.singletonMap("name", "James"))).isEqualTo("Hello James");
+        assertThat(pool.eval(Collections.singletonMap("name", "Jack"))).isEqualTo("Hello Jack");
+    }
+
+    @Test
+    public void shouldNotKeepStateOnPooledEngines() throws ScriptException {
+        final CompiledScriptPool pool = CompiledScriptPool.forScript("nashorn",
+            "var result = (typeof seen === 'undefined' ? 'none' : seen) + ',' + (typeof value === 'undefined' ? 'none' : value);\n"
+                + "var seen = typeof value === 'undefined' ? 'none' : value;\n"
+                + "result;");
+
+        assertThat(pool.eval(Collections.singletonMap("value", "first"))).isEqualTo("none,first");
+        // neither the globals of the script nor the variables of the previous
+        // evaluation are left on the engine returned to the pool
+        assertThat(pool.eval(Collections.singletonMap("value", "second"))).isEqualTo("none,second");
+        assertThat(pool.eval(Collections.emptyMap())).isEqualTo("none,none");
+    }
+
+    @Test
+    public void shouldEvaluateConcurrently() throws Exception {
+        final CompiledScriptPool pool = CompiledScriptPool.forScript("nashorn", "var result = value * 2; result;");
+
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Callable<Object>> tasks = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                final int value = i;
+                tasks.add(() -> pool.eval(Collections.singletonMap("value", value)));
+            }
+
+            final List<Future<Object>> results = executor.invokeAll(tasks);
+            for (int i = 0; i < results.size(); i++) {
+                assertThat(((Number) results.get(i).get()).intValue()).isEqualTo(2 * i);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldFailForUnknownLanguages() {
+        final CompiledScriptPool pool = CompiledScriptPool.forScript("no-such-language", "1;");
+
+        assertThatThrownBy(() -> pool.eval(Collections.emptyMap()))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("No script engine found for language: no-such-language");
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.integration.runtime.util;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import io.syndesis.common.model.filter.FilterPredicate;
+import io.syndesis.common.model.filter.FilterRule;
+import org.apache.camel.Exchange;
+import org.apache.camel.Predicate;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.impl.DefaultExchange;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares evaluating rule filter rules with {@link JsonSimplePredicate} and
+ * with {@link FilterRulePredicate} over JSON bodies of different sizes. Not
+ * run as part of the build, run with:
+ *
+ * <pre>
+ * mvn -Djmh -pl integration/runtime test-compile exec:java -Dexec.classpathScope=test \
+ *   -Dexec.mainClass=io.syndesis.integration.runtime.util.FilterRulePredicateBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilterRulePredicateBenchmark {
+
+    // number of unrelated fields in the body next to the ones the rules use
+    @Param({"0", "50", "500"})
+    public int padding;
+
+    @Param({"simple", "compiled"})
+    public String implementation;
+
+    private Exchange exchange;
+
+    private Predicate predicate;
+
+    @Setup
+    public void setup() {
+        final DefaultCamelContext context = new DefaultCamelContext();
+
+        final List<FilterRule> rules = Arrays.asList(
+            new FilterRule.Builder().path("person.name").op("==").value("James").build(),
+            new FilterRule.Builder().path("person.age").op(">=").value("18").build(),
+            new FilterRule.Builder().path("order.status").op("!=").value("cancelled").build());
+
+        final String expression = rules.stream()
+            .map(FilterRule::getFilterExpression)
+            .collect(Collectors.joining(FilterPredicate.AND.getExpressionDelimiter()));
+
+        final Predicate simple = new JsonSimplePredicate(expression, context);
+        if ("compiled".equals(implementation)) {
+            predicate = FilterRulePredicate.compile(rules, FilterPredicate.AND, context, simple).orElse(simple);
+        } else {
+            predicate = simple;
+        }
+
+        final StringBuilder body = new StringBuilder("{\"person\":{\"name\":\"James\",\"age\":42},\"order\":{\"status\":\"shipped\"}");
+        for (int i = 0; i < padding; i++) {
+            body.append(",\"field").append(i).append("\":{\"value\":").append(i).append(",\"text\":\"lorem ipsum\"}");
+        }
+        body.append('}');
+
+        exchange = new DefaultExchange(context);
+        exchange.getIn().setBody(body.toString());
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return predicate.matches(exchange);
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(FilterRulePredicateBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.integration.runtime.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.syndesis.common.model.filter.FilterPredicate;
+import io.syndesis.common.model.filter.FilterRule;
+import org.apache.camel.Exchange;
+import org.apache.camel.Predicate;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.impl.DefaultExchange;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FilterRulePredicateTest {
+
+    private static final DefaultCamelContext CONTEXT = new DefaultCamelContext();
+
+    private static final String PERSON = "{\"id\":1,\"tags\":[\"a\",\"b\"],\"person\":{\"name\":\"James\",\"age\":42,\"address\":{\"city\":\"London\"}},\"active\":true}";
+
+    private final AtomicInteger fallbackCalls = new AtomicInteger();
+
+    private final Predicate fallback = exchange -> {
+        fallbackCalls.incrementAndGet();
+        return false;
+    };
+
+    @ParameterizedTest
+    @CsvSource({
+        "person.name, ==, James, true",
+        "person.name, ==, Jack, false",
+        "person.name, !=, Jack, true",
+        "person.age, >, 40, true",
+        "person.age, <=, 41, false",
+        "person.name, contains, am, true",
+        "person.name, not contains, am, false",
+        "person.name, ~~, JAM, true",
+        "person.name, =~, JAMES, true",
+        "person.name, regex, J.*s, true",
+        "person.name, not regex, J.*s, false",
+        "person.age, in, '41,42,43', true",
+        "person.age, not in, '41,42,43', false",
+        "person.address.city, ==, London, true",
+        "tags, contains, b, true",
+        "active, ==, true, true",
+        "id, ==, 1, true"})
+    public void shouldEvaluateRules(final String path, final String op, final String value, final boolean expected) {
+        final Predicate predicate = compile(FilterPredicate.AND, rule(path, op, value));
+
+        assertThat(predicate.matches(exchangeWith(PERSON))).isEqualTo(expected);
+        assertThat(predicate.matches(exchangeWith(PERSON.getBytes(StandardCharsets.UTF_8)))).isEqualTo(expected);
+        assertThat(fallbackCalls).hasValue(0);
+    }
+
+    @Test
+    public void shouldCombineRulesWithAnd() {
+        final Predicate predicate = compile(FilterPredicate.AND, rule("person.name", "==", "James"), rule("person.age", "<", "40"));
+
+        assertThat(predicate.matches(exchangeWith(PERSON))).isFalse();
+    }
+
+    @Test
+    public void shouldCombineRulesWithOr() {
+        final Predicate predicate = compile(FilterPredicate.OR, rule("person.name", "==", "Jack"), rule("person.address.city", "==", "London"));
+
+        assertThat(predicate.matches(exchangeWith(PERSON))).isTrue();
+    }
+
+    @Test
+    public void shouldEvaluateRulesOnObjectAndItsFields() {
+        final Predicate predicate = compile(FilterPredicate.AND, rule("person", "!=", "James"), rule("person.address.city", "==", "London"));
+
+        assertThat(predicate.matches(exchangeWith(PERSON))).isTrue();
+        assertThat(fallbackCalls).hasValue(0);
+    }
+
+    @Test
+    public void shouldDelegateMissingFieldsToFallback() {
+        final Predicate predicate = compile(FilterPredicate.OR, rule("person.surname", "==", "Strachan"));
+
+        assertThat(predicate.matches(exchangeWith(PERSON))).isFalse();
+        assertThat(fallbackCalls).hasValue(1);
+    }
+
+    @Test
+    public void shouldDelegateNonJsonObjectBodiesToFallback() {
+        final Predicate predicate = compile(FilterPredicate.OR, rule("person.name", "==", "James"));
+
+        predicate.matches(exchangeWith("[" + PERSON + "]"));
+        predicate.matches(exchangeWith("not json"));
+        predicate.matches(exchangeWith(Collections.singletonMap("person", Collections.singletonMap("name", "James"))));
+
+        assertThat(fallbackCalls).hasValue(3);
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        "[0].person.name, ==, James",
+        "person.names[0], ==, James",
+        "person.name.size(), ==, 5",
+        "person.name, ==, ${header.name}",
+        "person.name, regex, J[",
+        "person.name, startsWith, J"})
+    public void shouldNotCompileRulesNeedingTheSimpleLanguage(final String path, final String op, final String value) {
+        assertThat(FilterRulePredicate.compile(Collections.singletonList(rule(path, op, value)), FilterPredicate.OR, CONTEXT, fallback))
+            .isEmpty();
+    }
+
+    private Predicate compile(final FilterPredicate combination, final FilterRule... rules) {
+        final List<FilterRule> ruleList = Arrays.asList(rules);
+        final Optional<Predicate> predicate = FilterRulePredicate.compile(ruleList, combination, CONTEXT, fallback);
+
+        assertThat(predicate).isPresent();
+
+        return predicate.get();
+    }
+
+    private static FilterRule rule(final String path, final String op, final String value) {
+        return new FilterRule.Builder().path(path).op(op).value(value).build();
+    }
+
+    private static Exchange exchangeWith(final Object body) {
+        final Exchange exchange = new DefaultExchange(CONTEXT);
+        exchange.getIn().setBody(body);
+
+        return exchange;
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.integration.runtime.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.camel.CamelContext;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.apache.camel.ProducerTemplate;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.component.mock.MockEndpoint;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JsonPayloadInterceptStrategyTest {
+
+    @Test
+    public void shouldSerializeOnlyWhenHandedToEndpoints() throws Exception {
+        final List<Class<?>> seen = new ArrayList<>();
+
+        final CamelContext context = new DefaultCamelContext();
+        context.addInterceptStrategy(JsonPayloadInterceptStrategy.INSTANCE);
+        context.addRoutes(new RouteBuilder() {
+            @Override
+            public void configure() {
+                from("direct:start")
+                    .process(new ParseBody())
+                    .process(new RecordBodyType(seen))
+                    .process(exchange -> seen.add(exchange.getIn().getBody().getClass()))
+                    .process(new ParseBody())
+                    .to("mock:result");
+            }
+        });
+
+        try {
+            context.start();
+
+            final ProducerTemplate template = context.createProducerTemplate();
+            final MockEndpoint result = context.getEndpoint("mock:result", MockEndpoint.class);
+            result.expectedBodiesReceived("{\"id\":1}", Arrays.asList("{\"id\":1}", "{\"id\":2}"));
+
+            template.sendBody("direct:start", "{\"id\":1}");
+            template.sendBody("direct:start", Arrays.asList("{\"id\":1}", "{\"id\":2}"));
+
+            result.assertIsSatisfied();
+            // the parsed body is passed on to aware processors, other processors get it serialized
+            assertThat(seen).containsExactly(JsonPayload.class, String.class, JsonPayload.class, ArrayList.class);
+        } finally {
+            context.stop();
+        }
+    }
+
+    private static final class ParseBody implements Processor, JsonPayloadAware {
+        @Override
+        public void process(final Exchange exchange) {
+            JsonPayload.of(exchange, exchange.getIn().getBody()).ifPresent(exchange.getIn()::setBody);
+        }
+    }
+
+    private static final class RecordBodyType implements Processor, JsonPayloadAware {
+        private final List<Class<?>> seen;
+
+        RecordBodyType(final List<Class<?>> seen) {
+            this.seen = seen;
+        }
+
+        @Override
+        public void process(final Exchange exchange) {
+            seen.add(exchange.getIn().getBody().getClass());
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.integration.runtime.util;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.syndesis.common.util.IOStreams;
+import org.apache.camel.Exchange;
+import org.apache.camel.TypeConverter;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.impl.DefaultExchange;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class JsonPayloadTest {
+
+    private static final DefaultCamelContext CONTEXT = new DefaultCamelContext();
+
+    @Test
+    public void shouldParseOncePerValue() {
+        final Exchange exchange = new DefaultExchange(CONTEXT);
+        final String body = "{\"name\":\"James\"}";
+
+        final Optional<JsonPayload> first = JsonPayload.of(exchange, body);
+        final Optional<JsonPayload> second = JsonPayload.of(exchange, body);
+
+        assertThat(first).isPresent();
+        assertThat(second.get()).isSameAs(first.get());
+        assertThat(JsonPayload.parsed(exchange, body).get()).isSameAs(first.get());
+        assertThat(JsonPayload.parsed(exchange, new StringBuilder(body).toString())).isEmpty();
+        assertThat(first.get().toString()).isSameAs(body);
+    }
+
+    @Test
+    public void shouldNotParseNonJsonValues() {
+        final Exchange exchange = new DefaultExchange(CONTEXT);
+
+        assertThat(JsonPayload.of(exchange, "hello")).isEmpty();
+        assertThat(JsonPayload.of(exchange, "{not json}")).isEmpty();
+        assertThat(JsonPayload.of(exchange, "1".getBytes(StandardCharsets.UTF_8))).isEmpty();
+        assertThat(JsonPayload.of(exchange, 1)).isEmpty();
+    }
+
+    @Test
+    public void shouldParseListOfJsonBeans() {
+        final Exchange exchange = new DefaultExchange(CONTEXT);
+
+        final Optional<JsonPayload> payload = JsonPayload.of(exchange, Arrays.asList("{\"id\":1}", "{\"id\":2}"));
+
+        assertThat(payload).isPresent();
+        assertThat(payload.get().isArray()).isTrue();
+        assertThat(payload.get().toString()).isEqualTo("[{\"id\":1},{\"id\":2}]");
+        assertThat(payload.get().toJsonBeans()).containsExactly("{\"id\":1}", "{\"id\":2}");
+
+        assertThat(JsonPayload.of(exchange, Arrays.asList("{\"id\":1}", "two"))).isEmpty();
+    }
+
+    @Test
+    public void shouldConvertPayloads() throws Exception {
+        final TypeConverter converter = CONTEXT.getTypeConverter();
+        final JsonPayload payload = converter.convertTo(JsonPayload.class, "{\"name\":\"James\",\"tags\":[\"a\"]}");
+
+        assertThat(payload).isNotNull();
+        assertThat(converter.convertTo(String.class, payload)).isEqualTo("{\"name\":\"James\",\"tags\":[\"a\"]}");
+        assertThat(converter.convertTo(byte[].class, payload)).isEqualTo("{\"name\":\"James\",\"tags\":[\"a\"]}".getBytes(StandardCharsets.UTF_8));
+        assertThat(converter.convertTo(JsonNode.class, payload).get("name").asText()).isEqualTo("James");
+        assertThat(converter.convertTo(Map.class, payload)).containsEntry("name", "James");
+        assertThat(converter.convertTo(List.class, payload)).containsExactly("{\"name\":\"James\",\"tags\":[\"a\"]}");
+
+        try (InputStream stream = converter.convertTo(InputStream.class, payload)) {
+            assertThat(IOStreams.readText(stream)).isEqualTo("{\"name\":\"James\",\"tags\":[\"a\"]}");
+        }
+    }
+
+    @Test
+    public void shouldWrapTextWithoutParsing() {
+        final String text = "[{\"id\":1},{\"id\":2}]";
+        final JsonPayload payload = JsonPayload.ofText(text);
+
+        assertThat(payload.isArray()).isTrue();
+        assertThat(payload.isObject()).isFalse();
+        assertThat(payload.toString()).isSameAs(text);
+        assertThat(payload.getJson().size()).isEqualTo(2);
+        assertThat(payload.elements()).extracting(JsonPayload::toString).containsExactly("{\"id\":1}", "{\"id\":2}");
+
+        assertThatThrownBy(() -> JsonPayload.ofText("hello")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void shouldSerializeToTheFormItWasGivenIn() {
+        final Exchange exchange = new DefaultExchange(CONTEXT);
+        final String array = "[{\"id\":1},{\"id\":2}]";
+
+        assertThat(JsonPayload.of(exchange, Arrays.asList("{\"id\":1}", "{\"id\":2}")).get().toBody())
+            .isEqualTo(Arrays.asList("{\"id\":1}", "{\"id\":2}"));
+        assertThat(JsonPayload.ofText(array).toBody()).isSameAs(array);
+        assertThat(JsonPayload.ofText(array).asJsonBeans().toBody()).isEqualTo(Arrays.asList("{\"id\":1}", "{\"id\":2}"));
+        assertThat(JsonPayload.ofText("{\"id\":1}").asJsonBeans().toBody()).isEqualTo("{\"id\":1}");
+    }
+}
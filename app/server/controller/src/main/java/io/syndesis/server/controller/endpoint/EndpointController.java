@@ -32,8 +32,8 @@ import io.syndesis.common.model.integration.IntegrationDeployment;
 import io.syndesis.common.model.integration.IntegrationEndpoint;
 import io.syndesis.common.model.integration.Step;
 import io.syndesis.common.util.EventBus;
+import io.syndesis.common.util.EventPayload;
 import io.syndesis.common.util.backend.BackendController;
-import io.syndesis.common.util.json.JsonUtils;
 import io.syndesis.common.util.thread.Threads;
 import io.syndesis.server.dao.manager.DataManager;
 import io.syndesis.server.openshift.OpenShiftService;
@@ -71,7 +71,7 @@ public class EndpointController implements BackendController {
         if (scheduler == null) {
             scheduler = Executors.newSingleThreadScheduledExecutor(Threads.newThreadFactory("Endpoint Controller"));
             scheduler.scheduleWithFixedDelay(this::scanIntegrationDeployments, 5, 60, TimeUnit.SECONDS);
-            eventBus.subscribe(EVENT_BUS_ID, this::onChangeEvent);
+            eventBus.subscribe(EVENT_BUS_ID, EventBus.Subscription.of(this::onChangeEvent));
         }
     }
 
@@ -95,20 +95,20 @@ public class EndpointController implements BackendController {
         }
     }
 
-    private void onChangeEvent(final String event, final String data) {
+    private void onChangeEvent(final String event, final EventPayload payload) {
         // Never do anything that could block in this callback!
         if ("change-event".equals(event)) {
             try {
-                ChangeEvent changeEvent = JsonUtils.reader().forType(ChangeEvent.class).readValue(data);
-                Optional.ofNullable(changeEvent)
-                    .flatMap(ChangeEvent::getId)
-                    .ifPresent(id -> changeEvent.getKind()
+                ChangeEvent.fromPayload(payload)
+                    .filter(changeEvent -> changeEvent.getKind()
                         .map(Kind::from)
                         .filter(k -> k == Kind.IntegrationDeployment)
-                        .ifPresent(k -> this.scheduler.execute(() -> this.checkIntegrationDeployment(id))));
+                        .isPresent())
+                    .flatMap(ChangeEvent::getId)
+                    .ifPresent(id -> this.scheduler.execute(() -> this.checkIntegrationDeployment(id)));
 
             } catch (IOException e) {
-                LOG.error("Error while subscribing to change-event {}", data, e);
+                LOG.error("Error while subscribing to change-event {}", payload, e);
             }
         }
     }
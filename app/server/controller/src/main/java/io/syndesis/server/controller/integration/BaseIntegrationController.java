@@ -29,9 +29,9 @@ import io.syndesis.common.model.Kind;
 import io.syndesis.common.model.integration.IntegrationDeployment;
 import io.syndesis.common.model.integration.IntegrationDeploymentState;
 import io.syndesis.common.util.EventBus;
+import io.syndesis.common.util.EventPayload;
 import io.syndesis.common.util.Exceptions;
 import io.syndesis.common.util.backend.BackendController;
-import io.syndesis.common.util.json.JsonUtils;
 import io.syndesis.common.util.thread.Threads;
 import io.syndesis.server.controller.ControllersConfigurationProperties;
 import io.syndesis.server.controller.StateChangeHandler;
@@ -98,7 +98,7 @@ public abstract class BaseIntegrationController implements BackendController {
         scheduler = Executors.newScheduledThreadPool(2, Threads.newThreadFactory("Integration Controller Scheduler"));
 
         scheduler.scheduleAtFixedRate(this::scanIntegrationsForWork, 0, properties.getIntegrationStateCheckInterval(), TimeUnit.SECONDS);
-        eventBus.subscribe(EVENT_BUS_ID, this::onChangeEvent);
+        eventBus.subscribe(EVENT_BUS_ID, EventBus.Subscription.of(this::onChangeEvent));
     }
 
     protected void doStop() {
@@ -139,12 +139,11 @@ public abstract class BaseIntegrationController implements BackendController {
         });
     }
 
-    private void onChangeEvent(final String event, final String data) {
+    private void onChangeEvent(final String event, final EventPayload payload) {
         // Never do anything that could block in this callback!
         if (EventBus.Type.CHANGE_EVENT.equals(event)) {
             try {
-                ChangeEvent changeEvent = JsonUtils.reader().forType(ChangeEvent.class).readValue(data);
-                if (changeEvent != null) {
+                ChangeEvent.fromPayload(payload).ifPresent(changeEvent -> {
                     changeEvent.getId().ifPresent(id -> {
                         changeEvent.getKind()
                                    .map(Kind::from)
@@ -153,9 +152,9 @@ public abstract class BaseIntegrationController implements BackendController {
                                        checkIntegrationStatusIfNotAlreadyInProgress(id);
                                    });
                     });
-                }
+                });
             } catch (IOException e) {
-                LOG.error("Error while subscribing to change-event {}", data, e);
+                LOG.error("Error while subscribing to change-event {}", payload, e);
             }
         }
     }
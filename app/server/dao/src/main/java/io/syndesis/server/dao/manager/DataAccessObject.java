@@ -15,8 +15,15 @@
  */
 package io.syndesis.server.dao.manager;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import io.syndesis.common.model.ListResult;
 import io.syndesis.common.model.WithId;
@@ -43,6 +50,19 @@ public interface DataAccessObject<T extends WithId<T>> {
      */
     T fetch(String id);
 
+    /**
+     * Fetches the entities with the given ids. Implementations should fetch
+     * them in a single round trip, by default they are fetched one by one.
+     * @param ids   The ids.
+     * @return      The matching entities, ids with no entity are skipped.
+     */
+    default List<T> fetchAll(Collection<String> ids) {
+        return ids.stream()
+            .map(this::fetch)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toList());
+    }
+
     /**
      * Fetches all ids that have the specified property with the given value.
      * @param property      The name of the property.
@@ -51,6 +71,18 @@ public interface DataAccessObject<T extends WithId<T>> {
      */
     Set<String> fetchIdsByPropertyValue(String property, String propertyValue);
 
+    /**
+     * Fetches all ids that have all of the specified properties with the
+     * given values, if the implementation can look them up together, for
+     * instance using a composite index.
+     * @param propertyValues    The property names and values.
+     * @return                  All matching identifiers, or empty if the
+     *                          properties need to be looked up one by one.
+     */
+    default Optional<Set<String>> fetchIdsByPropertyValues(Map<String, String> propertyValues) {
+        return Optional.empty();
+    }
+
     /**
      * Fetches all ids.
      * @return All identifiers
@@ -62,6 +94,16 @@ public interface DataAccessObject<T extends WithId<T>> {
      */
     ListResult<T> fetchAll();
 
+    /**
+     * Hands all entities to the consumer one at a time. Implementations
+     * should read them lazily so that the whole collection is never held in
+     * memory, by default they are fetched all at once.
+     * @param consumer  Receives each entity.
+     */
+    default void forEach(Consumer<? super T> consumer) {
+        fetchAll().forEach(consumer);
+    }
+
     @SuppressWarnings("unchecked")
     default ListResult<T> fetchAll(Function<ListResult<T>, ListResult<T>>... operators) {
         ListResult<T> result = fetchAll();
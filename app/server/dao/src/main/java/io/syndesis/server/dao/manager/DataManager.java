@@ -23,13 +23,16 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Stream;
 
@@ -256,10 +259,70 @@ public class DataManager implements DataAccessObjectRegistry {
         }
     }
 
+    /**
+     * Hands all entities of the model to the consumer one at a time, read
+     * lazily from the {@link DataAccessObject} without being cached.
+     * @param model     The model class.
+     * @param consumer  Receives each entity.
+     */
+    public <T extends WithId<T>> void forEach(Class<T> model, Consumer<? super T> consumer) {
+        if (getDataAccessObject(model) != null) {
+            doWithDataAccessObject(model, d -> {
+                d.forEach(consumer);
+                return null;
+            });
+        } else {
+            Kind kind = Kind.from(model);
+            Cache<String, T> cache = caches.getCache(kind.getModelName(), false);
+            cache.values().forEach(consumer);
+        }
+    }
+
     public <K extends WithId<K>> Stream<K> fetchAllByPropertyValue(Class<K> type, String property, String value) {
-        return fetchIdsByPropertyValue(type, property, value).stream()
-            .map(id -> fetch(type, id))
-            .filter(Objects::nonNull);
+        return fetchAll(type, fetchIdsByPropertyValue(type, property, value)).stream();
+    }
+
+    /**
+     * Fetches the entities with the given ids, the ones not cached are fetched
+     * from the {@link DataAccessObject} in a single round trip and cached.
+     * @param model The model class.
+     * @param ids   The ids.
+     * @return      The matching entities in the order of the given ids, ids
+     *              with no entity are skipped.
+     */
+    public <T extends WithId<T>> List<T> fetchAll(Class<T> model, Collection<String> ids) {
+        Kind kind = Kind.from(model);
+        boolean daoExists = getDataAccessObject(model) != null;
+        Cache<String, T> cache = caches.getCache(kind.getModelName(), daoExists);
+
+        Map<String, T> found = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String id : ids) {
+            T value = cache.get(id);
+            if (value == null) {
+                missing.add(id);
+            } else {
+                found.put(id, value);
+            }
+        }
+
+        if (!missing.isEmpty() && daoExists) {
+            List<T> fetched = doWithDataAccessObject(model, d -> d.fetchAll(missing));
+            for (T value : fetched) {
+                String id = value.getId().get();
+                cache.put(id, value);
+                found.put(id, value);
+            }
+        }
+
+        List<T> result = new ArrayList<>(found.size());
+        for (String id : ids) {
+            T value = found.get(id);
+            if (value != null) {
+                result.add(value);
+            }
+        }
+        return result;
     }
 
     public <T extends WithId<T>> T fetch(Class<T> model, String id) {
@@ -300,6 +363,19 @@ public class DataManager implements DataAccessObjectRegistry {
         }
 
         return doWithDataAccessObject(model, d -> {
+            if (additionalPropValues.length > 0) {
+                Map<String, String> propertyValues = new LinkedHashMap<>();
+                propertyValues.put(property, value);
+                for (int i = 0; i < additionalPropValues.length - 1; i += 2) {
+                    propertyValues.put(additionalPropValues[i], additionalPropValues[i + 1]);
+                }
+
+                Optional<Set<String>> planned = d.fetchIdsByPropertyValues(propertyValues);
+                if (planned.isPresent()) {
+                    return planned.get();
+                }
+            }
+
             Set<String> matchingIds = new HashSet<>(d.fetchIdsByPropertyValue(property, value));
             for (int i = 0; i < additionalPropValues.length - 1; i += 2) {
                 if (matchingIds.isEmpty()) {
@@ -471,7 +547,7 @@ public class DataManager implements DataAccessObjectRegistry {
 
     private void broadcast(String event, String type, String id) {
         if( eventBus !=null ) {
-            eventBus.broadcast(EventBus.Type.CHANGE_EVENT, ChangeEvent.of(event, type, id).toJson());
+            eventBus.broadcast(EventBus.Type.CHANGE_EVENT, ChangeEvent.of(event, type, id).toPayload());
         }
     }
 
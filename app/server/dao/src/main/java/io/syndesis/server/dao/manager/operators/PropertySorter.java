@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.server.dao.manager.operators;
+
+import java.util.function.Function;
+
+import io.syndesis.common.model.ListResult;
+
+/**
+ * Stable sorts on the value of a property, which data access objects can
+ * translate to a query instead of sorting the fetched list.
+ * @param <T> The type of the elements in the sorted list.
+ */
+public interface PropertySorter<T> extends Function<ListResult<T>, ListResult<T>> {
+
+    /**
+     * Returns the property to sort on, or null if the list is left as is.
+     */
+    String getSortProperty();
+
+    boolean isDescending();
+
+}
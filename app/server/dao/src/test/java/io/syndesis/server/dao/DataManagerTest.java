@@ -42,6 +42,8 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.assertj.core.api.Assertions.entry;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class DataManagerTest {
@@ -132,6 +134,28 @@ public class DataManagerTest {
         assertThat(cacheManager.getCache(Kind.Connector.modelName, false).get("custom-id")).isEqualTo(connector);
     }
 
+    @Test
+    public void shouldFetchAllByIdsInOneCallToDao() {
+        @SuppressWarnings("unchecked")
+        final DataAccessObject<Connector> connectorDao = mock(DataAccessObject.class);
+        when(connectorDao.getType()).thenReturn(Connector.class);
+        dataManager.registerDataAccessObject(connectorDao);
+
+        final Connector cached = new Connector.Builder().id("cached").build();
+        final Connector one = new Connector.Builder().id("one").build();
+        final Connector two = new Connector.Builder().id("two").build();
+        cacheManager.getCache(Kind.Connector.modelName, true).put("cached", cached);
+        when(connectorDao.fetchAll(Arrays.asList("two", "missing", "one"))).thenReturn(Arrays.asList(one, two));
+
+        assertThat(dataManager.fetchAll(Connector.class, Arrays.asList("two", "cached", "missing", "one")))
+            .containsExactly(two, cached, one);
+
+        // now served from the cache
+        assertThat(dataManager.fetchAll(Connector.class, Arrays.asList("one", "two"))).containsExactly(one, two);
+        verify(connectorDao).fetchAll(Arrays.asList("two", "missing", "one"));
+        verify(connectorDao, never()).fetchAll(Arrays.asList("one", "two"));
+    }
+
     @Test
     public void shouldFetchIdsByPropertyValuePairs() {
         @SuppressWarnings("unchecked")
@@ -17,15 +17,15 @@ package io.syndesis.server.endpoint.util;
 
 import java.util.Collections;
 import java.util.List;
-import java.util.function.Function;
 
 import io.syndesis.common.model.ListResult;
+import io.syndesis.server.dao.manager.operators.PageFilter;
 
 /**
  * Filters the list with the provided pagination options.
  * @param <T> The type of the elements in the filtered list.
  */
-public class PaginationFilter<T> implements Function<ListResult<T>, ListResult<T>> {
+public class PaginationFilter<T> implements PageFilter<T> {
 
     private final int startIndex;
     private final int endIndex;
@@ -62,4 +62,14 @@ public class PaginationFilter<T> implements Function<ListResult<T>, ListResult<T
         return new ListResult.Builder<T>().createFrom(result).items(list).build();
     }
 
+    @Override
+    public int getOffset() {
+        return startIndex;
+    }
+
+    @Override
+    public int getLimit() {
+        return endIndex - startIndex;
+    }
+
 }
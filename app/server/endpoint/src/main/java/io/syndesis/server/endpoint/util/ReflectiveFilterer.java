@@ -16,19 +16,25 @@
 package io.syndesis.server.endpoint.util;
 
 import io.syndesis.common.model.ListResult;
+import io.syndesis.server.dao.manager.operators.PropertyValueFilter;
 import io.syndesis.server.endpoint.v1.util.PredicateFilter;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.function.Function;
 
-public class ReflectiveFilterer<T> implements Function<ListResult<T>, ListResult<T>> {
+public class ReflectiveFilterer<T> implements PropertyValueFilter<T> {
 
     private final List<PredicateFilter<T>> predicateFilters;
 
+    // the filters on String properties, null if there are others
+    private Map<String, String> propertyValues = new LinkedHashMap<>();
+
     public ReflectiveFilterer(Class<T> modelClass, List<FilterOptionsParser.Filter> filters) {
         predicateFilters = new ArrayList<>(filters.size());
         for (FilterOptionsParser.Filter f : filters) {
@@ -41,6 +47,12 @@ public class ReflectiveFilterer<T> implements Function<ListResult<T>, ListResult
                     () -> new IllegalArgumentException("Missing value in equality filter")
                 );
                 predicateFilters.add(equalityFilter(modelClass, f.getProperty(), value));
+                if (propertyValues != null && ReflectionUtils.getGetMethodOfType(modelClass, f.getProperty(), String.class) != null
+                    && (!propertyValues.containsKey(f.getProperty()) || value.equals(propertyValues.get(f.getProperty())))) {
+                    propertyValues.put(f.getProperty(), value);
+                } else {
+                    propertyValues = null;
+                }
             } else {
                 throw new IllegalArgumentException(String.format("Unknown filter operation %s", op));
             }
@@ -56,6 +68,11 @@ public class ReflectiveFilterer<T> implements Function<ListResult<T>, ListResult
         return intermediate;
     }
 
+    @Override
+    public Map<String, String> getPropertyValues() {
+        return propertyValues == null ? null : Collections.unmodifiableMap(propertyValues);
+    }
+
     @SuppressWarnings("PMD.CyclomaticComplexity")
     private PredicateFilter<T> equalityFilter(final Class<T> modelClass, final String property, final String value) {
         Method stringGetMethod = ReflectionUtils.getGetMethodOfType(modelClass, property, String.class);
@@ -20,15 +20,19 @@ import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
-import java.util.function.Function;
 
 import io.syndesis.common.model.ListResult;
+import io.syndesis.server.dao.manager.operators.PropertySorter;
 
 /**
- * Generic comparator which sorts based on fields. Fields are retrieved by reflections
+ * Generic comparator which sorts based on fields. Fields are retrieved by reflections.
+ * Missing values come first in ascending and last in descending order, like
+ * the sorting done by the database.
  */
-public class ReflectiveSorter<T> implements Function<ListResult<T>, ListResult<T>>, Comparator<T> {
+public class ReflectiveSorter<T> implements PropertySorter<T>, Comparator<T> {
 
+    private final String sortField;
+    private final boolean descending;
     private Comparator<T> delegate;
 
     @Override
@@ -42,19 +46,30 @@ public class ReflectiveSorter<T> implements Function<ListResult<T>, ListResult<T
     }
 
     public ReflectiveSorter(Class<T> modelClass, SortOptions options) {
-        String sortField = options.getSortField();
+        sortField = options.getSortField();
+        descending = options.getSortDirection() == SortOptions.SortDirection.DESC;
         if (sortField == null) {
             // No sorting
             delegate = null;
         } else {
             delegate = createDelegateComparator(modelClass, sortField);
 
-            if (options.getSortDirection() == SortOptions.SortDirection.DESC) {
+            if (descending) {
                 delegate = delegate.reversed();
             }
         }
     }
 
+    @Override
+    public String getSortProperty() {
+        return sortField;
+    }
+
+    @Override
+    public boolean isDescending() {
+        return descending;
+    }
+
     private Comparator<T> createDelegateComparator(Class<T> modelClass, String fieldName) {
         Comparator<T> delegate = getIntComparator(modelClass, fieldName);
         if (delegate != null) {
@@ -78,7 +93,7 @@ public class ReflectiveSorter<T> implements Function<ListResult<T>, ListResult<T
                 } catch (InvocationTargetException | IllegalAccessException e) {
                     throw new IllegalArgumentException("Cannot extract String value from " + stringGetMethod + " for object " + k, e);
                 }
-            });
+            }, Comparator.nullsFirst(Comparator.<String>naturalOrder()));
         }
         return null;
     }
@@ -86,13 +101,13 @@ public class ReflectiveSorter<T> implements Function<ListResult<T>, ListResult<T
     private Comparator<T> getIntComparator(Class<T> modelClass, String fieldName) {
         Method intGetMethod = ReflectionUtils.getGetMethodOfType(modelClass, fieldName, int.class, Integer.class);
         if (intGetMethod != null) {
-            return Comparator.comparingInt(k -> {
+            return Comparator.comparing(k -> {
                         try {
                             return (Integer) intGetMethod.invoke(k);
                         } catch (InvocationTargetException | IllegalAccessException e) {
                             throw new IllegalArgumentException("Cannot extract int value from " + intGetMethod + " for object " + k, e);
                         }
-            });
+            }, Comparator.nullsFirst(Comparator.<Integer>naturalOrder()));
         }
         return null;
     }
@@ -73,7 +73,7 @@ public class IntegrationHandler extends BaseHandler implements Lister<Integratio
     private final EncryptionComponent encryptionSupport;
     private final Inspectors inspectors;
     private final OpenShiftService openShiftService;
-    private final IntegrationOverviewHelper integrationOverviewHelper;
+    private final IntegrationOverviewStore integrationOverviewStore;
 
 
     private final Validator validator;
@@ -81,14 +81,14 @@ public class IntegrationHandler extends BaseHandler implements Lister<Integratio
     public IntegrationHandler(final DataManager dataMgr, final OpenShiftService openShiftService,
                               final Validator validator, final Inspectors inspectors,
                               final EncryptionComponent encryptionSupport, final APIGenerator apiGenerator,
-                              final IntegrationOverviewHelper integrationOverviewHelper) {
+                              final IntegrationOverviewStore integrationOverviewStore) {
         super(dataMgr);
         this.openShiftService = openShiftService;
         this.validator = validator;
         this.inspectors = inspectors;
         this.encryptionSupport = encryptionSupport;
         this.apiGenerator = apiGenerator;
-        this.integrationOverviewHelper = integrationOverviewHelper;
+        this.integrationOverviewStore = integrationOverviewStore;
     }
 
     @Override
@@ -137,7 +137,7 @@ public class IntegrationHandler extends BaseHandler implements Lister<Integratio
     public IntegrationOverview get(final String id) {
         final Integration integration = getIntegration(id);
 
-        return integrationOverviewHelper.toCurrentIntegrationOverview(integration);
+        return integrationOverviewStore.get(integration);
     }
 
     @POST
@@ -189,7 +189,7 @@ public class IntegrationHandler extends BaseHandler implements Lister<Integratio
             new ReflectiveSorter<>(Integration.class, new SortOptionsFromQueryParams(uriInfo)),
             new PaginationFilter<>(new PaginationOptionsFromQueryParams(uriInfo)));
 
-        return ListResult.of(integrations.getItems().stream().map(integrationOverviewHelper::toCurrentIntegrationOverview)
+        return ListResult.of(integrations.getItems().stream().map(integrationOverviewStore::get)
             .collect(Collectors.toList()));
     }
 
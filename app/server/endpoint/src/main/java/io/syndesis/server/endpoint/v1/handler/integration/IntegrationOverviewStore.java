@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.server.endpoint.v1.handler.integration;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import io.syndesis.common.model.ChangeEvent;
+import io.syndesis.common.model.Kind;
+import io.syndesis.common.model.connection.Connection;
+import io.syndesis.common.model.integration.Flow;
+import io.syndesis.common.model.integration.Integration;
+import io.syndesis.common.model.integration.IntegrationOverview;
+import io.syndesis.common.model.integration.Step;
+import io.syndesis.common.util.EventBus;
+import io.syndesis.common.util.EventPayload;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the {@link IntegrationOverview}s computed by the
+ * {@link IntegrationOverviewHelper} and invalidates them on the change events
+ * of the integrations, deployments, endpoints, bulletin boards, connections,
+ * connectors and extensions they are computed from. Reading an overview that
+ * has not changed is a map lookup instead of reading all of these again.
+ */
+@Component
+class IntegrationOverviewStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IntegrationOverviewStore.class);
+
+    private static final String EVENT_BUS_ID = "integration-overview-store";
+
+    private final IntegrationOverviewHelper helper;
+
+    private final EventBus eventBus;
+
+    private final Map<String, Entry> overviews = new ConcurrentHashMap<>();
+
+    // change events of boards carry the id of the board and not the id of
+    // the integration the board is for
+    private final Map<String, String> boardIntegrationIds = new ConcurrentHashMap<>();
+
+    // incremented before each invalidation, overviews computed while an
+    // invalidation happened are not kept
+    private final AtomicLong generation = new AtomicLong();
+
+    private static final class Entry {
+
+        final Integration integration;
+
+        final IntegrationOverview overview;
+
+        final Set<String> connectionIds = new HashSet<>();
+
+        final Set<String> connectorIds = new HashSet<>();
+
+        boolean usesExtensions;
+
+        Entry(final Integration integration, final IntegrationOverview overview) {
+            this.integration = integration;
+            this.overview = overview;
+
+            integration.getConnections().forEach(this::dependsOn);
+            for (final Flow flow : integration.getFlows()) {
+                flow.getConnections().forEach(this::dependsOn);
+                for (final Step step : flow.getSteps()) {
+                    step.getConnection().ifPresent(this::dependsOn);
+                    usesExtensions |= step.getExtension().isPresent();
+                }
+            }
+        }
+
+        private void dependsOn(final Connection connection) {
+            connection.getId().ifPresent(connectionIds::add);
+            connectorIds.add(connection.getConnectorId());
+        }
+    }
+
+    IntegrationOverviewStore(final IntegrationOverviewHelper helper, final EventBus eventBus) {
+        this.helper = helper;
+        this.eventBus = eventBus;
+    }
+
+    @PostConstruct
+    void start() {
+        eventBus.subscribe(EVENT_BUS_ID, EventBus.Subscription.of(this::onChangeEvent));
+    }
+
+    @PreDestroy
+    void stop() {
+        eventBus.unsubscribe(EVENT_BUS_ID);
+        overviews.clear();
+        boardIntegrationIds.clear();
+    }
+
+    IntegrationOverview get(final Integration integration) {
+        final String id = integration.getId().get();
+
+        // the integration given needs to be the one the overview was computed
+        // from, it could have been changed without a change event, for
+        // instance when the database was reset
+        final Entry stored = overviews.get(id);
+        if (stored != null && stored.integration.equals(integration)) {
+            return stored.overview;
+        }
+
+        final long computedAt = generation.get();
+        final IntegrationOverview overview = helper.toCurrentIntegrationOverview(integration);
+        final Entry computed = new Entry(integration, overview);
+        overview.getBoard().getId().ifPresent(boardId -> boardIntegrationIds.put(boardId, id));
+
+        overviews.put(id, computed);
+        if (generation.get() != computedAt) {
+            // something changed while computing, the overview might be stale
+            overviews.remove(id, computed);
+        }
+
+        return overview;
+    }
+
+    private void onChangeEvent(final String event, final EventPayload payload) {
+        // Never do anything that could block in this callback!
+        if (EventBus.Type.CHANGE_EVENT.equals(event)) {
+            try {
+                ChangeEvent.fromPayload(payload).ifPresent(this::onChange);
+            } catch (IOException e) {
+                LOG.error("Error while processing change-event {}", payload, e);
+            }
+        }
+    }
+
+    @SuppressWarnings("PMD.CyclomaticComplexity")
+    private void onChange(final ChangeEvent changeEvent) {
+        final String kind = changeEvent.getKind().orElse(null);
+        final String id = changeEvent.getId().orElse(null);
+        if (kind == null || id == null) {
+            return;
+        }
+
+        if (Kind.Integration.getModelName().equals(kind)) {
+            invalidate(id);
+            if (EventBus.Action.DELETED.equals(changeEvent.getAction().orElse(null))) {
+                boardIntegrationIds.values().removeIf(id::equals);
+            }
+        } else if (Kind.IntegrationDeployment.getModelName().equals(kind) || Kind.IntegrationEndpoint.getModelName().equals(kind)) {
+            // both are identified by <integration id>:<version>
+            final int separator = id.lastIndexOf(':');
+            invalidate(separator > 0 ? id.substring(0, separator) : id);
+        } else if (Kind.IntegrationBulletinBoard.getModelName().equals(kind)) {
+            final String integrationId = boardIntegrationIds.get(id);
+            if (integrationId == null) {
+                // a new board, we don't know which integration it is for
+                invalidateIf(entry -> true);
+            } else {
+                invalidate(integrationId);
+            }
+        } else if (Kind.Connection.getModelName().equals(kind)) {
+            invalidateIf(entry -> entry.connectionIds.contains(id));
+        } else if (Kind.Connector.getModelName().equals(kind)) {
+            invalidateIf(entry -> entry.connectorIds.contains(id));
+        } else if (Kind.Extension.getModelName().equals(kind)) {
+            // steps refer to extensions by their extension id and not by the
+            // id carried by the event
+            invalidateIf(entry -> entry.usesExtensions);
+        }
+    }
+
+    private void invalidate(final String integrationId) {
+        generation.incrementAndGet();
+        overviews.remove(integrationId);
+    }
+
+    private void invalidateIf(final Predicate<Entry> predicate) {
+        generation.incrementAndGet();
+        overviews.values().removeIf(predicate);
+    }
+
+}
@@ -22,6 +22,8 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -48,6 +50,7 @@ import javax.ws.rs.core.SecurityContext;
 import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import org.apache.commons.io.IOUtils;
 import org.apache.maven.artifact.versioning.DefaultArtifactVersion;
 import org.slf4j.Logger;
@@ -177,38 +180,57 @@ public class IntegrationSupportHandler {
         }
 
         return out -> {
-            try (ZipOutputStream tos = new ZipOutputStream(out);
-                CloseableJsonDB memJsonDB = MemorySqlJsonDB.create(jsondb.getIndexes())) {
+            try (ZipOutputStream tos = new ZipOutputStream(out)) {
 
                 if( ids.contains("all") ) {
                     ids.clear();
-                    for (Integration integration : dataManager.fetchAll(Integration.class)) {
-                        ids.add(integration.getId().get());
-                    }
+                    dataManager.forEach(Integration.class, integration -> ids.add(integration.getId().get()));
                 }
+
+                ModelExport exportObject = ModelExport.of(Schema.VERSION);
+                addEntry(tos, EXPORT_MODEL_INFO_FILE_NAME, JsonUtils.writer().writeValueAsBytes(exportObject));
+
+                // the model is written in the layout of the JsonDB the import
+                // reads it into, the integrations are written as they are read
+                // and the models they refer to are collected and written after
+                // them
+                Map<String, Map<String, WithId<?>>> models = new LinkedHashMap<>();
                 LinkedHashSet<String> extensions = new LinkedHashSet<>();
                 LinkedHashSet<String> icons = new LinkedHashSet<>();
-                for (String id : ids) {
-                    Integration integration = integrationHandler.getIntegration(id);
-                    addToExport(memJsonDB, integration);
-                    Collection<Dependency> dependencies = resourceManager.collectDependencies(integration.getFlows().stream()
-                            .flatMap(flow -> flow.getSteps().stream())
-                            .collect(Collectors.toList()), true);
-                    dependencies.stream()
-                        .filter(d -> d.isExtension() || d.isIcon() )
-                        .map(Dependency::getId)
-                        .forEach(extensions::add);
+                tos.putNextEntry(new ZipEntry(EXPORT_MODEL_FILE_NAME));
+                try (JsonGenerator json = JsonUtils.writer().getFactory().createGenerator(nonClosing(tos))) {
+                    json.writeStartObject();
+                    json.writeObjectFieldStart(collectionName(Kind.Integration));
+                    for (String id : new LinkedHashSet<>(ids)) {
+                        Integration integration = integrationHandler.getIntegration(id);
+                        writeModel(json, integration);
+                        addToExport(models, integration);
+                        Collection<Dependency> dependencies = resourceManager.collectDependencies(integration.getFlows().stream()
+                                .flatMap(flow -> flow.getSteps().stream())
+                                .collect(Collectors.toList()), true);
+                        dependencies.stream()
+                            .filter(d -> d.isExtension() || d.isIcon() )
+                            .map(Dependency::getId)
+                            .forEach(extensions::add);
+                    }
+                    json.writeEndObject();
+
+                    for (Map.Entry<String, Map<String, WithId<?>>> collection : models.entrySet()) {
+                        json.writeObjectFieldStart(collection.getKey());
+                        for (WithId<?> model : collection.getValue().values()) {
+                            writeModel(json, model);
+                        }
+                        json.writeEndObject();
+                    }
+                    json.writeEndObject();
                 }
+                tos.closeEntry();
                 LOG.debug("Extensions: {}", extensions);
                 LOG.debug("Icons: {}", icons);
 
-                ModelExport exportObject = ModelExport.of(Schema.VERSION);
-                addEntry(tos, EXPORT_MODEL_INFO_FILE_NAME, JsonUtils.writer().writeValueAsBytes(exportObject));
-                addEntry(tos, EXPORT_MODEL_FILE_NAME, memJsonDB.getAsByteArray("/"));
                 for (String extensionId : extensions) {
                     try (InputStream extensionStream = extensionDataManager.getExtensionBinaryFile(extensionId)) {
-                        final byte[] extensionBytes = IOUtils.toByteArray(extensionStream);
-                        addEntry(tos, "extensions/" + Names.sanitize(extensionId) + ".jar", extensionBytes);
+                        addEntry(tos, "extensions/" + Names.sanitize(extensionId) + ".jar", extensionStream);
                     }
                 }
                 for (String iconId : icons) {
@@ -217,8 +239,7 @@ public class IntegrationSupportHandler {
                     String name = iconId.substring(3);
 
                     try (InputStream iconStream = iconDao.read(name)) {
-                        byte[] bytes = IOUtils.toByteArray(iconStream);
-                        addEntry(tos, "icons/" + name + "." + ext, bytes);
+                        addEntry(tos, "icons/" + name + "." + ext, iconStream);
                     }
                 }
             }
@@ -226,8 +247,7 @@ public class IntegrationSupportHandler {
 
     }
 
-    private void addToExport(JsonDB export, Integration integration) {
-        addModelToExport(export, integration);
+    private void addToExport(Map<String, Map<String, WithId<?>>> export, Integration integration) {
         integration.getFlows().stream().flatMap(flow -> flow.getSteps().stream()).forEach(step -> {
             Optional<Connection> c = step.getConnection();
             if (c.isPresent()) {
@@ -257,7 +277,7 @@ public class IntegrationSupportHandler {
         addResourcesToExport(export, integration);
     }
 
-    private void addResourcesToExport(final JsonDB export, final Integration integration) {
+    private void addResourcesToExport(final Map<String, Map<String, WithId<?>>> export, final Integration integration) {
         for (ResourceIdentifier resourceIdentifier : integration.getResources()) {
             if (resourceIdentifier.getKind() == Kind.OpenApi) {
                 final Optional<OpenApi> openApiResource = resourceManager.loadOpenApiDefinition(resourceIdentifier.getId().get());
@@ -267,14 +287,20 @@ public class IntegrationSupportHandler {
         }
     }
 
-    private static <T extends WithId<T>> void addModelToExport(JsonDB export, T model) {
-        JsonDbDao<T> dao = new JsonDbDao<T>(export) {
-            @Override
-            public Class<T> getType() {
-                return model.getKind().getModelClass();
-            }
-        };
-        dao.set(model);
+    private static void addModelToExport(Map<String, Map<String, WithId<?>>> export, WithId<?> model) {
+        export.computeIfAbsent(collectionName(model.getKind()), collection -> new LinkedHashMap<>())
+            .put(model.getId().get(), model);
+    }
+
+    // same as JsonDbDao#getCollectionPath without the leading slash
+    private static String collectionName(Kind kind) {
+        return kind.getModelName() + "s";
+    }
+
+    // same as JsonDbDao#set writes the model to the collection
+    private static void writeModel(JsonGenerator json, WithId<?> model) throws IOException {
+        json.writeFieldName(":" + model.getId().get());
+        JsonUtils.writer().writeValue(json, model);
     }
 
     @POST
@@ -530,7 +556,12 @@ public class IntegrationSupportHandler {
     private void importIntegrations(SecurityContext sec, JsonDbDao<Integration> export,
                                     Map<String, String> renamedIds, Map<String, String> replacedIds,
                                     Map<String, List<WithResourceId>> result) {
-        for (Integration integration : export.fetchAll().getItems()) {
+        // names of integrations and deployments are read once, the names
+        // given to the imported integrations are added as they are imported
+        final Set<String> names = getAllPropertyValues(Integration.class, Integration::getName);
+        names.addAll(getAllPropertyValues(IntegrationDeployment.class, d -> d.getSpec().getName()));
+
+        export.forEach(integration -> {
             Integration.Builder builder = new Integration.Builder()
                 .createFrom(integration)
                 .updatedAt(System.currentTimeMillis());
@@ -538,7 +569,7 @@ public class IntegrationSupportHandler {
             // Do we need to create it?
             String id = integration.getId().get();
             Integration previous = dataManager.fetch(Integration.class, id);
-            resolveDuplicateNames(integration, builder, renamedIds, replacedIds);
+            names.add(resolveDuplicateNames(integration, builder, names, renamedIds, replacedIds));
             if (previous == null) {
                 LOG.info("Creating integration: {}", integration.getName());
                 integrationHandler.create(sec, builder.build());
@@ -548,16 +579,14 @@ public class IntegrationSupportHandler {
                 integrationHandler.update(id, builder.version(previous.getVersion()+1).build());
                 addImportedItemResult(result, integration);
             }
-        }
+        });
     }
 
-    private void resolveDuplicateNames(Integration integration, Integration.Builder builder,
-                                       Map<String, String> renamedIds, Map<String, String> replacedIds) {
+    private String resolveDuplicateNames(Integration integration, Integration.Builder builder, Set<String> names,
+                                         Map<String, String> renamedIds, Map<String, String> replacedIds) {
 
         // check for duplicate integration name
         String integrationName = integration.getName();
-        final Set<String> names = getAllPropertyValues(Integration.class, Integration::getName);
-        names.addAll(getAllPropertyValues(IntegrationDeployment.class, d -> d.getSpec().getName()));
         if (names.contains(integrationName)) {
             integrationName = getNextAvailableName(integrationName, names);
             builder.name(integrationName);
@@ -594,6 +623,8 @@ public class IntegrationSupportHandler {
             newEnvironments.put(k, v);
         });
         builder.continuousDeliveryState(newEnvironments);
+
+        return integrationName;
     }
 
     private static <T extends WithId<T> & WithName> T renameIfNeeded(T model, Map<String, String> renames, BiFunction<T,
@@ -607,11 +638,13 @@ public class IntegrationSupportHandler {
     }
 
     private <T extends WithId<T>> Set<String> getAllPropertyValues(Class<T> model, Function<T, String> propertyFunc, Function<T, Boolean> filterFunc) {
-        final ListResult<T> deployments = dataManager.fetchAll(model);
-        return deployments.getItems().stream()
-                .filter(filterFunc::apply)
-                .map(propertyFunc)
-                .collect(Collectors.toSet());
+        final Set<String> values = new HashSet<>();
+        dataManager.forEach(model, item -> {
+            if (filterFunc.apply(item)) {
+                values.add(propertyFunc.apply(item));
+            }
+        });
+        return values;
     }
 
     private static String getNextAvailableName(String name, Set<String> names) {
@@ -626,7 +659,7 @@ public class IntegrationSupportHandler {
     }
 
     private <T extends WithId<T>> void importModels(JsonDbDao<T> export, Map<String, List<WithResourceId>> result) {
-        for (T item : export.fetchAll().getItems()) {
+        export.forEach(item -> {
             String id = item.getId().get();
             if (dataManager.fetch(export.getType(), id) == null) {
                 // create new item
@@ -634,7 +667,7 @@ public class IntegrationSupportHandler {
 
                 addImportedItemResult(result, item);
             }
-        }
+        });
     }
 
     private <T extends WithId<T> & WithName> void importModels(JsonDbDao<T> export, BiFunction<T, String, T> renameFunc, Map<String, String> renames, Map<String, List<WithResourceId>> result) {
@@ -683,6 +716,12 @@ public class IntegrationSupportHandler {
         os.closeEntry();
     }
 
+    private static void addEntry(ZipOutputStream os, String path, InputStream content) throws IOException {
+        os.putNextEntry(new ZipEntry(path));
+        IOUtils.copy(content, os);
+        os.closeEntry();
+    }
+
     private static Extension renameExtension(final Extension extension, final String newName) {
         return new Extension.Builder().createFrom(extension).name(newName).build();
     }
@@ -15,6 +15,7 @@
  */
 package io.syndesis.server.endpoint.util;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -71,6 +72,21 @@ public class ReflectiveSorterTest {
         }
     }
 
+    @Test
+    public void missingValuesSortFirst() {
+        List<TestPersonInterface> toSort = new ArrayList<>(getTestData());
+        toSort.add(new TestPerson(null, "Noether", 1882));
+
+        toSort.sort(new ReflectiveSorter<>(TestPersonInterface.class, getOptions("firstName", "asc")));
+        assertEquals("Noether", toSort.get(0).getLastName());
+        assertEquals("Schrödinger", toSort.get(1).getLastName());
+
+        // like the database, missing values come last in descending order
+        toSort.sort(new ReflectiveSorter<>(TestPersonInterface.class, getOptions("firstName", "desc")));
+        assertEquals("Heisenberg", toSort.get(0).getLastName());
+        assertEquals("Noether", toSort.get(toSort.size() - 1).getLastName());
+    }
+
     @Test
     public void invalidType() {
         assertThatExceptionOfType(IllegalArgumentException.class)
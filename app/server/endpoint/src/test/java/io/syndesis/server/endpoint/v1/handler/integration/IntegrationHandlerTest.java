@@ -86,7 +86,7 @@ public class IntegrationHandlerTest {
         when(apiGenerator.updateFlowExcerpts(any(Integration.class))).then(ctx -> ctx.getArguments()[0]);
         encryptionSupport = mock(EncryptionComponent.class);
         handler = new IntegrationHandler(dataManager, openShiftService, validator, inspectors, encryptionSupport,
-                apiGenerator, mock(IntegrationOverviewHelper.class));
+                apiGenerator, mock(IntegrationOverviewStore.class));
     }
 
     @Test
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.server.endpoint.v1.handler.integration;
+
+import io.syndesis.common.model.ChangeEvent;
+import io.syndesis.common.model.Kind;
+import io.syndesis.common.model.connection.Connection;
+import io.syndesis.common.model.integration.Flow;
+import io.syndesis.common.model.integration.Integration;
+import io.syndesis.common.model.integration.IntegrationOverview;
+import io.syndesis.common.util.EventBus;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class IntegrationOverviewStoreTest {
+
+    final IntegrationOverviewHelper helper = mock(IntegrationOverviewHelper.class);
+    final EventBus eventBus = mock(EventBus.class);
+
+    final IntegrationOverviewStore store = new IntegrationOverviewStore(helper, eventBus);
+
+    final Integration integration = new Integration.Builder().id("integration-id")
+        .addFlow(new Flow.Builder().addConnection(new Connection.Builder().id("connection-id").connectorId("connector-id").build()).build())
+        .build();
+
+    final Integration other = new Integration.Builder().id("other-id").build();
+
+    EventBus.Subscription subscription;
+
+    @BeforeEach
+    public void subscribe() {
+        when(helper.toCurrentIntegrationOverview(any()))
+            .thenAnswer(invocation -> new IntegrationOverview.Builder().createFrom(invocation.<Integration>getArgument(0)).build());
+
+        store.start();
+
+        final ArgumentCaptor<EventBus.Subscription> captor = ArgumentCaptor.forClass(EventBus.Subscription.class);
+        verify(eventBus).subscribe(eq("integration-overview-store"), captor.capture());
+        subscription = captor.getValue();
+    }
+
+    @Test
+    public void shouldComputeOverviewsOnlyOnce() {
+        final IntegrationOverview overview = store.get(integration);
+
+        assertThat(store.get(integration)).isSameAs(overview);
+        verify(helper, times(1)).toCurrentIntegrationOverview(integration);
+    }
+
+    @Test
+    public void shouldRecomputeChangedIntegrations() {
+        store.get(integration);
+
+        final Integration changed = new Integration.Builder().createFrom(integration).name("changed").build();
+        assertThat(store.get(changed).getName()).isEqualTo("changed");
+        verify(helper).toCurrentIntegrationOverview(changed);
+    }
+
+    @Test
+    public void shouldInvalidateOnDeploymentChanges() {
+        store.get(integration);
+        store.get(other);
+
+        send(Kind.IntegrationDeployment, "integration-id:3");
+
+        store.get(integration);
+        store.get(other);
+        verify(helper, times(2)).toCurrentIntegrationOverview(integration);
+        verify(helper, times(1)).toCurrentIntegrationOverview(other);
+    }
+
+    @Test
+    public void shouldInvalidateOnlyDependentOverviewsOnConnectionChanges() {
+        store.get(integration);
+        store.get(other);
+
+        send(Kind.Connection, "connection-id");
+        send(Kind.Connection, "unrelated-id");
+
+        store.get(integration);
+        store.get(other);
+        verify(helper, times(2)).toCurrentIntegrationOverview(integration);
+        verify(helper, times(1)).toCurrentIntegrationOverview(other);
+    }
+
+    @Test
+    public void shouldInvalidateOnlyDependentOverviewsOnConnectorChanges() {
+        store.get(integration);
+        store.get(other);
+
+        send(Kind.Connector, "connector-id");
+
+        store.get(integration);
+        store.get(other);
+        verify(helper, times(2)).toCurrentIntegrationOverview(integration);
+        verify(helper, times(1)).toCurrentIntegrationOverview(other);
+    }
+
+    private void send(final Kind kind, final String id) {
+        subscription.onEvent(EventBus.Type.CHANGE_EVENT, ChangeEvent.of(EventBus.Action.UPDATED, kind.getModelName(), id).toPayload());
+    }
+}
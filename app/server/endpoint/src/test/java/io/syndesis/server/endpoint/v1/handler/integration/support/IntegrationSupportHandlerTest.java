@@ -16,18 +16,41 @@
 package io.syndesis.server.endpoint.v1.handler.integration.support;
 
 import io.syndesis.common.model.ModelExport;
+import io.syndesis.common.model.WithId;
+import io.syndesis.common.model.connection.Connection;
+import io.syndesis.common.model.integration.Flow;
+import io.syndesis.common.model.integration.Integration;
+import io.syndesis.common.model.integration.Step;
+import io.syndesis.common.model.integration.StepKind;
 import io.syndesis.common.util.json.JsonUtils;
+import io.syndesis.integration.api.IntegrationResourceManager;
+import io.syndesis.server.dao.manager.DataManager;
+import io.syndesis.server.endpoint.v1.handler.integration.IntegrationHandler;
+import io.syndesis.server.jsondb.CloseableJsonDB;
+import io.syndesis.server.jsondb.dao.JsonDbDao;
+import io.syndesis.server.jsondb.impl.MemorySqlJsonDB;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.util.StreamUtils.nonClosing;
 
 public class IntegrationSupportHandlerTest {
 
@@ -42,4 +65,56 @@ public class IntegrationSupportHandlerTest {
             verify(fis, times(0)).close();
         }
     }
+
+    @Test
+    public void shouldExportModelsInTheLayoutReadByImport() throws IOException {
+        final DataManager dataManager = mock(DataManager.class);
+        final IntegrationHandler integrationHandler = mock(IntegrationHandler.class);
+        when(integrationHandler.getDataManager()).thenReturn(dataManager);
+
+        final Connection connection = new Connection.Builder().id("connection").name("connection").connectorId("connector").build();
+        final Step step = new Step.Builder().id("step").stepKind(StepKind.endpoint).connection(connection).build();
+        final Integration first = new Integration.Builder().id("first").name("first")
+            .addFlow(new Flow.Builder().id("flow-1").addStep(step).build())
+            .build();
+        final Integration second = new Integration.Builder().id("second").name("second")
+            .addFlow(new Flow.Builder().id("flow-2").addStep(step).build())
+            .build();
+        when(integrationHandler.getIntegration("first")).thenReturn(first);
+        when(integrationHandler.getIntegration("second")).thenReturn(second);
+
+        final IntegrationSupportHandler handler = new IntegrationSupportHandler(null, null, null, dataManager,
+            mock(IntegrationResourceManager.class), null, null, null, null);
+        handler.setIntegrationHandler(integrationHandler);
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        handler.export(new ArrayList<>(Arrays.asList("first", "second", "first"))).write(out);
+
+        final List<String> entries = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()));
+            CloseableJsonDB jsondb = MemorySqlJsonDB.create(Collections.emptyList())) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                entries.add(entry.getName());
+                if ("model.json".equals(entry.getName())) {
+                    jsondb.set("/", nonClosing(zip));
+                }
+            }
+
+            assertThat(dao(jsondb, Integration.class).fetchAll().getItems())
+                .extracting(Integration::getName).containsExactlyInAnyOrder("first", "second");
+            assertThat(dao(jsondb, Connection.class).fetchAll().getItems())
+                .extracting(Connection::getConnectorId).containsExactly("connector");
+        }
+
+        assertThat(entries).containsExactly("model-info.json", "model.json");
+    }
+
+    private static <T extends WithId<T>> JsonDbDao<T> dao(CloseableJsonDB jsondb, Class<T> type) {
+        return new JsonDbDao<T>(jsondb) {
+            @Override
+            public Class<T> getType() {
+                return type;
+            }
+        };
+    }
 }
@@ -17,12 +17,24 @@ package io.syndesis.server.jsondb;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+
+import io.syndesis.common.model.ListResult;
+
 /**
  * Provides a Java API to read/update a Key/Value database presented to the user a
  * single large persistent JSON tree/document.  You can read or update subsets of the
@@ -51,6 +63,56 @@ public interface JsonDB {
      */
     Set<String> fetchIdsByPropertyValue(String collectionPath, String property, String value);
 
+    /**
+     * Fetches all paths that hold all of the properties with the given values.
+     * The returned paths are in the form of {@code /<collection>/:<id>}.
+     */
+    default Set<String> fetchIdsByPropertyValues(String collectionPath, Map<String, String> propertyValues) {
+        Set<String> matching = null;
+        for (Map.Entry<String, String> propertyValue : propertyValues.entrySet()) {
+            Set<String> paths = fetchIdsByPropertyValue(collectionPath, propertyValue.getKey(), propertyValue.getValue());
+            if (matching == null) {
+                matching = new HashSet<>(paths);
+            } else {
+                matching.retainAll(paths);
+            }
+            if (matching.isEmpty()) {
+                break;
+            }
+        }
+        return matching == null ? Collections.emptySet() : matching;
+    }
+
+    /**
+     * Checks if {@link #fetchIdsByPropertyValue(String, String, String)} and
+     * {@link #fetchKeysOrderedBy(String, Map, String, GetOptions.Order, int, int)} are answered
+     * from stored property values, without reading the children of the collection.
+     */
+    default boolean isQueryable(String collectionPath, String property) {
+        return false;
+    }
+
+    /**
+     * Lists a page of the keys of the direct children of the collection that
+     * match all property values, ordered by the value of the given property and
+     * then by key. Children without a value for the property come first in
+     * ascending and last in descending order. The filtering, ordering and paging
+     * is done on the stored property values, so none of the children is read.
+     *
+     * @param collectionPath to the object whose children should be listed
+     * @param propertyValues the children need to match, can be empty
+     * @param property to order by, or null to order by key only
+     * @param order of the property values
+     * @param offset of the first key of the page
+     * @param limit of the number of keys in the page
+     * @return the keys of the page and the number of all matching children, or
+     *         null if the children would have to be read to select the page
+     */
+    default ListResult<String> fetchKeysOrderedBy(String collectionPath, Map<String, String> propertyValues, String property,
+                                                  GetOptions.Order order, int offset, int limit) {
+        return null;
+    }
+
     /**
      * Generates a sortable unique id as described at:
      * https://firebase.googleblog.com/2015/02/the-2120-ways-to-ensure-unique_68.html
@@ -95,6 +157,17 @@ public interface JsonDB {
         set(path, json.getBytes(StandardCharsets.UTF_8));
     }
 
+    /**
+     * Replaces the object or value at the given path with the supplied json
+     * document, same as {@link #set(String, String)}, but implementations may
+     * write only the parts of the document that differ from the stored one.
+     * @param path to the object or value to replace
+     * @param json value to set it to, can be a json primitive or struct
+     */
+    default void replace(String path, String json)  {
+        replace(path, json.getBytes(StandardCharsets.UTF_8));
+    }
+
     /**
      * Updates a path with the given JSON entry.
      * @param path to the object or value to set
@@ -138,6 +211,10 @@ public interface JsonDB {
         set(path, new ByteArrayInputStream(json));
     }
 
+    default void replace(String path, byte[] json) {
+        replace(path, new ByteArrayInputStream(json));
+    }
+
     default void update(String path, byte[] json) {
         update(path, new ByteArrayInputStream(json));
     }
@@ -175,8 +252,85 @@ public interface JsonDB {
      */
     Consumer<OutputStream> getAsStreamingOutput(String path, GetOptions options);
 
+    /**
+     * Range scans the direct children of the object at the given path in key order.
+     * The key range, order and {@link GetOptions#limitToFirst()} of the options are
+     * applied by the database, and each child is handed to the consumer as its own
+     * JSON document as soon as it has been read, so the cost of a scan is bounded by
+     * the size of the requested page and not by the number of children stored.
+     * Filters are not supported.
+     *
+     * @param path to the object whose children should be scanned
+     * @param options key range, order and limit of the scan
+     * @param consumer receives the key and the JSON of each child
+     * @return the key of the last child emitted if the limit was reached, to be used
+     *         with {@link GetOptions#startAfter(String)} to fetch the next page, or
+     *         null if there are no more children
+     */
+    String scan(String path, GetOptions options, BiConsumer<String, byte[]> consumer);
+
+    /**
+     * Reads the direct children with the given keys of the object at the given path
+     * in a single round trip, instead of one read per child. Each child that exists
+     * is handed to the consumer as its own JSON document in key order, keys that do
+     * not exist are skipped.
+     *
+     * @param path to the object whose children should be read
+     * @param keys of the children to read
+     * @param consumer receives the key and the JSON of each child found
+     */
+    void getAll(String path, Collection<String> keys, BiConsumer<String, byte[]> consumer);
+
+    /**
+     * Reads the object or value at the given path as JSON tokens that can be
+     * bound by Jackson directly, implementations can provide the tokens
+     * without encoding the JSON to text and parsing it again. By default the
+     * JSON text is parsed.
+     *
+     * @param path to the json object or value to read
+     * @param options depth, key range, order, limit and filter of the read
+     * @return a parser positioned before the first token, or null if nothing
+     *         exists at the path
+     */
+    default JsonParser getAsParser(String path, GetOptions options) {
+        byte[] json = getAsByteArray(path, options);
+        if (json == null) {
+            return null;
+        }
+        try {
+            return new JsonFactory().createParser(json);
+        } catch (IOException e) {
+            throw new JsonDBException(e);
+        }
+    }
+
+    /**
+     * Same as {@link #scan(String, GetOptions, BiConsumer)}, but hands each
+     * child to the consumer as JSON tokens, see
+     * {@link #getAsParser(String, GetOptions)}. The parser is only valid
+     * while the consumer is called.
+     */
+    default String scanTokens(String path, GetOptions options, BiConsumer<String, JsonParser> consumer) {
+        JsonFactory factory = new JsonFactory();
+        return scan(path, options, (key, json) -> {
+            try (JsonParser parser = factory.createParser(json)) {
+                consumer.accept(key, parser);
+            } catch (IOException e) {
+                throw new JsonDBException(e);
+            }
+        });
+    }
+
     void set(String path, InputStream body);
 
+    /**
+     * Replaces the object or value at the given path, by default the same
+     * as {@link #set(String, InputStream)}.
+     */
+    default void replace(String path, InputStream body) {
+        set(path, body);
+    }
+
     void update(String path, InputStream body);
 
     String push(String path, InputStream body);
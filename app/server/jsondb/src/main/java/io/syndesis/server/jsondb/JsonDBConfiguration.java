@@ -15,9 +15,19 @@
  */
 package io.syndesis.server.jsondb;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Locale;
+
+import org.skife.jdbi.v2.DBI;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 
+import io.syndesis.server.jsondb.impl.DocumentSqlJsonDB;
+import io.syndesis.server.jsondb.impl.Index;
+import io.syndesis.server.jsondb.impl.SqlJsonDB;
+
 /**
  * Configured in spring.factories so that tis configuration is automatically picked
  * up when included in the classpath.
@@ -25,4 +35,45 @@ import org.springframework.context.annotation.Configuration;
 @Configuration
 @ComponentScan
 public class JsonDBConfiguration {
+
+    /**
+     * How JsonDB stores the entity collections.
+     */
+    public enum Layout {
+        /**
+         * One record per JSON value in the {@code jsondb} table.
+         */
+        RECORDS,
+        /**
+         * One JSONB document per entity in the {@code jsondb_doc} table,
+         * requires PostgreSQL.
+         */
+        DOCUMENTS
+    }
+
+    private Layout layout = Layout.RECORDS;
+
+    @Value("${jsondb.layout:records}")
+    public void setLayout(String layout) {
+        this.layout = Layout.valueOf(layout.trim().toUpperCase(Locale.US));
+    }
+
+    public Layout getLayout() {
+        return layout;
+    }
+
+    /**
+     * Creates the JsonDB for the configured layout, with the documents layout
+     * only the given entity collections are stored as documents.
+     */
+    public SqlJsonDB newJsonDB(DBI dbi, Collection<Index> indexes, Collection<String> documentCollections) {
+        if (layout == Layout.DOCUMENTS && !documentCollections.isEmpty()) {
+            return new DocumentSqlJsonDB(dbi, null, indexes, documentCollections);
+        }
+        return new SqlJsonDB(dbi, null, indexes);
+    }
+
+    public SqlJsonDB newJsonDB(DBI dbi, Collection<Index> indexes) {
+        return newJsonDB(dbi, indexes, Collections.emptyList());
+    }
 }
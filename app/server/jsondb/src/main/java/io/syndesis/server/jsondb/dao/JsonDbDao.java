@@ -16,17 +16,24 @@
 package io.syndesis.server.jsondb.dao;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectReader;
-import com.fasterxml.jackson.databind.type.MapType;
-import com.fasterxml.jackson.databind.type.TypeFactory;
 import io.syndesis.common.model.Kind;
 import io.syndesis.common.model.ListResult;
 import io.syndesis.common.model.WithId;
@@ -36,6 +43,9 @@ import io.syndesis.common.util.SyndesisServerException;
 import io.syndesis.common.util.json.JsonUtils;
 import io.syndesis.server.dao.manager.DataAccessObject;
 import io.syndesis.server.dao.manager.operators.IdPrefixFilter;
+import io.syndesis.server.dao.manager.operators.PageFilter;
+import io.syndesis.server.dao.manager.operators.PropertySorter;
+import io.syndesis.server.dao.manager.operators.PropertyValueFilter;
 import io.syndesis.server.jsondb.GetOptions;
 import io.syndesis.server.jsondb.JsonDB;
 
@@ -65,16 +75,42 @@ public abstract class JsonDbDao<T extends WithId<T>> implements DataAccessObject
     public T fetch(String id) {
         try {
             String dbPath = getCollectionPath()+"/:"+id;
-            byte[] json = jsondb.getAsByteArray(dbPath);
-            if( json==null || json.length == 0 ) {
-                return null;
+            // binds the reconstructed tokens without going through JSON text
+            try (JsonParser parser = jsondb.getAsParser(dbPath, null)) {
+                if( parser==null ) {
+                    return null;
+                }
+                return reader.forType(getType()).readValue(parser);
             }
-            return reader.forType(getType()).readValue(json);
         } catch (@SuppressWarnings("PMD.AvoidCatchingGenericException") RuntimeException|IOException e) {
             throw SyndesisServerException.launderThrowable(e);
         }
     }
 
+    @Override
+    public List<T> fetchAll(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        try {
+            final List<String> keys = ids.stream().map(id -> ":" + id).collect(Collectors.toList());
+            final ObjectReader typeReader = reader.forType(getType());
+            final List<T> result = new ArrayList<>(keys.size());
+            jsondb.getAll(getCollectionPath(), keys, (key, json) -> {
+                try {
+                    result.add(typeReader.readValue(json));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+
+            return result;
+        } catch (@SuppressWarnings("PMD.AvoidCatchingGenericException") RuntimeException e) {
+            throw SyndesisServerException.launderThrowable(e);
+        }
+    }
+
     @Override
     @SuppressWarnings({"rawtypes","unchecked"})
     public ListResult<T> fetchAll() {
@@ -86,6 +122,11 @@ public abstract class JsonDbDao<T extends WithId<T>> implements DataAccessObject
     public ListResult<T> fetchAll(Function<ListResult<T>, ListResult<T>>... operators) {
         try {
 
+            ListResult<T> queried = fetchQueried(operators);
+            if (queried != null) {
+                return queried;
+            }
+
             GetOptions options = new GetOptions();
 
             // Try to convert operators to equivalent DB queries.
@@ -102,18 +143,22 @@ public abstract class JsonDbDao<T extends WithId<T>> implements DataAccessObject
             }
 
             // get the data out..
-            byte[] json = jsondb.getAsByteArray(getCollectionPath(), options);
             ListResult<T> result;
-            if( json!=null && json.length > 0 ) {
-
-                // Lets use jackson to parse the map of keys to our model instances
-                TypeFactory typeFactory = reader.getTypeFactory();
-                MapType mapType = typeFactory.constructMapType(LinkedHashMap.class, String.class, getType());
-                LinkedHashMap<String, T> map = reader.forType(mapType).readValue(json);
-
-                result = ListResult.of(map.values());
-            } else {
-                result = ListResult.of(Collections.<T>emptyList());
+            try (JsonParser parser = jsondb.getAsParser(getCollectionPath(), options)) {
+                if( parser!=null ) {
+                    // bind the entities one by one, the keys are not needed
+                    ObjectReader typeReader = reader.forType(getType());
+                    List<T> items = new ArrayList<>();
+                    if (parser.nextToken() == JsonToken.START_OBJECT) {
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            parser.nextToken();
+                            items.add(typeReader.readValue(parser));
+                        }
+                    }
+                    result = ListResult.of(items);
+                } else {
+                    result = ListResult.of(Collections.<T>emptyList());
+                }
             }
 
             if (operators == null) {
@@ -130,6 +175,117 @@ public abstract class JsonDbDao<T extends WithId<T>> implements DataAccessObject
         }
     }
 
+    /**
+     * Translates the leading property filters, sort and page of the operators
+     * to a query of the ordered keys, so that only the entities of the page
+     * are read. The remaining operators are applied to the page in memory.
+     * @return the result, or null if the operators can not be translated and
+     *         all entities need to be read
+     */
+    @SuppressWarnings({"unchecked", "PMD.CyclomaticComplexity", "PMD.NPathComplexity"})
+    private ListResult<T> fetchQueried(Function<ListResult<T>, ListResult<T>>[] operators) {
+        if (operators == null) {
+            return null;
+        }
+
+        final String collectionPath = getCollectionPath();
+        final Map<String, String> dbPropertyValues = new LinkedHashMap<>();
+        PropertySorter<T> sorter = null;
+        PageFilter<T> page = null;
+        int translated = 0;
+        for (Function<ListResult<T>, ListResult<T>> operator : operators) {
+            if (sorter == null && page == null && operator instanceof PropertyValueFilter) {
+                Map<String, String> propertyValues = ((PropertyValueFilter<T>) operator).getPropertyValues();
+                if (propertyValues == null || !addPropertyValues(collectionPath, propertyValues, dbPropertyValues)) {
+                    break;
+                }
+            } else if (sorter == null && page == null && operator instanceof PropertySorter) {
+                sorter = (PropertySorter<T>) operator;
+            } else if (page == null && operator instanceof PageFilter) {
+                page = (PageFilter<T>) operator;
+            } else {
+                break;
+            }
+            translated++;
+        }
+
+        // nothing to be gained if all entities are needed anyway
+        if (page == null && dbPropertyValues.isEmpty()) {
+            return null;
+        }
+
+        String sortProperty = sorter == null || sorter.getSortProperty() == null ? null : sorter.getSortProperty().replace('.', '/');
+        GetOptions.Order order = sorter != null && sorter.isDescending() ? GetOptions.Order.DESC : GetOptions.Order.ASC;
+        int offset = page == null ? 0 : page.getOffset();
+        int limit = page == null ? Integer.MAX_VALUE : page.getLimit();
+        ListResult<String> keys = jsondb.fetchKeysOrderedBy(collectionPath, dbPropertyValues, sortProperty, order, offset, limit);
+        if (keys == null) {
+            return null;
+        }
+
+        int totalCount = keys.getTotalCount();
+        List<String> pageKeys = keys.getItems();
+
+        // the entities are read in key order, put them in the queried order
+        final ObjectReader typeReader = reader.forType(getType());
+        final Map<String, T> entities = new HashMap<>();
+        if (!pageKeys.isEmpty()) {
+            jsondb.getAll(collectionPath, pageKeys, (key, json) -> {
+                try {
+                    entities.put(key, typeReader.readValue(json));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        List<T> items = new ArrayList<>(pageKeys.size());
+        for (String key : pageKeys) {
+            T entity = entities.get(key);
+            if (entity != null) {
+                items.add(entity);
+            }
+        }
+
+        ListResult<T> result = new ListResult.Builder<T>().items(items).totalCount(totalCount).build();
+        for (int i = translated; i < operators.length; i++) {
+            result = operators[i].apply(result);
+        }
+        return result;
+    }
+
+    private boolean addPropertyValues(String collectionPath, Map<String, String> propertyValues, Map<String, String> dbPropertyValues) {
+        for (Map.Entry<String, String> propertyValue : propertyValues.entrySet()) {
+            String property = propertyValue.getKey().replace('.', '/');
+            String previous = dbPropertyValues.get(property);
+            if (!jsondb.isQueryable(collectionPath, property)
+                || previous != null && !previous.equals(propertyValue.getValue())) {
+                return false;
+            }
+            dbPropertyValues.put(property, propertyValue.getValue());
+        }
+        return true;
+    }
+
+    /**
+     * Scans the collection in batches and binds each entity from the
+     * reconstructed tokens as it is read.
+     */
+    @Override
+    public void forEach(Consumer<? super T> consumer) {
+        try {
+            final ObjectReader typeReader = reader.forType(getType());
+            jsondb.scanTokens(getCollectionPath(), new GetOptions(), (key, parser) -> {
+                try {
+                    consumer.accept(typeReader.readValue(parser));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (@SuppressWarnings("PMD.AvoidCatchingGenericException") RuntimeException e) {
+            throw SyndesisServerException.launderThrowable(e);
+        }
+    }
+
     @Override
     public Set<String> fetchIds() {
         try {
@@ -154,6 +310,15 @@ public abstract class JsonDbDao<T extends WithId<T>> implements DataAccessObject
             .stream().map(path -> path.substring(path.indexOf(':') + 1)).collect(Collectors.toSet());
     }
 
+    @Override
+    public Optional<Set<String>> fetchIdsByPropertyValues(final Map<String, String> propertyValues) {
+        final Map<String, String> dbPropertyValues = new LinkedHashMap<>();
+        propertyValues.forEach((property, value) -> dbPropertyValues.put(property.replace('.', '/'), value));
+
+        return Optional.of(jsondb.fetchIdsByPropertyValues(getCollectionPath(), dbPropertyValues)
+            .stream().map(path -> path.substring(path.indexOf(':') + 1)).collect(Collectors.toSet()));
+    }
+
     @Override
     public T create(T entity) {
         try {
@@ -184,7 +349,8 @@ public abstract class JsonDbDao<T extends WithId<T>> implements DataAccessObject
             if( previousValue !=null ) {
                 String dbPath = getCollectionPath()+"/:"+entity.getId().get();
                 byte[] json = JsonUtils.writer().writeValueAsBytes(entity);
-                jsondb.set(dbPath, json);
+                // only writes the parts of the entity that changed
+                jsondb.replace(dbPath, json);
             }
             return previousValue;
 
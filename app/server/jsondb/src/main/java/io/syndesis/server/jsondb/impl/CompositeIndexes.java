@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.server.jsondb.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Composite indexes grouped by the collection they index. A composite index
+ * entry is kept per object in the collection that has all indexed fields, its
+ * value is the stored values of the fields joined in index order.
+ */
+public final class CompositeIndexes {
+
+    static final CompositeIndexes NONE = new CompositeIndexes(Collections.emptyList());
+
+    // separates the values of individual fields in the composite value
+    private static final char SEPARATOR = '\u001e';
+
+    private final Map<String, List<Index>> byCollection = new HashMap<>();
+
+    private final Set<String> names = new HashSet<>();
+
+    public CompositeIndexes(Collection<Index> indexes) {
+        for (Index index : indexes) {
+            if (index.isComposite()) {
+                byCollection.computeIfAbsent(JsonRecordSupport.convertToDBPath(index.getPath()), c -> new ArrayList<>()).add(index);
+                names.add(nameOf(index));
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return byCollection.isEmpty();
+    }
+
+    boolean isCompositeIndex(String idx) {
+        return idx != null && names.contains(idx);
+    }
+
+    Collection<List<Index>> all() {
+        return byCollection.values();
+    }
+
+    /**
+     * Composite indexes that cover the object at the given path, empty if the
+     * path is not of an object directly within an indexed collection.
+     */
+    List<Index> forObject(String dbPath) {
+        if (byCollection.isEmpty() || dbPath.length() < 2) {
+            return Collections.emptyList();
+        }
+
+        int end = dbPath.lastIndexOf('/', dbPath.length() - 2);
+        if (end < 0) {
+            return Collections.emptyList();
+        }
+
+        List<Index> indexes = byCollection.get(dbPath.substring(0, end + 1));
+        if (indexes == null) {
+            return Collections.emptyList();
+        }
+        return indexes;
+    }
+
+    /**
+     * If the given path is within, and not the path of, an object directly in
+     * an indexed collection returns the path of that object.
+     */
+    String objectPathContaining(String dbPath) {
+        for (String collection : byCollection.keySet()) {
+            if (dbPath.startsWith(collection)) {
+                int end = dbPath.indexOf('/', collection.length());
+                if (end > 0 && end < dbPath.length() - 1) {
+                    return dbPath.substring(0, end + 1);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The composite index, of the given usable ones, on the given collection
+     * that covers most of the given properties, or null if none covers only
+     * given properties.
+     */
+    Index bestFor(String collectionDBPath, Set<String> properties, Set<String> usable) {
+        Index best = null;
+        for (Index index : byCollection.getOrDefault(collectionDBPath, Collections.emptyList())) {
+            if (usable.contains(nameOf(index)) && properties.containsAll(index.getFields()) && (best == null || best.getFields().size() < index.getFields().size())) {
+                best = index;
+            }
+        }
+        return best;
+    }
+
+    static String nameOf(Index index) {
+        return JsonRecordSupport.convertToDBPath(index.getPath()) + "#" + index.getField();
+    }
+
+    /**
+     * Joins the stored values of the indexed fields, null if any of the fields
+     * has no value.
+     */
+    static String valueOf(Index index, Map<String, String> fieldValues) {
+        StringBuilder value = new StringBuilder();
+        List<String> fields = index.getFields();
+        for (int i = 0; i < fields.size(); i++) {
+            String fieldValue = fieldValues.get(fields.get(i));
+            if (fieldValue == null) {
+                return null;
+            }
+            if (i > 0) {
+                value.append(SEPARATOR);
+            }
+            value.append(fieldValue);
+        }
+        return value.toString();
+    }
+}
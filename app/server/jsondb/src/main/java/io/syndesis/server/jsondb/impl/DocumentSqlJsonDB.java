@@ -0,0 +1,1262 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.server.jsondb.impl;
+
+import static io.syndesis.server.jsondb.impl.JsonRecordSupport.validateKey;
+import static io.syndesis.server.jsondb.impl.Strings.prefix;
+import static io.syndesis.server.jsondb.impl.Strings.trimSuffix;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.PreparedBatch;
+import org.skife.jdbi.v2.Query;
+import org.skife.jdbi.v2.ResultIterator;
+import org.skife.jdbi.v2.util.StringColumnMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.BooleanNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import io.syndesis.common.model.ListResult;
+import io.syndesis.common.util.EventBus;
+import io.syndesis.common.util.json.JsonUtils;
+import io.syndesis.server.jsondb.Filter;
+import io.syndesis.server.jsondb.GetOptions;
+import io.syndesis.server.jsondb.JsonDBException;
+
+/**
+ * Stores the entities of the given collections as one JSONB document per
+ * entity in the {@code jsondb_doc} table instead of one record per JSON
+ * value, everything outside of those collections is kept in the record
+ * layout of {@link SqlJsonDB}. Reading a collection streams the stored
+ * documents as they are instead of reassembling them from records, lookups
+ * by property value are served by expression indexes created for the
+ * {@link Index} definitions and filters are translated to JSONB comparisons.
+ * Requires PostgreSQL.
+ */
+@SuppressWarnings({"PMD.GodClass", "PMD.TooManyMethods", "PMD.CyclomaticComplexity", "PMD.ModifiedCyclomaticComplexity", "PMD.StdCyclomaticComplexity"})
+public class DocumentSqlJsonDB extends SqlJsonDB {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DocumentSqlJsonDB.class);
+
+    private static final int SCAN_BATCH_SIZE = 1000;
+
+    private static final int GET_ALL_BATCH_SIZE = 100;
+
+    // Postgres truncates longer identifiers
+    private static final int MAX_IDENTIFIER_LENGTH = 63;
+
+    private static final JsonNodeFactory NODES = JsonNodeFactory.withExactBigDecimals(true);
+
+    private static final ObjectReader READER = JsonUtils.reader()
+        .with(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)
+        .with(NODES);
+
+    private static final ObjectWriter WRITER = JsonUtils.writer();
+
+    private final EventBus bus;
+    private final Collection<Index> allIndexes;
+    private final Set<String> documentCollections;
+
+    /**
+     * @param documentCollections paths of the collections, like
+     *        {@code /integrations}, whose entities are stored as documents
+     */
+    public DocumentSqlJsonDB(DBI dbi, EventBus bus, Collection<Index> indexes, Collection<String> documentCollections) {
+        super(dbi, bus, recordIndexes(indexes, collectionNames(documentCollections)));
+        this.bus = bus;
+        this.allIndexes = indexes;
+        this.documentCollections = collectionNames(documentCollections);
+
+        if (getDatabaseKind() != DatabaseKind.PostgreSQL) {
+            throw new IllegalStateException("The document layout of JsonDB requires PostgreSQL, but the database is " + getDatabaseKind());
+        }
+    }
+
+    @Override
+    public void createTables() {
+        super.createTables();
+        withTransaction(dbi -> {
+            dbi.update("CREATE TABLE IF NOT EXISTS jsondb_doc (collection VARCHAR COLLATE \"C\", id VARCHAR COLLATE \"C\", doc JSONB NOT NULL, PRIMARY KEY (collection, id))");
+            for (Index index : allIndexes) {
+                String collection = collectionOf(index.getPath());
+                if (!documentCollections.contains(collection)) {
+                    continue;
+                }
+
+                // the collection leads so that the index can be used with
+                // the collection given as a bind parameter
+                StringBuilder sql = new StringBuilder("CREATE INDEX IF NOT EXISTS ")
+                    .append(indexName(collection, index))
+                    .append(" ON jsondb_doc (collection");
+                for (String field : index.getFields()) {
+                    sql.append(", (").append(fieldExpression(field)).append(')');
+                }
+                sql.append(')');
+                dbi.update(sql.toString());
+            }
+        });
+    }
+
+    @Override
+    public void dropTables() {
+        withTransaction(dbi -> dbi.update("DROP TABLE IF EXISTS jsondb_doc"));
+        super.dropTables();
+    }
+
+    /**
+     * Moves the entities of the document collections that are still stored as
+     * records, as left behind by the record layout, to documents. Each entity
+     * is moved in its own transaction and the records are removed at the end,
+     * so an interrupted migration is completed by running it again.
+     */
+    public void migrateToDocuments() {
+        for (String collection : documentCollections) {
+            String path = "/" + collection;
+            if (!super.exists(path)) {
+                continue;
+            }
+
+            LOG.info("Migrating {} to the document layout", path);
+            int[] migrated = new int[1];
+            super.scan(path, new GetOptions(), (key, json) -> {
+                JsonNode doc = prune(readTree(json));
+                withTransaction(dbi -> writeDocument(dbi, collection, key, doc));
+                migrated[0]++;
+            });
+            super.delete(path);
+            LOG.info("Migrated {} entities of {} to the document layout", migrated[0], path);
+        }
+    }
+
+    @Override
+    public Collection<Index> getIndexes() {
+        return allIndexes;
+    }
+
+    @Override
+    protected SqlJsonDB newTransactedInstance(DBI transactedDBI, EventBus transactedBus) {
+        return new DocumentSqlJsonDB(transactedDBI, transactedBus, allIndexes,
+            documentCollections.stream().map(c -> "/" + c).collect(Collectors.toList()));
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    //
+    // Reads
+    //
+    ///////////////////////////////////////////////////////////////////
+
+    @Override
+    public Consumer<OutputStream> getAsStreamingOutput(String path, GetOptions options) {
+        List<String> segments = segments(path);
+        if (segments.isEmpty()) {
+            return rootOutput(path, options);
+        }
+        if (!isDocumentPath(segments)) {
+            return super.getAsStreamingOutput(path, options);
+        }
+
+        GetOptions o = options == null ? new GetOptions() : options;
+        if (segments.size() == 1) {
+            return collectionOutput(segments.get(0), o);
+        }
+
+        if (o.filter() != null) {
+            throw new JsonDBException("Filters are only supported on collections: " + path);
+        }
+        JsonNode node = applyOptions(read(segments), o);
+        if (node == null) {
+            return null;
+        }
+        return output -> write(output, o, jg -> WRITER.writeValue(jg, node));
+    }
+
+    /**
+     * Documents are handed out as the tokens of the stored tree, the root and
+     * document collections are rendered as in
+     * {@link #getAsStreamingOutput(String, GetOptions)} and parsed.
+     */
+    @Override
+    public JsonParser getAsParser(String path, GetOptions options) {
+        List<String> segments = segments(path);
+        if (!segments.isEmpty() && !isDocumentPath(segments)) {
+            return super.getAsParser(path, options);
+        }
+
+        GetOptions o = options == null ? new GetOptions() : options;
+        if (segments.size() > 1) {
+            if (o.filter() != null) {
+                throw new JsonDBException("Filters are only supported on collections: " + path);
+            }
+            JsonNode node = applyOptions(read(segments), o);
+            return node == null ? null : READER.treeAsTokens(node);
+        }
+
+        byte[] json = getAsByteArray(path, o);
+        if (json == null) {
+            return null;
+        }
+        try {
+            return READER.getFactory().createParser(json);
+        } catch (IOException e) {
+            throw new JsonDBException(e);
+        }
+    }
+
+    @Override
+    public String scanTokens(String path, GetOptions options, BiConsumer<String, JsonParser> consumer) {
+        if (!isDocumentPath(segments(path))) {
+            return super.scanTokens(path, options, consumer);
+        }
+
+        return scan(path, options, (key, json) -> {
+            try (JsonParser parser = READER.getFactory().createParser(json)) {
+                consumer.accept(key, parser);
+            } catch (IOException e) {
+                throw new JsonDBException(e);
+            }
+        });
+    }
+
+    @Override
+    public String scan(String path, GetOptions options, BiConsumer<String, byte[]> consumer) {
+        List<String> segments = segments(path);
+        if (!isDocumentPath(segments)) {
+            return super.scan(path, options, consumer);
+        }
+
+        GetOptions o = options == null ? new GetOptions() : options;
+        if (segments.size() > 1) {
+            return scanNode(read(segments), o, consumer);
+        }
+
+        if (o.filter() != null) {
+            throw new JsonDBException("Filters are not supported when scanning: " + path);
+        }
+        Integer limit = o.limitToFirst();
+        if (limit != null && limit <= 0) {
+            return null;
+        }
+
+        boolean descending = o.order() == GetOptions.Order.DESC;
+        int batchSize = limit != null && limit < SCAN_BATCH_SIZE ? limit : SCAN_BATCH_SIZE;
+        String collection = segments.get(0);
+        int emitted = 0;
+        String lastKey = null;
+        while (true) {
+            StringBuilder sql = new StringBuilder("SELECT id, doc::text AS doc FROM jsondb_doc WHERE collection = ?");
+            List<Object> params = new ArrayList<>();
+            params.add(collection);
+            appendKeyRange(sql, params, o);
+            if (lastKey != null) {
+                sql.append(descending ? " AND id < ?" : " AND id > ?");
+                params.add(lastKey);
+            }
+            sql.append(" ORDER BY id ").append(descending ? "DESC" : "ASC").append(" LIMIT ?");
+            params.add(batchSize);
+
+            List<Map<String, Object>> rows = query(sql.toString(), params);
+            for (Map<String, Object> row : rows) {
+                lastKey = (String) row.get("id");
+                consumer.accept(lastKey, ((String) row.get("doc")).getBytes(StandardCharsets.UTF_8));
+                emitted++;
+                if (limit != null && emitted >= limit) {
+                    return lastKey;
+                }
+            }
+
+            if (rows.size() < batchSize) {
+                return null;
+            }
+        }
+    }
+
+    @Override
+    public void getAll(String path, Collection<String> keys, BiConsumer<String, byte[]> consumer) {
+        List<String> segments = segments(path);
+        if (!isDocumentPath(segments)) {
+            super.getAll(path, keys, consumer);
+            return;
+        }
+
+        List<String> sorted = keys.stream()
+            .map(JsonRecordSupport::validateKey)
+            .distinct()
+            .sorted()
+            .collect(Collectors.toList());
+
+        if (segments.size() > 1) {
+            JsonNode node = read(segments);
+            if (node != null && node.isObject()) {
+                for (String key : sorted) {
+                    JsonNode child = node.get(key);
+                    if (child != null) {
+                        consumer.accept(key, toBytes(child));
+                    }
+                }
+            }
+            return;
+        }
+
+        for (int from = 0; from < sorted.size(); from += GET_ALL_BATCH_SIZE) {
+            List<String> batch = sorted.subList(from, Math.min(from + GET_ALL_BATCH_SIZE, sorted.size()));
+            StringBuilder sql = new StringBuilder("SELECT id, doc::text AS doc FROM jsondb_doc WHERE collection = ? AND id IN (");
+            List<Object> params = new ArrayList<>(batch.size() + 1);
+            params.add(segments.get(0));
+            for (String key : batch) {
+                sql.append(params.size() == 1 ? "?" : ", ?");
+                params.add(key);
+            }
+            sql.append(") ORDER BY id ASC");
+
+            for (Map<String, Object> row : query(sql.toString(), params)) {
+                consumer.accept((String) row.get("id"), ((String) row.get("doc")).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    @Override
+    public boolean exists(String path) {
+        List<String> segments = segments(path);
+        if (segments.isEmpty()) {
+            return super.exists(path) || !query("SELECT id FROM jsondb_doc LIMIT 1", Collections.emptyList()).isEmpty();
+        }
+        if (!isDocumentPath(segments)) {
+            return super.exists(path);
+        }
+        if (segments.size() == 1) {
+            return !query("SELECT id FROM jsondb_doc WHERE collection = ? LIMIT 1", Collections.singletonList(segments.get(0))).isEmpty();
+        }
+        return read(segments) != null;
+    }
+
+    @Override
+    public Set<String> fetchIdsByPropertyValue(String collectionPath, String property, String value) {
+        if (!isDocumentCollection(segments(collectionPath))) {
+            return super.fetchIdsByPropertyValue(collectionPath, property, value);
+        }
+        return fetchIdsByPropertyValues(collectionPath, Collections.singletonMap(property, value));
+    }
+
+    /**
+     * Matches all properties in a single query, the planner picks the
+     * expression indexes, including the composite ones, to use.
+     */
+    @Override
+    public Set<String> fetchIdsByPropertyValues(String collectionPath, Map<String, String> propertyValues) {
+        List<String> segments = segments(collectionPath);
+        if (!isDocumentCollection(segments)) {
+            return super.fetchIdsByPropertyValues(collectionPath, propertyValues);
+        }
+
+        String collection = segments.get(0);
+        StringBuilder sql = new StringBuilder("SELECT id FROM jsondb_doc WHERE collection = ?");
+        List<Object> params = new ArrayList<>();
+        params.add(collection);
+        for (Map.Entry<String, String> propertyValue : propertyValues.entrySet()) {
+            sql.append(" AND ").append(fieldExpression(propertyValue.getKey())).append(" = to_jsonb(CAST(? AS TEXT))");
+            params.add(propertyValue.getValue());
+        }
+
+        AtomicReference<List<String>> ids = new AtomicReference<>();
+        withTransaction(dbi -> {
+            Query<Map<String, Object>> query = dbi.createQuery(sql.toString());
+            bind(query, params);
+            ids.set(query.map(StringColumnMapper.INSTANCE).list());
+        });
+
+        return ids.get().stream()
+            .map(id -> "/" + collection + "/" + id)
+            .collect(Collectors.toCollection(HashSet::new));
+    }
+
+    /**
+     * Any property of a document can be matched by a query, the expression
+     * indexes make it cheaper for the indexed ones.
+     */
+    @Override
+    public boolean isQueryable(String collectionPath, String property) {
+        if (!isDocumentCollection(segments(collectionPath))) {
+            return super.isQueryable(collectionPath, property);
+        }
+        return true;
+    }
+
+    /**
+     * Filters, orders and pages the documents by the values extracted from
+     * them. The values order by their JSON type first, like the record layout
+     * orders the encoded values, objects and arrays count as missing.
+     */
+    @Override
+    public ListResult<String> fetchKeysOrderedBy(String collectionPath, Map<String, String> propertyValues, String property,
+                                                 GetOptions.Order order, int offset, int limit) {
+        List<String> segments = segments(collectionPath);
+        if (!isDocumentCollection(segments)) {
+            return super.fetchKeysOrderedBy(collectionPath, propertyValues, property, order, offset, limit);
+        }
+
+        StringBuilder where = new StringBuilder(" FROM jsondb_doc WHERE collection = ?");
+        List<Object> params = new ArrayList<>();
+        params.add(segments.get(0));
+        for (Map.Entry<String, String> propertyValue : propertyValues.entrySet()) {
+            where.append(" AND ").append(fieldExpression(propertyValue.getKey())).append(" = to_jsonb(CAST(? AS TEXT))");
+            params.add(propertyValue.getValue());
+        }
+
+        String direction = order == GetOptions.Order.DESC ? " DESC" : " ASC";
+        StringBuilder sql = new StringBuilder("SELECT id").append(where).append(" ORDER BY ");
+        if (property != null) {
+            String field = fieldExpression(property);
+            String rank = "CASE jsonb_typeof(" + field + ") WHEN 'null' THEN 1 WHEN 'boolean' THEN 2"
+                + " WHEN 'number' THEN 3 WHEN 'string' THEN 4 ELSE 0 END";
+            sql.append(rank).append(direction)
+                .append(", CASE WHEN jsonb_typeof(").append(field).append(") = 'string' THEN (")
+                .append(field).append(" #>> '{}') COLLATE \"C\" END").append(direction)
+                .append(", CASE WHEN jsonb_typeof(").append(field).append(") IN ('boolean', 'number') THEN ")
+                .append(field).append(" END").append(direction)
+                .append(", id ASC");
+        } else {
+            sql.append("id").append(direction);
+        }
+        sql.append(" LIMIT ? OFFSET ?");
+
+        List<Object> pageParams = new ArrayList<>(params);
+        pageParams.add(limit);
+        pageParams.add(offset);
+        List<String> keys = new ArrayList<>();
+        for (Map<String, Object> row : query(sql.toString(), pageParams)) {
+            keys.add((String) row.get("id"));
+        }
+
+        int totalCount;
+        if (offset == 0 && keys.size() < limit) {
+            // a page that is not full holds all matching documents
+            totalCount = keys.size();
+        } else {
+            totalCount = ((Number) query("SELECT COUNT(*) AS count" + where, params).get(0).get("count")).intValue();
+        }
+        return new ListResult.Builder<String>().items(keys).totalCount(totalCount).build();
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    //
+    // Writes
+    //
+    ///////////////////////////////////////////////////////////////////
+
+    @Override
+    public void set(String path, InputStream body) {
+        List<String> segments = segments(path);
+        if (segments.isEmpty()) {
+            setRoot(path, body);
+            return;
+        }
+        if (!isDocumentPath(segments)) {
+            super.set(path, body);
+            return;
+        }
+
+        JsonNode value = prune(readTree(body));
+        withTransaction(dbi -> writeNode(dbi, segments, value));
+        if (bus != null) {
+            bus.broadcast("jsondb-updated", prefix(trimSuffix(path, "/"), "/"));
+        }
+    }
+
+    /**
+     * Writing an entity is a single row write, so replacing is the same as
+     * setting it.
+     */
+    @Override
+    public void replace(String path, InputStream body) {
+        List<String> segments = segments(path);
+        if (!segments.isEmpty() && !isDocumentPath(segments)) {
+            super.replace(path, body);
+            return;
+        }
+
+        set(path, body);
+    }
+
+    @Override
+    public void update(String path, InputStream is) {
+        List<String> segments = segments(path);
+        if (!segments.isEmpty() && !isDocumentPath(segments)) {
+            super.update(path, is);
+            return;
+        }
+
+        JsonNode fields = readTree(is);
+        if (fields == null || !fields.isObject()) {
+            throw new JsonDBException("Update did not contain a json object");
+        }
+
+        if (segments.isEmpty()) {
+            // fields of the root may or may not be document collections
+            Iterator<Map.Entry<String, JsonNode>> iterator = fields.fields();
+            while (iterator.hasNext()) {
+                Map.Entry<String, JsonNode> field = iterator.next();
+                set(path + "/" + field.getKey(), toBytes(field.getValue()));
+            }
+            return;
+        }
+
+        Map<List<String>, JsonNode> updates = new LinkedHashMap<>();
+        Iterator<Map.Entry<String, JsonNode>> iterator = fields.fields();
+        while (iterator.hasNext()) {
+            Map.Entry<String, JsonNode> field = iterator.next();
+            List<String> target = new ArrayList<>(segments);
+            target.addAll(segments(field.getKey()));
+            updates.put(target, prune(field.getValue()));
+        }
+
+        withTransaction(dbi -> updates.forEach((target, value) -> writeNode(dbi, target, value)));
+        if (bus != null) {
+            for (List<String> target : updates.keySet()) {
+                bus.broadcast("jsondb-updated", "/" + String.join("/", target));
+            }
+        }
+    }
+
+    @Override
+    public boolean delete(String path) {
+        List<String> segments = segments(path);
+        if (!segments.isEmpty() && !isDocumentPath(segments)) {
+            return super.delete(path);
+        }
+
+        AtomicBoolean deleted = new AtomicBoolean();
+        if (segments.isEmpty()) {
+            deleted.set(super.delete(path));
+            withTransaction(dbi -> {
+                if (dbi.update("DELETE FROM jsondb_doc") > 0) {
+                    deleted.set(true);
+                }
+            });
+        } else {
+            withTransaction(dbi -> deleted.set(deleteNode(dbi, segments)));
+        }
+
+        if (bus != null && deleted.get()) {
+            bus.broadcast("jsondb-deleted", prefix(trimSuffix(path, "/"), "/"));
+        }
+        return deleted.get();
+    }
+
+    private void setRoot(String path, InputStream body) {
+        JsonNode root = readTree(body);
+        ObjectNode records = NODES.objectNode();
+        Map<String, JsonNode> collections = new LinkedHashMap<>();
+        if (root != null && root.isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> iterator = root.fields();
+            while (iterator.hasNext()) {
+                Map.Entry<String, JsonNode> field = iterator.next();
+                if (documentCollections.contains(field.getKey())) {
+                    collections.put(field.getKey(), prune(field.getValue()));
+                } else {
+                    records.set(field.getKey(), field.getValue());
+                }
+            }
+            super.set(path, new ByteArrayInputStream(toBytes(records)));
+        } else {
+            super.set(path, new ByteArrayInputStream(toBytes(root)));
+        }
+
+        withTransaction(dbi -> {
+            dbi.update("DELETE FROM jsondb_doc");
+            collections.forEach((collection, value) -> writeNode(dbi, Collections.singletonList(collection), value));
+        });
+    }
+
+    /**
+     * Writes the value, or removes what is there if the value is null, at the
+     * given path within the document collections.
+     */
+    private void writeNode(Handle dbi, List<String> segments, JsonNode value) {
+        if (value == null) {
+            deleteNode(dbi, segments);
+            return;
+        }
+
+        String collection = segments.get(0);
+        if (segments.size() == 1) {
+            if (!value.isObject()) {
+                throw new JsonDBException("Collection /" + collection + " can only hold objects");
+            }
+            dbi.update("DELETE FROM jsondb_doc WHERE collection = ?", collection);
+            PreparedBatch insert = dbi.prepareBatch("INSERT INTO jsondb_doc (collection, id, doc) VALUES (:collection, :id, CAST(:doc AS JSONB))");
+            Iterator<Map.Entry<String, JsonNode>> iterator = value.fields();
+            while (iterator.hasNext()) {
+                Map.Entry<String, JsonNode> entity = iterator.next();
+                insert.bind("collection", collection)
+                    .bind("id", entity.getKey())
+                    .bind("doc", toString(entity.getValue()))
+                    .add();
+            }
+            if (insert.size() > 0) {
+                insert.execute();
+            }
+            return;
+        }
+
+        String id = segments.get(1);
+        if (segments.size() == 2) {
+            writeDocument(dbi, collection, id, value);
+            return;
+        }
+
+        JsonNode doc = setIn(readForUpdate(dbi, collection, id), segments.subList(2, segments.size()), value);
+        writeDocument(dbi, collection, id, prune(doc));
+    }
+
+    private boolean deleteNode(Handle dbi, List<String> segments) {
+        String collection = segments.get(0);
+        if (segments.size() == 1) {
+            return dbi.update("DELETE FROM jsondb_doc WHERE collection = ?", collection) > 0;
+        }
+
+        String id = segments.get(1);
+        if (segments.size() == 2) {
+            return dbi.update("DELETE FROM jsondb_doc WHERE collection = ? AND id = ?", collection, id) > 0;
+        }
+
+        JsonNode doc = readForUpdate(dbi, collection, id);
+        if (!removeIn(doc, segments.subList(2, segments.size()))) {
+            return false;
+        }
+        writeDocument(dbi, collection, id, prune(doc));
+        return true;
+    }
+
+    private static void writeDocument(Handle dbi, String collection, String id, JsonNode doc) {
+        if (doc == null) {
+            dbi.update("DELETE FROM jsondb_doc WHERE collection = ? AND id = ?", collection, id);
+            return;
+        }
+
+        dbi.update("INSERT INTO jsondb_doc (collection, id, doc) VALUES (?, ?, CAST(? AS JSONB)) "
+            + "ON CONFLICT (collection, id) DO UPDATE SET doc = EXCLUDED.doc", collection, id, toString(doc));
+    }
+
+    private static JsonNode readForUpdate(Handle dbi, String collection, String id) {
+        String json = dbi.createQuery("SELECT doc::text FROM jsondb_doc WHERE collection = :collection AND id = :id FOR UPDATE")
+            .bind("collection", collection)
+            .bind("id", id)
+            .map(StringColumnMapper.INSTANCE)
+            .first();
+        return json == null ? null : readTree(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    ///////////////////////////////////////////////////////////////////
+    //
+    // Helpers
+    //
+    ///////////////////////////////////////////////////////////////////
+
+    private Consumer<OutputStream> rootOutput(String path, GetOptions options) {
+        GetOptions o = options == null ? new GetOptions() : options;
+        ObjectNode root = NODES.objectNode();
+
+        Consumer<OutputStream> records = super.getAsStreamingOutput(path, new GetOptions());
+        if (records != null) {
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            records.accept(os);
+            JsonNode node = readTree(os.toByteArray());
+            if (!node.isObject()) {
+                return output -> write(output, o, jg -> WRITER.writeValue(jg, node));
+            }
+            root.setAll((ObjectNode) node);
+        }
+
+        for (String collection : documentCollections) {
+            JsonNode node = read(Collections.singletonList(collection));
+            if (node != null) {
+                root.set(collection, node);
+            }
+        }
+
+        JsonNode result = applyOptions(root.size() == 0 ? null : root, o);
+        if (result == null) {
+            return null;
+        }
+        return output -> write(output, o, jg -> WRITER.writeValue(jg, result));
+    }
+
+    /**
+     * Streams the documents of a collection, the documents are copied to the
+     * output as they are stored unless they need to be reformatted.
+     */
+    private Consumer<OutputStream> collectionOutput(String collection, GetOptions o) {
+        Integer depth = o.depth();
+        boolean reformat = o.prettyPrint() || depth != null && depth > 1;
+
+        StringBuilder sql = new StringBuilder("SELECT id, ");
+        if (depth != null && depth <= 1) {
+            sql.append("CASE WHEN jsonb_typeof(doc) IN ('object', 'array') THEN 'true' ELSE doc::text END");
+        } else {
+            sql.append("doc::text");
+        }
+        sql.append(" AS doc FROM jsondb_doc WHERE collection = ?");
+        List<Object> params = new ArrayList<>();
+        params.add(collection);
+        appendKeyRange(sql, params, o);
+        if (o.filter() != null) {
+            sql.append(" AND ");
+            appendFilter(sql, params, o.filter());
+        }
+        sql.append(" ORDER BY id ").append(o.order() == GetOptions.Order.DESC ? "DESC" : "ASC");
+        if (o.limitToFirst() != null) {
+            sql.append(" LIMIT ?");
+            params.add(o.limitToFirst());
+        }
+
+        Consumer<OutputStream> result = null;
+        final Handle h = dbi.open();
+        try {
+            Query<Map<String, Object>> query = h.createQuery(sql.toString());
+            bind(query, params);
+            ResultIterator<Map<String, Object>> iterator = query.iterator();
+            try {
+                if (iterator.hasNext()) {
+                    result = output -> {
+                        try {
+                            write(output, o, jg -> {
+                                jg.writeStartObject();
+                                while (iterator.hasNext()) {
+                                    Map<String, Object> row = iterator.next();
+                                    jg.writeFieldName((String) row.get("id"));
+                                    String doc = (String) row.get("doc");
+                                    if (reformat) {
+                                        JsonNode node = readTree(doc.getBytes(StandardCharsets.UTF_8));
+                                        WRITER.writeValue(jg, depth == null ? node : truncate(node, depth - 1));
+                                    } else {
+                                        jg.writeRawValue(doc);
+                                    }
+                                }
+                                jg.writeEndObject();
+                            });
+                        } finally {
+                            iterator.close();
+                            h.close();
+                        }
+                    };
+                }
+            } finally {
+                if (result == null) {
+                    iterator.close();
+                }
+            }
+        } finally {
+            if (result == null) {
+                h.close();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reads the value at the given path within the document collections, or
+     * null if there is none.
+     */
+    private JsonNode read(List<String> segments) {
+        String collection = segments.get(0);
+        if (segments.size() == 1) {
+            ObjectNode node = NODES.objectNode();
+            scan("/" + collection, new GetOptions(), (id, json) -> node.set(id, readTree(json)));
+            return node.size() == 0 ? null : node;
+        }
+
+        List<Map<String, Object>> rows = query("SELECT doc::text AS doc FROM jsondb_doc WHERE collection = ? AND id = ?",
+            Arrays.asList(collection, segments.get(1)));
+        if (rows.isEmpty()) {
+            return null;
+        }
+
+        JsonNode node = readTree(((String) rows.get(0).get("doc")).getBytes(StandardCharsets.UTF_8));
+        for (String segment : segments.subList(2, segments.size())) {
+            node = child(node, segment);
+            if (node == null) {
+                return null;
+            }
+        }
+        return node;
+    }
+
+    private static String scanNode(JsonNode node, GetOptions o, BiConsumer<String, byte[]> consumer) {
+        if (o.filter() != null) {
+            throw new JsonDBException("Filters are not supported when scanning");
+        }
+        JsonNode children = applyOptions(node, new GetOptions()
+            .startAfter(o.startAfter()).startAt(o.startAt()).endAt(o.endAt()).endBefore(o.endBefore()).order(o.order()));
+        if (children == null || !children.isObject()) {
+            return null;
+        }
+
+        Integer limit = o.limitToFirst();
+        int emitted = 0;
+        Iterator<Map.Entry<String, JsonNode>> iterator = children.fields();
+        while (iterator.hasNext()) {
+            Map.Entry<String, JsonNode> child = iterator.next();
+            consumer.accept(child.getKey(), toBytes(child.getValue()));
+            emitted++;
+            if (limit != null && emitted >= limit) {
+                return child.getKey();
+            }
+        }
+        return null;
+    }
+
+    private List<Map<String, Object>> query(String sql, List<?> params) {
+        AtomicReference<List<Map<String, Object>>> rows = new AtomicReference<>();
+        withTransaction(dbi -> {
+            Query<Map<String, Object>> query = dbi.createQuery(sql);
+            bind(query, params);
+            rows.set(query.list());
+        });
+        return rows.get();
+    }
+
+    private static void bind(Query<?> query, List<?> params) {
+        for (int i = 0; i < params.size(); i++) {
+            query.bind(i, params.get(i));
+        }
+    }
+
+    /**
+     * Applies the key range of the options to the entity ids the same way the
+     * record layout applies it to the paths of the records, so that for
+     * instance a start and end at the same key select all ids with that
+     * prefix.
+     */
+    private static void appendKeyRange(StringBuilder sql, List<Object> params, GetOptions o) {
+        boolean descending = o.order() == GetOptions.Order.DESC;
+        if (o.startAfter() != null) {
+            String startAfter = validateKey(o.startAfter());
+            sql.append(descending ? " AND id || '/' <= ?" : " AND id || '/' >= ?");
+            params.add(descending ? startAfter : incrementKey(startAfter));
+        }
+        if (o.startAt() != null) {
+            String startAt = validateKey(o.startAt());
+            sql.append(descending ? " AND id || '/' < ?" : " AND id || '/' >= ?");
+            params.add(descending ? incrementKey(startAt) : startAt);
+        }
+        if (o.endAt() != null) {
+            String endAt = validateKey(o.endAt());
+            sql.append(descending ? " AND id || '/' > ?" : " AND id || '/' < ?");
+            params.add(descending ? endAt : incrementKey(endAt));
+        }
+        if (o.endBefore() != null) {
+            String endBefore = validateKey(o.endBefore());
+            sql.append(descending ? " AND id || '/' >= ?" : " AND id || '/' < ?");
+            params.add(descending ? incrementKey(endBefore) : endBefore);
+        }
+    }
+
+    private static void appendFilter(StringBuilder sql, List<Object> params, Filter filter) {
+        if (filter instanceof ChildFilter) {
+            ChildFilter child = (ChildFilter) filter;
+            sql.append('(').append(fieldExpression(child.field())).append(toSqlOp(child.op())).append("CAST(? AS JSONB))");
+            params.add(toJson(child.value()));
+        } else if (filter instanceof LogicalFilter) {
+            LogicalFilter logical = (LogicalFilter) filter;
+            String op = logical.op() == LogicalFilter.Op.AND ? " AND " : " OR ";
+            sql.append('(');
+            for (int i = 0; i < logical.filters().size(); i++) {
+                if (i > 0) {
+                    sql.append(op);
+                }
+                appendFilter(sql, params, logical.filters().get(i));
+            }
+            sql.append(')');
+        } else {
+            throw new JsonDBException("Unsupported filter: " + filter);
+        }
+    }
+
+    private static String toSqlOp(Filter.Op op) {
+        switch (op) {
+            case EQ: return " = ";
+            case NEQ: return " <> ";
+            case LT: return " < ";
+            case GT: return " > ";
+            case LTE: return " <= ";
+            case GTE: return " >= ";
+            default:
+                throw new JsonDBException("Invalid filter comparison operation.");
+        }
+    }
+
+    /**
+     * The JSONB expression selecting the given, possibly nested, field of a
+     * document. Queries need to use the exact same expression as the index
+     * definitions for the expression indexes to be used.
+     */
+    static String fieldExpression(String field) {
+        StringBuilder array = new StringBuilder("{");
+        for (String segment : segments(field)) {
+            if (array.length() > 1) {
+                array.append(',');
+            }
+            array.append('"').append(segment.replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+        }
+        array.append('}');
+        return "doc #> '" + array.toString().replace("'", "''") + "'";
+    }
+
+    static String indexName(String collection, Index index) {
+        String name = ("jsondb_doc_" + collection + "_" + String.join("_", index.getFields()))
+            .replaceAll("[^A-Za-z0-9_]", "_")
+            .toLowerCase(Locale.US);
+        if (name.length() > MAX_IDENTIFIER_LENGTH) {
+            return "jsondb_doc_" + Integer.toHexString(name.hashCode());
+        }
+        return name;
+    }
+
+    private boolean isDocumentPath(List<String> segments) {
+        return !segments.isEmpty() && documentCollections.contains(segments.get(0));
+    }
+
+    private boolean isDocumentCollection(List<String> segments) {
+        return segments.size() == 1 && isDocumentPath(segments);
+    }
+
+    private static List<String> segments(String path) {
+        return Arrays.stream(path.split("/"))
+            .filter(x -> !x.isEmpty())
+            .map(JsonRecordSupport::validateKey)
+            .collect(Collectors.toList());
+    }
+
+    private static String collectionOf(String path) {
+        List<String> segments = segments(path);
+        return segments.size() == 1 ? segments.get(0) : null;
+    }
+
+    private static Set<String> collectionNames(Collection<String> collectionPaths) {
+        Set<String> names = new HashSet<>();
+        for (String path : collectionPaths) {
+            String name = collectionOf(path);
+            if (name == null) {
+                throw new IllegalArgumentException("Only top level collections can be stored as documents, got: " + path);
+            }
+            names.add(name);
+        }
+        return names;
+    }
+
+    private static Collection<Index> recordIndexes(Collection<Index> indexes, Set<String> documentCollections) {
+        return indexes.stream()
+            .filter(index -> !documentCollections.contains(collectionOf(index.getPath())))
+            .collect(Collectors.toList());
+    }
+
+    private static String incrementKey(String value) {
+        if (value.isEmpty()) {
+            return value;
+        }
+        char[] chars = value.toCharArray();
+        chars[chars.length - 1]++;
+        return new String(chars);
+    }
+
+    private static Integer arrayIndex(String segment) {
+        if (JsonRecordSupport.INTEGER_PATTERN.matcher(segment).matches()) {
+            return Integer.valueOf(segment);
+        }
+        return null;
+    }
+
+    private static JsonNode child(JsonNode node, String segment) {
+        if (node.isObject()) {
+            return node.get(segment);
+        }
+        Integer index = arrayIndex(segment);
+        if (node.isArray() && index != null) {
+            return node.get(index);
+        }
+        return null;
+    }
+
+    /**
+     * Sets the value at the path within the node, objects are created where
+     * needed and replace any value that is in the way, like writing to a path
+     * in the record layout removes the values of the parent paths.
+     */
+    private static JsonNode setIn(JsonNode node, List<String> path, JsonNode value) {
+        if (path.isEmpty()) {
+            return value;
+        }
+
+        String key = path.get(0);
+        List<String> rest = path.subList(1, path.size());
+        Integer index = arrayIndex(key);
+        if (index != null && (node == null || node.isArray())) {
+            ArrayNode array = node == null ? NODES.arrayNode() : (ArrayNode) node;
+            while (array.size() <= index) {
+                array.addNull();
+            }
+            array.set(index, setIn(array.get(index), rest, value));
+            return array;
+        }
+
+        ObjectNode object = node != null && node.isObject() ? (ObjectNode) node : NODES.objectNode();
+        object.set(key, setIn(object.get(key), rest, value));
+        return object;
+    }
+
+    private static boolean removeIn(JsonNode node, List<String> path) {
+        if (node == null) {
+            return false;
+        }
+
+        String key = path.get(0);
+        if (path.size() > 1) {
+            return removeIn(child(node, key), path.subList(1, path.size()));
+        }
+
+        if (node.isObject()) {
+            return ((ObjectNode) node).remove(key) != null;
+        }
+        Integer index = arrayIndex(key);
+        if (node.isArray() && index != null && index < node.size()) {
+            ArrayNode array = (ArrayNode) node;
+            if (index == array.size() - 1) {
+                array.remove(index);
+            } else {
+                // keeps the positions of the following elements
+                array.set(index, NullNode.getInstance());
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Removes empty objects and arrays, which the record layout can not hold
+     * either, and validates the keys of all objects. Returns null if nothing
+     * remains of the node.
+     */
+    private static JsonNode prune(JsonNode node) {
+        if (node == null || node.isMissingNode()) {
+            return null;
+        }
+
+        if (node.isObject()) {
+            ObjectNode object = (ObjectNode) node;
+            Iterator<Map.Entry<String, JsonNode>> iterator = object.fields();
+            while (iterator.hasNext()) {
+                Map.Entry<String, JsonNode> field = iterator.next();
+                validateKey(field.getKey());
+                JsonNode pruned = prune(field.getValue());
+                if (pruned == null) {
+                    iterator.remove();
+                }
+            }
+            return object.size() == 0 ? null : object;
+        }
+
+        if (node.isArray()) {
+            ArrayNode array = (ArrayNode) node;
+            int last = -1;
+            for (int i = 0; i < array.size(); i++) {
+                if (prune(array.get(i)) == null) {
+                    array.set(i, NullNode.getInstance());
+                } else {
+                    last = i;
+                }
+            }
+            while (array.size() > last + 1) {
+                array.remove(array.size() - 1);
+            }
+            return array.size() == 0 ? null : array;
+        }
+
+        return node;
+    }
+
+    /**
+     * Applies the key range, order, limit and depth of the options to the
+     * children of the node, like the record layout does.
+     */
+    private static JsonNode applyOptions(JsonNode node, GetOptions o) {
+        if (node == null) {
+            return null;
+        }
+
+        JsonNode result = node;
+        if (node.isObject() && hasKeySelection(o)) {
+            boolean descending = o.order() == GetOptions.Order.DESC;
+            List<String> keys = new ArrayList<>();
+            node.fieldNames().forEachRemaining(keys::add);
+            keys.sort(descending ? Collections.<String>reverseOrder() : null);
+
+            ObjectNode selected = NODES.objectNode();
+            for (String key : keys) {
+                if (selected.size() == (o.limitToFirst() == null ? Integer.MAX_VALUE : o.limitToFirst())) {
+                    break;
+                }
+                if (inRange(key + "/", o, descending)) {
+                    selected.set(key, node.get(key));
+                }
+            }
+            result = selected.size() == 0 ? null : selected;
+        }
+
+        if (result != null && o.depth() != null) {
+            result = truncate(result, o.depth());
+        }
+        return result;
+    }
+
+    private static boolean hasKeySelection(GetOptions o) {
+        return o.order() == GetOptions.Order.DESC || o.limitToFirst() != null
+            || o.startAfter() != null || o.startAt() != null || o.endAt() != null || o.endBefore() != null;
+    }
+
+    private static boolean inRange(String key, GetOptions o, boolean descending) {
+        if (o.startAfter() != null && !(descending ? key.compareTo(o.startAfter()) <= 0 : key.compareTo(incrementKey(o.startAfter())) >= 0)) {
+            return false;
+        }
+        if (o.startAt() != null && !(descending ? key.compareTo(incrementKey(o.startAt())) < 0 : key.compareTo(o.startAt()) >= 0)) {
+            return false;
+        }
+        if (o.endAt() != null && !(descending ? key.compareTo(o.endAt()) > 0 : key.compareTo(incrementKey(o.endAt())) < 0)) {
+            return false;
+        }
+        return o.endBefore() == null || (descending ? key.compareTo(incrementKey(o.endBefore())) >= 0 : key.compareTo(o.endBefore()) < 0);
+    }
+
+    /**
+     * Replaces the objects and arrays nested deeper than the given depth with
+     * {@code true}.
+     */
+    private static JsonNode truncate(JsonNode node, int depth) {
+        if (!node.isContainerNode()) {
+            return node;
+        }
+        if (depth <= 0) {
+            return BooleanNode.TRUE;
+        }
+
+        if (node.isObject()) {
+            ObjectNode object = NODES.objectNode();
+            node.fields().forEachRemaining(field -> object.set(field.getKey(), truncate(field.getValue(), depth - 1)));
+            return object;
+        }
+
+        ArrayNode array = NODES.arrayNode();
+        node.elements().forEachRemaining(element -> array.add(truncate(element, depth - 1)));
+        return array;
+    }
+
+    @FunctionalInterface
+    private interface JsonWriter {
+        void write(JsonGenerator jg) throws IOException;
+    }
+
+    private static void write(OutputStream output, GetOptions o, JsonWriter writer) {
+        try {
+            if (o.callback() != null) {
+                output.write((o.callback() + "(").getBytes(StandardCharsets.UTF_8));
+            }
+            JsonGenerator jg = WRITER.getFactory().createGenerator(output);
+            if (o.prettyPrint()) {
+                jg.useDefaultPrettyPrinter();
+            }
+            writer.write(jg);
+            jg.flush();
+            if (o.callback() != null) {
+                output.write(")".getBytes(StandardCharsets.UTF_8));
+            }
+            jg.close();
+        } catch (IOException e) {
+            throw new JsonDBException(e);
+        }
+    }
+
+    private static JsonNode readTree(InputStream is) {
+        try {
+            return READER.readTree(is);
+        } catch (IOException e) {
+            throw new JsonDBException(e);
+        }
+    }
+
+    private static JsonNode readTree(byte[] json) {
+        try {
+            return READER.readTree(json);
+        } catch (IOException e) {
+            throw new JsonDBException(e);
+        }
+    }
+
+    private static byte[] toBytes(JsonNode node) {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        try {
+            WRITER.writeValue(os, node);
+        } catch (IOException e) {
+            throw new JsonDBException(e);
+        }
+        return os.toByteArray();
+    }
+
+    private static String toString(JsonNode node) {
+        return new String(toBytes(node), StandardCharsets.UTF_8);
+    }
+
+    private static String toJson(Object value) {
+        try {
+            return WRITER.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new JsonDBException(e);
+        }
+    }
+}
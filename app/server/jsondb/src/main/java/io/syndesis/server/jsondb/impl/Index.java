@@ -15,24 +15,48 @@
  */
 package io.syndesis.server.jsondb.impl;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 /**
- * JsonRecord is used to hold that data stored in a database record.
+ * Index over one, or for composite indexes several, fields of the objects
+ * held at the given path.
  */
 public final class Index {
 
     private final String path;
-    private final String field;
+    private final List<String> fields;
 
     public Index(String path, String field) {
+        this(path, Collections.singletonList(field));
+    }
+
+    public Index(String path, List<String> fields) {
+        if (fields.isEmpty()) {
+            throw new IllegalArgumentException("Index on " + path + " needs at least one field");
+        }
         this.path = path;
-        this.field = field;
+        this.fields = Collections.unmodifiableList(new ArrayList<>(fields));
     }
 
     public String getPath() {
         return path;
     }
 
+    /**
+     * The indexed field, for composite indexes the names of the fields joined
+     * with {@code +}.
+     */
     public String getField() {
-        return field;
+        return String.join("+", fields);
+    }
+
+    public List<String> getFields() {
+        return fields;
+    }
+
+    public boolean isComposite() {
+        return fields.size() > 1;
     }
 }
@@ -21,6 +21,8 @@ import static io.syndesis.server.jsondb.impl.JsonRecordSupport.NUMBER_VALUE_PREF
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -38,7 +40,8 @@ import io.syndesis.server.jsondb.GetOptions;
 import io.syndesis.server.jsondb.JsonDBException;
 
 /**
- * Converts a stream of JsonRecords to json sent to a OutputStream.
+ * Converts a stream of JsonRecords to json sent to a OutputStream, or to
+ * the tokens written to a JsonGenerator like a TokenBuffer.
  */
 @SuppressWarnings("PMD.GodClass")
 class JsonRecordConsumer implements Consumer<JsonRecord>, Closeable {
@@ -73,6 +76,22 @@ class JsonRecordConsumer implements Consumer<JsonRecord>, Closeable {
         }
     }
 
+    /**
+     * Writes the tokens to the given generator, numbers are written as
+     * numbers instead of their text so they can be read back as tokens.
+     * The callback and pretty print options do not apply.
+     */
+    JsonRecordConsumer(String base, JsonGenerator jg, GetOptions options) throws IOException {
+        this.base = base;
+        this.output = null;
+        this.jg = jg;
+        try {
+            this.options = options.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IOException(e);
+        }
+    }
+
     @Override
     @SuppressWarnings("PMD.CyclomaticComplexity")
     public void accept(JsonRecord record) {
@@ -224,7 +243,7 @@ class JsonRecordConsumer implements Consumer<JsonRecord>, Closeable {
             }
         }
         jg.flush();
-        if (options.callback() != null) {
+        if (output != null && options.callback() != null) {
             output.write(")".getBytes(StandardCharsets.UTF_8));
         }
         jg.close();
@@ -243,7 +262,11 @@ class JsonRecordConsumer implements Consumer<JsonRecord>, Closeable {
                 break;
             case JsonRecordSupport.NEG_NUMBER_VALUE_PREFIX:
             case NUMBER_VALUE_PREFIX:
-                jg.writeNumber(value.getOValue());
+                if (output == null) {
+                    writeNumberToken(value.getOValue());
+                } else {
+                    jg.writeNumber(value.getOValue());
+                }
                 break;
             case JsonRecordSupport.TRUE_VALUE_PREFIX:
                 jg.writeBoolean(true);
@@ -256,6 +279,32 @@ class JsonRecordConsumer implements Consumer<JsonRecord>, Closeable {
         }
     }
 
+    /**
+     * Writes the number using the smallest type that holds it, like a parser
+     * reading the JSON text would report it.
+     */
+    private void writeNumberToken(String number) throws IOException {
+        if (number.indexOf('.') >= 0 || number.indexOf('e') >= 0 || number.indexOf('E') >= 0) {
+            BigDecimal decimal = new BigDecimal(number);
+            double value = decimal.doubleValue();
+            if (!Double.isInfinite(value) && BigDecimal.valueOf(value).compareTo(decimal) == 0) {
+                jg.writeNumber(value);
+            } else {
+                jg.writeNumber(decimal);
+            }
+            return;
+        }
+
+        BigInteger integer = new BigInteger(number);
+        if (integer.bitLength() < Integer.SIZE) {
+            jg.writeNumber(integer.intValue());
+        } else if (integer.bitLength() < Long.SIZE) {
+            jg.writeNumber(integer.longValue());
+        } else {
+            jg.writeNumber(integer);
+        }
+    }
+
     public boolean isClosed() {
         return closed;
     }
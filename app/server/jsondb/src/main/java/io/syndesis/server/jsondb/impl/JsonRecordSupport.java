@@ -25,6 +25,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.function.Consumer;
 import java.util.regex.Matcher;
@@ -87,8 +90,12 @@ public final class JsonRecordSupport {
     }
 
     public static void jsonStreamToRecords(Set<String> indexes, String dbPath, InputStream is, Consumer<JsonRecord> consumer) throws IOException {
+        jsonStreamToRecords(indexes, CompositeIndexes.NONE, dbPath, is, consumer);
+    }
+
+    public static void jsonStreamToRecords(Set<String> indexes, CompositeIndexes composites, String dbPath, InputStream is, Consumer<JsonRecord> consumer) throws IOException {
         try (JsonParser jp = new JsonFactory().createParser(is)) {
-            jsonStreamToRecords(indexes, jp, dbPath, consumer);
+            jsonStreamToRecords(indexes, composites, jp, dbPath, consumer);
 
             JsonToken jsonToken = jp.nextToken();
             if (jsonToken != null) {
@@ -130,6 +137,40 @@ public final class JsonRecordSupport {
     }
 
     public static void jsonStreamToRecords(Set<String> indexes, JsonParser jp, String path, Consumer<JsonRecord> consumer) throws IOException {
+        jsonStreamToRecords(indexes, CompositeIndexes.NONE, jp, path, consumer);
+    }
+
+    /**
+     * Converts the JSON value read from the parser to records. For objects
+     * covered by composite indexes an additional record holding the composite
+     * index entry is emitted after the records of the object, its path is the
+     * path of the object and its index the name of the composite index.
+     */
+    public static void jsonStreamToRecords(Set<String> indexes, CompositeIndexes composites, JsonParser jp, String path, Consumer<JsonRecord> consumer) throws IOException {
+        List<Index> objectIndexes = composites.forObject(path);
+        if (objectIndexes.isEmpty()) {
+            valueToRecords(indexes, composites, jp, path, consumer);
+            return;
+        }
+
+        Map<String, String> fieldValues = new HashMap<>();
+        valueToRecords(indexes, composites, jp, path, record -> {
+            String field = record.getPath().substring(path.length());
+            if (field.indexOf('/') == field.length() - 1) {
+                fieldValues.put(field.substring(0, field.length() - 1), record.getValue());
+            }
+            consumer.accept(record);
+        });
+
+        for (Index index : objectIndexes) {
+            String value = CompositeIndexes.valueOf(index, fieldValues);
+            if (value != null) {
+                consumer.accept(JsonRecord.of(path, value, null, CompositeIndexes.nameOf(index)));
+            }
+        }
+    }
+
+    private static void valueToRecords(Set<String> indexes, CompositeIndexes composites, JsonParser jp, String path, Consumer<JsonRecord> consumer) throws IOException {
         boolean inArray = false;
         int arrayIndex = 0;
         while (true) {
@@ -141,7 +182,7 @@ public final class JsonRecordSupport {
                 if (inArray) {
                     currentPath = path + toArrayIndexPath(arrayIndex) + "/";
                 }
-                jsonStreamToRecords(indexes, jp, currentPath + validateKey(jp.getCurrentName()) + "/", consumer);
+                jsonStreamToRecords(indexes, composites, jp, currentPath + validateKey(jp.getCurrentName()) + "/", consumer);
             } else if (nextToken == VALUE_NULL) {
                 if (inArray) {
                     currentPath = path + toArrayIndexPath(arrayIndex) + "/";
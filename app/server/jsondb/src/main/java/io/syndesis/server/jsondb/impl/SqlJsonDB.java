@@ -21,6 +21,7 @@ import static io.syndesis.server.jsondb.impl.Strings.prefix;
 import static io.syndesis.server.jsondb.impl.Strings.suffix;
 import static io.syndesis.server.jsondb.impl.Strings.trimSuffix;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -33,13 +34,21 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
 import java.util.function.Consumer;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -59,7 +68,9 @@ import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 
+import io.syndesis.common.model.ListResult;
 import io.syndesis.common.util.EventBus;
 import io.syndesis.common.util.KeyGenerator;
 import io.syndesis.common.util.SyndesisServerException;
@@ -80,6 +91,13 @@ public class SqlJsonDB implements JsonDB, WithGlobalTransaction {
 
     private static final Logger LOG = LoggerFactory.getLogger(SqlJsonDB.class);
 
+    private static final int SCAN_BATCH_SIZE = 1000;
+
+    private static final int GET_ALL_BATCH_SIZE = 100;
+
+    // the indexed property the keys of a collection are listed from
+    private static final String KEY_PROPERTY = "id";
+
     public enum DatabaseKind {
         PostgreSQL, SQLite, H2, CockroachDB
     }
@@ -88,6 +106,11 @@ public class SqlJsonDB implements JsonDB, WithGlobalTransaction {
     private final EventBus bus;
     private final Collection<Index> indexes;
     private final Set<String> indexPaths = new HashSet<>();
+    private final CompositeIndexes compositeIndexes;
+
+    // composite indexes holding the entries of all objects, only these are
+    // used for lookups
+    private final Set<String> builtCompositeIndexes = ConcurrentHashMap.newKeySet();
 
     // These values are used to compute a seq key
     private DatabaseKind databaseKind = DatabaseKind.PostgreSQL;
@@ -102,8 +125,11 @@ public class SqlJsonDB implements JsonDB, WithGlobalTransaction {
         this.indexes = indexes;
 
         for (Index index : indexes) {
-            this.indexPaths.add(index.getPath()+"/#"+index.getField());
+            if (!index.isComposite()) {
+                this.indexPaths.add(index.getPath()+"/#"+index.getField());
+            }
         }
+        this.compositeIndexes = new CompositeIndexes(indexes);
 
         // Lets find out the type of DB we are working with.
         withTransaction(x -> {
@@ -131,8 +157,16 @@ public class SqlJsonDB implements JsonDB, WithGlobalTransaction {
                 dbi.update("CREATE TABLE IF NOT EXISTS jsondb (path VARCHAR COLLATE \"C\" PRIMARY KEY, value VARCHAR, ovalue VARCHAR, idx VARCHAR COLLATE \"C\")");
                 dbi.update("CREATE INDEX IF NOT EXISTS jsondb_idx ON jsondb (idx, value) WHERE idx IS NOT NULL");
                 dbi.update("CREATE INDEX IF NOT EXISTS jsondb_activity_idx ON jsondb (path DESC)");
+                dbi.update("CREATE TABLE IF NOT EXISTS jsondb_cidx (idx VARCHAR COLLATE \"C\", value VARCHAR, path VARCHAR COLLATE \"C\", PRIMARY KEY (idx, value, path))");
+                dbi.update("CREATE INDEX IF NOT EXISTS jsondb_cidx_path ON jsondb_cidx (path)");
+                dbi.update("CREATE TABLE IF NOT EXISTS jsondb_cidx_built (idx VARCHAR COLLATE \"C\" PRIMARY KEY)");
+                dbi.update("CREATE TABLE IF NOT EXISTS jsondb_idx_built (idx VARCHAR COLLATE \"C\" PRIMARY KEY)");
             } else {
-                dbi.update("CREATE TABLE jsondb (path VARCHAR PRIMARY KEY, value VARCHAR, ovalue VARCHAR, idx VARCHAR)");
+                dbi.update("CREATE TABLE IF NOT EXISTS jsondb (path VARCHAR PRIMARY KEY, value VARCHAR, ovalue VARCHAR, idx VARCHAR)");
+                dbi.update("CREATE TABLE IF NOT EXISTS jsondb_cidx (idx VARCHAR, value VARCHAR, path VARCHAR, PRIMARY KEY (idx, value, path))");
+                dbi.update("CREATE INDEX IF NOT EXISTS jsondb_cidx_path ON jsondb_cidx (path)");
+                dbi.update("CREATE TABLE IF NOT EXISTS jsondb_cidx_built (idx VARCHAR PRIMARY KEY)");
+                dbi.update("CREATE TABLE IF NOT EXISTS jsondb_idx_built (idx VARCHAR PRIMARY KEY)");
             }
             if( databaseKind == DatabaseKind.H2 ) {
                 dbi.update("CREATE ALIAS IF NOT EXISTS split_part FOR \""+Strings.class.getName()+".splitPart\"");
@@ -143,10 +177,146 @@ public class SqlJsonDB implements JsonDB, WithGlobalTransaction {
 
     public void dropTables() {
         withTransaction(dbi -> {
+            dbi.update("DROP TABLE IF EXISTS jsondb_idx_built");
+            dbi.update("DROP TABLE IF EXISTS jsondb_cidx_built");
+            dbi.update("DROP TABLE IF EXISTS jsondb_cidx");
             dbi.update("DROP TABLE jsondb");
         });
     }
 
+    /**
+     * Indexes the stored values of the property indexes that have not been
+     * built on this database yet, needed when property indexes are added to a
+     * database that already holds data. Each index is built in a transaction
+     * that also records it as built in jsondb_idx_built.
+     * <p>
+     * Building an index reads the paths of all records of its collection and
+     * updates the matching ones in a single batch, so the first start after an
+     * index is declared takes time in proportion to the size of the collection.
+     * Later starts only read the markers of the built indexes.
+     */
+    public void rebuildPropertyIndexes() {
+        Set<String> built = fetchBuiltIndexes("jsondb_idx_built");
+        // property indexes used to be marked as built with the composite ones
+        Set<String> markedWithComposites = fetchBuiltIndexes("jsondb_cidx_built");
+
+        for (Index index : indexes) {
+            if (index.isComposite()) {
+                continue;
+            }
+            String idx = index.getPath() + "/#" + index.getField();
+            if (built.contains(idx)) {
+                continue;
+            }
+
+            String like = JsonRecordSupport.convertToDBPath(index.getPath()) + "%/" + index.getField() + "/";
+            try {
+                withTransaction(dbi -> {
+                    if (markedWithComposites.contains(idx)) {
+                        dbi.update("DELETE FROM jsondb_cidx_built WHERE idx = ?", idx);
+                    } else {
+                        List<String> paths = dbi.createQuery("SELECT path FROM jsondb WHERE path LIKE ?")
+                            .bind(0, like)
+                            .map(StringColumnMapper.INSTANCE).list();
+
+                        PreparedBatch batch = dbi.prepareBatch("UPDATE jsondb SET idx = ? WHERE path = ?");
+                        for (String path : paths) {
+                            // only the direct properties of the children are indexed
+                            Matcher matcher = JsonRecordSupport.INDEX_EXTRACTOR_PATTERN.matcher(path);
+                            if (matcher.matches() && idx.equals(matcher.replaceAll("$1/#$2"))) {
+                                batch.add(idx, path);
+                            }
+                        }
+                        if (batch.size() > 0) {
+                            batch.execute();
+                        }
+                    }
+
+                    dbi.update("INSERT INTO jsondb_idx_built (idx) VALUES (?)", idx);
+                });
+            } catch (@SuppressWarnings("PMD.AvoidCatchingGenericException") RuntimeException e) {
+                // fine if another instance built it at the same time
+                if (!fetchBuiltIndexes("jsondb_idx_built").contains(idx)) {
+                    throw e;
+                }
+                LOG.debug("Property index {} was built concurrently", idx, e);
+            }
+        }
+    }
+
+    /**
+     * Builds the entries of the composite indexes that have not been built on
+     * this database yet, needed when composite indexes are added to a database
+     * that already holds data. The entries of a collection are built in a
+     * single transaction that also records the indexes as built, so an
+     * interrupted build is redone on the next start and a completed one is not
+     * repeated. Lookups only use composite indexes that have been built.
+     */
+    public void rebuildCompositeIndexes() {
+        Set<String> built = fetchBuiltIndexes("jsondb_cidx_built");
+        builtCompositeIndexes.retainAll(built);
+        builtCompositeIndexes.addAll(built);
+
+        for (List<Index> collectionIndexes : compositeIndexes.all()) {
+            List<Index> missing = collectionIndexes.stream()
+                .filter(index -> !built.contains(CompositeIndexes.nameOf(index)))
+                .collect(Collectors.toList());
+            if (missing.isEmpty()) {
+                continue;
+            }
+
+            Set<String> names = missing.stream().map(CompositeIndexes::nameOf).collect(Collectors.toSet());
+            String collectionDBPath = JsonRecordSupport.convertToDBPath(missing.get(0).getPath());
+            try {
+                withGlobalTransaction(transacted -> ((SqlJsonDB) transacted).buildCompositeIndexes(collectionDBPath, missing));
+            } catch (@SuppressWarnings("PMD.AvoidCatchingGenericException") RuntimeException e) {
+                // fine if another instance built them at the same time
+                if (!fetchBuiltIndexes("jsondb_cidx_built").containsAll(names)) {
+                    throw e;
+                }
+                LOG.debug("Composite indexes {} were built concurrently", names, e);
+            }
+            builtCompositeIndexes.addAll(names);
+        }
+    }
+
+    private void buildCompositeIndexes(String collectionDBPath, List<Index> indexes) {
+        CompositeIndexes building = new CompositeIndexes(indexes);
+        withTransaction(dbi -> {
+            for (Index index : indexes) {
+                dbi.update("DELETE FROM jsondb_cidx WHERE idx = ?", CompositeIndexes.nameOf(index));
+            }
+        });
+
+        scan(collectionDBPath, new GetOptions(), (key, json) -> withTransaction(dbi -> {
+            BatchManager mb = new BatchManager(dbi, building);
+            Consumer<JsonRecord> insert = mb.createSetConsumer();
+            try (JsonParser jp = new JsonFactory().createParser(json)) {
+                JsonRecordSupport.jsonStreamToRecords(Collections.emptySet(), building, jp, collectionDBPath + key + "/", r -> {
+                    if (building.isCompositeIndex(r.getIndex())) {
+                        insert.accept(r);
+                    }
+                });
+            } catch (IOException e) {
+                throw new JsonDBException(e);
+            }
+            mb.flush();
+        }));
+
+        withTransaction(dbi -> {
+            for (Index index : indexes) {
+                dbi.update("INSERT INTO jsondb_cidx_built (idx) VALUES (?)", CompositeIndexes.nameOf(index));
+            }
+        });
+    }
+
+    private Set<String> fetchBuiltIndexes(String table) {
+        AtomicReference<List<String>> built = new AtomicReference<>();
+        withTransaction(dbi -> built.set(dbi.createQuery("SELECT idx FROM " + table)
+            .map(StringColumnMapper.INSTANCE).list()));
+        return new HashSet<>(built.get());
+    }
+
     @Override
     public String createKey() {
         return KeyGenerator.createKey();
@@ -174,99 +344,12 @@ public class SqlJsonDB implements JsonDB, WithGlobalTransaction {
 
         // Lets normalize the path a bit
         String baseDBPath = JsonRecordSupport.convertToDBPath(path);
-        String like = baseDBPath + "%";
-        GetOptions.Order order = o.order();
-        if( order == null ) {
-            order = GetOptions.Order.ASC;
-        }
 
         Consumer<OutputStream> result = null;
         final Handle h = dbi.open();
         try {
-
-            StringBuilder sql = new StringBuilder(250);
             // Creating the iterator could fail with a runtime exception,
-            ArrayList<Consumer<Query<Map<String, Object>>>> binds = new ArrayList<>();
-
-            if( o.filter() == null ) {
-                sql.append("select path,value,ovalue from jsondb where path LIKE :like");
-            } else {
-                sql.append("SELECT path,value,ovalue FROM jsondb A INNER JOIN (");
-                SqlExpressionBuilder.create(this, o.filter(), baseDBPath).build(sql, binds);
-                sql.append(") B ON A.path LIKE B.match_path||'%'");
-            }
-
-            if (o.startAfter() != null) {
-                String startAfter = validateKey(o.startAfter());
-                if (o.order() == GetOptions.Order.DESC) {
-                    sql.append(" and path <= :startAfter");
-                    binds.add(query -> {
-                        String bindPath = baseDBPath + startAfter;
-                        query.bind("startAfter", bindPath);
-                    });
-                } else {
-                    sql.append(" and path >= :startAfter");
-                    binds.add(query -> {
-                        String bindPath = baseDBPath + incrementKey(startAfter);
-                        query.bind("startAfter", bindPath);
-                    });
-                }
-            }
-            if (o.startAt() != null) {
-                String startAt = validateKey(o.startAt());
-                if (o.order() == GetOptions.Order.DESC) {
-                    sql.append(" and path < :startAt");
-                    binds.add(query -> {
-                        String bindPath = baseDBPath + incrementKey(startAt);
-                        query.bind("startAt", bindPath);
-                    });
-                } else {
-                    sql.append(" and path >= :startAt");
-                    binds.add(query -> {
-                        String bindPath = baseDBPath + startAt;
-                        query.bind("startAt", bindPath);
-                    });
-                }
-            }
-            if (o.endAt() != null) {
-                String endAt = validateKey(o.endAt());
-                if (o.order() == GetOptions.Order.DESC) {
-                    sql.append(" and path > :endAt");
-                    binds.add(query -> {
-                        String value = baseDBPath + endAt;
-                        query.bind("endAt", value);
-                    });
-                } else {
-                    sql.append(" and path < :endAt");
-                    binds.add(query -> {
-                        String bindPath = baseDBPath + incrementKey(endAt);
-                        query.bind("endAt", bindPath);
-                    });
-                }
-            }
-            if (o.endBefore() != null) {
-                String endBefore = validateKey(o.endBefore());
-                if (o.order() == GetOptions.Order.DESC) {
-                    sql.append(" and path >= :endBefore");
-                    binds.add(query -> {
-                        String value = baseDBPath + incrementKey(endBefore);
-                        query.bind("endBefore", value);
-                    });
-                } else {
-                    sql.append(" and path < :endBefore");
-                    binds.add(query -> {
-                        String value = baseDBPath + endBefore;
-                        query.bind("endBefore", value);
-                    });
-                }
-            }
-
-            sql.append(" order by path ").append(order);
-            Query<Map<String, Object>> query = h.createQuery(sql.toString()).bind("like", like);
-            for (Consumer<Query<Map<String, Object>>> bind : binds) {
-                bind.accept(query);
-            }
-            ResultIterator<JsonRecord> iterator = query.map(JsonRecordMapper.INSTANCE).iterator();
+            ResultIterator<JsonRecord> iterator = queryRecords(h, baseDBPath, o);
 
             try {
                 // At this point we know if we can produce results..
@@ -299,6 +382,360 @@ public class SqlJsonDB implements JsonDB, WithGlobalTransaction {
         return result;
     }
 
+    /**
+     * Reconstructs the JSON into a token buffer so that it can be bound by
+     * Jackson without being encoded to text and parsed again.
+     */
+    @Override
+    public JsonParser getAsParser(String path, GetOptions options) {
+        GetOptions o;
+        if (options != null) {
+            o = options;
+        } else {
+            o = new GetOptions();
+        }
+
+        String baseDBPath = JsonRecordSupport.convertToDBPath(path);
+        try (Handle h = dbi.open();
+             ResultIterator<JsonRecord> iterator = queryRecords(h, baseDBPath, o)) {
+            if (!iterator.hasNext()) {
+                return null;
+            }
+
+            TokenBuffer tokens = new TokenBuffer(null, false);
+            try (JsonRecordConsumer toTokens = new JsonRecordConsumer(baseDBPath, tokens, o)) {
+                while (!toTokens.isClosed() && iterator.hasNext()) {
+                    toTokens.accept(iterator.next());
+                }
+            }
+            return tokens.asParser();
+        } catch (IOException e) {
+            throw new JsonDBException(e);
+        }
+    }
+
+    private ResultIterator<JsonRecord> queryRecords(Handle h, String baseDBPath, GetOptions o) {
+        GetOptions.Order order = o.order();
+        if( order == null ) {
+            order = GetOptions.Order.ASC;
+        }
+
+        StringBuilder sql = new StringBuilder(250);
+        ArrayList<Consumer<Query<Map<String, Object>>>> binds = new ArrayList<>();
+
+        if( o.filter() == null ) {
+            sql.append("select path,value,ovalue from jsondb where path LIKE :like");
+        } else {
+            sql.append("SELECT path,value,ovalue FROM jsondb A INNER JOIN (");
+            SqlExpressionBuilder.create(this, o.filter(), baseDBPath).build(sql, binds);
+            sql.append(") B ON A.path LIKE B.match_path||'%'");
+        }
+
+        appendKeyRange(sql, binds, baseDBPath, o);
+
+        sql.append(" order by path ").append(order);
+        Query<Map<String, Object>> query = h.createQuery(sql.toString()).bind("like", baseDBPath + "%");
+        for (Consumer<Query<Map<String, Object>>> bind : binds) {
+            bind.accept(query);
+        }
+        return query.map(JsonRecordMapper.INSTANCE).iterator();
+    }
+
+    @Override
+    public String scan(String path, GetOptions options, BiConsumer<String, byte[]> consumer) {
+        return scanChildren(path, options, SqlJsonDB::toJson, consumer);
+    }
+
+    /**
+     * Scans like {@link #scan(String, GetOptions, BiConsumer)}, but each child
+     * is reconstructed into a token buffer instead of JSON text.
+     */
+    @Override
+    public String scanTokens(String path, GetOptions options, BiConsumer<String, JsonParser> consumer) {
+        return scanChildren(path, options, SqlJsonDB::toTokens, consumer);
+    }
+
+    private <T> String scanChildren(String path, GetOptions options, BiFunction<String, List<JsonRecord>, T> converter, BiConsumer<String, T> consumer) {
+        GetOptions o;
+        if (options != null) {
+            o = options;
+        } else {
+            o = new GetOptions();
+        }
+        if (o.filter() != null) {
+            throw new JsonDBException("Filters are not supported when scanning: " + path);
+        }
+
+        String baseDBPath = JsonRecordSupport.convertToDBPath(path);
+        Integer limit = o.limitToFirst();
+        if (limit != null && limit <= 0) {
+            return null;
+        }
+
+        // Fetch one more record than needed so single valued children can be
+        // emitted without a second round trip to find out they are complete.
+        int batchSize = SCAN_BATCH_SIZE;
+        if (limit != null && limit < SCAN_BATCH_SIZE) {
+            batchSize = limit + 1;
+        }
+
+        ChildRecords child = new ChildRecords(baseDBPath, o.order() == GetOptions.Order.DESC);
+        int emitted = 0;
+        String lastPath = null;
+        while (true) {
+            List<JsonRecord> batch = fetchScanBatch(baseDBPath, o, lastPath, batchSize);
+            for (JsonRecord record : batch) {
+                String key = child.keyOf(record);
+                if (key == null) {
+                    continue;
+                }
+                if (!key.equals(child.key) && child.key != null) {
+                    String done = child.emitTo(converter, consumer);
+                    emitted++;
+                    if (limit != null && emitted >= limit) {
+                        return done;
+                    }
+                }
+                child.add(key, record);
+            }
+
+            // A short batch means there is nothing more in the range.
+            if (batch.size() < batchSize) {
+                break;
+            }
+            lastPath = batch.get(batch.size() - 1).getPath();
+        }
+
+        if (child.key != null) {
+            String done = child.emitTo(converter, consumer);
+            emitted++;
+            if (limit != null && emitted >= limit) {
+                return done;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void getAll(String path, Collection<String> keys, BiConsumer<String, byte[]> consumer) {
+        String baseDBPath = JsonRecordSupport.convertToDBPath(path);
+        List<String> sorted = keys.stream()
+            .map(JsonRecordSupport::validateKey)
+            .distinct()
+            .sorted()
+            .collect(Collectors.toList());
+
+        ChildRecords child = new ChildRecords(baseDBPath, false);
+        for (int from = 0; from < sorted.size(); from += GET_ALL_BATCH_SIZE) {
+            List<String> batch = sorted.subList(from, Math.min(from + GET_ALL_BATCH_SIZE, sorted.size()));
+            for (JsonRecord record : fetchChildren(baseDBPath, batch)) {
+                String key = child.keyOf(record);
+                if (key == null) {
+                    continue;
+                }
+                if (!key.equals(child.key) && child.key != null) {
+                    child.emitTo(SqlJsonDB::toJson, consumer);
+                }
+                child.add(key, record);
+            }
+        }
+
+        if (child.key != null) {
+            child.emitTo(SqlJsonDB::toJson, consumer);
+        }
+    }
+
+    /**
+     * Reads all records of the given children using one key range per child so
+     * that the lookup can be served from the primary key index.
+     */
+    private List<JsonRecord> fetchChildren(String baseDBPath, List<String> keys) {
+        StringBuilder sql = new StringBuilder(100 + 40 * keys.size());
+        sql.append("select path,value,ovalue from jsondb where ");
+        for (int i = 0; i < keys.size(); i++) {
+            if (i > 0) {
+                sql.append(" or ");
+            }
+            // all records of a child are between "<key>/" and "<key>0" as '0'
+            // follows '/' in the character table
+            sql.append("(path >= :start").append(i).append(" and path < :end").append(i).append(')');
+        }
+        sql.append(" order by path ASC");
+
+        try (Handle h = dbi.open()) {
+            Query<Map<String, Object>> query = h.createQuery(sql.toString());
+            for (int i = 0; i < keys.size(); i++) {
+                String childPath = baseDBPath + keys.get(i);
+                query.bind("start" + i, childPath + "/");
+                query.bind("end" + i, childPath + "0");
+            }
+            return query.map(JsonRecordMapper.INSTANCE).list();
+        }
+    }
+
+    /**
+     * Reads the next batch of records of a scan. Each batch is read in its own short
+     * lived handle so the database connection is not held while the consumer is busy.
+     */
+    private List<JsonRecord> fetchScanBatch(String baseDBPath, GetOptions o, String lastPath, int batchSize) {
+        boolean descending = o.order() == GetOptions.Order.DESC;
+
+        StringBuilder sql = new StringBuilder(250);
+        ArrayList<Consumer<Query<Map<String, Object>>>> binds = new ArrayList<>();
+        sql.append("select path,value,ovalue from jsondb where path LIKE :like");
+        appendKeyRange(sql, binds, baseDBPath, o);
+        if (lastPath != null) {
+            sql.append(descending ? " and path < :lastPath" : " and path > :lastPath");
+            binds.add(query -> query.bind("lastPath", lastPath));
+        }
+        sql.append(" order by path ").append(descending ? GetOptions.Order.DESC : GetOptions.Order.ASC);
+        sql.append(" limit :batchSize");
+
+        try (Handle h = dbi.open()) {
+            Query<Map<String, Object>> query = h.createQuery(sql.toString())
+                .bind("like", baseDBPath + "%")
+                .bind("batchSize", batchSize);
+            for (Consumer<Query<Map<String, Object>>> bind : binds) {
+                bind.accept(query);
+            }
+            return query.map(JsonRecordMapper.INSTANCE).list();
+        }
+    }
+
+    /**
+     * Collects the records of the child currently being scanned.
+     */
+    private static final class ChildRecords {
+
+        private final String baseDBPath;
+        private final boolean descending;
+        private final List<JsonRecord> records = new ArrayList<>();
+        private String key;
+
+        ChildRecords(String baseDBPath, boolean descending) {
+            this.baseDBPath = baseDBPath;
+            this.descending = descending;
+        }
+
+        String keyOf(JsonRecord record) {
+            String relative = record.getPath().substring(baseDBPath.length());
+            int end = relative.indexOf('/');
+            if (end <= 0) {
+                // the scanned path holds a value and not an object
+                return null;
+            }
+            return relative.substring(0, end);
+        }
+
+        void add(String childKey, JsonRecord record) {
+            key = childKey;
+            records.add(record);
+        }
+
+        <T> String emitTo(BiFunction<String, List<JsonRecord>, T> converter, BiConsumer<String, T> consumer) {
+            if (descending) {
+                // the records of a child need to be in path order to rebuild it
+                Collections.reverse(records);
+            }
+
+            String emitted = key;
+            consumer.accept(emitted, converter.apply(baseDBPath + key + "/", records));
+            records.clear();
+            key = null;
+            return emitted;
+        }
+    }
+
+    private static byte[] toJson(String baseDBPath, List<JsonRecord> records) {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        try (JsonRecordConsumer toJson = new JsonRecordConsumer(baseDBPath, os, new GetOptions())) {
+            for (JsonRecord record : records) {
+                toJson.accept(record);
+            }
+        } catch (IOException e) {
+            throw new JsonDBException(e);
+        }
+        return os.toByteArray();
+    }
+
+    private static JsonParser toTokens(String baseDBPath, List<JsonRecord> records) {
+        TokenBuffer tokens = new TokenBuffer(null, false);
+        try (JsonRecordConsumer toTokens = new JsonRecordConsumer(baseDBPath, tokens, new GetOptions())) {
+            for (JsonRecord record : records) {
+                toTokens.accept(record);
+            }
+        } catch (IOException e) {
+            throw new JsonDBException(e);
+        }
+        return tokens.asParser();
+    }
+
+    private static void appendKeyRange(StringBuilder sql, List<Consumer<Query<Map<String, Object>>>> binds, String baseDBPath, GetOptions o) {
+        if (o.startAfter() != null) {
+            String startAfter = validateKey(o.startAfter());
+            if (o.order() == GetOptions.Order.DESC) {
+                sql.append(" and path <= :startAfter");
+                binds.add(query -> {
+                    String bindPath = baseDBPath + startAfter;
+                    query.bind("startAfter", bindPath);
+                });
+            } else {
+                sql.append(" and path >= :startAfter");
+                binds.add(query -> {
+                    String bindPath = baseDBPath + incrementKey(startAfter);
+                    query.bind("startAfter", bindPath);
+                });
+            }
+        }
+        if (o.startAt() != null) {
+            String startAt = validateKey(o.startAt());
+            if (o.order() == GetOptions.Order.DESC) {
+                sql.append(" and path < :startAt");
+                binds.add(query -> {
+                    String bindPath = baseDBPath + incrementKey(startAt);
+                    query.bind("startAt", bindPath);
+                });
+            } else {
+                sql.append(" and path >= :startAt");
+                binds.add(query -> {
+                    String bindPath = baseDBPath + startAt;
+                    query.bind("startAt", bindPath);
+                });
+            }
+        }
+        if (o.endAt() != null) {
+            String endAt = validateKey(o.endAt());
+            if (o.order() == GetOptions.Order.DESC) {
+                sql.append(" and path > :endAt");
+                binds.add(query -> {
+                    String value = baseDBPath + endAt;
+                    query.bind("endAt", value);
+                });
+            } else {
+                sql.append(" and path < :endAt");
+                binds.add(query -> {
+                    String bindPath = baseDBPath + incrementKey(endAt);
+                    query.bind("endAt", bindPath);
+                });
+            }
+        }
+        if (o.endBefore() != null) {
+            String endBefore = validateKey(o.endBefore());
+            if (o.order() == GetOptions.Order.DESC) {
+                sql.append(" and path >= :endBefore");
+                binds.add(query -> {
+                    String value = baseDBPath + incrementKey(endBefore);
+                    query.bind("endBefore", value);
+                });
+            } else {
+                sql.append(" and path < :endBefore");
+                binds.add(query -> {
+                    String value = baseDBPath + endBefore;
+                    query.bind("endBefore", value);
+                });
+            }
+        }
+    }
 
     @Override
     public boolean delete(String path) {
@@ -307,6 +744,10 @@ public class SqlJsonDB implements JsonDB, WithGlobalTransaction {
         boolean rc[] = new boolean[]{false};
         withTransaction(dbi -> {
             rc[0] = deleteJsonRecords(dbi, baseDBPath, like) > 0;
+            if (!compositeIndexes.isEmpty()) {
+                deleteCompositeIndexRecords(dbi, baseDBPath, like);
+                refreshCompositeIndexes(dbi, baseDBPath);
+            }
         });
         if( bus!=null && rc[0] ) {
             bus.broadcast("jsondb-deleted", prefix(trimSuffix(path, "/"), "/"));
@@ -357,6 +798,61 @@ public class SqlJsonDB implements JsonDB, WithGlobalTransaction {
         }
     }
 
+    /**
+     * Picks the composite indexes covering most of the given properties and
+     * intersects their matches with the lookups of the remaining properties.
+     */
+    @Override
+    public Set<String> fetchIdsByPropertyValues(final String collectionPath, final Map<String, String> propertyValues) {
+        if (builtCompositeIndexes.isEmpty()) {
+            return JsonDB.super.fetchIdsByPropertyValues(collectionPath, propertyValues);
+        }
+
+        String collectionDBPath = JsonRecordSupport.convertToDBPath(collectionPath);
+        Map<String, String> remaining = new LinkedHashMap<>(propertyValues);
+        Set<String> matching = null;
+
+        Index index = compositeIndexes.bestFor(collectionDBPath, remaining.keySet(), builtCompositeIndexes);
+        while (index != null) {
+            Map<String, String> fieldValues = new HashMap<>();
+            for (String field : index.getFields()) {
+                fieldValues.put(field, STRING_VALUE_PREFIX + remaining.remove(field));
+            }
+
+            String idx = CompositeIndexes.nameOf(index);
+            String value = CompositeIndexes.valueOf(index, fieldValues);
+            AtomicReference<List<String>> paths = new AtomicReference<>();
+            withTransaction(dbi -> paths.set(dbi.createQuery("SELECT path FROM jsondb_cidx WHERE idx = ? AND value = ?")
+                .bind(0, idx)
+                .bind(1, value)
+                .map(StringColumnMapper.INSTANCE).list()));
+
+            Set<String> ids = paths.get().stream()
+                .map(x -> trimSuffix(x, "/"))
+                .collect(Collectors.toCollection(HashSet::new));
+            matching = intersect(matching, ids);
+            if (matching.isEmpty()) {
+                return matching;
+            }
+
+            index = compositeIndexes.bestFor(collectionDBPath, remaining.keySet(), builtCompositeIndexes);
+        }
+
+        if (!remaining.isEmpty()) {
+            matching = intersect(matching, JsonDB.super.fetchIdsByPropertyValues(collectionPath, remaining));
+        }
+
+        return matching;
+    }
+
+    private static Set<String> intersect(Set<String> matching, Set<String> ids) {
+        if (matching == null) {
+            return ids;
+        }
+        matching.retainAll(ids);
+        return matching;
+    }
+
     protected Set<String> fetchIdsByPropertyValueFullTableScan(final String collectionPath, final String property, final String value) {
         final String pathRegex = collectionPath + "/:[^/]+/" + property;
 
@@ -383,6 +879,94 @@ public class SqlJsonDB implements JsonDB, WithGlobalTransaction {
         return ret.get();
     }
 
+    @Override
+    public boolean isQueryable(final String collectionPath, final String property) {
+        String path = prefix(trimSuffix(collectionPath, "/"), "/");
+        return indexPaths.contains(path + "/#" + property);
+    }
+
+    /**
+     * Lists the children from the rows of their indexed id property, joins the
+     * rows of the sort property and of the filtered properties by their paths
+     * and lets the database order and page them. Collections without an index
+     * on the id property of their children can not be listed this way.
+     */
+    @Override
+    public ListResult<String> fetchKeysOrderedBy(final String collectionPath, final Map<String, String> propertyValues, final String property,
+                                                 final GetOptions.Order order, final int offset, final int limit) {
+        if (!isQueryable(collectionPath, KEY_PROPERTY)
+            || property != null && !isQueryable(collectionPath, property)
+            || propertyValues.keySet().stream().anyMatch(p -> !isQueryable(collectionPath, p))) {
+            return null;
+        }
+
+        String baseDBPath = JsonRecordSupport.convertToDBPath(collectionPath);
+        String idxPrefix = trimSuffix(baseDBPath, "/") + "/#";
+        // the path of a child with the trailing slash, from the path of its id
+        String childPath = "substr(k.path, 1, length(k.path) - " + (KEY_PROPERTY.length() + 1) + ")";
+
+        StringBuilder where = new StringBuilder(" WHERE k.idx = ?");
+        List<Object> whereParams = new ArrayList<>();
+        whereParams.add(idxPrefix + KEY_PROPERTY);
+        for (Map.Entry<String, String> propertyValue : propertyValues.entrySet()) {
+            where.append(" AND EXISTS (SELECT 1 FROM jsondb f WHERE f.path = ").append(childPath)
+                .append(" || ? AND f.idx = ? AND f.value = ?)");
+            whereParams.add(propertyValue.getKey() + "/");
+            whereParams.add(idxPrefix + propertyValue.getKey());
+            whereParams.add(STRING_VALUE_PREFIX + propertyValue.getValue());
+        }
+
+        StringBuilder query = new StringBuilder("SELECT k.path FROM jsondb k");
+        List<Object> params = new ArrayList<>();
+        String orderBy = " ORDER BY k.path";
+        if (property != null) {
+            query.append(" LEFT JOIN jsondb s ON s.path = ").append(childPath).append(" || ? AND s.idx = ?");
+            params.add(property + "/");
+            params.add(idxPrefix + property);
+
+            // values compare like Java strings, the path column already does
+            String value = databaseKind == DatabaseKind.PostgreSQL ? "s.value COLLATE \"C\"" : "s.value";
+            if (order == GetOptions.Order.DESC) {
+                orderBy = " ORDER BY CASE WHEN s.value IS NULL THEN 1 ELSE 0 END, " + value + " DESC, k.path";
+            } else {
+                orderBy = " ORDER BY CASE WHEN s.value IS NULL THEN 0 ELSE 1 END, " + value + ", k.path";
+            }
+        } else if (order == GetOptions.Order.DESC) {
+            orderBy = " ORDER BY k.path DESC";
+        }
+        query.append(where).append(orderBy).append(" LIMIT ? OFFSET ?");
+        params.addAll(whereParams);
+        params.add(limit);
+        params.add(offset);
+
+        String keySuffix = "/" + KEY_PROPERTY + "/";
+        AtomicReference<ListResult<String>> result = new AtomicReference<>();
+        withTransaction(dbi -> {
+            Query<Map<String, Object>> keysQuery = dbi.createQuery(query.toString());
+            for (int i = 0; i < params.size(); i++) {
+                keysQuery.bind(i, params.get(i));
+            }
+            List<String> keys = keysQuery.map(StringColumnMapper.INSTANCE).list().stream()
+                .map(path -> path.substring(baseDBPath.length(), path.length() - keySuffix.length()))
+                .collect(Collectors.toList());
+
+            int totalCount;
+            if (offset == 0 && keys.size() < limit) {
+                // a page that is not full holds all matching children
+                totalCount = keys.size();
+            } else {
+                Query<Map<String, Object>> countQuery = dbi.createQuery("SELECT COUNT(*) FROM jsondb k" + where);
+                for (int i = 0; i < whereParams.size(); i++) {
+                    countQuery.bind(i, whereParams.get(i));
+                }
+                totalCount = countQuery.map(IntegerColumnMapper.PRIMITIVE).first();
+            }
+
+            result.set(new ListResult.Builder<String>().items(keys).totalCount(totalCount).build());
+        });
+        return result.get();
+    }
+
     @Override
     public String push(String path, InputStream body) {
         String key = createKey();
@@ -393,20 +977,37 @@ public class SqlJsonDB implements JsonDB, WithGlobalTransaction {
     static class BatchManager {
 
         private final Handle dbi;
+        private final CompositeIndexes compositeIndexes;
         private long batchSize;
         private PreparedBatch insertBatch;
+        private PreparedBatch compositeIndexBatch;
 
-        BatchManager(Handle dbi) {
+        BatchManager(Handle dbi, CompositeIndexes compositeIndexes) {
             this.dbi = dbi;
+            this.compositeIndexes = compositeIndexes;
         }
 
         public void deleteRecordsForSet(String baseDBPath) {
             String like = baseDBPath + "%";
             deleteJsonRecords(dbi, baseDBPath, like);
+            if (!compositeIndexes.isEmpty()) {
+                deleteCompositeIndexRecords(dbi, baseDBPath, like);
+            }
         }
 
         public Consumer<JsonRecord> createSetConsumer() {
             return r -> {
+                if (compositeIndexes.isCompositeIndex(r.getIndex())) {
+                    if (compositeIndexBatch == null) {
+                        compositeIndexBatch = dbi.prepareBatch("INSERT into jsondb_cidx (idx, value, path) values (:idx, :value, :path)");
+                    }
+                    compositeIndexBatch.bind("idx", r.getIndex())
+                        .bind("value", r.getValue())
+                        .bind("path", r.getPath())
+                        .add();
+                    return;
+                }
+
                 PreparedBatch insert = getInsertBatch();
                 insert.bind("path", r.getPath())
                     .bind("value", r.getValue())
@@ -434,21 +1035,25 @@ public class SqlJsonDB implements JsonDB, WithGlobalTransaction {
                 insertBatch.execute();
 
             }
+            if (compositeIndexBatch != null && compositeIndexBatch.size() > 0) {
+                compositeIndexBatch.execute();
+            }
         }
     }
 
     @Override
     public void set(String path, InputStream body) {
         withTransaction(dbi -> {
-            BatchManager mb = new BatchManager(dbi);
+            BatchManager mb = new BatchManager(dbi, compositeIndexes);
             String baseDBPath = JsonRecordSupport.convertToDBPath(path);
             mb.deleteRecordsForSet(baseDBPath);
             try {
-                JsonRecordSupport.jsonStreamToRecords(indexPaths, baseDBPath, body, mb.createSetConsumer());
+                JsonRecordSupport.jsonStreamToRecords(indexPaths, compositeIndexes, baseDBPath, body, mb.createSetConsumer());
             } catch (IOException e) {
                 throw new JsonDBException(e);
             }
             mb.flush();
+            refreshCompositeIndexes(dbi, baseDBPath);
         });
         if( bus!=null ) {
             bus.broadcast("jsondb-updated", prefix(trimSuffix(path, "/"), "/"));
@@ -460,7 +1065,8 @@ public class SqlJsonDB implements JsonDB, WithGlobalTransaction {
         ArrayList<String> updatePaths = new ArrayList<>();
         withTransaction(dbi -> {
             try {
-                BatchManager mb = new BatchManager(dbi);
+                BatchManager mb = new BatchManager(dbi, compositeIndexes);
+                Set<String> updatedPaths = new HashSet<>();
 
                 try (JsonParser jp = new JsonFactory().createParser(is)) {
                     JsonToken nextToken = jp.nextToken();
@@ -484,10 +1090,11 @@ public class SqlJsonDB implements JsonDB, WithGlobalTransaction {
                         mb.deleteRecordsForSet(baseDBPath);
 
                         try {
-                            JsonRecordSupport.jsonStreamToRecords(indexPaths, jp, baseDBPath, mb.createSetConsumer());
+                            JsonRecordSupport.jsonStreamToRecords(indexPaths, compositeIndexes, jp, baseDBPath, mb.createSetConsumer());
                         } catch (IOException e) {
                             throw new JsonDBException(e);
                         }
+                        updatedPaths.add(baseDBPath);
                     }
 
                     nextToken = jp.nextToken();
@@ -495,6 +1102,9 @@ public class SqlJsonDB implements JsonDB, WithGlobalTransaction {
                         throw new JsonParseException(jp, "Document did not terminate as expected.");
                     }
                     mb.flush();
+                    for (String baseDBPath : updatedPaths) {
+                        refreshCompositeIndexes(dbi, baseDBPath);
+                    }
                 }
             } catch (IOException e) {
                 throw new JsonDBException(e);
@@ -509,6 +1119,109 @@ public class SqlJsonDB implements JsonDB, WithGlobalTransaction {
     }
 
 
+    /**
+     * Replaces the value at the path like {@link #set(String, InputStream)}
+     * does, but compares the records of the new document with the stored
+     * ones so that only the records that were added, changed or removed are
+     * written. Replacing a large document after a small change touches only
+     * a handful of rows instead of deleting and re-inserting all of them.
+     */
+    @Override
+    public void replace(String path, InputStream body) {
+        AtomicBoolean changed = new AtomicBoolean();
+        withTransaction(dbi -> {
+            String baseDBPath = JsonRecordSupport.convertToDBPath(path);
+            String like = baseDBPath + "%";
+
+            Map<String, JsonRecord> existing = new HashMap<>();
+            try (ResultIterator<JsonRecord> records = dbi.createQuery("SELECT path, value, ovalue, idx FROM jsondb WHERE path LIKE :like")
+                .bind("like", like)
+                .map(IndexedJsonRecordMapper.INSTANCE)
+                .iterator()) {
+                while (records.hasNext()) {
+                    JsonRecord record = records.next();
+                    existing.put(record.getPath(), record);
+                }
+            }
+
+            Deque<String> parentPaths = getAllParentPaths(baseDBPath);
+            if (!parentPaths.isEmpty() && deleteParentRecords(dbi, parentPaths) > 0) {
+                changed.set(true);
+            }
+
+            BatchManager mb = new BatchManager(dbi, compositeIndexes);
+            Consumer<JsonRecord> insert = mb.createSetConsumer();
+            PreparedBatch updateBatch = dbi.prepareBatch("UPDATE jsondb SET value = :value, ovalue = :ovalue, idx = :idx WHERE path = :path");
+            List<JsonRecord> compositeRecords = new ArrayList<>();
+            try {
+                JsonRecordSupport.jsonStreamToRecords(indexPaths, compositeIndexes, baseDBPath, body, record -> {
+                    if (compositeIndexes.isCompositeIndex(record.getIndex())) {
+                        compositeRecords.add(record);
+                        return;
+                    }
+
+                    JsonRecord current = existing.remove(record.getPath());
+                    if (current == null) {
+                        insert.accept(record);
+                        changed.set(true);
+                    } else if (!sameContent(current, record)) {
+                        updateBatch.bind("path", record.getPath())
+                            .bind("value", record.getValue())
+                            .bind("ovalue", record.getOValue())
+                            .bind("idx", record.getIndex())
+                            .add();
+                        changed.set(true);
+                    }
+                });
+            } catch (IOException e) {
+                throw new JsonDBException(e);
+            }
+
+            if (!existing.isEmpty()) {
+                PreparedBatch deleteBatch = dbi.prepareBatch("DELETE FROM jsondb WHERE path = :path");
+                for (String removed : existing.keySet()) {
+                    deleteBatch.bind("path", removed).add();
+                }
+                deleteBatch.execute();
+                changed.set(true);
+            }
+
+            if (!changed.get()) {
+                return;
+            }
+
+            if (!compositeIndexes.isEmpty()) {
+                deleteCompositeIndexRecords(dbi, baseDBPath, like);
+                compositeRecords.forEach(insert);
+            }
+            mb.flush();
+            if (updateBatch.size() > 0) {
+                updateBatch.execute();
+            }
+            refreshCompositeIndexes(dbi, baseDBPath);
+        });
+        if (bus != null && changed.get()) {
+            bus.broadcast("jsondb-updated", prefix(trimSuffix(path, "/"), "/"));
+        }
+    }
+
+    private static boolean sameContent(JsonRecord a, JsonRecord b) {
+        return Objects.equals(a.getValue(), b.getValue())
+            && Objects.equals(a.getOValue(), b.getOValue())
+            && Objects.equals(a.getIndex(), b.getIndex());
+    }
+
+    private static int deleteParentRecords(Handle dbi, Collection<String> parentPaths) {
+        StringBuilder sql = new StringBuilder("DELETE FROM jsondb WHERE path IN (");
+        for (int i = 0; i < parentPaths.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(')');
+
+        return dbi.update(sql.toString(), parentPaths.toArray());
+    }
+
+
     private static int deleteJsonRecords(Handle dbi, String baseDBPath, String like) {
 
         ArrayList<String> expressions = new ArrayList<>();
@@ -526,6 +1239,70 @@ public class SqlJsonDB implements JsonDB, WithGlobalTransaction {
         return dbi.update(sql.toString(), queryParams.toArray());
     }
 
+    private static int deleteCompositeIndexRecords(Handle dbi, String baseDBPath, String like) {
+
+        ArrayList<String> expressions = new ArrayList<>();
+        ArrayList<String> queryParams = new ArrayList<>();
+        // entries are kept at the path of the indexed object so removing any
+        // of its parents or fields removes the entry
+        for (String p : getAllParentPaths(baseDBPath)) {
+            expressions.add("path = ?");
+            queryParams.add(p);
+        }
+        expressions.add("path LIKE ?");
+        queryParams.add(like);
+
+        StringBuilder sql = new StringBuilder("DELETE FROM jsondb_cidx WHERE ");
+        sql.append(String.join(" OR ", expressions));
+
+        return dbi.update(sql.toString(), queryParams.toArray());
+    }
+
+    /**
+     * When only some of the fields of an object covered by composite indexes
+     * were written or deleted its composite index entries are recomputed from
+     * the stored fields.
+     */
+    private void refreshCompositeIndexes(Handle dbi, String baseDBPath) {
+        String objectPath = compositeIndexes.objectPathContaining(baseDBPath);
+        if (objectPath == null) {
+            return;
+        }
+
+        List<Index> objectIndexes = compositeIndexes.forObject(objectPath);
+        Set<String> fields = new HashSet<>();
+        for (Index index : objectIndexes) {
+            fields.addAll(index.getFields());
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT path, value, ovalue FROM jsondb WHERE path IN (");
+        List<String> paths = new ArrayList<>(fields.size());
+        for (String field : fields) {
+            sql.append(paths.isEmpty() ? "?" : ", ?");
+            paths.add(objectPath + field + "/");
+        }
+        sql.append(')');
+
+        Query<Map<String, Object>> query = dbi.createQuery(sql.toString());
+        for (int i = 0; i < paths.size(); i++) {
+            query.bind(i, paths.get(i));
+        }
+
+        Map<String, String> fieldValues = new HashMap<>();
+        for (JsonRecord record : query.map(JsonRecordMapper.INSTANCE).list()) {
+            String path = record.getPath();
+            fieldValues.put(path.substring(objectPath.length(), path.length() - 1), record.getValue());
+        }
+
+        dbi.update("DELETE FROM jsondb_cidx WHERE path = ?", objectPath);
+        for (Index index : objectIndexes) {
+            String value = CompositeIndexes.valueOf(index, fieldValues);
+            if (value != null) {
+                dbi.update("INSERT INTO jsondb_cidx (idx, value, path) values (?, ?, ?)", CompositeIndexes.nameOf(index), value, objectPath);
+            }
+        }
+    }
+
     private static Deque<String> getAllParentPaths(String baseDBPath) {
         Deque<String> params = new ArrayDeque<>();
         Pattern compile = Pattern.compile("/[^/]*$");
@@ -555,7 +1332,15 @@ public class SqlJsonDB implements JsonDB, WithGlobalTransaction {
         }
     }
 
-    private void withTransaction(Consumer<Handle> cb) {
+    private static class IndexedJsonRecordMapper implements ResultSetMapper<JsonRecord> {
+        private static final IndexedJsonRecordMapper INSTANCE = new IndexedJsonRecordMapper();
+        @Override
+        public JsonRecord map(int index, ResultSet r, StatementContext ctx) throws SQLException {
+            return JsonRecord.of(r.getString("path"), r.getString("value"), r.getString("ovalue"), r.getString("idx"));
+        }
+    }
+
+    protected void withTransaction(Consumer<Handle> cb) {
         try (Handle h = dbi.open()) {
             try {
                 h.begin();
@@ -590,7 +1375,7 @@ public class SqlJsonDB implements JsonDB, WithGlobalTransaction {
 
             try (Connection connection = handle.getConnection(); Connection transacted = withoutTransactionControl(connection)) {
                 final TransactedEventBus transactedBus = new TransactedEventBus(bus);
-                final SqlJsonDB checkpointed = new SqlJsonDB(new DBI(() -> transacted), transactedBus);
+                final SqlJsonDB checkpointed = newTransactedInstance(new DBI(() -> transacted), transactedBus);
 
                 boolean committed = false;
                 try {
@@ -612,6 +1397,14 @@ public class SqlJsonDB implements JsonDB, WithGlobalTransaction {
         }
     }
 
+    /**
+     * Creates the instance handed to {@link #withGlobalTransaction(Consumer)},
+     * working on the connection of the global transaction.
+     */
+    protected SqlJsonDB newTransactedInstance(DBI transactedDBI, EventBus transactedBus) {
+        return new SqlJsonDB(transactedDBI, transactedBus, indexes);
+    }
+
     private static Connection withoutTransactionControl(Connection connection) {
         return (Connection) Proxy.newProxyInstance(SqlJsonDB.class.getClassLoader(), new Class<?>[] { Connection.class }, (proxy, method, args) -> {
             // we control the transaction not the DBI or the consumer
@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.server.jsondb.dao;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import io.syndesis.common.model.ListResult;
+import io.syndesis.common.model.integration.Integration;
+import io.syndesis.server.jsondb.impl.Index;
+import io.syndesis.server.jsondb.impl.SqlJsonDB;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.skife.jdbi.v2.DBI;
+
+import static io.syndesis.server.jsondb.dao.QueryOperators.nameIs;
+import static io.syndesis.server.jsondb.dao.QueryOperators.page;
+import static io.syndesis.server.jsondb.dao.QueryOperators.sortBy;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JsonDbDaoQueryTest {
+
+    private SqlJsonDB jsondb;
+
+    private JsonDbDao<Integration> dao;
+
+    @BeforeEach
+    public void before() {
+        JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:dao;DB_CLOSE_DELAY=-1;MODE=PostgreSQL");
+
+        jsondb = new SqlJsonDB(new DBI(ds), null, Arrays.asList(
+            new Index("/integrations", "id"),
+            new Index("/integrations", "name"),
+            new Index("/integrations", "description")));
+        try {
+            jsondb.dropTables();
+        } catch (@SuppressWarnings("PMD.AvoidCatchingGenericException") RuntimeException ignored) {
+            // tables did not exist
+        }
+        jsondb.createTables();
+
+        dao = new JsonDbDao<Integration>(jsondb) {
+            @Override
+            public Class<Integration> getType() {
+                return Integration.class;
+            }
+        };
+
+        // created out of name order so the key order differs
+        dao.create(new Integration.Builder().id("1").name("d").description("x").version(1).build());
+        dao.create(new Integration.Builder().id("2").name("b").description("z").version(2).build());
+        dao.create(new Integration.Builder().id("3").name("e").version(3).build());
+        dao.create(new Integration.Builder().id("4").name("a").description("y").version(4).build());
+        dao.create(new Integration.Builder().id("5").name("c").description("x").version(5).build());
+    }
+
+    @Test
+    public void shouldQueryPageWithTotalCount() {
+        ListResult<Integration> result = fetchAll(sortBy("name", Integration::getName, false), page(1, 2));
+
+        assertThat(names(result)).containsExactly("b", "c");
+        assertThat(result.getTotalCount()).isEqualTo(5);
+
+        result = fetchAll(sortBy("name", Integration::getName, true), page(0, 2));
+        assertThat(names(result)).containsExactly("e", "d");
+        assertThat(result.getTotalCount()).isEqualTo(5);
+    }
+
+    @Test
+    public void shouldClampPages() {
+        ListResult<Integration> result = fetchAll(sortBy("name", Integration::getName, false), page(4, 10));
+        assertThat(names(result)).containsExactly("e");
+        assertThat(result.getTotalCount()).isEqualTo(5);
+
+        result = fetchAll(sortBy("name", Integration::getName, false), page(10, 10));
+        assertThat(result.getItems()).isEmpty();
+        assertThat(result.getTotalCount()).isEqualTo(5);
+    }
+
+    @Test
+    public void shouldPageInKeyOrderWithoutSorter() {
+        ListResult<Integration> result = fetchAll(page(1, 3));
+
+        assertThat(names(result)).containsExactly("b", "e", "a");
+        assertThat(result.getTotalCount()).isEqualTo(5);
+    }
+
+    @Test
+    public void shouldOrderMissingValuesFirst() {
+        Function<Integration, String> description = integration -> integration.getDescription().orElse(null);
+
+        // sorts are stable, so ties keep the key order
+        assertThat(names(fetchAll(sortBy("description", description, false), page(0, 5))))
+            .containsExactly("e", "d", "c", "a", "b");
+        assertThat(names(fetchAll(sortBy("description", description, true), page(0, 5))))
+            .containsExactly("b", "a", "d", "c", "e");
+
+        // the same order as sorting in memory
+        ListResult<Integration> all = dao.fetchAll();
+        assertThat(names(page(0, 5).apply(sortBy("description", description, false).apply(all))))
+            .containsExactly("e", "d", "c", "a", "b");
+    }
+
+    @Test
+    public void shouldQueryByPropertyValue() {
+        ListResult<Integration> result = fetchAll(nameIs("c"), sortBy("name", Integration::getName, false), page(0, 10));
+
+        assertThat(names(result)).containsExactly("c");
+        assertThat(result.getTotalCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldApplyRemainingOperatorsToThePage() {
+        Function<ListResult<Integration>, ListResult<Integration>> withoutB = result -> ListResult.of(
+            result.getItems().stream().filter(i -> !"b".equals(i.getName())).collect(Collectors.toList()));
+
+        ListResult<Integration> result = fetchAll(sortBy("name", Integration::getName, false), page(0, 3), withoutB);
+
+        // only the page is read, the filter after it sees the page alone
+        assertThat(names(result)).containsExactly("a", "c");
+    }
+
+    @Test
+    public void shouldFallBackWhenNotQueryable() {
+        // not indexed, sorted and paged in memory
+        ListResult<Integration> result = fetchAll(sortBy("version", integration -> String.valueOf(integration.getVersion()), true), page(0, 2));
+        assertThat(names(result)).containsExactly("c", "a");
+        assertThat(result.getTotalCount()).isEqualTo(5);
+
+        // a leading operator that can't be translated is applied to everything
+        Function<ListResult<Integration>, ListResult<Integration>> identity = Function.identity();
+        result = fetchAll(identity, sortBy("name", Integration::getName, false), page(0, 2));
+        assertThat(names(result)).containsExactly("a", "b");
+        assertThat(result.getTotalCount()).isEqualTo(5);
+    }
+
+    @SafeVarargs
+    private final ListResult<Integration> fetchAll(Function<ListResult<Integration>, ListResult<Integration>>... operators) {
+        return dao.fetchAll(operators);
+    }
+
+    private static List<String> names(ListResult<Integration> result) {
+        return result.getItems().stream().map(Integration::getName).collect(Collectors.toList());
+    }
+}
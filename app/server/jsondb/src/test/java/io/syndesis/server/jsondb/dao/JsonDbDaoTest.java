@@ -26,6 +26,7 @@ import io.syndesis.common.model.connection.ConnectionOverview;
 import io.syndesis.common.model.validation.TargetWithDomain;
 import io.syndesis.server.jsondb.JsonDB;
 
+import com.fasterxml.jackson.core.JsonFactory;
 import org.immutables.value.Value;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -46,7 +47,7 @@ public class JsonDbDaoTest<T extends WithId<T> & WithUsage> {
     @MethodSource("parameters")
     public void shouldDeserializeUsage(final JsonDbDao<T> dao) {
         final String path = "/" + Kind.from(dao.getType()).getPluralModelName() + "/:id";
-        when(JSONDB.getAsByteArray(path)).thenReturn(JSON_BYTES);
+        when(JSONDB.getAsParser(path, null)).thenAnswer(invocation -> new JsonFactory().createParser(JSON_BYTES));
 
         final T fetched = dao.fetch("id");
 
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.server.jsondb.dao;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import io.syndesis.common.model.ListResult;
+import io.syndesis.common.model.integration.Integration;
+import io.syndesis.server.dao.manager.operators.PageFilter;
+import io.syndesis.server.dao.manager.operators.PropertySorter;
+import io.syndesis.server.dao.manager.operators.PropertyValueFilter;
+
+/**
+ * Operators on integrations that can be translated to queries, they apply
+ * the same in memory for the cases that can't.
+ */
+public final class QueryOperators {
+
+    private QueryOperators() {
+        // utility class
+    }
+
+    public static PropertySorter<Integration> sortBy(String property, Function<Integration, String> value, boolean descending) {
+        return new PropertySorter<Integration>() {
+            @Override
+            public ListResult<Integration> apply(ListResult<Integration> result) {
+                Comparator<Integration> comparator = Comparator.comparing(value, Comparator.nullsFirst(Comparator.<String>naturalOrder()));
+                List<Integration> items = new ArrayList<>(result.getItems());
+                items.sort(descending ? comparator.reversed() : comparator);
+                return new ListResult.Builder<Integration>().createFrom(result).items(items).build();
+            }
+
+            @Override
+            public String getSortProperty() {
+                return property;
+            }
+
+            @Override
+            public boolean isDescending() {
+                return descending;
+            }
+        };
+    }
+
+    public static PageFilter<Integration> page(int offset, int limit) {
+        return new PageFilter<Integration>() {
+            @Override
+            public ListResult<Integration> apply(ListResult<Integration> result) {
+                List<Integration> items = result.getItems();
+                int from = Math.min(offset, items.size());
+                return new ListResult.Builder<Integration>().createFrom(result)
+                    .items(items.subList(from, Math.min(from + limit, items.size())))
+                    .build();
+            }
+
+            @Override
+            public int getOffset() {
+                return offset;
+            }
+
+            @Override
+            public int getLimit() {
+                return limit;
+            }
+        };
+    }
+
+    public static PropertyValueFilter<Integration> nameIs(String name) {
+        return new PropertyValueFilter<Integration>() {
+            @Override
+            public ListResult<Integration> apply(ListResult<Integration> result) {
+                List<Integration> items = result.getItems().stream()
+                    .filter(integration -> name.equals(integration.getName()))
+                    .collect(Collectors.toList());
+                return new ListResult.Builder<Integration>().items(items).totalCount(items.size()).build();
+            }
+
+            @Override
+            public Map<String, String> getPropertyValues() {
+                return Collections.singletonMap("name", name);
+            }
+        };
+    }
+}
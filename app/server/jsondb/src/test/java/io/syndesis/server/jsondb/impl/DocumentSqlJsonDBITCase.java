@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.server.jsondb.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.skife.jdbi.v2.DBI;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import io.syndesis.common.model.ListResult;
+import io.syndesis.common.model.integration.Integration;
+import io.syndesis.server.jsondb.Filter;
+import io.syndesis.server.jsondb.GetOptions;
+import io.syndesis.server.jsondb.dao.JsonDbDao;
+
+import static io.syndesis.server.jsondb.dao.QueryOperators.nameIs;
+import static io.syndesis.server.jsondb.dao.QueryOperators.page;
+import static io.syndesis.server.jsondb.dao.QueryOperators.sortBy;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+@Testcontainers
+public class DocumentSqlJsonDBITCase {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRESQL = new PostgreSQLContainer<>("postgres:12.6");
+
+    private DBI dbi;
+
+    private DocumentSqlJsonDB jsondb;
+
+    @BeforeEach
+    public void createTables() {
+        dbi = new DBI(POSTGRESQL.getJdbcUrl(), POSTGRESQL.getUsername(), POSTGRESQL.getPassword());
+        jsondb = new DocumentSqlJsonDB(dbi, null,
+            Arrays.asList(
+                new Index("/users", "name"),
+                new Index("/users", Arrays.asList("name", "age")),
+                new Index("/settings", "key")),
+            Collections.singletonList("/users"));
+        try {
+            jsondb.dropTables();
+        } catch (@SuppressWarnings("PMD.AvoidCatchingGenericException") RuntimeException ignored) {
+            // tables did not exist
+        }
+        jsondb.createTables();
+    }
+
+    @Test
+    public void shouldStoreEntitiesAsDocuments() {
+        jsondb.set("/users/:1", "{\"name\":\"Hiram\",\"age\":40,\"address\":{\"city\":\"Tampa\"}}");
+        jsondb.set("/users/:2", "{\"name\":\"Zoran\",\"age\":30}");
+
+        assertThat(jsondb.getAsString("/users/:1")).isEqualTo("{\"age\":40,\"name\":\"Hiram\",\"address\":{\"city\":\"Tampa\"}}");
+        assertThat(jsondb.getAsString("/users/:1/address/city")).isEqualTo("\"Tampa\"");
+        assertThat(jsondb.getAsString("/users", new GetOptions().depth(1))).isEqualTo("{\":1\":true,\":2\":true}");
+        assertThat(jsondb.getAsString("/users", new GetOptions().order(GetOptions.Order.DESC).limitToFirst(1)))
+            .isEqualTo("{\":2\":{\"age\":30,\"name\":\"Zoran\"}}");
+        assertThat(count("SELECT COUNT(*) FROM jsondb_doc")).isEqualTo(2);
+        assertThat(count("SELECT COUNT(*) FROM jsondb")).isZero();
+    }
+
+    @Test
+    public void shouldKeepOtherPathsAsRecords() {
+        jsondb.set("/settings/:a", "{\"key\":\"value\"}");
+        jsondb.set("/users/:1", "{\"name\":\"Hiram\"}");
+
+        assertThat(count("SELECT COUNT(*) FROM jsondb")).isEqualTo(1);
+        assertThat(jsondb.getAsString("/settings/:a")).isEqualTo("{\"key\":\"value\"}");
+        assertThat(jsondb.getAsString("/")).isEqualTo("{\"settings\":{\":a\":{\"key\":\"value\"}},\"users\":{\":1\":{\"name\":\"Hiram\"}}}");
+
+        assertThat(jsondb.delete("/")).isTrue();
+        assertThat(jsondb.exists("/users")).isFalse();
+        assertThat(jsondb.exists("/settings")).isFalse();
+    }
+
+    @Test
+    public void shouldUpdateAndDeleteFields() {
+        jsondb.set("/users/:1", "{\"name\":\"Hiram\",\"age\":40,\"address\":{\"city\":\"Tampa\"}}");
+
+        jsondb.update("/users/:1", "{\"age\":41,\"address/zip\":\"33601\"}");
+        assertThat(jsondb.getAsString("/users/:1")).isEqualTo("{\"age\":41,\"name\":\"Hiram\",\"address\":{\"zip\":\"33601\",\"city\":\"Tampa\"}}");
+
+        assertThat(jsondb.delete("/users/:1/address/city")).isTrue();
+        assertThat(jsondb.delete("/users/:1/address/zip")).isTrue();
+        // empty objects are removed like in the record layout
+        assertThat(jsondb.exists("/users/:1/address")).isFalse();
+        assertThat(jsondb.delete("/users/:1/address")).isFalse();
+
+        assertThat(jsondb.delete("/users/:1")).isTrue();
+        assertThat(jsondb.getAsString("/users")).isNull();
+    }
+
+    @Test
+    public void shouldFindByIndexedProperties() {
+        jsondb.set("/users/:1", "{\"name\":\"Hiram\",\"age\":\"40\"}");
+        jsondb.set("/users/:2", "{\"name\":\"Zoran\",\"age\":\"30\"}");
+        jsondb.set("/users/:3", "{\"name\":\"Hiram\",\"age\":\"30\"}");
+
+        assertThat(jsondb.fetchIdsByPropertyValue("/users", "name", "Hiram")).containsOnly("/users/:1", "/users/:3");
+
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("name", "Hiram");
+        properties.put("age", "30");
+        assertThat(jsondb.fetchIdsByPropertyValues("/users", properties)).containsOnly("/users/:3");
+
+        assertThat(count("SELECT COUNT(*) FROM pg_indexes WHERE tablename = 'jsondb_doc' AND indexname LIKE 'jsondb_doc_users_%'"))
+            .isEqualTo(2);
+    }
+
+    @Test
+    public void shouldTranslateFilters() {
+        jsondb.set("/users/:1", "{\"name\":\"Hiram\",\"age\":40}");
+        jsondb.set("/users/:2", "{\"name\":\"Zoran\",\"age\":30}");
+        jsondb.set("/users/:3", "{\"name\":\"Bob\",\"age\":20}");
+
+        assertThat(jsondb.getAsString("/users", new GetOptions().depth(1).filter(Filter.child("age", Filter.Op.GT, 25))))
+            .isEqualTo("{\":1\":true,\":2\":true}");
+        assertThat(jsondb.getAsString("/users", new GetOptions().depth(1).filter(
+            Filter.or(Filter.child("name", Filter.Op.EQ, "Bob"), Filter.child("age", Filter.Op.GTE, 40)))))
+            .isEqualTo("{\":1\":true,\":3\":true}");
+    }
+
+    @Test
+    public void shouldScanAndFetchByKeys() {
+        for (int i = 0; i < 5; i++) {
+            jsondb.set("/users/:" + i, "{\"name\":\"user" + i + "\"}");
+        }
+
+        Map<String, String> scanned = new LinkedHashMap<>();
+        String last = jsondb.scan("/users", new GetOptions().startAfter(":1").limitToFirst(2), (key, json) -> scanned.put(key, new String(json)));
+        assertThat(scanned).containsOnlyKeys(":2", ":3");
+        assertThat(last).isEqualTo(":3");
+
+        Map<String, String> fetched = new LinkedHashMap<>();
+        jsondb.getAll("/users", Arrays.asList(":4", ":0", ":9"), (key, json) -> fetched.put(key, new String(json)));
+        assertThat(fetched).containsExactly(
+            entry(":0", "{\"name\":\"user0\"}"),
+            entry(":4", "{\"name\":\"user4\"}"));
+    }
+
+    @Test
+    public void shouldMigrateRecordsToDocuments() {
+        SqlJsonDB records = new SqlJsonDB(dbi, null, Collections.emptyList());
+        records.set("/users/:1", "{\"name\":\"Hiram\",\"tags\":[\"a\",\"b\"]}");
+        records.set("/settings/:a", "{\"key\":\"value\"}");
+
+        jsondb.migrateToDocuments();
+
+        assertThat(count("SELECT COUNT(*) FROM jsondb WHERE path LIKE '/users/%'")).isZero();
+        assertThat(jsondb.getAsString("/users/:1")).isEqualTo("{\"name\":\"Hiram\",\"tags\":[\"a\",\"b\"]}");
+        assertThat(jsondb.getAsString("/settings/:a")).isEqualTo("{\"key\":\"value\"}");
+
+        // nothing left to migrate
+        jsondb.migrateToDocuments();
+        assertThat(jsondb.getAsString("/users/:1")).isEqualTo("{\"name\":\"Hiram\",\"tags\":[\"a\",\"b\"]}");
+    }
+
+    @Test
+    public void shouldReadDocumentsThroughDao() {
+        DocumentSqlJsonDB integrations = new DocumentSqlJsonDB(dbi, null, Collections.emptyList(), Collections.singletonList("/integrations"));
+        JsonDbDao<Integration> dao = new JsonDbDao<Integration>(integrations) {
+            @Override
+            public Class<Integration> getType() {
+                return Integration.class;
+            }
+        };
+
+        Integration first = new Integration.Builder().id("1").name("first").build();
+        Integration second = new Integration.Builder().id("2").name("second").build();
+        dao.create(first);
+        dao.create(second);
+        assertThat(count("SELECT COUNT(*) FROM jsondb_doc WHERE collection = 'integrations'")).isEqualTo(2);
+
+        assertThat(dao.fetch("1").getName()).isEqualTo("first");
+        assertThat(dao.fetch("3")).isNull();
+        assertThat(dao.fetchAll().getItems()).extracting(Integration::getName).containsExactly("first", "second");
+
+        List<String> names = new ArrayList<>();
+        dao.forEach(integration -> names.add(integration.getName()));
+        assertThat(names).containsExactly("first", "second");
+    }
+
+    @Test
+    public void shouldQueryDocumentsThroughDao() {
+        DocumentSqlJsonDB integrations = new DocumentSqlJsonDB(dbi, null, Collections.emptyList(), Collections.singletonList("/integrations"));
+        JsonDbDao<Integration> dao = new JsonDbDao<Integration>(integrations) {
+            @Override
+            public Class<Integration> getType() {
+                return Integration.class;
+            }
+        };
+
+        dao.create(new Integration.Builder().id("1").name("b").description("x").build());
+        dao.create(new Integration.Builder().id("2").name("c").build());
+        dao.create(new Integration.Builder().id("3").name("a").description("y").build());
+
+        assertThat(integrations.fetchKeysOrderedBy("/integrations", Collections.emptyMap(), "name", GetOptions.Order.ASC, 0, 5).getItems())
+            .containsExactly(":3", ":1", ":2");
+        // missing values come first, like in the record layout
+        assertThat(integrations.fetchKeysOrderedBy("/integrations", Collections.emptyMap(), "description", GetOptions.Order.ASC, 0, 5).getItems())
+            .containsExactly(":2", ":1", ":3");
+        assertThat(integrations.fetchKeysOrderedBy("/integrations", Collections.emptyMap(), "description", GetOptions.Order.DESC, 0, 5).getItems())
+            .containsExactly(":3", ":1", ":2");
+
+        ListResult<Integration> sorted = dao.fetchAll(sortBy("name", Integration::getName, true), page(1, 5));
+        assertThat(sorted.getItems()).extracting(Integration::getName).containsExactly("b", "a");
+        assertThat(sorted.getTotalCount()).isEqualTo(3);
+
+        ListResult<Integration> named = dao.fetchAll(nameIs("c"), page(0, 5));
+        assertThat(named.getItems()).extracting(Integration::getName).containsExactly("c");
+        assertThat(named.getTotalCount()).isEqualTo(1);
+    }
+
+    private int count(String sql) {
+        return dbi.withHandle(h -> h.createQuery(sql).mapTo(Integer.class).first());
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.server.jsondb.impl;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.skife.jdbi.v2.DBI;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares the record layout of {@link SqlJsonDB} with the document layout
+ * of {@link DocumentSqlJsonDB} on PostgreSQL, started in a container, for
+ * the typical entity access: listing a collection, fetching and replacing an
+ * entity and looking up entities by an indexed property. Not run as part of
+ * the build, run with:
+ *
+ * <pre>
+ * mvn -Djmh -pl server/jsondb test-compile exec:java -Dexec.classpathScope=test \
+ *   -Dexec.mainClass=io.syndesis.server.jsondb.impl.JsonDBLayoutBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonDBLayoutBenchmark {
+
+    private static final String COLLECTION = "/integrations";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Param({"records", "documents"})
+    public String layout;
+
+    @Param({"100"})
+    public int integrations;
+
+    // number of steps in the integration flows
+    @Param({"10", "100"})
+    public int steps;
+
+    private PostgreSQLContainer<?> postgresql;
+
+    private SqlJsonDB jsondb;
+
+    private byte[][] documents;
+
+    private int revision;
+
+    @Setup(Level.Trial)
+    public void setup() throws JsonProcessingException {
+        postgresql = new PostgreSQLContainer<>("postgres:12.6");
+        postgresql.start();
+
+        DBI dbi = new DBI(postgresql.getJdbcUrl(), postgresql.getUsername(), postgresql.getPassword());
+        Collection<Index> indexes = Collections.singletonList(new Index(COLLECTION, "name"));
+        if ("documents".equals(layout)) {
+            jsondb = new DocumentSqlJsonDB(dbi, null, indexes, Collections.singletonList(COLLECTION));
+        } else {
+            jsondb = new SqlJsonDB(dbi, null, indexes);
+        }
+        jsondb.createTables();
+
+        for (int i = 0; i < integrations; i++) {
+            Map<String, Object> integration = SqlJsonDBReplaceBenchmark.integration(steps, "revision 1");
+            integration.put("id", "i" + i);
+            integration.put("name", "Integration " + i);
+            jsondb.set(COLLECTION + "/:i" + i, MAPPER.writeValueAsBytes(integration));
+        }
+
+        documents = new byte[][] {
+            MAPPER.writeValueAsBytes(SqlJsonDBReplaceBenchmark.integration(steps, "revision 1")),
+            MAPPER.writeValueAsBytes(SqlJsonDBReplaceBenchmark.integration(steps, "revision 2"))
+        };
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        postgresql.stop();
+    }
+
+    @Benchmark
+    public byte[] fetchAll() {
+        return jsondb.getAsByteArray(COLLECTION);
+    }
+
+    @Benchmark
+    public byte[] fetch() {
+        return jsondb.getAsByteArray(COLLECTION + "/:i0");
+    }
+
+    @Benchmark
+    public void replace() {
+        revision = 1 - revision;
+        jsondb.replace(COLLECTION + "/:i0", documents[revision]);
+    }
+
+    @Benchmark
+    public Object fetchIdsByPropertyValue() {
+        return jsondb.fetchIdsByPropertyValue(COLLECTION, "name", "Integration 1");
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(JsonDBLayoutBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
@@ -19,10 +19,13 @@ package io.syndesis.server.jsondb.impl;
 import static io.syndesis.common.util.Resources.getResourceAsText;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.entry;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -34,9 +37,12 @@ import org.junit.jupiter.api.Test;
 import org.skife.jdbi.v2.DBI;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import io.syndesis.common.model.ListResult;
 import io.syndesis.server.jsondb.Filter;
 import io.syndesis.server.jsondb.Filter.Op;
 import io.syndesis.server.jsondb.GetOptions;
@@ -62,8 +68,10 @@ public class JsonDBTest {
         this.jsondb = new SqlJsonDB(dbi, null,
             Arrays.asList(
                 new Index("/pair", "key"),
+                new Index("/users", "id"),
                 new Index("/users", "name"),
-                new Index("/users", "age")
+                new Index("/users", "age"),
+                new Index("/deployments", Arrays.asList("integration", "state"))
             )
         );
 
@@ -683,6 +691,328 @@ public class JsonDBTest {
 
     }
 
+    @Test
+    public void testScan() throws IOException {
+
+        jsondb.update("/test", mapper.writeValueAsString(map(
+            "user1", "test 1",
+            "user2/value", "test 2",
+            "user3/values", Arrays.asList("a", "b"),
+            "user4", "test 4"
+        )));
+
+        Map<String, String> scanned = new LinkedHashMap<>();
+        String next = jsondb.scan("/test", new GetOptions(), (key, json) -> scanned.put(key, new String(json, StandardCharsets.UTF_8)));
+
+        assertThat(next).isNull();
+        assertThat(scanned).containsExactly(
+            entry("user1", "\"test 1\""),
+            entry("user2", "{\"value\":\"test 2\"}"),
+            entry("user3", "{\"values\":[\"a\",\"b\"]}"),
+            entry("user4", "\"test 4\""));
+    }
+
+    @Test
+    public void testFetchIdsByPropertyValuesUsingCompositeIndex() {
+        jsondb.rebuildCompositeIndexes();
+        jsondb.set("/deployments/:1", "{\"integration\":\"a\",\"state\":\"Published\",\"name\":\"x\"}");
+        jsondb.set("/deployments/:2", "{\"integration\":\"a\",\"state\":\"Unpublished\",\"name\":\"x\"}");
+        jsondb.set("/deployments/:3", "{\"integration\":\"b\",\"state\":\"Published\",\"name\":\"y\"}");
+        jsondb.set("/deployments/:4", "{\"integration\":\"a\"}");
+
+        assertThat(jsondb.fetchIdsByPropertyValues("/deployments", map2("integration", "a", "state", "Published")))
+            .containsOnly("/deployments/:1");
+        assertThat(jsondb.fetchIdsByPropertyValues("/deployments", map2("state", "Published", "integration", "b")))
+            .containsOnly("/deployments/:3");
+        // remaining property looked up without the composite index
+        assertThat(jsondb.fetchIdsByPropertyValues("/deployments", map3("integration", "a", "state", "Unpublished", "name", "x")))
+            .containsOnly("/deployments/:2");
+
+        // partial updates and deletes keep the composite index up to date
+        jsondb.update("/deployments/:2", "{\"state\":\"Published\"}");
+        jsondb.set("/deployments/:4/state", "\"Published\"");
+        assertThat(jsondb.fetchIdsByPropertyValues("/deployments", map2("integration", "a", "state", "Published")))
+            .containsOnly("/deployments/:1", "/deployments/:2", "/deployments/:4");
+
+        jsondb.delete("/deployments/:1/state");
+        jsondb.delete("/deployments/:2");
+        assertThat(jsondb.fetchIdsByPropertyValues("/deployments", map2("integration", "a", "state", "Published")))
+            .containsOnly("/deployments/:4");
+
+        // composite index entries are never part of the data
+        assertThat(jsondb.getAsString("/deployments/:4")).isEqualTo("{\"integration\":\"a\",\"state\":\"Published\"}");
+
+        jsondb.executeNative("DELETE FROM jsondb_cidx");
+        jsondb.executeNative("DELETE FROM jsondb_cidx_built");
+        jsondb.rebuildCompositeIndexes();
+        assertThat(jsondb.fetchIdsByPropertyValues("/deployments", map2("integration", "a", "state", "Published")))
+            .containsOnly("/deployments/:4");
+    }
+
+    @Test
+    public void testCompositeIndexIsBuiltOnce() {
+        jsondb.set("/deployments/:1", "{\"integration\":\"a\",\"state\":\"Published\"}");
+        jsondb.executeNative("DELETE FROM jsondb_cidx");
+
+        // not used before it is built
+        assertThat(jsondb.fetchIdsByPropertyValues("/deployments", map2("integration", "a", "state", "Published")))
+            .containsOnly("/deployments/:1");
+
+        jsondb.rebuildCompositeIndexes();
+        assertThat(jsondb.fetchIdsByPropertyValues("/deployments", map2("integration", "a", "state", "Published")))
+            .containsOnly("/deployments/:1");
+
+        // built indexes are not rebuilt
+        jsondb.executeNative("DELETE FROM jsondb_cidx");
+        jsondb.rebuildCompositeIndexes();
+        assertThat(jsondb.fetchIdsByPropertyValues("/deployments", map2("integration", "a", "state", "Published")))
+            .isEmpty();
+    }
+
+    @Test
+    public void testPropertyIndexIsBuiltForExistingData() {
+        jsondb.set("/users/:1", "{\"id\":\"1\",\"name\":\"Carol\",\"friend\":{\"name\":\"Bob\"}}");
+        jsondb.set("/users/:2", "{\"id\":\"2\",\"name\":\"Bob\"}");
+        // as if the index was declared after the data was stored
+        jsondb.executeNative("UPDATE jsondb SET idx = NULL");
+        assertThat(jsondb.fetchIdsByPropertyValue("/users", "name", "Bob")).isEmpty();
+
+        jsondb.rebuildPropertyIndexes();
+        assertThat(jsondb.fetchIdsByPropertyValue("/users", "name", "Bob")).containsOnly("/users/:2");
+        assertThat(keys("/users", "name", GetOptions.Order.ASC, 0, 10)).containsExactly(":2", ":1");
+
+        // built indexes are not rebuilt
+        jsondb.executeNative("UPDATE jsondb SET idx = NULL");
+        jsondb.rebuildPropertyIndexes();
+        assertThat(jsondb.fetchIdsByPropertyValue("/users", "name", "Bob")).isEmpty();
+    }
+
+    @Test
+    public void testPropertyIndexMarkedWithCompositeIndexesIsNotRebuilt() {
+        jsondb.set("/users/:1", "{\"id\":\"1\",\"name\":\"Bob\",\"age\":30}");
+        jsondb.executeNative("UPDATE jsondb SET idx = NULL");
+        // marked as built by an earlier version
+        jsondb.executeNative("INSERT INTO jsondb_cidx_built (idx) VALUES (?)", "/users/#name");
+
+        jsondb.rebuildPropertyIndexes();
+        assertThat(jsondb.fetchIdsByPropertyValue("/users", "name", "Bob")).isEmpty();
+        // the other indexes are built
+        assertThat(keys("/users", null, GetOptions.Order.ASC, 0, 10)).containsExactly(":1");
+    }
+
+    @Test
+    public void testFetchKeysOrderedBy() {
+        jsondb.set("/users/:b", "{\"id\":\"b\",\"name\":\"Carol\",\"age\":30}");
+        jsondb.set("/users/:a", "{\"id\":\"a\",\"name\":\"Bob\",\"age\":-5}");
+        jsondb.set("/users/:c", "{\"id\":\"c\",\"name\":\"Bob\",\"age\":120}");
+        jsondb.set("/users/:d", "{\"id\":\"d\",\"age\":7}");
+
+        assertThat(jsondb.isQueryable("/users", "name")).isTrue();
+        assertThat(jsondb.isQueryable("/users", "city")).isFalse();
+
+        assertThat(keys("/users", null, GetOptions.Order.ASC, 0, 10)).containsExactly(":a", ":b", ":c", ":d");
+        assertThat(keys("/users", null, GetOptions.Order.DESC, 0, 10)).containsExactly(":d", ":c", ":b", ":a");
+        // ties keep the key order and missing values come first
+        assertThat(keys("/users", "name", GetOptions.Order.ASC, 0, 10)).containsExactly(":d", ":a", ":c", ":b");
+        assertThat(keys("/users", "name", GetOptions.Order.DESC, 0, 10)).containsExactly(":b", ":a", ":c", ":d");
+        // numbers are ordered by value and not by their text
+        assertThat(keys("/users", "age", GetOptions.Order.ASC, 0, 10)).containsExactly(":a", ":d", ":b", ":c");
+
+        ListResult<String> page = jsondb.fetchKeysOrderedBy("/users", Collections.emptyMap(), "name", GetOptions.Order.ASC, 1, 2);
+        assertThat(page.getItems()).containsExactly(":a", ":c");
+        assertThat(page.getTotalCount()).isEqualTo(4);
+
+        ListResult<String> bobs = jsondb.fetchKeysOrderedBy("/users", Collections.singletonMap("name", "Bob"), "age", GetOptions.Order.DESC, 0, 1);
+        assertThat(bobs.getItems()).containsExactly(":c");
+        assertThat(bobs.getTotalCount()).isEqualTo(2);
+
+        assertThat(jsondb.fetchKeysOrderedBy("/users", Collections.emptyMap(), "city", GetOptions.Order.ASC, 0, 10)).isNull();
+        assertThat(jsondb.fetchKeysOrderedBy("/users", Collections.singletonMap("city", "Rome"), null, GetOptions.Order.ASC, 0, 10)).isNull();
+        // the keys of collections without an id index can't be listed
+        assertThat(jsondb.fetchKeysOrderedBy("/missing", Collections.emptyMap(), null, GetOptions.Order.ASC, 0, 10)).isNull();
+    }
+
+    private List<String> keys(String collectionPath, String property, GetOptions.Order order, int offset, int limit) {
+        return jsondb.fetchKeysOrderedBy(collectionPath, Collections.emptyMap(), property, order, offset, limit).getItems();
+    }
+
+    @Test
+    public void testReplace() throws IOException {
+        jsondb.set("/test", mapper.writeValueAsString(map(
+            "name", "Hiram Chirino",
+            "props", map(
+                "city", "Tampa",
+                "state", "FL"
+            ),
+            "tags", Arrays.asList("a", "b", "c")
+        )));
+
+        // changed, removed and added fields
+        jsondb.replace("/test", mapper.writeValueAsString(map(
+            "name", "Ana Chirino",
+            "props", map(
+                "city", "Tampa",
+                "zip", 33601
+            ),
+            "tags", Arrays.asList("a", "c")
+        )));
+        assertThat(jsondb.getAsString("/test"))
+            .isEqualTo("{\"name\":\"Ana Chirino\",\"props\":{\"city\":\"Tampa\",\"zip\":33601},\"tags\":[\"a\",\"c\"]}");
+
+        // same document, nothing to write
+        jsondb.replace("/test", jsondb.getAsString("/test"));
+        assertThat(jsondb.getAsString("/test"))
+            .isEqualTo("{\"name\":\"Ana Chirino\",\"props\":{\"city\":\"Tampa\",\"zip\":33601},\"tags\":[\"a\",\"c\"]}");
+
+        // a value replaces an object and the other way around
+        jsondb.replace("/test/props", "\"none\"");
+        jsondb.replace("/test/name/first", "\"Ana\"");
+        assertThat(jsondb.getAsString("/test"))
+            .isEqualTo("{\"name\":{\"first\":\"Ana\"},\"props\":\"none\",\"tags\":[\"a\",\"c\"]}");
+
+        // missing paths are created
+        jsondb.replace("/other", "{\"key\":\"value\"}");
+        assertThat(jsondb.getAsString("/other")).isEqualTo("{\"key\":\"value\"}");
+    }
+
+    @Test
+    public void testReplaceKeepsIndexesUpToDate() {
+        jsondb.set("/deployments/:1", "{\"integration\":\"a\",\"state\":\"Published\",\"name\":\"x\"}");
+        jsondb.set("/pair/:1", "{\"key\":\"x\"}");
+
+        jsondb.replace("/deployments/:1", "{\"integration\":\"a\",\"state\":\"Unpublished\",\"name\":\"x\"}");
+        jsondb.replace("/pair/:1", "{\"key\":\"y\"}");
+
+        assertThat(jsondb.fetchIdsByPropertyValues("/deployments", map2("integration", "a", "state", "Published"))).isEmpty();
+        assertThat(jsondb.fetchIdsByPropertyValues("/deployments", map2("integration", "a", "state", "Unpublished")))
+            .containsOnly("/deployments/:1");
+        assertThat(jsondb.fetchIdsByPropertyValue("/pair", "key", "x")).isEmpty();
+        assertThat(jsondb.fetchIdsByPropertyValue("/pair", "key", "y")).containsOnly("/pair/:1");
+    }
+
+    private static Map<String, String> map2(String k1, String v1, String k2, String v2) {
+        Map<String, String> map = new LinkedHashMap<>();
+        map.put(k1, v1);
+        map.put(k2, v2);
+        return map;
+    }
+
+    private static Map<String, String> map3(String k1, String v1, String k2, String v2, String k3, String v3) {
+        Map<String, String> map = map2(k1, v1, k2, v2);
+        map.put(k3, v3);
+        return map;
+    }
+
+    @Test
+    public void testGetAll() throws IOException {
+
+        jsondb.update("/test", mapper.writeValueAsString(map(
+            "user1/value", "test 1",
+            "user10/value", "test 10",
+            "user2/values", Arrays.asList("a", "b"),
+            "user3/value", "test 3"
+        )));
+
+        Map<String, String> fetched = new LinkedHashMap<>();
+        jsondb.getAll("/test", Arrays.asList("user3", "missing", "user1", "user2", "user1"),
+            (key, json) -> fetched.put(key, new String(json, StandardCharsets.UTF_8)));
+
+        assertThat(fetched).containsExactly(
+            entry("user1", "{\"value\":\"test 1\"}"),
+            entry("user2", "{\"values\":[\"a\",\"b\"]}"),
+            entry("user3", "{\"value\":\"test 3\"}"));
+    }
+
+    @Test
+    public void testScanPagesWithContinuationDESC() throws IOException {
+
+        jsondb.update("/test", mapper.writeValueAsString(map(
+            "user1/value", "test 1",
+            "user2/value", "test 2",
+            "user3/values", Arrays.asList("a", "b"),
+            "user4/value", "test 4",
+            "user5/value", "test 5"
+        )));
+
+        List<String> keys = new ArrayList<>();
+        Map<String, String> scanned = new LinkedHashMap<>();
+        GetOptions options = new GetOptions().order(GetOptions.Order.DESC).limitToFirst(2);
+
+        String next = jsondb.scan("/test", options, (key, json) -> keys.add(key));
+        assertThat(keys).containsExactly("user5", "user4");
+        assertThat(next).isEqualTo("user4");
+
+        next = jsondb.scan("/test", options.startAfter(next), (key, json) -> scanned.put(key, new String(json, StandardCharsets.UTF_8)));
+        assertThat(scanned).containsExactly(
+            entry("user3", "{\"values\":[\"a\",\"b\"]}"),
+            entry("user2", "{\"value\":\"test 2\"}"));
+        assertThat(next).isEqualTo("user2");
+
+        keys.clear();
+        next = jsondb.scan("/test", options.startAfter(next), (key, json) -> keys.add(key));
+        assertThat(keys).containsExactly("user1");
+        assertThat(next).isNull();
+    }
+
+    @Test
+    public void testScanMissingPath() {
+        List<String> keys = new ArrayList<>();
+        assertThat(jsondb.scan("/missing", new GetOptions().limitToFirst(5), (key, json) -> keys.add(key))).isNull();
+        assertThat(keys).isEmpty();
+    }
+
+    @Test
+    public void testGetAsParser() throws IOException {
+        HashMap<String, Object> user = map(
+            "name", "Joe",
+            "admin", true,
+            "age", 25,
+            "gpa", 3.52,
+            "visits", 12345678901234L,
+            "token", null,
+            "tags", Arrays.asList("a", "b")
+        );
+        jsondb.set("/users/u1000", mapper.writeValueAsString(user));
+
+        try (JsonParser parser = jsondb.getAsParser("/users/u1000", null)) {
+            Map<String, Object> read = mapper.readValue(parser, new TypeReference<Map<String, Object>>() {});
+            assertThat(read).containsOnly(
+                entry("name", "Joe"),
+                entry("admin", true),
+                entry("age", 25),
+                entry("gpa", 3.52),
+                entry("visits", 12345678901234L),
+                entry("token", null),
+                entry("tags", Arrays.asList("a", "b")));
+        }
+
+        assertThat(jsondb.getAsParser("/users/u2000", null)).isNull();
+    }
+
+    @Test
+    public void testScanTokens() throws IOException {
+        jsondb.update("/test", mapper.writeValueAsString(map(
+            "user1", "test 1",
+            "user2/value", 2,
+            "user3/values", Arrays.asList("a", "b")
+        )));
+
+        Map<String, Object> scanned = new LinkedHashMap<>();
+        String next = jsondb.scanTokens("/test", new GetOptions(), (key, parser) -> {
+            try {
+                scanned.put(key, mapper.readValue(parser, Object.class));
+            } catch (IOException e) {
+                throw new JsonDBException(e);
+            }
+        });
+
+        assertThat(next).isNull();
+        assertThat(scanned).containsExactly(
+            entry("user1", "test 1"),
+            entry("user2", map("value", 2)),
+            entry("user3", map("values", Arrays.asList("a", "b"))));
+    }
+
     // Helper method to help construct maps with concise syntax
     private HashMap<String, Object> map(Object... values) {
         HashMap<String, Object> rc = new HashMap<String, Object>() {
@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.server.jsondb.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.skife.jdbi.v2.DBI;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares writing a one field change to an integration shaped document
+ * with {@link SqlJsonDB#set(String, byte[])}, which deletes and re-inserts
+ * all records, and {@link SqlJsonDB#replace(String, byte[])}, which writes
+ * only the records that differ. Not run as part of the build, run with:
+ *
+ * <pre>
+ * mvn -Djmh -pl server/jsondb test-compile exec:java -Dexec.classpathScope=test \
+ *   -Dexec.mainClass=io.syndesis.server.jsondb.impl.SqlJsonDBReplaceBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SqlJsonDBReplaceBenchmark {
+
+    private static final String PATH = "/integrations/:benchmark";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    // number of steps in the integration flow
+    @Param({"10", "100", "500"})
+    public int steps;
+
+    private SqlJsonDB jsondb;
+
+    private byte[][] documents;
+
+    private int revision;
+
+    @Setup(Level.Trial)
+    public void setup() throws JsonProcessingException {
+        JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1;MODE=PostgreSQL");
+
+        jsondb = new SqlJsonDB(new DBI(ds), null,
+            Collections.singletonList(new Index("/integrations", "name")));
+        try {
+            jsondb.dropTables();
+        } catch (@SuppressWarnings("PMD.AvoidCatchingGenericException") RuntimeException ignored) {
+            // tables did not exist
+        }
+        jsondb.createTables();
+
+        // two revisions that differ only in the description
+        documents = new byte[][] {
+            MAPPER.writeValueAsBytes(integration(steps, "revision 1")),
+            MAPPER.writeValueAsBytes(integration(steps, "revision 2"))
+        };
+        jsondb.set(PATH, documents[0]);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jsondb.dropTables();
+    }
+
+    @Benchmark
+    public void set() {
+        jsondb.set(PATH, nextRevision());
+    }
+
+    @Benchmark
+    public void replace() {
+        jsondb.replace(PATH, nextRevision());
+    }
+
+    private byte[] nextRevision() {
+        revision = 1 - revision;
+        return documents[revision];
+    }
+
+    static Map<String, Object> integration(int steps, String description) {
+        List<Object> flowSteps = new ArrayList<>(steps);
+        for (int i = 0; i < steps; i++) {
+            flowSteps.add(step(i));
+        }
+
+        Map<String, Object> flow = new LinkedHashMap<>();
+        flow.put("id", "flow-1");
+        flow.put("name", "Main flow");
+        flow.put("steps", flowSteps);
+
+        Map<String, Object> integration = new LinkedHashMap<>();
+        integration.put("id", "benchmark");
+        integration.put("name", "Benchmark integration");
+        integration.put("description", description);
+        integration.put("version", 3);
+        integration.put("isDeleted", false);
+        integration.put("tags", Collections.singletonList("benchmark"));
+        integration.put("flows", Collections.singletonList(flow));
+        return integration;
+    }
+
+    private static Map<String, Object> step(int index) {
+        Map<String, Object> property = new LinkedHashMap<>();
+        property.put("kind", "parameter");
+        property.put("displayName", "Query");
+        property.put("type", "string");
+        property.put("javaType", "java.lang.String");
+        property.put("required", true);
+        property.put("secret", false);
+        property.put("order", index);
+
+        Map<String, Object> descriptor = new LinkedHashMap<>();
+        descriptor.put("connectorId", "sql");
+        descriptor.put("camelConnectorGAV", "io.syndesis.connector:connector-sql:1.12");
+        descriptor.put("camelConnectorPrefix", "sql-connector");
+        descriptor.put("propertyDefinitionSteps", Collections.singletonList(
+            Collections.singletonMap("properties", Collections.singletonMap("query", property))));
+        descriptor.put("inputDataShape", Collections.singletonMap("kind", "none"));
+        descriptor.put("outputDataShape", Collections.singletonMap("kind", "json-instance"));
+
+        Map<String, Object> action = new LinkedHashMap<>();
+        action.put("id", "sql-action-" + index);
+        action.put("name", "Invoke SQL");
+        action.put("actionType", "connector");
+        action.put("pattern", "To");
+        action.put("descriptor", descriptor);
+
+        Map<String, Object> step = new LinkedHashMap<>();
+        step.put("id", "step-" + index);
+        step.put("stepKind", "endpoint");
+        step.put("name", "Step " + index);
+        step.put("action", action);
+        step.put("configuredProperties", Collections.singletonMap("query", "SELECT * FROM TODO WHERE ID = " + index));
+        return step;
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(SqlJsonDBReplaceBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
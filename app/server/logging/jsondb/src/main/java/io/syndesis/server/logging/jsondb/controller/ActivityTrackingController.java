@@ -19,10 +19,14 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.BlockingDeque;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -37,13 +41,20 @@ import javax.annotation.PreDestroy;
 import io.fabric8.kubernetes.api.model.Pod;
 import io.fabric8.kubernetes.api.model.PodList;
 import io.fabric8.kubernetes.client.KubernetesClient;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import io.syndesis.common.util.DurationConverter;
 import io.syndesis.common.util.backend.BackendController;
 import io.syndesis.common.util.json.JsonUtils;
 import io.syndesis.server.jsondb.GetOptions;
-import io.syndesis.server.jsondb.JsonDB;
 import io.syndesis.server.jsondb.impl.JsonRecordSupport;
 import io.syndesis.server.jsondb.impl.SqlJsonDB;
+import io.syndesis.server.logging.jsondb.store.ActivityRecord;
+import io.syndesis.server.logging.jsondb.store.ActivityStore;
+import io.syndesis.server.logging.jsondb.store.JsonDBActivityStore;
 import io.syndesis.server.openshift.OpenShiftService;
 import org.skife.jdbi.v2.DBI;
 import org.skife.jdbi.v2.PreparedBatch;
@@ -71,15 +82,28 @@ public class ActivityTrackingController implements BackendController, Closeable
     private final DBI dbi;
     private final KubernetesClient client;
     private final Map<String, PodLogMonitor> podHandlers = new ConcurrentHashMap<>();
-    private final JsonDB jsondb;
+    private final SqlJsonDB jsondb;
     private ScheduledExecutorService scheduler;
     private ExecutorService executor;
 
     final KubernetesSupport kubernetesSupport;
 
-    protected final LinkedBlockingDeque<BatchOperation> eventQueue = new LinkedBlockingDeque<>(1000);
+    /** Ingestion queues, each drained by its own writer thread, integrations are assigned to a shard by id */
+    private volatile List<BlockingDeque<BatchOperation>> eventQueues = Collections.emptyList();
     protected final AtomicBoolean stopped = new AtomicBoolean();
 
+    private int ingestionShards = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private Counter ingestedEvents;
+    private Counter backpressureEvents;
+    private Timer batchWrites;
+    private Counter inflightEvictions;
+
+    /** Bounds of the activities held in memory per pod until their exchange is done */
+    private int maxInflight = 1000;
+    private long maxInflightBytes = 10L * 1024 * 1024;
+    private Duration inflightTimeout = Duration.ofMinutes(30);
+
     /** The number of retained activity log items */
     private int retention = 50;
     /** Logs older than this will not be processed */
@@ -87,12 +111,18 @@ public class ActivityTrackingController implements BackendController, Closeable
     private Duration cleanUpInterval = Duration.ofMinutes(15);
     private Duration startupDelay = Duration.ofSeconds(15);
     private SqlJsonDB.DatabaseKind databaseKind;
+    private final ActivityStore activityStore;
+
+    public ActivityTrackingController(SqlJsonDB jsondb, DBI dbi, KubernetesClient client) {
+        this(jsondb, dbi, client, new JsonDBActivityStore(jsondb, dbi));
+    }
 
     @Autowired
-    public ActivityTrackingController(JsonDB jsondb, DBI dbi, KubernetesClient client) {
+    public ActivityTrackingController(SqlJsonDB jsondb, DBI dbi, KubernetesClient client, ActivityStore activityStore) {
         this.jsondb = jsondb;
         this.dbi = dbi;
         this.client = client;
+        this.activityStore = activityStore;
         this.kubernetesSupport = new KubernetesSupport(client);
     }
     @Override
@@ -106,25 +136,33 @@ public class ActivityTrackingController implements BackendController, Closeable
         scheduler = Executors.newScheduledThreadPool(1, newThreadFactory("Logs Controller Scheduler"));
         executor =  Executors.newCachedThreadPool(newThreadFactory("Logs Controller"));
         stopped.set(false);
-        executor.execute(this::processEventQueue);
+
+        ingestedEvents = meterRegistry.counter("syndesis.activity.ingestion.events");
+        backpressureEvents = meterRegistry.counter("syndesis.activity.ingestion.backpressure");
+        batchWrites = meterRegistry.timer("syndesis.activity.ingestion.batch.write");
+        inflightEvictions = meterRegistry.counter("syndesis.activity.inflight.evictions");
+        meterRegistry.gauge("syndesis.activity.inflight.count", podHandlers,
+            handlers -> handlers.values().stream().mapToInt(h -> h.inflightActivities.size()).sum());
+        meterRegistry.gauge("syndesis.activity.inflight.bytes", podHandlers,
+            handlers -> handlers.values().stream().mapToLong(h -> h.inflightActivities.bytes()).sum());
+
+        List<BlockingDeque<BatchOperation>> queues = new ArrayList<>(ingestionShards);
+        for (int shard = 0; shard < ingestionShards; shard++) {
+            BlockingDeque<BatchOperation> queue = new LinkedBlockingDeque<>(1000);
+            meterRegistry.gauge("syndesis.activity.ingestion.queue.depth", Tags.of("shard", Integer.toString(shard)), queue, BlockingDeque::size);
+            queues.add(queue);
+        }
+        eventQueues = queues;
+        for (int shard = 0; shard < ingestionShards; shard++) {
+            final int current = shard;
+            executor.execute(() -> processEventQueue(current));
+        }
         scheduler.scheduleWithFixedDelay(this::pollPods, startupDelay.getSeconds(), 5, TimeUnit.SECONDS);
         scheduler.scheduleWithFixedDelay(this::cleanupLogs, startupDelay.toMillis(), cleanUpInterval.toMillis(), TimeUnit.MILLISECONDS);
 
         // Lets find out the type of DB we are working with.
-        dbi.inTransaction((x, status) -> {
-            String dbName = x.getConnection().getMetaData().getDatabaseProductName();
-            databaseKind = SqlJsonDB.DatabaseKind.valueOf(dbName);
-
-            // CockroachDB uses the PostgreSQL driver.. so need to look a little
-            // closer.
-            if (databaseKind == SqlJsonDB.DatabaseKind.PostgreSQL) {
-                String version = x.createQuery("SELECT VERSION()").mapTo(String.class).first();
-                if (version.startsWith("CockroachDB")) {
-                    databaseKind = SqlJsonDB.DatabaseKind.CockroachDB;
-                }
-            }
-            return null;
-        });
+        databaseKind = jsondb.getDatabaseKind();
+        activityStore.open();
     }
 
     public void cleanupLogs() {
@@ -133,12 +171,13 @@ public class ActivityTrackingController implements BackendController, Closeable
         try {
             LOG.info("Purging old activity logs");
 
+            activityStore.purgeOlderThan(retentionTime);
+
             @SuppressWarnings("unchecked")
             Map<String, Object> hashMap = dbGet(HashMap.class, "/activity/integrations");
             if( hashMap!=null ) {
                 for (String integrationId : hashMap.keySet()) {
-                    String integrationPath = "/activity/exchanges/" + integrationId + "/%";
-                    int count = deleteKeepingRetention(integrationPath);
+                    int count = activityStore.purge(integrationId, retention);
                     LOG.info("deleted {} transactions for integration: {}", count, integrationId);
                 }
             }
@@ -149,27 +188,25 @@ public class ActivityTrackingController implements BackendController, Closeable
         }
     }
 
-    /**
-     * TODO: push this into the jsondb API.
-     */
-    int deleteKeepingRetention(String path) {
-        return dbi.inTransaction((conn, status) -> {
-            final String skipLocked = databaseKind == SqlJsonDB.DatabaseKind.PostgreSQL ? "FOR KEY SHARE SKIP LOCKED " : "";
-
-            final String sql = "DELETE FROM jsondb WHERE path IN ("
-                + "SELECT path "
-                + "FROM jsondb "
-                + "WHERE path LIKE ? "
-                + "ORDER BY path DESC "
-                + skipLocked
-                + "OFFSET ? ROWS"
-                + ")";
-
-            return conn.update(sql, path, retention);
-        });
-    }
-
     private void writeBatch(Map<String, Object> batch) {
+        // Activities go to the activity store, written before the pod state
+        // so that a failure in between only leads to re-ingesting some logs.
+        List<ActivityRecord> activities = new ArrayList<>();
+        Iterator<Map.Entry<String, Object>> entries = batch.entrySet().iterator();
+        while (entries.hasNext()) {
+            Object value = entries.next().getValue();
+            if (value instanceof ActivityRecord) {
+                activities.add((ActivityRecord) value);
+                entries.remove();
+            }
+        }
+        if (!activities.isEmpty()) {
+            activityStore.store(activities);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
         dbi.inTransaction((conn, status) -> {
             final String sql;
             if( databaseKind == SqlJsonDB.DatabaseKind.PostgreSQL ) {
@@ -187,9 +224,7 @@ public class ActivityTrackingController implements BackendController, Closeable
                 String key = "/activity" + entry.getKey() + "/";
                 String value = null;
                 String ovalue = null;
-                if( key.startsWith("/activity/exchanges" )) {
-                    value = JsonRecordSupport.STRING_VALUE_PREFIX + (String)entry.getValue();
-                } else if ( key.startsWith("/activity/integrations" )) {
+                if ( key.startsWith("/activity/integrations" )) {
                     ovalue = "true";
                     value = String.valueOf(JsonRecordSupport.TRUE_VALUE_PREFIX);
                 } else if ( key.startsWith("/activity/pods" )) {
@@ -344,10 +379,28 @@ public class ActivityTrackingController implements BackendController, Closeable
         return JsonUtils.reader().forType(type).readValue(data);
     }
 
-    private void processEventQueue() {
-        Thread.currentThread().setName("Logs Controller [running]: processEventQueue");
+    void recordInflightEvictions(int count) {
+        inflightEvictions.increment(count);
+    }
+
+    /**
+     * Queues the operation on the shard of the integration, blocking if the
+     * shard's writer has fallen behind.
+     */
+    void enqueue(String integrationId, BatchOperation operation) throws InterruptedException {
+        final List<BlockingDeque<BatchOperation>> queues = eventQueues;
+        final BlockingDeque<BatchOperation> queue = queues.get(Math.floorMod(integrationId.hashCode(), queues.size()));
+        if (!queue.offer(operation)) {
+            backpressureEvents.increment();
+            queue.put(operation);
+        }
+    }
+
+    private void processEventQueue(int shard) {
+        Thread.currentThread().setName("Logs Controller [running]: processEventQueue, shard: " + shard);
+        final BlockingDeque<BatchOperation> eventQueue = eventQueues.get(shard);
         try {
-            LOG.info("Batch ingestion work thread started.");
+            LOG.info("Batch ingestion work thread for shard {} started.", shard);
             while (!stopped.get()) {
 
                 // Using a timeout so that if queue is empty, we break out periodically to
@@ -381,7 +434,8 @@ public class ActivityTrackingController implements BackendController, Closeable
 
                     // Write the batch..
                     try {
-                        writeBatch(batch);
+                        batchWrites.record(() -> writeBatch(batch));
+                        ingestedEvents.increment(eventCounter);
                     } catch (RuntimeException e) {
                         LOG.warn("Unable to write batch of events: {}", e.getMessage());
                         LOG.debug("Unable to write batch of events: ", e);
@@ -398,7 +452,7 @@ public class ActivityTrackingController implements BackendController, Closeable
         } finally {
             Thread.currentThread().setName(IDLE_THREAD_NAME);
         }
-        LOG.info("Batch ingestion work thread done.");
+        LOG.info("Batch ingestion work thread for shard {} done.", shard);
     }
 
     @Value("${controllers.dblogging.retention:50}")
@@ -416,6 +470,34 @@ public class ActivityTrackingController implements BackendController, Closeable
         this.cleanUpInterval = new DurationConverter().convert(cleanUpInterval);
     }
 
+    @Value("${controllers.dblogging.ingestionShards:0}")
+    public void setIngestionShards(int ingestionShards) {
+        // zero keeps the default based on the number of processors
+        if (ingestionShards > 0) {
+            this.ingestionShards = ingestionShards;
+        }
+    }
+
+    @Value("${controllers.dblogging.inflight.maxEntries:1000}")
+    public void setMaxInflight(int maxInflight) {
+        this.maxInflight = maxInflight;
+    }
+
+    @Value("${controllers.dblogging.inflight.maxBytes:10485760}")
+    public void setMaxInflightBytes(long maxInflightBytes) {
+        this.maxInflightBytes = maxInflightBytes;
+    }
+
+    @Value("${controllers.dblogging.inflight.timeout:30 minutes}")
+    public void setInflightTimeout(String inflightTimeout) {
+        this.inflightTimeout = new DurationConverter().convert(inflightTimeout);
+    }
+
+    @Autowired(required = false)
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
     @Value("${controllers.dblogging.startupDelay:15 seconds}")
     public void setStartupDelay(String startupDelay) {
         this.startupDelay = new DurationConverter().convert(startupDelay);
@@ -429,6 +511,18 @@ public class ActivityTrackingController implements BackendController, Closeable
         return retentionTime;
     }
 
+    public int getMaxInflight() {
+        return maxInflight;
+    }
+
+    public long getMaxInflightBytes() {
+        return maxInflightBytes;
+    }
+
+    public Duration getInflightTimeout() {
+        return inflightTimeout;
+    }
+
     void execute(String podName, Runnable task) {
         if (stopped.get()) {
             LOG.warn("Not executing task: {}, for pod {}, the activity tracking is stopping", task, podName);
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.server.logging.jsondb.controller;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds the activities of a pod that are still in flight, bounded by count,
+ * approximate size and age. Exchanges that never complete, for instance on a
+ * pod crash or truncated logs, are evicted instead of being held forever.
+ * <p>
+ * Not thread safe, used only from the thread processing the pod log. The
+ * size and byte counts can be read from any thread.
+ */
+final class InflightActivities {
+
+    // access ordered, so the least recently updated exchange comes first
+    private final Map<String, InflightData> activities = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long maxAgeMillis;
+
+    private volatile int size;
+    private final AtomicLong bytes = new AtomicLong();
+
+    InflightActivities(int maxEntries, long maxBytes, long maxAgeMillis) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    InflightData get(String exchangeId) {
+        return activities.get(exchangeId);
+    }
+
+    void put(String exchangeId, InflightData data) {
+        activities.put(exchangeId, data);
+        bytes.addAndGet(data.bytes);
+        size = activities.size();
+    }
+
+    InflightData remove(String exchangeId) {
+        InflightData data = activities.remove(exchangeId);
+        if (data != null) {
+            bytes.addAndGet(-data.bytes);
+            size = activities.size();
+        }
+        return data;
+    }
+
+    /**
+     * Records that a log line of the given size was added to the activity.
+     */
+    void touch(InflightData data, int lineBytes, long now) {
+        data.lastSeen = now;
+        data.bytes += lineBytes;
+        bytes.addAndGet(lineBytes);
+    }
+
+    /**
+     * Removes the activities over the count or size limit, least recently
+     * updated first, and the ones not updated within the maximum age.
+     */
+    List<InflightData> evict(long now) {
+        List<InflightData> evicted = null;
+        Iterator<InflightData> eldest = activities.values().iterator();
+        while (eldest.hasNext()) {
+            InflightData data = eldest.next();
+            if (activities.size() <= maxEntries && bytes.get() <= maxBytes && now - data.lastSeen <= maxAgeMillis) {
+                break;
+            }
+
+            eldest.remove();
+            bytes.addAndGet(-data.bytes);
+            if (evicted == null) {
+                evicted = new ArrayList<>();
+            }
+            evicted.add(data);
+        }
+        size = activities.size();
+
+        if (evicted == null) {
+            return Collections.emptyList();
+        }
+        return evicted;
+    }
+
+    /**
+     * Removes and returns all activities.
+     */
+    List<InflightData> removeAll() {
+        List<InflightData> all = new ArrayList<>(activities.values());
+        activities.clear();
+        bytes.set(0);
+        size = 0;
+        return all;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long bytes() {
+        return bytes.get();
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.server.logging.jsondb.controller;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import io.syndesis.common.util.KeyGenerator;
+import io.syndesis.server.endpoint.v1.handler.activity.Activity;
+import io.syndesis.server.endpoint.v1.handler.activity.ActivityStep;
+
+/**
+ * An activity being assembled from the log lines of an exchange that has not
+ * completed yet.
+ */
+class InflightData {
+    Activity activity = new Activity();
+    ArrayList<ActivityStep> doneSteps = new ArrayList<>();
+    Map<String, ActivityStep> activeSteps = new LinkedHashMap<>();
+    Map<String, Object> metadata = new HashMap<>();
+    /** When the last log line of the exchange was seen */
+    long lastSeen;
+    /** Approximate size of the log data held for the exchange */
+    long bytes;
+
+    public ActivityStep getStep(String step, String id) throws IOException {
+        ActivityStep rc = activeSteps.get(step);
+        if (rc == null) {
+            rc = new ActivityStep();
+            rc.setId(step);
+            rc.setAt(KeyGenerator.getKeyTimeMillis(id));
+            activeSteps.put(step, rc);
+        }
+        return rc;
+    }
+}
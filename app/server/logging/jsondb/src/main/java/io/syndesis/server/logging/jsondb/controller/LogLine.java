@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.server.logging.jsondb.controller;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.syndesis.common.util.SuppressFBWarnings;
+import io.syndesis.common.util.json.JsonUtils;
+
+/**
+ * The fields of a structured log line written by an integration, read with a
+ * streaming parser. The well known fields are extracted directly from the
+ * token stream, only any additional fields are bound to Java objects.
+ */
+final class LogLine {
+
+    String exchange;
+    String id;
+    String step;
+    String message;
+    String failure;
+    String status;
+    Long duration;
+    Boolean failed;
+    /** Any other fields, null if there were none */
+    Map<String, Object> fields;
+
+    private LogLine() {
+        // created by parse
+    }
+
+    static LogLine parse(String json) throws IOException {
+        try (JsonParser parser = JsonUtils.reader().createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected a json object");
+            }
+
+            LogLine line = new LogLine();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                switch (name) {
+                case "exchange":
+                    line.exchange = text(parser, value);
+                    break;
+                case "id":
+                    line.id = text(parser, value);
+                    break;
+                case "step":
+                    line.step = text(parser, value);
+                    break;
+                case "message":
+                    line.message = text(parser, value);
+                    break;
+                case "failure":
+                    line.failure = text(parser, value);
+                    break;
+                case "status":
+                    line.status = text(parser, value);
+                    break;
+                case "duration":
+                    line.duration = number(parser, value);
+                    break;
+                case "failed":
+                    line.failed = bool(parser, value);
+                    break;
+                default:
+                    if (line.fields == null) {
+                        line.fields = new HashMap<>();
+                    }
+                    line.fields.put(name, parser.readValueAs(Object.class));
+                    break;
+                }
+            }
+
+            return line;
+        }
+    }
+
+    private static String text(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (value != JsonToken.VALUE_STRING) {
+            throw new JsonParseException(parser, "Expected a string value");
+        }
+        return parser.getText();
+    }
+
+    private static Long number(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (!value.isNumeric()) {
+            throw new JsonParseException(parser, "Expected a numeric value");
+        }
+        return parser.getLongValue();
+    }
+
+    @SuppressFBWarnings("NP_BOOLEAN_RETURN_NULL")
+    private static Boolean bool(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (!value.isBoolean()) {
+            throw new JsonParseException(parser, "Expected a boolean value");
+        }
+        return parser.getBooleanValue();
+    }
+}
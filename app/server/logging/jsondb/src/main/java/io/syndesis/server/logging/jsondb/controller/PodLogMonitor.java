@@ -23,7 +23,7 @@ import java.io.InterruptedIOException;
 import java.net.SocketTimeoutException;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
@@ -34,9 +34,9 @@ import com.fasterxml.jackson.databind.JsonNode;
 import io.fabric8.kubernetes.api.model.Pod;
 import io.syndesis.common.util.KeyGenerator;
 import io.syndesis.common.util.json.JsonUtils;
-import io.syndesis.server.endpoint.v1.handler.activity.Activity;
 import io.syndesis.server.endpoint.v1.handler.activity.ActivityStep;
 import io.syndesis.server.jsondb.JsonDBException;
+import io.syndesis.server.logging.jsondb.store.ActivityRecord;
 import io.syndesis.server.openshift.OpenShiftService;
 import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
@@ -54,6 +54,10 @@ class PodLogMonitor implements Consumer<InputStream> {
     // matches log lines like: 2018-06-06T21:54:36.30603486Z {"exchange":"i-LEM51uGKc6IuIjvR95Vz","status":"begin"}
     private static final Pattern LOG_LINE_REGEX = Pattern.compile("^(\\d\\d\\d\\d\\-\\d\\d\\-\\d\\dT\\d\\d:\\d\\d:\\d\\d\\.\\d+Z) (\\{.*\\})\\s*");
 
+    private static final int READ_BUFFER_SIZE = 8 * 1024;
+
+    private static final int MAX_LINE_LENGTH = 10 * 1024;
+
     private final AtomicBoolean running = new AtomicBoolean(false);
     private final ActivityTrackingController logsController;
     protected final AtomicBoolean markInOpenshift = new AtomicBoolean(true);
@@ -62,7 +66,7 @@ class PodLogMonitor implements Consumer<InputStream> {
     protected final String integrationId;
     protected final String deploymentVersion;
     protected PodLogState state;
-    protected HashMap<String, InflightData> inflightActivities = new HashMap<>();
+    protected final InflightActivities inflightActivities;
 
     PodLogMonitor(ActivityTrackingController logsController, Pod pod) {
         this.logsController = logsController;
@@ -81,6 +85,9 @@ class PodLogMonitor implements Consumer<InputStream> {
         if (this.deploymentVersion == null) {
             throw new IllegalStateException("Could not determine the deployment version that is being run on the pod: " + this.podName);
         }
+
+        this.inflightActivities = new InflightActivities(logsController.getMaxInflight(), logsController.getMaxInflightBytes(),
+            logsController.getInflightTimeout().toMillis());
     }
 
     public void start() throws IOException {
@@ -136,27 +143,35 @@ class PodLogMonitor implements Consumer<InputStream> {
     }
 
     void processLogStream(final InputStream is) throws IOException, InterruptedException {
+        // read in chunks, the log stream is mostly consumed over the network
+        // and reading it byte by byte was the bottleneck of ingestion
+        byte[] buffer = new byte[READ_BUFFER_SIZE];
         ByteArrayOutputStream line = new ByteArrayOutputStream();
-        int c;
 
         while (!logsController.stopped.get()) {
-            c = is.read();
-            if (c < 0) {
+            int read = is.read(buffer);
+            if (read < 0) {
                 break;
             }
 
-            line.write(c);
-            // cut really long lines to avoid blowing up our memory.
-            if (line.size() > 1024 * 10) {
-                // as the string is prematurely cut, add the closing terminator to the json value
-                line.write("\"}".getBytes(UTF_8));
-                c = '\n';
-            }
-
-            if (c == '\n') {
-                processLine(new String(line.toByteArray(), UTF_8));
-                line.reset();
+            int start = 0;
+            for (int i = 0; i < read; i++) {
+                if (buffer[i] == '\n') {
+                    line.write(buffer, start, i + 1 - start);
+                    start = i + 1;
+                    processLine(new String(line.toByteArray(), UTF_8));
+                    line.reset();
+                } else if (line.size() + i + 1 - start > MAX_LINE_LENGTH) {
+                    // cut really long lines to avoid blowing up our memory.
+                    line.write(buffer, start, i + 1 - start);
+                    start = i + 1;
+                    // as the string is prematurely cut, add the closing terminator to the json value
+                    line.write("\"}".getBytes(UTF_8));
+                    processLine(new String(line.toByteArray(), UTF_8));
+                    line.reset();
+                }
             }
+            line.write(buffer, start, read - start);
         }
 
         if (!logsController.stopped.get()) {
@@ -166,28 +181,12 @@ class PodLogMonitor implements Consumer<InputStream> {
             } else {
                 // Seems like the normal case where stream ends because pod is stopped.
                 LOG.info("End of Log stream for terminated pod: {}", podName);
+                // the exchanges still in flight will never complete
+                flushIncomplete(inflightActivities.removeAll());
             }
         }
     }
 
-    private static class InflightData {
-        Activity activity = new Activity();
-        ArrayList<ActivityStep> doneSteps = new ArrayList<>();
-        Map<String, ActivityStep> activeSteps = new LinkedHashMap<>();
-        Map<String, Object> metadata = new HashMap<>();
-
-        public ActivityStep getStep(String step, String id) throws IOException {
-            ActivityStep rc = activeSteps.get(step);
-            if (rc == null) {
-                rc = new ActivityStep();
-                rc.setId(step);
-                rc.setAt(KeyGenerator.getKeyTimeMillis(id));
-                activeSteps.put(step, rc);
-            }
-            return rc;
-        }
-    }
-
     InflightData getInflightData(String exchangeId, String logts) throws IOException {
         InflightData data = inflightActivities.get(exchangeId);
         if (data == null) {
@@ -212,11 +211,10 @@ class PodLogMonitor implements Consumer<InputStream> {
         String time = matcher.group(1);
         String data = matcher.group(2);
         try {
-            @SuppressWarnings("unchecked")
-            Map<String, Object> json = JsonUtils.reader().forType(HashMap.class).readValue(data); //NOPMD
+            LogLine json = LogLine.parse(data);
 
             // are the required fields set?
-            String exchange = validate((String) json.remove("exchange"));
+            String exchange = validate(json.exchange);
             if (exchange == null) {
                 // This log entry is not valid json format
                 return;
@@ -227,10 +225,12 @@ class PodLogMonitor implements Consumer<InputStream> {
                 // This log entry is too old.. don't process it..
                 return;
             }
+            long now = now();
             InflightData inflightData = getInflightData(exchange, time);
+            inflightActivities.touch(inflightData, data.length(), now);
 
-            String id = validate((String) json.remove("id"));
-            String step = (String) json.remove("step");
+            String id = validate(json.id);
+            String step = json.step;
             if (step == null) {
                 // Looks like an exchange level logging event.
                 processLogLineExchange(json, inflightData, exchange, time);
@@ -239,7 +239,9 @@ class PodLogMonitor implements Consumer<InputStream> {
                 processLogLineStep(json, inflightData, step, id);
             }
 
-        } catch (JsonDBException | ClassCastException | IOException ignored) {
+            flushIncomplete(inflightActivities.evict(now));
+
+        } catch (JsonDBException | IOException ignored) {
             /// log record not in the expected format.
         } catch (InterruptedException e) {
             final InterruptedIOException rethrow = new InterruptedIOException(e.getMessage());
@@ -248,9 +250,9 @@ class PodLogMonitor implements Consumer<InputStream> {
         }
     }
 
-    private static void processLogLineStep(Map<String, Object> json, InflightData inflightData, String step, String id) throws IOException {
+    private static void processLogLineStep(LogLine json, InflightData inflightData, String step, String id) throws IOException {
         ActivityStep as = inflightData.getStep(step, id);
-        String message = (String) json.remove("message");
+        String message = json.message;
         if (message != null) {
             if (as.getMessages() == null) {
                 as.setMessages(new ArrayList<>());
@@ -258,21 +260,23 @@ class PodLogMonitor implements Consumer<InputStream> {
             as.getMessages().add(message);
         }
 
-        String failure = (String) json.remove("failure");
+        String failure = json.failure;
         if (failure != null) {
             as.setFailure(failure);
         }
 
-        Number duration = (Number) json.remove("duration");
+        Long duration = json.duration;
         if (duration != null) {
-            as.setDuration(duration.longValue());
+            as.setDuration(duration);
         }
 
-        if (!json.isEmpty()) {
+        // exchange level fields logged on a step are kept as events
+        Map<String, Object> events = otherFields(json.fields, "failed", json.failed, "status", json.status);
+        if (!events.isEmpty()) {
             if (as.getEvents() == null) {
                 as.setEvents(new ArrayList<>());
             }
-            as.getEvents().add(toJsonNode(json));
+            as.getEvents().add(toJsonNode(events));
         }
 
         if (duration != null) {
@@ -288,28 +292,24 @@ class PodLogMonitor implements Consumer<InputStream> {
         }
     }
 
-    private void processLogLineExchange(Map<String, Object> json, InflightData inflightData, String exchange, String time) throws IOException, InterruptedException {
-        Boolean failed = (Boolean) json.remove("failed");
+    private void processLogLineExchange(LogLine json, InflightData inflightData, String exchange, String time) throws IOException, InterruptedException {
+        Boolean failed = json.failed;
         if (failed != null) {
             inflightData.activity.setFailed(failed);
         }
-        String status = (String) json.remove("status");
-        inflightData.metadata.putAll(json);
+        String status = json.status;
+        // step level fields logged on the exchange are kept as metadata
+        inflightData.metadata.putAll(otherFields(json.fields, "message", json.message, "failure", json.failure, "duration", json.duration));
         if (status != null) {
             inflightData.activity.setStatus(status);
             if ("done".equals(status)) {
-                inflightData.activity.setSteps(inflightData.doneSteps);
-                if (!inflightData.metadata.isEmpty()) {
-                    inflightData.activity.setMetadata(toJsonNode(inflightData.metadata));
-                }
-
-                String activityAsString = JsonUtils.writer().writeValueAsString(inflightData.activity);
-                String transactionPath = format("/exchanges/%s/%s", integrationId, exchange);
                 inflightActivities.remove(exchange);
 
-                logsController.eventQueue.put(batch -> {
-                    // Do as little as possible in here, single thread processes the event queue.
-                    batch.put(transactionPath, activityAsString);
+                ActivityRecord activity = toActivityRecord(inflightData);
+                String transactionPath = format("/exchanges/%s/%s", integrationId, exchange);
+                logsController.enqueue(integrationId, batch -> {
+                    // Do as little as possible in here, a single thread processes the event queue of the shard.
+                    batch.put(transactionPath, activity);
                     trackState(time, batch);
                 });
 
@@ -317,10 +317,64 @@ class PodLogMonitor implements Consumer<InputStream> {
         }
     }
 
+    /**
+     * Stores activities that will not complete, with the steps seen so far,
+     * as {@code incomplete}.
+     */
+    private void flushIncomplete(List<InflightData> evicted) throws IOException, InterruptedException {
+        if (evicted.isEmpty()) {
+            return;
+        }
+
+        for (InflightData inflightData : evicted) {
+            inflightData.activity.setStatus("incomplete");
+            for (ActivityStep step : inflightData.activeSteps.values()) {
+                if (inflightData.doneSteps.size() >= 50) {
+                    break;
+                }
+                inflightData.doneSteps.add(step);
+            }
+
+            ActivityRecord activity = toActivityRecord(inflightData);
+            String transactionPath = format("/exchanges/%s/%s", integrationId, inflightData.activity.getId());
+            logsController.enqueue(integrationId, batch -> {
+                batch.put(transactionPath, activity);
+                batch.put("/integrations/" + integrationId, Boolean.TRUE);
+            });
+        }
+
+        logsController.recordInflightEvictions(evicted.size());
+        LOG.debug("Stored {} incomplete activities for pod: {}", evicted.size(), podName);
+    }
+
+    private ActivityRecord toActivityRecord(InflightData inflightData) throws IOException {
+        inflightData.activity.setSteps(inflightData.doneSteps);
+        if (!inflightData.metadata.isEmpty()) {
+            inflightData.activity.setMetadata(toJsonNode(inflightData.metadata));
+        }
+
+        String activityAsString = JsonUtils.writer().writeValueAsString(inflightData.activity);
+        return new ActivityRecord(integrationId, inflightData.activity.getId(), inflightData.activity.getAt(),
+            Boolean.TRUE.equals(inflightData.activity.getFailed()), activityAsString);
+    }
+
     long now() {
         return System.currentTimeMillis();
     }
 
+    private static Map<String, Object> otherFields(Map<String, Object> fields, Object... additional) {
+        Map<String, Object> rc = new HashMap<>();
+        if (fields != null) {
+            rc.putAll(fields);
+        }
+        for (int i = 0; i + 1 < additional.length; i += 2) {
+            if (additional[i + 1] != null) {
+                rc.put((String) additional[i], additional[i + 1]);
+            }
+        }
+        return rc;
+    }
+
     private static JsonNode toJsonNode(Map<String, Object> json) throws IOException {
         return JsonUtils.reader().readTree(JsonUtils.writer().writeValueAsString(json));
     }
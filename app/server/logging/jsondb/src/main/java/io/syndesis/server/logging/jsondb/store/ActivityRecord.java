@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.server.logging.jsondb.store;
+
+/**
+ * A single activity ready to be persisted by an {@link ActivityStore}.
+ */
+public final class ActivityRecord {
+
+    private final String integrationId;
+    private final String exchangeId;
+    private final long at;
+    private final boolean failed;
+    private final String payload;
+
+    public ActivityRecord(String integrationId, String exchangeId, long at, boolean failed, String payload) {
+        this.integrationId = integrationId;
+        this.exchangeId = exchangeId;
+        this.at = at;
+        this.failed = failed;
+        this.payload = payload;
+    }
+
+    public String getIntegrationId() {
+        return integrationId;
+    }
+
+    public String getExchangeId() {
+        return exchangeId;
+    }
+
+    /**
+     * Time the exchange started at, in milliseconds since epoch.
+     */
+    public long getAt() {
+        return at;
+    }
+
+    public boolean isFailed() {
+        return failed;
+    }
+
+    /**
+     * The activity serialized as JSON.
+     */
+    public String getPayload() {
+        return payload;
+    }
+}
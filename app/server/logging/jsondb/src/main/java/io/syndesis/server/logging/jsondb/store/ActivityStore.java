@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.server.logging.jsondb.store;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Persists the activities (completed exchanges) ingested from the integration
+ * pod logs and serves them back to the activity tracking REST endpoint.
+ */
+public interface ActivityStore {
+
+    /**
+     * Creates any storage structures needed by the store, called once on
+     * startup.
+     */
+    void open();
+
+    /**
+     * Inserts or replaces the given activities in a single transaction.
+     */
+    void store(Collection<ActivityRecord> activities);
+
+    /**
+     * Fetches the JSON of the most recent activities of an integration,
+     * newest first.
+     *
+     * @param integrationId the integration the activities belong to
+     * @param startAfter if not null only activities older than this exchange
+     *            id are returned
+     * @param limit maximum number of activities to return
+     */
+    List<String> fetch(String integrationId, String startAfter, int limit);
+
+    /**
+     * Removes all but the {@code retention} most recent activities of the
+     * integration.
+     *
+     * @return the number of activities removed
+     */
+    int purge(String integrationId, int retention);
+
+    /**
+     * Removes activities of all integrations older than the given retention
+     * time.
+     */
+    void purgeOlderThan(Duration retentionTime);
+}
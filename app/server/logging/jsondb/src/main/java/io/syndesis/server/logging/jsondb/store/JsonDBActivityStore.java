@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.server.logging.jsondb.store;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.PostConstruct;
+
+import io.syndesis.common.util.json.JsonUtils;
+import io.syndesis.server.jsondb.GetOptions;
+import io.syndesis.server.jsondb.impl.JsonRecordSupport;
+import io.syndesis.server.jsondb.impl.SqlJsonDB;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.PreparedBatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stores activities in the shared jsondb table under
+ * {@code /activity/exchanges/<integrationId>/<exchangeId>}.
+ */
+@Component
+@ConditionalOnProperty(value = "controllers.dblogging.store", havingValue = "jsondb", matchIfMissing = true)
+public class JsonDBActivityStore implements ActivityStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JsonDBActivityStore.class);
+
+    private final SqlJsonDB jsondb;
+    private final DBI dbi;
+    private final AtomicBoolean opened = new AtomicBoolean();
+    private SqlJsonDB.DatabaseKind databaseKind;
+
+    @Autowired
+    public JsonDBActivityStore(SqlJsonDB jsondb, DBI dbi) {
+        this.jsondb = jsondb;
+        this.dbi = dbi;
+    }
+
+    @Override
+    @PostConstruct
+    public void open() {
+        if (opened.compareAndSet(false, true)) {
+            databaseKind = jsondb.getDatabaseKind();
+        }
+    }
+
+    @Override
+    public void store(Collection<ActivityRecord> activities) {
+        dbi.inTransaction((conn, status) -> {
+            final String sql;
+            if( databaseKind == SqlJsonDB.DatabaseKind.PostgreSQL ) {
+                // Lets update if the record exists.
+                sql =  "INSERT into jsondb (path, value) values (:path, :value) "
+                        + "ON CONFLICT (path) DO UPDATE SET value = :value";
+            } else if (databaseKind == SqlJsonDB.DatabaseKind.H2) {
+                sql =  "MERGE INTO jsondb (path, value) VALUES (:path, :value)";
+            } else {
+                sql = "INSERT into jsondb (path, value) values (:path, :value)";
+            }
+
+            PreparedBatch insert = conn.prepareBatch(sql);
+            for (ActivityRecord activity : activities) {
+                insert
+                    .bind("path", "/activity/exchanges/" + activity.getIntegrationId() + "/" + activity.getExchangeId() + "/")
+                    .bind("value", JsonRecordSupport.STRING_VALUE_PREFIX + activity.getPayload())
+                    .add();
+            }
+            return insert.execute();
+        });
+    }
+
+    @Override
+    public List<String> fetch(String integrationId, String startAfter, int limit) {
+        GetOptions options = new GetOptions()
+            .order(GetOptions.Order.DESC) // reverse the order since we want most recent exchanges first.
+            .startAfter(startAfter).limitToFirst(limit); // allow paging
+
+        // scan pushes the limit down to the database and hands us each
+        // exchange as it is read instead of the whole subtree at once
+        List<String> rc = new ArrayList<>();
+        jsondb.scan("/activity/exchanges/" + integrationId, options, (key, data) -> {
+            try {
+                String value = JsonUtils.reader().readTree(data).textValue();
+                if (value != null) {
+                    rc.add(value);
+                }
+            } catch (IOException | RuntimeException ignored) {
+                LOG.debug("Could convert entry: {}", key, ignored);
+            }
+        });
+        return rc;
+    }
+
+    @Override
+    public int purge(String integrationId, int retention) {
+        return dbi.inTransaction((conn, status) -> {
+            final String skipLocked = databaseKind == SqlJsonDB.DatabaseKind.PostgreSQL ? "FOR KEY SHARE SKIP LOCKED " : "";
+
+            final String sql = "DELETE FROM jsondb WHERE path IN ("
+                + "SELECT path "
+                + "FROM jsondb "
+                + "WHERE path LIKE ? "
+                + "ORDER BY path DESC "
+                + skipLocked
+                + "OFFSET ? ROWS"
+                + ")";
+
+            return conn.update(sql, "/activity/exchanges/" + integrationId + "/%", retention);
+        });
+    }
+
+    @Override
+    public void purgeOlderThan(Duration retentionTime) {
+        // activities kept in the jsondb table are only limited by count, see
+        // purge(String, int)
+    }
+}
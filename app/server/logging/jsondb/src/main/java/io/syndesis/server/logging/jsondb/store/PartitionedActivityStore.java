@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.server.logging.jsondb.store;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.PostConstruct;
+
+import io.syndesis.server.jsondb.impl.SqlJsonDB;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.PreparedBatch;
+import org.skife.jdbi.v2.Query;
+import org.skife.jdbi.v2.util.StringColumnMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stores activities in a dedicated {@code activity} table with typed columns,
+ * keeping the high volume of activity writes and purges away from the
+ * configuration data held in the jsondb table.
+ * <p>
+ * On PostgreSQL the table is range partitioned by day on the start time of the
+ * exchange so that expired activities are removed by dropping whole partitions
+ * instead of deleting rows. Other databases use a single table.
+ */
+@Component
+@ConditionalOnProperty(value = "controllers.dblogging.store", havingValue = "partitioned")
+public class PartitionedActivityStore implements ActivityStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PartitionedActivityStore.class);
+
+    private static final long PARTITION_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    private static final String PARTITION_PREFIX = "activity_p";
+
+    private final SqlJsonDB jsondb;
+    private final DBI dbi;
+    private final AtomicBoolean opened = new AtomicBoolean();
+    /** Partitions known to exist, by day since epoch */
+    private final Set<Long> partitions = ConcurrentHashMap.newKeySet();
+    private SqlJsonDB.DatabaseKind databaseKind;
+
+    @Autowired
+    public PartitionedActivityStore(SqlJsonDB jsondb, DBI dbi) {
+        this.jsondb = jsondb;
+        this.dbi = dbi;
+    }
+
+    @Override
+    @PostConstruct
+    public void open() {
+        if (!opened.compareAndSet(false, true)) {
+            return;
+        }
+
+        databaseKind = jsondb.getDatabaseKind();
+        try (Handle h = dbi.open()) {
+            if (isPartitioned()) {
+                h.update("CREATE TABLE IF NOT EXISTS activity (integration_id VARCHAR COLLATE \"C\" NOT NULL, exchange_id VARCHAR COLLATE \"C\" NOT NULL, "
+                    + "started_at BIGINT NOT NULL, failed BOOLEAN NOT NULL, payload VARCHAR NOT NULL, PRIMARY KEY (integration_id, exchange_id, started_at)) PARTITION BY RANGE (started_at)");
+
+                final List<String> existing = h.createQuery("SELECT c.relname FROM pg_inherits i "
+                    + "JOIN pg_class c ON c.oid = i.inhrelid JOIN pg_class p ON p.oid = i.inhparent WHERE p.relname = 'activity'")
+                    .map(StringColumnMapper.INSTANCE).list();
+                for (String partition : existing) {
+                    if (partition.startsWith(PARTITION_PREFIX)) {
+                        partitions.add(Long.valueOf(partition.substring(PARTITION_PREFIX.length())));
+                    }
+                }
+            } else {
+                h.update("CREATE TABLE IF NOT EXISTS activity (integration_id VARCHAR NOT NULL, exchange_id VARCHAR NOT NULL, "
+                    + "started_at BIGINT NOT NULL, failed BOOLEAN NOT NULL, payload VARCHAR NOT NULL, PRIMARY KEY (integration_id, exchange_id, started_at))");
+                h.update("CREATE INDEX IF NOT EXISTS activity_at_idx ON activity (started_at)");
+            }
+        }
+    }
+
+    @Override
+    public void store(Collection<ActivityRecord> activities) {
+        if (isPartitioned()) {
+            for (ActivityRecord activity : activities) {
+                ensurePartition(activity.getAt() / PARTITION_MILLIS);
+            }
+        }
+
+        dbi.inTransaction((conn, status) -> {
+            final String sql;
+            if (databaseKind == SqlJsonDB.DatabaseKind.PostgreSQL) {
+                sql = "INSERT INTO activity (integration_id, exchange_id, started_at, failed, payload) VALUES (:integrationId, :exchangeId, :at, :failed, :payload) "
+                    + "ON CONFLICT (integration_id, exchange_id, started_at) DO UPDATE SET failed = :failed, payload = :payload";
+            } else if (databaseKind == SqlJsonDB.DatabaseKind.H2) {
+                sql = "MERGE INTO activity (integration_id, exchange_id, started_at, failed, payload) VALUES (:integrationId, :exchangeId, :at, :failed, :payload)";
+            } else if (databaseKind == SqlJsonDB.DatabaseKind.CockroachDB) {
+                sql = "UPSERT INTO activity (integration_id, exchange_id, started_at, failed, payload) VALUES (:integrationId, :exchangeId, :at, :failed, :payload)";
+            } else {
+                sql = "INSERT INTO activity (integration_id, exchange_id, started_at, failed, payload) VALUES (:integrationId, :exchangeId, :at, :failed, :payload)";
+            }
+
+            PreparedBatch insert = conn.prepareBatch(sql);
+            for (ActivityRecord activity : activities) {
+                insert
+                    .bind("integrationId", activity.getIntegrationId())
+                    .bind("exchangeId", activity.getExchangeId())
+                    .bind("at", activity.getAt())
+                    .bind("failed", activity.isFailed())
+                    .bind("payload", activity.getPayload())
+                    .add();
+            }
+            return insert.execute();
+        });
+    }
+
+    @Override
+    public List<String> fetch(String integrationId, String startAfter, int limit) {
+        try (Handle h = dbi.open()) {
+            final StringBuilder sql = new StringBuilder("SELECT payload FROM activity WHERE integration_id = :integrationId");
+            if (startAfter != null) {
+                sql.append(" AND exchange_id < :startAfter");
+            }
+            sql.append(" ORDER BY exchange_id DESC LIMIT :limit");
+
+            final Query<String> query = h.createQuery(sql.toString())
+                .bind("integrationId", integrationId)
+                .bind("limit", limit)
+                .map(StringColumnMapper.INSTANCE);
+            if (startAfter != null) {
+                query.bind("startAfter", startAfter);
+            }
+
+            return query.list();
+        }
+    }
+
+    @Override
+    public int purge(String integrationId, int retention) {
+        return dbi.inTransaction((conn, status) -> conn.update("DELETE FROM activity WHERE integration_id = ? AND exchange_id <= ("
+            + "SELECT exchange_id FROM activity WHERE integration_id = ? ORDER BY exchange_id DESC LIMIT 1 OFFSET ?)",
+            integrationId, integrationId, retention));
+    }
+
+    @Override
+    public void purgeOlderThan(Duration retentionTime) {
+        final long until = System.currentTimeMillis() - retentionTime.toMillis();
+
+        if (!isPartitioned()) {
+            final int count = dbi.inTransaction((conn, status) -> conn.update("DELETE FROM activity WHERE started_at < ?", until));
+            LOG.info("deleted {} activities older than {}", count, retentionTime);
+            return;
+        }
+
+        // only partitions that end before the cut off time can be dropped,
+        // the rest will age out on a later run
+        for (Long day : partitions) {
+            if ((day + 1) * PARTITION_MILLIS <= until) {
+                try (Handle h = dbi.open()) {
+                    h.update("DROP TABLE IF EXISTS " + PARTITION_PREFIX + day);
+                }
+                partitions.remove(day);
+                LOG.info("dropped activity partition {}{}", PARTITION_PREFIX, day);
+            }
+        }
+    }
+
+    private void ensurePartition(long day) {
+        if (partitions.contains(day)) {
+            return;
+        }
+
+        try (Handle h = dbi.open()) {
+            h.update("CREATE TABLE IF NOT EXISTS " + PARTITION_PREFIX + day + " PARTITION OF activity FOR VALUES FROM ("
+                + day * PARTITION_MILLIS + ") TO (" + (day + 1) * PARTITION_MILLIS + ")");
+        }
+        partitions.add(day);
+    }
+
+    private boolean isPartitioned() {
+        return databaseKind == SqlJsonDB.DatabaseKind.PostgreSQL;
+    }
+}
@@ -39,7 +39,6 @@ import io.fabric8.kubernetes.client.KubernetesClient;
 import io.syndesis.common.util.KeyGenerator;
 import io.syndesis.common.util.json.JsonUtils;
 import io.syndesis.server.jsondb.GetOptions;
-import io.syndesis.server.jsondb.JsonDB;
 import io.syndesis.server.jsondb.impl.SqlJsonDB;
 import io.syndesis.server.openshift.OpenShiftService;
 
@@ -64,7 +63,7 @@ public class ActivityTrackingControllerTest {
 
         private final long time;
 
-        private StubbedController(JsonDB jsondb, DBI dbi, KubernetesClient client, InputStream podLogs, long time) {
+        private StubbedController(SqlJsonDB jsondb, DBI dbi, KubernetesClient client, InputStream podLogs, long time) {
             super(jsondb, dbi, client);
             this.podLogs = podLogs;
             this.time = time;
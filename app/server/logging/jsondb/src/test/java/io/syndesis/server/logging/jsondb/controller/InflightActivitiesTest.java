@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.server.logging.jsondb.controller;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InflightActivitiesTest {
+
+    @Test
+    public void shouldEvictLeastRecentlyUpdatedOverCount() {
+        final InflightActivities inflight = new InflightActivities(2, Long.MAX_VALUE, Long.MAX_VALUE);
+
+        final InflightData first = add(inflight, "e1", 10, 0);
+        final InflightData second = add(inflight, "e2", 10, 1);
+        final InflightData third = add(inflight, "e3", 10, 2);
+
+        // updating the first exchange makes the second the eldest
+        inflight.get("e1");
+        inflight.touch(first, 10, 3);
+
+        assertThat(inflight.evict(3)).containsExactly(second);
+        assertThat(inflight.size()).isEqualTo(2);
+        assertThat(inflight.bytes()).isEqualTo(30);
+        assertThat(inflight.get("e3")).isSameAs(third);
+    }
+
+    @Test
+    public void shouldEvictOverSize() {
+        final InflightActivities inflight = new InflightActivities(100, 25, Long.MAX_VALUE);
+
+        final InflightData first = add(inflight, "e1", 10, 0);
+        add(inflight, "e2", 10, 0);
+        add(inflight, "e3", 10, 0);
+
+        assertThat(inflight.evict(0)).containsExactly(first);
+        assertThat(inflight.bytes()).isEqualTo(20);
+    }
+
+    @Test
+    public void shouldEvictExpired() {
+        final InflightActivities inflight = new InflightActivities(100, Long.MAX_VALUE, 1000);
+
+        final InflightData first = add(inflight, "e1", 10, 0);
+        add(inflight, "e2", 10, 500);
+
+        assertThat(inflight.evict(1000)).isEmpty();
+        assertThat(inflight.evict(1001)).containsExactly(first);
+        assertThat(inflight.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldReleaseBytesOnRemove() {
+        final InflightActivities inflight = new InflightActivities(100, Long.MAX_VALUE, Long.MAX_VALUE);
+
+        add(inflight, "e1", 10, 0);
+        inflight.remove("e1");
+
+        assertThat(inflight.size()).isZero();
+        assertThat(inflight.bytes()).isZero();
+    }
+
+    private static InflightData add(InflightActivities inflight, String exchangeId, int bytes, long now) {
+        final InflightData data = new InflightData();
+        inflight.put(exchangeId, data);
+        inflight.touch(data, bytes, now);
+        return data;
+    }
+}
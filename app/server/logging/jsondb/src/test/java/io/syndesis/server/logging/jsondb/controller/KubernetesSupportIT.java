@@ -34,7 +34,7 @@ import io.fabric8.kubernetes.client.Config;
 import io.fabric8.kubernetes.client.ConfigBuilder;
 import io.fabric8.kubernetes.client.DefaultKubernetesClient;
 import io.fabric8.kubernetes.client.NamespacedKubernetesClient;
-import io.syndesis.server.jsondb.JsonDB;
+import io.syndesis.server.jsondb.impl.SqlJsonDB;
 import io.syndesis.server.openshift.OpenShiftService;
 
 import org.junit.jupiter.api.AfterEach;
@@ -104,7 +104,7 @@ public class KubernetesSupportIT {
                 .endStatus()//
                 .build();
 
-            final JsonDB jsondb = mock(JsonDB.class);
+            final SqlJsonDB jsondb = mock(SqlJsonDB.class);
             final DBI dbi = mock(DBI.class);
 
             // we're using the mock HTTP server to emulate K8S API server, but
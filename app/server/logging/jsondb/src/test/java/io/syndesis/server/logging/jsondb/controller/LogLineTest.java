@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.server.logging.jsondb.controller;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.entry;
+
+public class LogLineTest {
+
+    @Test
+    public void shouldParseKnownFields() throws IOException {
+        final LogLine line = LogLine.parse("{\"exchange\":\"i-LEM51uGKc6IuIjvR95Vz\",\"step\":\"s2\",\"id\":\"i-L38cZ5Jd1L876xV4vEGz\",\"duration\":582977,\"failure\":\"boom\"}");
+
+        assertThat(line.exchange).isEqualTo("i-LEM51uGKc6IuIjvR95Vz");
+        assertThat(line.step).isEqualTo("s2");
+        assertThat(line.id).isEqualTo("i-L38cZ5Jd1L876xV4vEGz");
+        assertThat(line.duration).isEqualTo(582977L);
+        assertThat(line.failure).isEqualTo("boom");
+        assertThat(line.fields).isNull();
+    }
+
+    @Test
+    public void shouldCollectOtherFields() throws IOException {
+        final LogLine line = LogLine.parse("{\"exchange\":\"e\",\"status\":\"done\",\"failed\":true,\"custom\":{\"a\":1},\"other\":\"x\"}");
+
+        assertThat(line.status).isEqualTo("done");
+        assertThat(line.failed).isTrue();
+        assertThat(line.fields).containsOnly(entry("other", "x"), entry("custom", Collections.singletonMap("a", 1)));
+    }
+
+    @Test
+    public void shouldRejectUnexpectedTypes() {
+        assertThatExceptionOfType(IOException.class).isThrownBy(() -> LogLine.parse("{\"exchange\":1}"));
+        assertThatExceptionOfType(IOException.class).isThrownBy(() -> LogLine.parse("[]"));
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.server.logging.jsondb.store;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.syndesis.server.jsondb.impl.SqlJsonDB;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.util.StringColumnMapper;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Testcontainers
+public class PartitionedActivityStoreITCase {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRESQL = new PostgreSQLContainer<>("postgres:12.6");
+
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    private DBI dbi;
+
+    private PartitionedActivityStore store;
+
+    @BeforeEach
+    public void createTable() {
+        dbi = new DBI(POSTGRESQL.getJdbcUrl(), POSTGRESQL.getUsername(), POSTGRESQL.getPassword());
+        try (Handle h = dbi.open()) {
+            // dropping the parent table drops all of its partitions
+            h.update("DROP TABLE IF EXISTS activity");
+        }
+        store = new PartitionedActivityStore(new SqlJsonDB(dbi, null), dbi);
+        store.open();
+    }
+
+    @Test
+    public void shouldStoreActivitiesInDailyPartitions() {
+        final long now = System.currentTimeMillis();
+        final long today = now / DAY;
+        store.store(Arrays.asList(
+            activity("i1", "e1", now - 2 * DAY),
+            activity("i1", "e2", now),
+            activity("i1", "e3", now)));
+
+        assertThat(partitions()).containsExactlyInAnyOrder("activity_p" + (today - 2), "activity_p" + today);
+        assertThat(count("activity_p" + today)).isEqualTo(2);
+        assertThat(count("activity_p" + (today - 2))).isEqualTo(1);
+        assertThat(store.fetch("i1", null, 10)).containsExactly("{\"id\":\"e3\"}", "{\"id\":\"e2\"}", "{\"id\":\"e1\"}");
+    }
+
+    @Test
+    public void shouldReplaceStoredActivityWithinPartition() {
+        final long now = System.currentTimeMillis();
+        store.store(Arrays.asList(activity("i1", "e1", now)));
+        store.store(Arrays.asList(new ActivityRecord("i1", "e1", now, true, "{\"id\":\"e1\",\"failed\":true}")));
+
+        assertThat(store.fetch("i1", null, 10)).containsExactly("{\"id\":\"e1\",\"failed\":true}");
+        assertThat(partitions()).containsExactly("activity_p" + now / DAY);
+    }
+
+    @Test
+    public void shouldDropExpiredPartitions() {
+        final long now = System.currentTimeMillis();
+        store.store(Arrays.asList(
+            activity("i1", "e1", now - 3 * DAY),
+            activity("i1", "e2", now - 2 * DAY),
+            activity("i1", "e3", now)));
+
+        store.purgeOlderThan(Duration.ofDays(1));
+
+        assertThat(partitions()).containsExactly("activity_p" + now / DAY);
+        assertThat(store.fetch("i1", null, 10)).containsExactly("{\"id\":\"e3\"}");
+    }
+
+    @Test
+    public void shouldPickUpExistingPartitionsWhenOpened() {
+        final long now = System.currentTimeMillis();
+        store.store(Arrays.asList(
+            activity("i1", "e1", now - 3 * DAY),
+            activity("i1", "e2", now)));
+
+        // a new store knows about the partitions only through pg_inherits
+        final PartitionedActivityStore reopened = new PartitionedActivityStore(new SqlJsonDB(dbi, null), dbi);
+        reopened.open();
+        reopened.purgeOlderThan(Duration.ofDays(1));
+
+        assertThat(partitions()).containsExactly("activity_p" + now / DAY);
+
+        reopened.store(Arrays.asList(activity("i1", "e3", now)));
+        assertThat(reopened.fetch("i1", null, 10)).containsExactly("{\"id\":\"e3\"}", "{\"id\":\"e2\"}");
+    }
+
+    private List<String> partitions() {
+        try (Handle h = dbi.open()) {
+            return h.createQuery("SELECT c.relname FROM pg_inherits i "
+                + "JOIN pg_class c ON c.oid = i.inhrelid JOIN pg_class p ON p.oid = i.inhparent WHERE p.relname = 'activity'")
+                .map(StringColumnMapper.INSTANCE).list();
+        }
+    }
+
+    private int count(String table) {
+        try (Handle h = dbi.open()) {
+            return h.createQuery("SELECT COUNT(*) FROM " + table).mapTo(Integer.class).first();
+        }
+    }
+
+    private static ActivityRecord activity(String integrationId, String exchangeId, long at) {
+        return new ActivityRecord(integrationId, exchangeId, at, false, "{\"id\":\"" + exchangeId + "\"}");
+    }
+}
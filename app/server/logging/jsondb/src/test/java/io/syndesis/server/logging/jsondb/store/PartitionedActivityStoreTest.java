@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.server.logging.jsondb.store;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+import io.syndesis.server.jsondb.impl.SqlJsonDB;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.Handle;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PartitionedActivityStoreTest {
+
+    private DBI dbi;
+
+    private PartitionedActivityStore store;
+
+    @BeforeEach
+    public void before() {
+        JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:activity;DB_CLOSE_DELAY=-1;MODE=PostgreSQL");
+        dbi = new DBI(ds);
+        store = new PartitionedActivityStore(new SqlJsonDB(dbi, null), dbi);
+        store.open();
+    }
+
+    @AfterEach
+    public void after() {
+        try (Handle h = dbi.open()) {
+            h.update("DROP TABLE activity");
+        }
+    }
+
+    @Test
+    public void shouldFetchNewestFirstWithPaging() {
+        final long now = System.currentTimeMillis();
+        store.store(Arrays.asList(
+            activity("i1", "e1", now),
+            activity("i1", "e2", now),
+            activity("i1", "e3", now),
+            activity("i2", "e4", now)));
+
+        assertThat(store.fetch("i1", null, 2)).containsExactly("{\"id\":\"e3\"}", "{\"id\":\"e2\"}");
+        assertThat(store.fetch("i1", "e2", 2)).containsExactly("{\"id\":\"e1\"}");
+        assertThat(store.fetch("i2", null, 10)).containsExactly("{\"id\":\"e4\"}");
+    }
+
+    @Test
+    public void shouldReplaceStoredActivity() {
+        final long now = System.currentTimeMillis();
+        store.store(Arrays.asList(activity("i1", "e1", now)));
+        store.store(Arrays.asList(new ActivityRecord("i1", "e1", now, true, "{\"id\":\"e1\",\"failed\":true}")));
+
+        assertThat(store.fetch("i1", null, 10)).containsExactly("{\"id\":\"e1\",\"failed\":true}");
+    }
+
+    @Test
+    public void shouldPurgeKeepingRetention() {
+        final long now = System.currentTimeMillis();
+        store.store(Arrays.asList(
+            activity("i1", "e1", now),
+            activity("i1", "e2", now),
+            activity("i1", "e3", now),
+            activity("i2", "e4", now)));
+
+        assertThat(store.purge("i1", 1)).isEqualTo(2);
+        assertThat(store.fetch("i1", null, 10)).containsExactly("{\"id\":\"e3\"}");
+        assertThat(store.fetch("i2", null, 10)).containsExactly("{\"id\":\"e4\"}");
+    }
+
+    @Test
+    public void shouldPurgeOlderThanRetentionTime() {
+        final long now = System.currentTimeMillis();
+        store.store(Arrays.asList(
+            activity("i1", "e1", now - Duration.ofDays(2).toMillis()),
+            activity("i1", "e2", now)));
+
+        store.purgeOlderThan(Duration.ofDays(1));
+
+        assertThat(store.fetch("i1", null, 10)).containsExactly("{\"id\":\"e2\"}");
+    }
+
+    private static ActivityRecord activity(String integrationId, String exchangeId, long at) {
+        return new ActivityRecord(integrationId, exchangeId, at, false, "{\"id\":\"" + exchangeId + "\"}");
+    }
+}
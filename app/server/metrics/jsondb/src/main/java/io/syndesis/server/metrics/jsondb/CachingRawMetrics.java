@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.server.metrics.jsondb;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the last known {@link RawMetrics} of each integration in memory in
+ * front of another {@link RawMetricsHandler}. Pod readers only reach the
+ * delegate when the metrics of a pod actually changed, and the integrations
+ * touched since the last {@link #drainChanged()} are tracked so the
+ * collector can recompute just those summaries.
+ */
+public class CachingRawMetrics implements RawMetricsHandler {
+
+    private static final String HISTORY = "HISTORY";
+
+    private final RawMetricsHandler delegate;
+
+    private final Map<String, Map<String, RawMetrics>> metricsByIntegration = new ConcurrentHashMap<>();
+
+    private final Set<String> changed = ConcurrentHashMap.newKeySet();
+
+    public CachingRawMetrics(RawMetricsHandler delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void persist(RawMetrics rawMetrics) {
+        String integrationId = rawMetrics.getIntegrationId();
+        Map<String, RawMetrics> metrics = metricsByIntegration.get(integrationId);
+        if (metrics != null && rawMetrics.equals(metrics.get(rawMetrics.getPod()))) {
+            return;
+        }
+
+        delegate.persist(rawMetrics);
+        if (metrics != null) {
+            metrics.put(rawMetrics.getPod(), rawMetrics);
+        }
+        changed.add(integrationId);
+    }
+
+    /**
+     * Returns the metrics of the integration, read from the delegate only
+     * the first time or after the dead pod curation rewrote them.
+     */
+    @Override
+    public Map<String, RawMetrics> getRawMetrics(String integrationId) throws IOException {
+        Map<String, RawMetrics> metrics = metricsByIntegration.get(integrationId);
+        if (metrics == null) {
+            metrics = new ConcurrentHashMap<>(delegate.getRawMetrics(integrationId));
+            metricsByIntegration.put(integrationId, metrics);
+        }
+
+        return Collections.unmodifiableMap(new HashMap<>(metrics));
+    }
+
+    /**
+     * Delegates only when there are metrics of dead pods to move to the
+     * history bucket, in which case the cached metrics are dropped.
+     */
+    @Override
+    public void curate(String integrationId, Map<String, RawMetrics> metrics, Set<String> livePodIds) throws IOException {
+        if (!hasDeadPods(metrics, livePodIds)) {
+            return;
+        }
+
+        delegate.curate(integrationId, metrics, livePodIds);
+        metricsByIntegration.remove(integrationId);
+        changed.add(integrationId);
+    }
+
+    @Override
+    public void curate(Set<String> activeIntegrationIds) throws IOException {
+        delegate.curate(activeIntegrationIds);
+        metricsByIntegration.keySet().retainAll(activeIntegrationIds);
+        changed.retainAll(activeIntegrationIds);
+    }
+
+    /**
+     * Returns the ids of the integrations whose metrics changed since the
+     * last invocation.
+     */
+    public Set<String> drainChanged() {
+        Set<String> drained = new HashSet<>();
+        for (String integrationId : changed) {
+            if (changed.remove(integrationId)) {
+                drained.add(integrationId);
+            }
+        }
+
+        return drained;
+    }
+
+    static boolean hasDeadPods(Map<String, RawMetrics> metrics, Set<String> livePodIds) {
+        for (Map.Entry<String, RawMetrics> entry : metrics.entrySet()) {
+            String historyKey = HISTORY + entry.getValue().getVersion();
+            if (!entry.getKey().contains(historyKey) && !livePodIds.contains(entry.getKey())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
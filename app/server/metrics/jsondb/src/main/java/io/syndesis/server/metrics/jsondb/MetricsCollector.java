@@ -17,21 +17,31 @@ package io.syndesis.server.metrics.jsondb;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import javax.annotation.PostConstruct;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
@@ -39,11 +49,25 @@ import org.springframework.stereotype.Service;
 import io.fabric8.kubernetes.api.model.Pod;
 import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.internal.readiness.Readiness;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.syndesis.common.util.DurationConverter;
 import io.syndesis.server.dao.manager.DataManager;
 import io.syndesis.server.jsondb.JsonDB;
 import io.syndesis.common.model.integration.Integration;
 import io.syndesis.common.model.metrics.IntegrationMetricsSummary;
 
+/**
+ * Periodically reads the metrics of all ready integration pods and keeps
+ * the {@link IntegrationMetricsSummary} of each integration up to date.
+ * Raw metrics are held in memory, so on each collection only the summaries
+ * of integrations whose raw metrics or live pods changed are recomputed,
+ * and only summaries that differ from the last persisted ones are written.
+ * All summaries are recomputed every {@code metrics.collector.fullRefresh}
+ * to keep the uptime current.
+ */
 @Service
 @ConditionalOnProperty(value = "metrics.kind", havingValue = "sql")
 @SuppressWarnings("PMD.DoNotUseThreads")
@@ -51,19 +75,33 @@ public class MetricsCollector implements Runnable, Closeable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(MetricsCollector.class);
 
+    private static final long INTERVAL_SECONDS = 10;
+
     private final KubernetesClient kubernetes;
     private final DataManager dataManager;
-    private final RawMetricsHandler rmh;
+    private final CachingRawMetrics rmh;
     private final IntegrationMetricsHandler imh;
 
     private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
-    private final ExecutorService executor = Executors.newCachedThreadPool(new CustomizableThreadFactory("metrics-collector"));
+    private ExecutorService executor;
+
+    // only accessed from the scheduler thread
+    private final Map<String, PodMetricsReader> readers = new HashMap<>();
+    private final Map<String, Future<?>> reads = new HashMap<>();
+    private final Map<String, Set<String>> previousLivePods = new HashMap<>();
+    private final Map<String, IntegrationMetricsSummary> summaries = new HashMap<>();
+    private Set<String> previousIntegrationIds = Collections.emptySet();
+    private long lastFullRefresh;
+
+    private int threads = 4;
+    private Duration fullRefresh = Duration.ofMinutes(1);
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
 
     @Autowired
     public MetricsCollector(DataManager dataManager, JsonDB jsonDB, KubernetesClient kubernetes) {
         this.dataManager = dataManager;
         this.kubernetes = kubernetes;
-        this.rmh = new JsonDBRawMetrics(jsonDB);
+        this.rmh = new CachingRawMetrics(new JsonDBRawMetrics(jsonDB));
         this.imh = new IntegrationMetricsHandler(dataManager);
     }
 
@@ -72,7 +110,11 @@ public class MetricsCollector implements Runnable, Closeable {
     @SuppressWarnings("FutureReturnValueIgnored")
     public void open() {
         LOGGER.info("Starting metrics collector.");
-        scheduler.scheduleAtFixedRate(this, 10, 10, TimeUnit.SECONDS);
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+            new CustomizableThreadFactory("metrics-collector"));
+        pool.allowCoreThreadTimeOut(true);
+        executor = pool;
+        scheduler.scheduleAtFixedRate(this, INTERVAL_SECONDS, INTERVAL_SECONDS, TimeUnit.SECONDS);
     }
 
 
@@ -80,7 +122,12 @@ public class MetricsCollector implements Runnable, Closeable {
     public void close() throws IOException {
         LOGGER.info("Stopping metrics collector.");
         close(scheduler);
-        close(executor);
+        if (executor != null) {
+            close(executor);
+        }
+        readers.values().forEach(PodMetricsReader::close);
+        readers.clear();
+        reads.clear();
     }
 
 
@@ -88,40 +135,28 @@ public class MetricsCollector implements Runnable, Closeable {
     public void run() {
         LOGGER.debug("Collecting metrics for active integration pods.");
         try {
-            List<Pod> integrationPodList = kubernetes.pods().withLabel("integration").list().getItems();
+            Map<String, Set<String>> livePodsByIntegration = new HashMap<>();
             Set<String> livePods = new HashSet<>();
-            for (Pod pod : integrationPodList) {
-                livePods.add(pod.getMetadata().getName());
+            List<Pod> readyPods = new ArrayList<>();
+            Timer.Sample sample = Timer.start(meterRegistry);
+            for (Pod pod : kubernetes.pods().withLabel("integration").list().getItems()) {
+                String podName = pod.getMetadata().getName();
+                livePods.add(podName);
+                livePodsByIntegration.computeIfAbsent(pod.getMetadata().getLabels().get("syndesis.io/integration-id"), k -> new HashSet<>())
+                    .add(podName);
+                if (Readiness.isReady(pod)) {
+                    readyPods.add(pod);
+                }
             }
+            sample.stop(phaseTimer("pods"));
 
-            integrationPodList
-                .stream()
-                .filter(p -> Readiness.isReady(p))
-                .forEach(p ->
-                    executor.execute(new PodMetricsReader(
-                            kubernetes,
-                            p.getMetadata().getName(),
-                            p.getMetadata().getAnnotations().get("syndesis.io/integration-name"),
-                            p.getMetadata().getLabels().get("syndesis.io/integration-id"),
-                            p.getMetadata().getLabels().get("syndesis.io/deployment-version"),
-                            rmh))
-            );
-
-            Set<String> activeIntegrationIds = dataManager.fetchIds(Integration.class);
-            for (String integrationId : activeIntegrationIds) {
-                LOGGER.debug("Computing metrics for IntegrationId: {}",integrationId);
-
-                Map<String,RawMetrics> rawMetrics = rmh.getRawMetrics(integrationId);
-                IntegrationMetricsSummary imSummary = imh.compute(
-                                integrationId,
-                                rawMetrics,
-                                livePods);
-                imh.persist(imSummary);
-                rmh.curate(integrationId, rawMetrics, livePods);
-            }
+            sample = Timer.start(meterRegistry);
+            readPods(readyPods, livePods);
+            sample.stop(phaseTimer("read"));
 
-            rmh.curate(activeIntegrationIds);
-            imh.curate(activeIntegrationIds);
+            sample = Timer.start(meterRegistry);
+            aggregate(livePods, livePodsByIntegration);
+            sample.stop(phaseTimer("aggregate"));
 
         } catch (@SuppressWarnings("PMD.AvoidCatchingGenericException") Exception ex) {
             LOGGER.error("Error while iterating integration pods.", ex);
@@ -129,6 +164,131 @@ public class MetricsCollector implements Runnable, Closeable {
 
     }
 
+    @Value("${metrics.collector.threads:4}")
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    @Value("${metrics.collector.fullRefresh:1 minute}")
+    public void setFullRefresh(String fullRefresh) {
+        this.fullRefresh = new DurationConverter().convert(fullRefresh);
+    }
+
+    @Autowired(required = false)
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Reads the metrics of the ready pods on the bounded executor, reusing
+     * the reader, and with it the Jolokia client, of each pod across
+     * collections. Waits at most one collection interval for the reads, a
+     * pod whose read is still running is skipped on the next collection as
+     * its reader is not thread safe. Readers of pods that are gone are
+     * closed.
+     */
+    private void readPods(List<Pod> readyPods, Set<String> livePods) throws InterruptedException {
+        for (Iterator<Map.Entry<String, PodMetricsReader>> i = readers.entrySet().iterator(); i.hasNext();) {
+            Map.Entry<String, PodMetricsReader> reader = i.next();
+            if (!livePods.contains(reader.getKey())) {
+                i.remove();
+                Future<?> read = reads.remove(reader.getKey());
+                if (read != null) {
+                    read.cancel(true);
+                }
+                reader.getValue().close();
+            }
+        }
+        reads.values().removeIf(Future::isDone);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(INTERVAL_SECONDS);
+        List<Future<?>> started = new ArrayList<>(readyPods.size());
+        for (Pod p : readyPods) {
+            String podName = p.getMetadata().getName();
+            if (reads.containsKey(podName)) {
+                LOGGER.debug("Skipping pod {}, the previous read has not completed", podName);
+                meterRegistry.counter("syndesis.metrics.collector.reads", Tags.of("outcome", "skipped")).increment();
+                continue;
+            }
+
+            PodMetricsReader reader = readers.computeIfAbsent(podName, name -> new PodMetricsReader(
+                kubernetes,
+                name,
+                p.getMetadata().getAnnotations().get("syndesis.io/integration-name"),
+                p.getMetadata().getLabels().get("syndesis.io/integration-id"),
+                p.getMetadata().getLabels().get("syndesis.io/deployment-version"),
+                rmh));
+            Future<?> read = executor.submit(reader);
+            reads.put(podName, read);
+            started.add(read);
+        }
+
+        for (Future<?> read : started) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            try {
+                read.get(remaining, TimeUnit.NANOSECONDS);
+            } catch (ExecutionException e) {
+                LOGGER.debug("Error while reading pod metrics", e);
+            } catch (TimeoutException e) {
+                // still running, the pod is skipped until the read completes
+                break;
+            }
+        }
+        reads.values().removeIf(Future::isDone);
+    }
+
+    private void aggregate(Set<String> livePods, Map<String, Set<String>> livePodsByIntegration) throws IOException {
+        long now = System.nanoTime();
+        boolean full = now - lastFullRefresh >= fullRefresh.toNanos();
+        if (full) {
+            lastFullRefresh = now;
+        }
+
+        Set<String> changed = rmh.drainChanged();
+        Set<String> activeIntegrationIds = dataManager.fetchIds(Integration.class);
+        for (String integrationId : activeIntegrationIds) {
+            Set<String> integrationPods = livePodsByIntegration.getOrDefault(integrationId, Collections.emptySet());
+            boolean podsChanged = !integrationPods.equals(previousLivePods.put(integrationId, integrationPods));
+            if (!full && !podsChanged && !changed.contains(integrationId) && summaries.containsKey(integrationId)) {
+                meterRegistry.counter("syndesis.metrics.collector.summaries", Tags.of("outcome", "skipped")).increment();
+                continue;
+            }
+
+            LOGGER.debug("Computing metrics for IntegrationId: {}",integrationId);
+
+            Map<String,RawMetrics> rawMetrics = rmh.getRawMetrics(integrationId);
+            IntegrationMetricsSummary imSummary = imh.compute(
+                            integrationId,
+                            rawMetrics,
+                            livePods);
+            if (imSummary.equals(summaries.get(integrationId))) {
+                meterRegistry.counter("syndesis.metrics.collector.summaries", Tags.of("outcome", "unchanged")).increment();
+            } else {
+                phaseTimer("persist").record(() -> imh.persist(imSummary));
+                summaries.put(integrationId, imSummary);
+                meterRegistry.counter("syndesis.metrics.collector.summaries", Tags.of("outcome", "persisted")).increment();
+            }
+            rmh.curate(integrationId, rawMetrics, livePods);
+        }
+
+        if (full || !activeIntegrationIds.equals(previousIntegrationIds)) {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            rmh.curate(activeIntegrationIds);
+            imh.curate(activeIntegrationIds);
+            sample.stop(phaseTimer("curate"));
+            summaries.keySet().retainAll(activeIntegrationIds);
+            previousLivePods.keySet().retainAll(activeIntegrationIds);
+            previousIntegrationIds = activeIntegrationIds;
+        }
+    }
+
+    private Timer phaseTimer(String phase) {
+        return meterRegistry.timer("syndesis.metrics.collector.phase", Tags.of("phase", phase));
+    }
+
     private static List<Runnable> close(ExecutorService service) throws IOException {
         service.shutdown();
         try {
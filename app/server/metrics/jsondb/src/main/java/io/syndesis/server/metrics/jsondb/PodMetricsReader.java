@@ -19,6 +19,7 @@ import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.internal.SSLUtils;
 import io.syndesis.common.util.SyndesisServerException;
 
+import org.apache.http.client.HttpClient;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.jolokia.client.J4pClient;
 import org.jolokia.client.J4pClientBuilder;
@@ -33,6 +34,8 @@ import org.slf4j.LoggerFactory;
 import javax.management.MalformedObjectNameException;
 import javax.management.ObjectName;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -44,7 +47,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
-public class PodMetricsReader implements Runnable {
+/**
+ * Reads the route statistics of a single integration pod over Jolokia. The
+ * collector keeps one reader per live pod, so the HTTP client and the
+ * resolved Camel context name are reused on every collection. A reader must
+ * not be run concurrently, and is closed once its pod is gone to release the
+ * pooled HTTP connection.
+ */
+public class PodMetricsReader implements Runnable, Closeable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(PodMetricsReader.class);
 
@@ -55,6 +65,7 @@ public class PodMetricsReader implements Runnable {
     private static final String LAST_COMPLETED_TIMESTAMP = "LastExchangeCompletedTimestamp";
     private static final String LAST_FAILED_TIMESTAMP = "LastExchangeFailureTimestamp";
     private static final String RESET_TIMESTAMP = "ResetTimestamp";
+    private static final int CONNECTION_TIMEOUT_MILLIS = 5000;
 
     private final J4pClient jolokia;
     private final String integration;
@@ -118,6 +129,18 @@ public class PodMetricsReader implements Runnable {
     }
 
 
+    @Override
+    public void close() {
+        HttpClient client = jolokia.getHttpClient();
+        if (client instanceof Closeable) {
+            try {
+                ((Closeable) client).close();
+            } catch (IOException e) {
+                LOGGER.debug("Error closing the Jolokia client of pod: {}", pod, e);
+            }
+        }
+    }
+
     private static Long toLong(String s) {
         if (s == null) {
             return 0L;
@@ -176,22 +199,18 @@ public class PodMetricsReader implements Runnable {
         ObjectName found = camelContextName != null ? lookupCamelContext(camelContextName) : null;
         if (found != null) {
 
-            String pattern = String.format("%s:context=%s,type=routes,*", found.getDomain(), found.getKeyProperty("context"));
-            J4pSearchResponse sr = jolokia.execute(new J4pSearchRequest(pattern));
-
-            List<J4pReadRequest> list = new ArrayList<>();
-            for (ObjectName on : sr.getObjectNames()) {
-                list.add(new J4pReadRequest(on, ROUTE_ID, RESET_TIMESTAMP, EXCHANGES_TOTAL, EXCHANGES_FAILED, LAST_COMPLETED_TIMESTAMP, LAST_FAILED_TIMESTAMP, START_TIMESTAMP ));
-            }
-
-            List<J4pReadResponse> lrr = jolokia.execute(list);
-            for (J4pReadResponse rr : lrr) {
-                String routeId = rr.getValue(ROUTE_ID).toString();
-                if (filter == null || routeId.matches(filter)) {
+            // a single pattern read fetches the attributes of all routes in
+            // one round trip instead of a search followed by a bulk read
+            ObjectName pattern = new ObjectName(String.format("%s:context=%s,type=routes,*", found.getDomain(), found.getKeyProperty("context")));
+            J4pReadResponse rr = jolokia.execute(new J4pReadRequest(pattern, ROUTE_ID, RESET_TIMESTAMP, EXCHANGES_TOTAL, EXCHANGES_FAILED, LAST_COMPLETED_TIMESTAMP, LAST_FAILED_TIMESTAMP, START_TIMESTAMP));
+            for (ObjectName on : rr.getObjectNames()) {
+                Object routeId = rr.getValue(on, ROUTE_ID);
+                if (routeId != null && (filter == null || routeId.toString().matches(filter))) {
                     Map<String, String> row = new LinkedHashMap<>();
-                    for (String attribute : rr.getAttributes()) {
-                        if (rr.getValue(attribute) != null) {
-                            row.put(attribute, rr.getValue(attribute).toString());
+                    for (String attribute : rr.getAttributes(on)) {
+                        Object value = rr.getValue(on, attribute);
+                        if (value != null) {
+                            row.put(attribute, value.toString());
                         }
                     }
                     answer.add(row);
@@ -233,6 +252,9 @@ public class PodMetricsReader implements Runnable {
         try {
             return new J4pClientBuilder()
                 .url(jolokiaUrl)
+                .pooledConnections()
+                .maxTotalConnections(1)
+                .connectionTimeout(CONNECTION_TIMEOUT_MILLIS)
                 .user("user")
                 .authenticator(new JolokiaKubernetesAuthenticator(kubernetes))
                 .sslConnectionSocketFactory(new SSLConnectionSocketFactory(SSLUtils.sslContext(kubernetes.getConfiguration())))
@@ -207,4 +207,33 @@ public class MetricsCollectorTest {
         assertThat(metricsAfter.size()).isEqualTo(0);
         assertThat(dataManager.fetchAll(IntegrationMetricsSummary.class).getTotalCount()).isEqualTo(0);
     }
+
+    @Test
+    public void testCachingRawMetricsTracksChanges() throws IOException {
+        CachingRawMetrics cachingRM = new CachingRawMetrics(jsondbRM);
+        Map<String,RawMetrics> metrics = cachingRM.getRawMetrics("intId1");
+        assertThat(metrics.size()).isEqualTo(3);
+
+        //persisting the same metrics again is not a change
+        cachingRM.persist(metrics.get("pod1"));
+        assertThat(cachingRM.drainChanged()).isEmpty();
+
+        RawMetrics updated = new RawMetrics.Builder().from(metrics.get("pod1")).messages(10L).build();
+        cachingRM.persist(updated);
+        assertThat(cachingRM.drainChanged()).containsOnly("intId1");
+        assertThat(cachingRM.drainChanged()).isEmpty();
+        assertThat(cachingRM.getRawMetrics("intId1").get("pod1")).isEqualTo(updated);
+        assertThat(jsondbRM.getRawMetrics("intId1").get("pod1")).isEqualTo(updated);
+
+        //all pods alive, nothing to curate
+        Set<String> livePodIds = new HashSet<>(Arrays.asList("pod1", "pod2"));
+        cachingRM.curate("intId1", cachingRM.getRawMetrics("intId1"), livePodIds);
+        assertThat(cachingRM.drainChanged()).isEmpty();
+
+        //pod2 died, its metrics move to the history
+        livePodIds.remove("pod2");
+        cachingRM.curate("intId1", cachingRM.getRawMetrics("intId1"), livePodIds);
+        assertThat(cachingRM.drainChanged()).containsOnly("intId1");
+        assertThat(cachingRM.getRawMetrics("intId1").keySet()).containsOnly("pod1", "HISTORY1");
+    }
 }
@@ -0,0 +1,346 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.server.runtime;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.PreDestroy;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.syndesis.common.util.EventBus;
+import io.syndesis.common.util.EventPayload;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import static io.syndesis.common.util.thread.Threads.newThreadFactory;
+
+/**
+ * An event bus that delivers events on its own threads so that publishers,
+ * typically REST request threads performing a {@code DataManager} update, do
+ * not wait for subscribers. Each subscriber gets a bounded queue, events for a
+ * subscriber are delivered in order and never concurrently. When a queue is
+ * full the oldest or the newest event is dropped, depending on the configured
+ * {@link OverflowPolicy}. Identical {@link EventBus.Type#CHANGE_EVENT} events
+ * that are still waiting to be delivered are coalesced into one, an optional
+ * batching window delays delivery of the first event of a burst so that more
+ * of them can be coalesced. Payloads are handed to subscribers as they were
+ * published, JSON is rendered only by subscribers that need it.
+ */
+@Component
+@ConditionalOnProperty(value = "eventbus.type", havingValue = "async")
+public class AsyncEventBus implements EventBus {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncEventBus.class);
+
+    // maximum number of events delivered in one go before yielding the
+    // dispatch thread to other subscribers
+    private static final int DISPATCH_BATCH = 64;
+
+    private final long batchWindow;
+
+    private final int capacity;
+
+    private final boolean coalesce;
+
+    private final Counter coalesced;
+
+    private final Timer deliveryLatency;
+
+    private final Counter dropped;
+
+    private final ScheduledExecutorService executor;
+
+    private final OverflowPolicy overflowPolicy;
+
+    private final Map<String, Mailbox> subscriptions = new ConcurrentHashMap<>();
+
+    public enum OverflowPolicy {
+        DROP_OLDEST, DROP_NEWEST
+    }
+
+    private static final class Envelope {
+        final EventPayload payload;
+
+        final String event;
+
+        final long enqueuedAt;
+
+        Envelope(final String event, final EventPayload payload, final long enqueuedAt) {
+            this.event = event;
+            this.payload = payload;
+            this.enqueuedAt = enqueuedAt;
+        }
+
+        boolean isCoalescable() {
+            return EventBus.Type.CHANGE_EVENT.equals(event);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+
+            if (!(obj instanceof Envelope)) {
+                return false;
+            }
+
+            final Envelope other = (Envelope) obj;
+            return Objects.equals(event, other.event) && Objects.equals(payload, other.payload);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(event, payload);
+        }
+    }
+
+    private final class Mailbox implements Runnable {
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        // coalescable events currently in the queue
+        private final Set<Envelope> pending = new HashSet<>();
+
+        private final Deque<Envelope> queue = new ArrayDeque<>();
+
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private final Subscription subscription;
+
+        private final String subscriberId;
+
+        Mailbox(final String subscriberId, final Subscription subscription) {
+            this.subscriberId = subscriberId;
+            this.subscription = subscription;
+        }
+
+        void close() {
+            closed.set(true);
+            synchronized (this) {
+                queue.clear();
+                pending.clear();
+            }
+        }
+
+        void offer(final Envelope envelope) {
+            if (closed.get()) {
+                return;
+            }
+
+            final boolean burst;
+            synchronized (this) {
+                final boolean coalescable = coalesce && envelope.isCoalescable();
+                if (coalescable && pending.contains(envelope)) {
+                    coalesced.increment();
+                    return;
+                }
+
+                if (queue.size() >= capacity) {
+                    dropped.increment();
+                    if (overflowPolicy == OverflowPolicy.DROP_NEWEST) {
+                        LOG.debug("Queue for subscriber {} is full, dropping event {}", subscriberId, envelope.event);
+                        return;
+                    }
+
+                    final Envelope oldest = queue.poll();
+                    pending.remove(oldest);
+                    LOG.debug("Queue for subscriber {} is full, dropping oldest event {}", subscriberId, oldest.event);
+                }
+
+                burst = queue.isEmpty();
+                queue.add(envelope);
+                if (coalescable) {
+                    pending.add(envelope);
+                }
+            }
+
+            schedule(burst);
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (int i = 0; i < DISPATCH_BATCH && !closed.get(); i++) {
+                    final Envelope envelope = poll();
+                    if (envelope == null) {
+                        break;
+                    }
+
+                    deliver(envelope);
+                }
+            } finally {
+                scheduled.set(false);
+            }
+
+            if (!closed.get() && size() > 0) {
+                // drain the backlog right away, the window only delays the
+                // start of a burst
+                schedule(false);
+            }
+        }
+
+        synchronized int size() {
+            return queue.size();
+        }
+
+        private void deliver(final Envelope envelope) {
+            deliveryLatency.record(System.nanoTime() - envelope.enqueuedAt, TimeUnit.NANOSECONDS);
+            try {
+                subscription.onEvent(envelope.event, envelope.payload);
+            } catch (final RuntimeException e) {
+                LOG.warn("Subscriber {} failed to handle event {}", subscriberId, envelope.event, e);
+            }
+        }
+
+        private synchronized Envelope poll() {
+            final Envelope envelope = queue.poll();
+            if (envelope != null) {
+                pending.remove(envelope);
+            }
+
+            return envelope;
+        }
+
+        private void schedule(final boolean burst) {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    if (burst && batchWindow > 0) {
+                        // let a burst of events accumulate so that it can be
+                        // coalesced before delivery
+                        executor.schedule(this, batchWindow, TimeUnit.MILLISECONDS);
+                    } else {
+                        executor.execute(this);
+                    }
+                } catch (final RejectedExecutionException e) {
+                    scheduled.set(false);
+                    LOG.debug("Event bus is shut down, not delivering events to {}", subscriberId, e);
+                }
+            }
+        }
+    }
+
+    public AsyncEventBus(final int capacity, final OverflowPolicy overflowPolicy, final boolean coalesce, final int threads,
+        final MeterRegistry meterRegistry) {
+        this(capacity, overflowPolicy, coalesce, 0, threads, meterRegistry);
+    }
+
+    /**
+     * @param batchWindow milliseconds to wait before delivering the first
+     *            event of a burst, events for the same subscriber arriving
+     *            within that window are delivered together and identical
+     *            change events among them are coalesced
+     */
+    public AsyncEventBus(final int capacity, final OverflowPolicy overflowPolicy, final boolean coalesce, final long batchWindow, final int threads,
+        final MeterRegistry meterRegistry) {
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        this.coalesce = coalesce;
+        this.batchWindow = batchWindow;
+
+        executor = Executors.newScheduledThreadPool(threads, newThreadFactory("Event Bus"));
+
+        coalesced = meterRegistry.counter("syndesis.eventbus.coalesced");
+        dropped = meterRegistry.counter("syndesis.eventbus.dropped");
+        deliveryLatency = meterRegistry.timer("syndesis.eventbus.delivery.latency");
+        meterRegistry.gauge("syndesis.eventbus.subscribers", subscriptions, Map::size);
+        meterRegistry.gauge("syndesis.eventbus.queue.depth", subscriptions,
+            s -> s.values().stream().mapToInt(Mailbox::size).sum());
+    }
+
+    @Autowired
+    public AsyncEventBus(@Value("${eventbus.async.capacity:1000}") final int capacity,
+        @Value("${eventbus.async.overflow:drop_oldest}") final String overflowPolicy,
+        @Value("${eventbus.async.coalesce:true}") final boolean coalesce,
+        @Value("${eventbus.async.batchWindow:0}") final long batchWindow,
+        @Value("${eventbus.async.threads:2}") final int threads,
+        final ObjectProvider<MeterRegistry> meterRegistry) {
+        this(capacity, OverflowPolicy.valueOf(overflowPolicy.toUpperCase(Locale.US)), coalesce, batchWindow, threads,
+            meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+    }
+
+    @Override
+    public void broadcast(final String event, final String data) {
+        broadcast(event, EventPayload.ofJson(data));
+    }
+
+    @Override
+    public void broadcast(final String event, final EventPayload payload) {
+        final Envelope envelope = new Envelope(event, payload, System.nanoTime());
+        for (final Mailbox mailbox : subscriptions.values()) {
+            mailbox.offer(envelope);
+        }
+    }
+
+    @Override
+    public void send(final String subscriberId, final String event, final String data) {
+        send(subscriberId, event, EventPayload.ofJson(data));
+    }
+
+    @Override
+    public void send(final String subscriberId, final String event, final EventPayload payload) {
+        final Mailbox mailbox = subscriptions.get(subscriberId);
+        if (mailbox != null) {
+            mailbox.offer(new Envelope(event, payload, System.nanoTime()));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        subscriptions.values().forEach(Mailbox::close);
+        subscriptions.clear();
+    }
+
+    @Override
+    public Subscription subscribe(final String subscriberId, final Subscription handler) {
+        final Mailbox previous = subscriptions.put(subscriberId, new Mailbox(subscriberId, handler));
+        return unwrap(previous);
+    }
+
+    @Override
+    public Subscription unsubscribe(final String subscriberId) {
+        return unwrap(subscriptions.remove(subscriberId));
+    }
+
+    private static Subscription unwrap(final Mailbox mailbox) {
+        if (mailbox == null) {
+            return null;
+        }
+
+        mailbox.close();
+        return mailbox.subscription;
+    }
+}
@@ -15,10 +15,17 @@
  */
 package io.syndesis.server.runtime;
 
+import java.time.Duration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import io.syndesis.common.util.cache.CacheManager;
+import io.syndesis.common.util.cache.CaffeineCacheManager;
 import io.syndesis.common.util.cache.LRUCacheManager;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -28,9 +35,24 @@ public class CacheConfiguration {
     @Value("${cache.max.entries}")
     private int maxEntries;
 
+    @Value("${cache.max.bytes:0}")
+    private long maxBytes;
+
+    @Value("${cache.ttl:0}")
+    private Duration ttl;
+
     @Bean
     @ConditionalOnMissingBean
+    @ConditionalOnProperty(value = "cache.type", havingValue = "lru", matchIfMissing = true)
     public CacheManager syndesisCacheManager() {
         return new LRUCacheManager(maxEntries);
     }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(value = "cache.type", havingValue = "caffeine")
+    public CacheManager syndesisCaffeineCacheManager(final ObjectProvider<MeterRegistry> registry) {
+        return new CaffeineCacheManager(maxEntries, maxBytes, ttl)
+            .onCacheCreated((name, cache) -> registry.ifAvailable(r -> CaffeineCacheMetrics.monitor(r, cache, name)));
+    }
 }
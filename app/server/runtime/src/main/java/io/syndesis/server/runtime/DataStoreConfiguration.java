@@ -15,7 +15,10 @@
  */
 package io.syndesis.server.runtime;
 
+import io.syndesis.common.util.CompositeIndexedProperty;
 import io.syndesis.common.util.IndexedProperty;
+import io.syndesis.server.jsondb.JsonDBConfiguration;
+import io.syndesis.server.jsondb.impl.DocumentSqlJsonDB;
 import io.syndesis.server.jsondb.impl.Index;
 import io.syndesis.server.jsondb.impl.SqlJsonDB;
 import io.syndesis.common.model.Kind;
@@ -28,8 +31,11 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Creates and configures the main datastore
@@ -41,14 +47,19 @@ public class DataStoreConfiguration {
     @Bean
     @Autowired
     @SuppressWarnings("PMD.EmptyCatchBlock")
-    public SqlJsonDB jsonDB(DBI dbi, Optional<List<Index>> beanIndexes) {
+    public SqlJsonDB jsonDB(DBI dbi, Optional<List<Index>> beanIndexes, JsonDBConfiguration configuration) {
 
         ArrayList<Index> indexes = new ArrayList<>();
         if(beanIndexes.isPresent()) {
             indexes.addAll(beanIndexes.get());
         }
 
+        Set<String> collections = new LinkedHashSet<>();
         for (Kind kind : Kind.values()) {
+            collections.add("/" + kind.getModelName() + "s");
+            // lists the keys when a page of the collection is queried
+            indexes.add(new Index("/" + kind.getModelName() + "s", "id"));
+
             addIndex(indexes, kind, kind.getModelClass().getAnnotation(UniqueProperty.class));
             UniqueProperty.Multiple ump = kind.getModelClass().getAnnotation(UniqueProperty.Multiple.class);
             if (ump != null) {
@@ -64,14 +75,27 @@ public class DataStoreConfiguration {
                     addIndex(indexes, kind, p);
                 }
             }
+
+            addIndex(indexes, kind, kind.getModelClass().getAnnotation(CompositeIndexedProperty.class));
+            CompositeIndexedProperty.Multiple cimp = kind.getModelClass().getAnnotation(CompositeIndexedProperty.Multiple.class);
+            if (cimp != null) {
+                for (CompositeIndexedProperty p : cimp.value()) {
+                    addIndex(indexes, kind, p);
+                }
+            }
         }
 
-        SqlJsonDB jsondb = new SqlJsonDB(dbi, null, indexes);
+        SqlJsonDB jsondb = configuration.newJsonDB(dbi, indexes, collections);
         try {
             jsondb.createTables();
         } catch (@SuppressWarnings("PMD.AvoidCatchingGenericException") Exception ignore) {
             LOG.debug("Could not create tables", ignore);
         }
+        if (jsondb instanceof DocumentSqlJsonDB) {
+            ((DocumentSqlJsonDB) jsondb).migrateToDocuments();
+        }
+        jsondb.rebuildPropertyIndexes();
+        jsondb.rebuildCompositeIndexes();
         return jsondb;
     }
 
@@ -81,6 +105,12 @@ public class DataStoreConfiguration {
         }
     }
 
+    private static void addIndex(List<Index> indexes, Kind kind, CompositeIndexedProperty p) {
+        if (p != null) {
+            indexes.add(new Index("/" + kind.getModelName() + "s", Arrays.asList(p.value())));
+        }
+    }
+
     private static void addIndex(List<Index> indexes, Kind kind, UniqueProperty p) {
         if (p != null) {
             indexes.add(new Index("/" + kind.getModelName() + "s", p.value()));
@@ -19,6 +19,8 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 import io.syndesis.common.util.EventBus;
+import io.syndesis.common.util.EventPayload;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
 /**
@@ -26,6 +28,7 @@ import org.springframework.stereotype.Component;
  * which have a subscribed to events.  This could potentially be implemented using a messaging broker.
  */
 @Component
+@ConditionalOnProperty(value = "eventbus.type", havingValue = "simple", matchIfMissing = true)
 public class SimpleEventBus implements EventBus {
 
     private final ConcurrentHashMap<String, Subscription> subscriptions = new ConcurrentHashMap<>();
@@ -41,16 +44,26 @@ public class SimpleEventBus implements EventBus {
 
     @Override
     public void broadcast(String event, String data) {
+        broadcast(event, EventPayload.ofJson(data));
+    }
+
+    @Override
+    public void broadcast(String event, EventPayload payload) {
         for (Map.Entry<String, Subscription> entry : subscriptions.entrySet()) {
-            entry.getValue().onEvent(event, data);
+            entry.getValue().onEvent(event, payload);
         }
     }
 
     @Override
     public void send(String subscriberId, String event, String data) {
+        send(subscriberId, event, EventPayload.ofJson(data));
+    }
+
+    @Override
+    public void send(String subscriberId, String event, EventPayload payload) {
         Subscription sub = subscriptions.get(subscriberId);
         if( sub!=null ) {
-            sub.onEvent(event, data);
+            sub.onEvent(event, payload);
         }
     }
 
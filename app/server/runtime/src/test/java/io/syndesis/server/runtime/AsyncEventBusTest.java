@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.server.runtime;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.syndesis.common.util.EventBus;
+import io.syndesis.common.util.EventPayload;
+import io.syndesis.server.runtime.AsyncEventBus.OverflowPolicy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AsyncEventBusTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private AsyncEventBus eventBus;
+
+    @AfterEach
+    public void shutdown() {
+        if (eventBus != null) {
+            eventBus.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldBroadcastToAllSubscribers() throws InterruptedException {
+        eventBus = createEventBus(10, OverflowPolicy.DROP_OLDEST, true);
+
+        final CountDownLatch done = new CountDownLatch(2);
+        final List<String> received = new CopyOnWriteArrayList<>();
+        final EventBus.Subscription subscription = (event, data) -> {
+            received.add(event + ":" + data);
+            done.countDown();
+        };
+        eventBus.subscribe("a", subscription);
+        eventBus.subscribe("b", subscription);
+
+        eventBus.broadcast("text", "data");
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(received).containsExactly("text:data", "text:data");
+    }
+
+    @Test
+    public void shouldCoalescePendingChangeEvents() throws InterruptedException {
+        eventBus = createEventBus(10, OverflowPolicy.DROP_OLDEST, true);
+
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(3);
+        final List<String> received = new CopyOnWriteArrayList<>();
+        eventBus.subscribe("a", (event, data) -> {
+            blocked.countDown();
+            await(release);
+            received.add(data);
+            done.countDown();
+        });
+
+        eventBus.send("a", EventBus.Type.CHANGE_EVENT, "first");
+        assertThat(blocked.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // the subscriber is busy with the first event, these queue up
+        eventBus.send("a", EventBus.Type.CHANGE_EVENT, "second");
+        eventBus.send("a", EventBus.Type.CHANGE_EVENT, "second");
+        eventBus.send("a", EventBus.Type.CHANGE_EVENT, "third");
+        release.countDown();
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(received).containsExactly("first", "second", "third");
+        assertThat(registry.counter("syndesis.eventbus.coalesced").count()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldCoalesceTypedChangeEventsWithinBatchWindow() throws InterruptedException {
+        eventBus = new AsyncEventBus(10, OverflowPolicy.DROP_OLDEST, true, 200, 1, registry);
+
+        final CountDownLatch done = new CountDownLatch(2);
+        final List<Object> received = new CopyOnWriteArrayList<>();
+        eventBus.subscribe("a", EventBus.Subscription.of((event, payload) -> {
+            received.add(payload.as(String.class).orElse(null));
+            done.countDown();
+        }));
+
+        final Supplier<String> notRendered = () -> {
+            throw new AssertionError("payload should not be rendered");
+        };
+        for (int i = 0; i < 5; i++) {
+            eventBus.broadcast(EventBus.Type.CHANGE_EVENT, EventPayload.of("same", notRendered));
+        }
+        eventBus.broadcast(EventBus.Type.CHANGE_EVENT, EventPayload.of("other", notRendered));
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(received).containsExactly("same", "other");
+        assertThat(registry.counter("syndesis.eventbus.coalesced").count()).isEqualTo(4);
+    }
+
+    @Test
+    public void shouldDelayOnlyTheStartOfABurst() throws InterruptedException {
+        eventBus = new AsyncEventBus(1000, OverflowPolicy.DROP_OLDEST, false, 1000, 1, registry);
+
+        final CountDownLatch done = new CountDownLatch(256);
+        eventBus.subscribe("a", (event, data) -> done.countDown());
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < 256; i++) {
+            eventBus.send("a", "text", String.valueOf(i));
+        }
+
+        // the backlog spans several dispatch batches, only the first waits
+        // for the batch window
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(2_500L);
+    }
+
+    @Test
+    public void shouldDropOldestWhenFull() throws InterruptedException {
+        assertDropped(OverflowPolicy.DROP_OLDEST, "first", "3", "4");
+    }
+
+    @Test
+    public void shouldDropNewestWhenFull() throws InterruptedException {
+        assertDropped(OverflowPolicy.DROP_NEWEST, "first", "1", "2");
+    }
+
+    @Test
+    public void shouldNotDeliverAfterUnsubscribe() {
+        eventBus = createEventBus(10, OverflowPolicy.DROP_OLDEST, true);
+
+        final EventBus.Subscription subscription = (event, data) -> {
+            // not used
+        };
+
+        assertThat(eventBus.subscribe("a", subscription)).isNull();
+        assertThat(eventBus.unsubscribe("a")).isSameAs(subscription);
+        assertThat(eventBus.unsubscribe("a")).isNull();
+    }
+
+    private void assertDropped(final OverflowPolicy policy, final String... expected) throws InterruptedException {
+        eventBus = createEventBus(2, policy, false);
+
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(3);
+        final List<String> received = new CopyOnWriteArrayList<>();
+        eventBus.subscribe("a", (event, data) -> {
+            blocked.countDown();
+            await(release);
+            received.add(data);
+            done.countDown();
+        });
+
+        eventBus.send("a", "text", "first");
+        assertThat(blocked.await(5, TimeUnit.SECONDS)).isTrue();
+
+        for (int i = 1; i <= 4; i++) {
+            eventBus.send("a", "text", String.valueOf(i));
+        }
+        release.countDown();
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(received).containsExactly(expected);
+        assertThat(registry.counter("syndesis.eventbus.dropped").count()).isEqualTo(2);
+    }
+
+    private AsyncEventBus createEventBus(final int capacity, final OverflowPolicy policy, final boolean coalesce) {
+        return new AsyncEventBus(capacity, policy, coalesce, 1, registry);
+    }
+
+    private static void await(final CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -31,8 +31,7 @@ import io.syndesis.common.model.ChangeEvent;
 import io.syndesis.common.model.Kind;
 import io.syndesis.common.util.EventBus;
 import io.syndesis.common.util.EventBus.Subscription;
-
-import io.syndesis.common.util.json.JsonUtils;
+import io.syndesis.common.util.EventPayload;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -40,7 +39,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 public class ResourceUpdateController {
     private static final Logger LOGGER = LoggerFactory.getLogger(ResourceUpdateController.class);
 
-    final Subscription handler = this::onEvent;
+    final Subscription handler = Subscription.of(this::onEvent);
 
     final AtomicBoolean running;
 
@@ -95,18 +94,22 @@ public class ResourceUpdateController {
     // FutureReturnValueIgnored: there should not be any exceptions from logging
     // PMD.InvalidSlf4jMessageFormat: https://github.com/pmd/pmd/issues/939
     @SuppressWarnings({"FutureReturnValueIgnored", "PMD.InvalidSlf4jMessageFormat"})
-    void onEvent(final String event, final String data) {
-        onEventInternal(event, data)
+    void onEvent(final String event, final EventPayload payload) {
+        onEventInternal(event, payload)
             .whenComplete((x, t) -> {
                 if (t == null) {
-                    LOGGER.debug("Processed event: {} with data {}", event, data);
+                    LOGGER.debug("Processed event: {} with data {}", event, payload);
                 } else {
-                    LOGGER.warn("Failed to process event: {} with data {}", event, data, t);
+                    LOGGER.warn("Failed to process event: {} with data {}", event, payload, t);
                 }
             });
     }
 
     CompletableFuture<Void> onEventInternal(final String event, final String data) {
+        return onEventInternal(event, EventPayload.ofJson(data));
+    }
+
+    CompletableFuture<Void> onEventInternal(final String event, final EventPayload payload) {
         if (!running.get()) {
             return CompletableFuture.completedFuture(null);
         }
@@ -118,9 +121,9 @@ public class ResourceUpdateController {
 
         final ChangeEvent changeEvent;
         try {
-            changeEvent = JsonUtils.reader().forType(ChangeEvent.class).readValue(data);
+            changeEvent = ChangeEvent.fromPayload(payload).orElse(null);
         } catch (final IOException e) {
-            LOGGER.error("Error while processing change-event {}", data, e);
+            LOGGER.error("Error while processing change-event {}", payload, e);
             final CompletableFuture<Void> errored = new CompletableFuture<>();
             errored.completeExceptionally(e);
 